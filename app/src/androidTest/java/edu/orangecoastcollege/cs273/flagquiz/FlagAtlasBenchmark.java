@@ -0,0 +1,129 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * Compares getting the flags of every region from their own PNGs and from the flag atlas:
+ * how many assets are opened, how many bytes are read and how long it takes, from nothing
+ * in memory to every flag of the region decoded once.
+ *
+ * Every region is measured on its own, like a quiz of that region which shows every flag.
+ * Results are written to the log under the FlagAtlasBenchmark tag.  The atlas is only in the APK
+ * when it has the original PNGs, i.e. when it is built without flag variants (-PflagVariants=),
+ * the benchmark is skipped otherwise.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FlagAtlasBenchmark {
+
+    private static final String TAG = FlagAtlasBenchmark.class.getSimpleName();
+
+    private static final int TARGET_WIDTH = 540;
+    private static final int TARGET_HEIGHT = 360;
+    private static final int RUNS = 5;
+
+    private AssetManager mAssets;
+    private FlagAtlasIndex mIndex;
+    private final Map<String, List<String>> mRegions = new LinkedHashMap<>();
+
+    @Before
+    public void loadCatalog() throws Exception {
+        mAssets = InstrumentationRegistry.getTargetContext().getAssets();
+        FlagAtlas atlas = FlagAtlas.open(mAssets, Integer.MAX_VALUE);
+        assumeNotNull(atlas);
+        mIndex = atlas.getIndex();
+
+        for (Country country : JSONLoader.loadJSONFromAsset(InstrumentationRegistry.getTargetContext())) {
+            List<String> flags = mRegions.get(country.getRegion());
+            if (flags == null) {
+                flags = new ArrayList<>();
+                mRegions.put(country.getRegion(), flags);
+            }
+            flags.add(country.getFileName());
+        }
+    }
+
+    @Test
+    public void pngsVersusAtlas() throws Exception {
+        long pngNanosTotal = 0;
+        long atlasNanosTotal = 0;
+        for (Map.Entry<String, List<String>> region : mRegions.entrySet()) {
+            List<String> flags = region.getValue();
+
+            // I/O: every flag is its own asset, or every flag is on one of a few pages
+            long pngBytes = 0;
+            for (String flag : flags)
+                pngBytes += assetLength(flag);
+            Set<Integer> pages = new HashSet<>();
+            for (String flag : flags)
+                pages.add(mIndex.get(flag).getPage());
+            long atlasBytes = 0;
+            for (int page : pages)
+                atlasBytes += assetLength(mIndex.getPagePath(page));
+
+            long pngNanos = Long.MAX_VALUE;
+            long atlasNanos = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                pngNanos = Math.min(pngNanos, decodeAll(flags, false));
+                atlasNanos = Math.min(atlasNanos, decodeAll(flags, true));
+            }
+            pngNanosTotal += pngNanos;
+            atlasNanosTotal += atlasNanos;
+
+            Log.i(TAG, String.format("%-14s %3d flags | PNGs: %3d opens %8d bytes %7.1f ms | "
+                            + "atlas: %d opens %8d bytes %7.1f ms",
+                    region.getKey(), flags.size(), flags.size(), pngBytes, pngNanos / 1e6,
+                    pages.size(), atlasBytes, atlasNanos / 1e6));
+        }
+        Log.i(TAG, String.format("all regions: PNGs %.1f ms, atlas %.1f ms",
+                pngNanosTotal / 1e6, atlasNanosTotal / 1e6));
+    }
+
+    // decodes every flag once, with a new atlas (no page in memory) and a pool of 4 like the app
+    private long decodeAll(List<String> flags, boolean useAtlas) throws IOException {
+        FlagAtlas atlas = useAtlas ? new FlagAtlas(mAssets, mIndex, Integer.MAX_VALUE) : null;
+        FlagDecoder decoder = new FlagDecoder(mAssets, new BitmapPool(4), atlas, TARGET_WIDTH, TARGET_HEIGHT);
+        Bitmap displayed = null;
+
+        long start = System.nanoTime();
+        for (String flag : flags) {
+            Bitmap bitmap = decoder.decode(flag);
+            decoder.getPool().put(displayed);
+            displayed = bitmap;
+        }
+        long nanos = System.nanoTime() - start;
+
+        if (atlas != null)
+            assertTrue("flags must come from the atlas", atlas.getPageDecodes() > 0);
+        return nanos;
+    }
+
+    private long assetLength(String path) throws IOException {
+        AssetFileDescriptor fd = mAssets.openFd(path);
+        try {
+            return fd.getLength();
+        }
+        finally {
+            fd.close();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures the heap churn of decoding the flags of 1,000 simulated questions, with the old
+ * Drawable.createFromStream path and with FlagDecoder + BitmapPool.
+ *
+ * Every question decodes the next flag and then drops (or releases) the prior one, like
+ * MainActivity does.  Pixel buffers are only counted after one pass over the whole catalog,
+ * which lets the pool fill up with Bitmaps big enough for any flag.  The flags are read from the
+ * variant the app picks for this device, if there is one.  Results are written to the log under
+ * the FlagDecodeChurnTest tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FlagDecodeChurnTest {
+
+    private static final String TAG = FlagDecodeChurnTest.class.getSimpleName();
+
+    private static final int QUESTIONS = 1000;
+    private static final int TARGET_WIDTH = 540;
+    private static final int TARGET_HEIGHT = 360;
+
+    private AssetManager mAssets;
+    private List<Country> mCountries;
+    private FlagVariants.Variant mVariant; // null for the original PNGs
+
+    @Before
+    public void loadCatalog() throws Exception {
+        mAssets = InstrumentationRegistry.getTargetContext().getAssets();
+        mCountries = JSONLoader.loadJSONFromAsset(InstrumentationRegistry.getTargetContext());
+        DisplayMetrics metrics = InstrumentationRegistry.getTargetContext().getResources().getDisplayMetrics();
+        mVariant = MainActivity.selectFlagVariant(mAssets, metrics);
+    }
+
+    @Test
+    public void drawableFromStream() throws Exception {
+        Set<Bitmap> pixelBuffers = Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+        int newPixelBuffers = 0;
+        long pixelBytes = 0;
+
+        for (int i = 0; i < mCountries.size(); i++)
+            pixelBuffers.add(decodeDrawable(mCountries.get(i)));
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocSize();
+        for (int i = 0; i < QUESTIONS; i++) {
+            Bitmap flag = decodeDrawable(mCountries.get(i % mCountries.size()));
+            if (pixelBuffers.add(flag)) {
+                ++newPixelBuffers;
+                pixelBytes += flag.getByteCount();
+            }
+        }
+        long heapBytes = Debug.getThreadAllocSize();
+        Debug.stopAllocCounting();
+
+        Log.i(TAG, String.format("Drawable.createFromStream: %d new pixel buffers (%d bytes), "
+                + "%d bytes allocated on the Java heap", newPixelBuffers, pixelBytes, heapBytes));
+    }
+
+    // the decode MainActivity used to do for every question
+    private Bitmap decodeDrawable(Country country) throws Exception {
+        String fileName = country.getFileName();
+        InputStream stream = mAssets.open(mVariant != null ? mVariant.resolve(fileName) : fileName);
+        Drawable flag = Drawable.createFromStream(stream, country.getName());
+        stream.close();
+        return ((BitmapDrawable) flag).getBitmap();
+    }
+
+    @Test
+    public void flagDecoderWithPool() throws Exception {
+        FlagDecoder decoder = new FlagDecoder(mAssets, new BitmapPool(4), null, mVariant,
+                TARGET_WIDTH, TARGET_HEIGHT);
+        Set<Bitmap> pixelBuffers = Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+        int newPixelBuffers = 0;
+        long pixelBytes = 0;
+        Bitmap displayed = null;
+
+        for (int i = 0; i < mCountries.size(); i++) {
+            Bitmap flag = decoder.decode(mCountries.get(i).getFileName());
+            decoder.getPool().put(displayed);
+            displayed = flag;
+            pixelBuffers.add(flag);
+        }
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocSize();
+        for (int i = 0; i < QUESTIONS; i++) {
+            Bitmap flag = decoder.decode(mCountries.get(i % mCountries.size()).getFileName());
+            decoder.getPool().put(displayed);
+            displayed = flag;
+            if (pixelBuffers.add(flag)) {
+                ++newPixelBuffers;
+                pixelBytes += flag.getByteCount();
+            }
+        }
+        long heapBytes = Debug.getThreadAllocSize();
+        Debug.stopAllocCounting();
+
+        Log.i(TAG, String.format("FlagDecoder + BitmapPool: %d new pixel buffers (%d bytes), "
+                + "%d bytes allocated on the Java heap", newPixelBuffers, pixelBytes, heapBytes));
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.KITKAT)
+            assertEquals("steady state play must not allocate pixel buffers", 0, pixelBytes);
+    }
+}
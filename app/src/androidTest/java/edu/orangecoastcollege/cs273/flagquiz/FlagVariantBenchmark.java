@@ -0,0 +1,108 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the flag variants built by the encodeFlagVariants task: the bytes they add to the
+ * APK, how long decoding every flag takes and how much memory the decoded Bitmaps use, at the
+ * size the flags are displayed at on this device.  Variants this API level can not decode are
+ * skipped.
+ *
+ * Results are written to the log under the FlagVariantBenchmark tag, with the variant the app
+ * would pick on this device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FlagVariantBenchmark {
+
+    private static final String TAG = FlagVariantBenchmark.class.getSimpleName();
+
+    private static final int RUNS = 3;
+
+    private AssetManager mAssets;
+    private FlagVariants mVariants;
+    private final List<String> mFlags = new ArrayList<>();
+    private int mTargetWidth;
+    private int mTargetHeight;
+
+    @Before
+    public void loadCatalog() throws Exception {
+        mAssets = InstrumentationRegistry.getTargetContext().getAssets();
+        InputStream in = mAssets.open(FlagVariants.MANIFEST);
+        try {
+            mVariants = FlagVariants.read(in);
+        }
+        finally {
+            in.close();
+        }
+        for (Country country : JSONLoader.loadJSONFromAsset(InstrumentationRegistry.getTargetContext()))
+            mFlags.add(country.getFileName());
+
+        // like MainActivity before the ImageView is laid out
+        DisplayMetrics metrics = InstrumentationRegistry.getTargetContext().getResources().getDisplayMetrics();
+        mTargetWidth = metrics.widthPixels;
+        mTargetHeight = metrics.heightPixels / 2;
+    }
+
+    @Test
+    public void decodeTimeAndMemoryPerVariant() throws Exception {
+        DisplayMetrics metrics = InstrumentationRegistry.getTargetContext().getResources().getDisplayMetrics();
+        Log.i(TAG, String.format("%d flags, %dx%d target, %d dpi, API %d, selected %s",
+                mFlags.size(), mTargetWidth, mTargetHeight, metrics.densityDpi, Build.VERSION.SDK_INT,
+                mVariants.select(metrics.densityDpi, Build.VERSION.SDK_INT).getName()));
+
+        for (FlagVariants.Variant variant : mVariants.getVariants()) {
+            if (variant.getMinSdk() > Build.VERSION.SDK_INT) {
+                Log.i(TAG, variant.getName() + " skipped, needs API " + variant.getMinSdk());
+                continue;
+            }
+            long nanos = Long.MAX_VALUE;
+            long bitmapBytes = 0;
+            for (int run = 0; run < RUNS; run++) {
+                long[] result = decodeAll(variant);
+                nanos = Math.min(nanos, result[0]);
+                bitmapBytes = result[1];
+            }
+            Log.i(TAG, String.format("%-20s %4d dpi | APK %9d bytes | decode %7.1f ms, %6.2f ms per flag | "
+                            + "bitmaps %6d KB per flag",
+                    variant.getName(), variant.getDensity(), variant.getBytes(), nanos / 1e6,
+                    nanos / 1e6 / mFlags.size(), bitmapBytes / mFlags.size() / 1024));
+        }
+    }
+
+    // decodes every flag once from the variant, returns the time and the bytes of all the Bitmaps
+    private long[] decodeAll(FlagVariants.Variant variant) throws IOException {
+        FlagDecoder decoder = new FlagDecoder(mAssets, new BitmapPool(4), null, variant,
+                mTargetWidth, mTargetHeight);
+        Bitmap displayed = null;
+        long bitmapBytes = 0;
+
+        long start = System.nanoTime();
+        for (String flag : mFlags) {
+            Bitmap bitmap = decoder.decode(flag);
+            bitmapBytes += bitmap.getByteCount();
+            decoder.getPool().put(displayed);
+            displayed = bitmap;
+        }
+        long nanos = System.nanoTime() - start;
+
+        assertTrue(bitmapBytes > 0);
+        return new long[] {nanos, bitmapBytes};
+    }
+}
@@ -0,0 +1,106 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BitmapPool keeps a few flag Bitmaps which are no longer displayed, so their pixel memory
+ * can be reused (BitmapFactory.Options.inBitmap) to decode the next flags instead of
+ * allocating a new pixel buffer for every question.
+ *
+ * From KitKat on, any pooled Bitmap which is big enough can be reused.  Before KitKat the
+ * Bitmap must have exactly the size of the decoded image.
+ *
+ * The pool is used from the decode thread and from the main thread, so it is synchronized.
+ */
+public class BitmapPool {
+
+    private final int mMaxSize;
+    private final List<Bitmap> mBitmaps;
+
+    /**
+     * @param maxSize how many Bitmaps the pool keeps, extra ones are left to the garbage collector.
+     */
+    public BitmapPool(int maxSize) {
+        mMaxSize = maxSize;
+        mBitmaps = new ArrayList<>(maxSize);
+    }
+
+    /**
+     * Removes and returns a Bitmap which can be used to decode an image of the given size.
+     * @param width the width of the decoded image.
+     * @param height the height of the decoded image.
+     * @param config the config of the decoded image.
+     * @return a reusable Bitmap, or null if the pool has none that fits.
+     */
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        int best = -1;
+        for (int i = 0; i < mBitmaps.size(); i++) {
+            Bitmap candidate = mBitmaps.get(i);
+            if (!canReuse(candidate, width, height, config))
+                continue;
+            // prefer the smallest Bitmap which fits, so bigger ones stay available for bigger flags
+            if (best < 0 || byteCount(candidate) < byteCount(mBitmaps.get(best)))
+                best = i;
+        }
+        return best < 0 ? null : mBitmaps.remove(best);
+    }
+
+    /**
+     * Gives a Bitmap back to the pool, it must not be displayed or used anymore.
+     * @param bitmap the Bitmap to reuse.
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || mBitmaps.contains(bitmap))
+            return;
+        if (mBitmaps.size() == mMaxSize) {
+            // keep the biggest Bitmaps, they can hold any flag
+            int smallest = 0;
+            for (int i = 1; i < mBitmaps.size(); i++)
+                if (byteCount(mBitmaps.get(i)) < byteCount(mBitmaps.get(smallest)))
+                    smallest = i;
+            if (byteCount(mBitmaps.get(smallest)) >= byteCount(bitmap))
+                return;
+            mBitmaps.remove(smallest);
+        }
+        mBitmaps.add(bitmap);
+    }
+
+    /**
+     * Drops every pooled Bitmap.
+     */
+    public synchronized void clear() {
+        mBitmaps.clear();
+    }
+
+    /**
+     * @return how many Bitmaps are in the pool.
+     */
+    public synchronized int size() {
+        return mBitmaps.size();
+    }
+
+    private static boolean canReuse(Bitmap candidate, int width, int height, Bitmap.Config config) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+            return width * height * bytesPerPixel(config) <= candidate.getAllocationByteCount();
+        return candidate.getWidth() == width && candidate.getHeight() == height
+                && candidate.getConfig() == config;
+    }
+
+    private static int byteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+            return bitmap.getAllocationByteCount();
+        return bitmap.getByteCount();
+    }
+
+    static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ARGB_8888)
+            return 4;
+        if (config == Bitmap.Config.ALPHA_8)
+            return 1;
+        return 2;
+    }
+}
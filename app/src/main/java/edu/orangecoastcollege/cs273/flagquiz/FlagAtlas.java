@@ -0,0 +1,203 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.os.Build;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * FlagAtlas gets flags out of the atlas pages packed at build time by the packFlagAtlases
+ * Gradle task: a few big images with the flags of one region each, instead of one PNG per flag.
+ *
+ * A page is opened and decoded once, then every flag on it is copied out of the decoded page,
+ * which is much cheaper than opening and decoding a PNG.  Decoded pages are kept, least
+ * recently used first out, within a byte budget.  Pages are decoded with the same sample size
+ * a single flag would be decoded with, so small screens get small pages.
+ *
+ * When a flag is not in the atlas, or its page could never fit the budget, extract() returns
+ * null and the flag is decoded from its own PNG, which is still in the APK.
+ *
+ * extract() is only called from the FlagLoader's thread, trimMemory() from the main thread.
+ */
+public class FlagAtlas {
+
+    private static final String TAG = FlagAtlas.class.getSimpleName();
+
+    static final String INDEX = "atlas/FlagAtlas.idx";
+
+    private static final Bitmap.Config CONFIG = Bitmap.Config.ARGB_8888;
+
+    private final AssetManager mAssets;
+    private final FlagAtlasIndex mIndex;
+    private final LruCache<Integer, Page> mPages;
+    // copies pixels as they are, transparent ones included, over whatever a pooled Bitmap held
+    private final Paint mCopyPaint = new Paint();
+    private final Rect mSource = new Rect();
+    private final Rect mDestination = new Rect();
+    private volatile int mPageDecodes;
+
+    /**
+     * Opens the atlas of the APK.
+     * @param assets the AssetManager used to open the atlas pages.
+     * @param maxBytes the most memory the decoded pages may use.
+     * @return the atlas, or null if the APK has no (valid) atlas.
+     */
+    public static FlagAtlas open(AssetManager assets, int maxBytes) {
+        try {
+            InputStream in = assets.open(INDEX);
+            try {
+                return new FlagAtlas(assets, FlagAtlasIndex.read(in), maxBytes);
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException e) {
+            Log.w(TAG, "No flag atlas, every flag is decoded from its own PNG", e);
+            return null;
+        }
+    }
+
+    /**
+     * @param assets the AssetManager used to open the atlas pages.
+     * @param index where the flags are in the pages.
+     * @param maxBytes the most memory the decoded pages may use.
+     */
+    public FlagAtlas(AssetManager assets, FlagAtlasIndex index, int maxBytes) {
+        mAssets = assets;
+        mIndex = index;
+        mPages = new LruCache<Integer, Page>(maxBytes) {
+            @Override
+            protected int sizeOf(Integer page, Page decoded) {
+                return decoded.mBitmap.getByteCount();
+            }
+        };
+        mCopyPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+    }
+
+    /**
+     * Copies a flag out of its atlas page, the page is decoded first if it is not in memory.
+     * @param fileName the Country's file name.
+     * @param targetWidth width the flag is displayed at.
+     * @param targetHeight height the flag is displayed at.
+     * @param pool the pool the flag's Bitmap is taken from.
+     * @return the flag in a mutable Bitmap, or null if it has to be decoded from its PNG.
+     * @throws IOException if the page can not be read or is not an image.
+     */
+    public Bitmap extract(String fileName, int targetWidth, int targetHeight, BitmapPool pool)
+            throws IOException {
+        FlagAtlasIndex.Entry entry = mIndex.get(fileName);
+        if (entry == null)
+            return null;
+        int sampleSize = FlagDecoder.calculateSampleSize(entry.getWidth(), entry.getHeight(),
+                targetWidth, targetHeight);
+        Bitmap page = page(entry.getPage(), sampleSize);
+        if (page == null)
+            return null;
+
+        // the flag's rectangle in the sampled page
+        mSource.set(entry.getX() / sampleSize, entry.getY() / sampleSize,
+                Math.min((entry.getX() + entry.getWidth()) / sampleSize, page.getWidth()),
+                Math.min((entry.getY() + entry.getHeight()) / sampleSize, page.getHeight()));
+        int width = mSource.width();
+        int height = mSource.height();
+        mDestination.set(0, 0, width, height);
+
+        Bitmap flag = pool.get(width, height, CONFIG);
+        if (flag != null && (flag.getWidth() != width || flag.getHeight() != height)) {
+            // a bigger pooled Bitmap (KitKat and up only) takes the size of the flag
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+                flag.reconfigure(width, height, CONFIG);
+            else
+                flag = null;
+        }
+        if (flag == null)
+            flag = Bitmap.createBitmap(width, height, CONFIG);
+        new Canvas(flag).drawBitmap(page, mSource, mDestination, mCopyPaint);
+        return flag;
+    }
+
+    // the decoded page, or null if it would not fit the budget
+    private Bitmap page(int number, int sampleSize) throws IOException {
+        Page page = mPages.get(number);
+        if (page != null && page.mSampleSize == sampleSize)
+            return page.mBitmap;
+
+        int width = (mIndex.getPageWidth(number) + sampleSize - 1) / sampleSize;
+        int height = (mIndex.getPageHeight(number) + sampleSize - 1) / sampleSize;
+        if (width * height * BitmapPool.bytesPerPixel(CONFIG) > mPages.maxSize())
+            return null;
+
+        String path = mIndex.getPagePath(number);
+        InputStream stream = mAssets.open(path);
+        Bitmap bitmap;
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = sampleSize;
+            options.inPreferredConfig = CONFIG;
+            bitmap = BitmapFactory.decodeStream(stream, null, options);
+        }
+        finally {
+            stream.close();
+        }
+        if (bitmap == null)
+            throw new IOException("Could not decode " + path);
+        ++mPageDecodes;
+        mPages.put(number, new Page(bitmap, sampleSize));
+        return bitmap;
+    }
+
+    /**
+     * Releases memory when the system asks for it (see ComponentCallbacks2.onTrimMemory).
+     * Pages are big, so they are all dropped rather than trimmed.
+     * @param level the trim level passed to onTrimMemory.
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL)
+            mPages.evictAll();
+    }
+
+    /**
+     * @return the index of the atlas.
+     */
+    public FlagAtlasIndex getIndex() {
+        return mIndex;
+    }
+
+    /**
+     * @return how many times a page was decoded.
+     */
+    public int getPageDecodes() {
+        return mPageDecodes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FlagAtlas[%d flags on %d pages, %d page decodes, %d/%d KB]",
+                mIndex.size(), mIndex.getPageCount(), mPageDecodes,
+                mPages.size() / 1024, mPages.maxSize() / 1024);
+    }
+
+    private static class Page {
+        final Bitmap mBitmap;
+        final int mSampleSize;
+
+        Page(Bitmap bitmap, int sampleSize) {
+            mBitmap = bitmap;
+            mSampleSize = sampleSize;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * FlagAtlasIndex reads atlas/FlagAtlas.idx, produced at build time by the packFlagAtlases
+ * Gradle task (see app/catalog.gradle), which tells where every flag is in the atlas pages.
+ *
+ * The file is big-endian and laid out as:
+ *  - int magic "FQAT" and short version
+ *  - short page count, then for every page: its asset path (modified UTF-8, as written by
+ *    DataOutputStream.writeUTF), short width and short height
+ *  - int flag count, then for every flag: its file name (as Country.getFileName() returns it,
+ *    modified UTF-8), short page, short x, short y, short width and short height
+ */
+public class FlagAtlasIndex {
+
+    static final int MAGIC = 0x46514154; // "FQAT"
+    static final int VERSION = 1;
+
+    /**
+     * Where one flag is in the atlas.
+     */
+    public static class Entry {
+        private final int mPage;
+        private final int mX;
+        private final int mY;
+        private final int mWidth;
+        private final int mHeight;
+
+        Entry(int page, int x, int y, int width, int height) {
+            mPage = page;
+            mX = x;
+            mY = y;
+            mWidth = width;
+            mHeight = height;
+        }
+
+        /**
+         * @return the page the flag is on.
+         */
+        public int getPage() {
+            return mPage;
+        }
+
+        /**
+         * @return the left edge of the flag in the page, in pixels.
+         */
+        public int getX() {
+            return mX;
+        }
+
+        /**
+         * @return the top edge of the flag in the page, in pixels.
+         */
+        public int getY() {
+            return mY;
+        }
+
+        /**
+         * @return the width of the flag, in pixels.
+         */
+        public int getWidth() {
+            return mWidth;
+        }
+
+        /**
+         * @return the height of the flag, in pixels.
+         */
+        public int getHeight() {
+            return mHeight;
+        }
+    }
+
+    private final String[] mPagePaths;
+    private final int[] mPageWidths;
+    private final int[] mPageHeights;
+    private final Map<String, Entry> mEntries;
+
+    private FlagAtlasIndex(String[] pagePaths, int[] pageWidths, int[] pageHeights, Map<String, Entry> entries) {
+        mPagePaths = pagePaths;
+        mPageWidths = pageWidths;
+        mPageHeights = pageHeights;
+        mEntries = entries;
+    }
+
+    /**
+     * Reads a whole FlagAtlas.idx file.  The stream is not closed.
+     *
+     * @param in the stream containing the index.
+     * @return the index.
+     * @throws IOException if the stream can not be read or does not contain a valid index.
+     */
+    public static FlagAtlasIndex read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        try {
+            if (data.readInt() != MAGIC)
+                throw new IOException("Not a flag atlas index");
+            int version = data.readShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported flag atlas index version " + version);
+
+            int pageCount = data.readUnsignedShort();
+            String[] paths = new String[pageCount];
+            int[] widths = new int[pageCount];
+            int[] heights = new int[pageCount];
+            for (int i = 0; i < pageCount; i++) {
+                paths[i] = data.readUTF();
+                widths[i] = data.readUnsignedShort();
+                heights[i] = data.readUnsignedShort();
+            }
+
+            int flagCount = data.readInt();
+            if (flagCount < 0)
+                throw new IOException("Corrupt flag atlas index");
+            Map<String, Entry> entries = new HashMap<>(flagCount * 4 / 3 + 1);
+            for (int i = 0; i < flagCount; i++) {
+                String fileName = data.readUTF();
+                Entry entry = new Entry(data.readUnsignedShort(), data.readUnsignedShort(),
+                        data.readUnsignedShort(), data.readUnsignedShort(), data.readUnsignedShort());
+                if (entry.mPage >= pageCount || entry.mX + entry.mWidth > widths[entry.mPage]
+                        || entry.mY + entry.mHeight > heights[entry.mPage])
+                    throw new IOException("Flag " + fileName + " is outside of its atlas page");
+                entries.put(fileName, entry);
+            }
+            return new FlagAtlasIndex(paths, widths, heights, entries);
+        }
+        catch (EOFException e) {
+            throw new IOException("Truncated flag atlas index", e);
+        }
+    }
+
+    /**
+     * @param fileName the flag's file name, as Country.getFileName() returns it.
+     * @return where the flag is, or null if it is not in the atlas.
+     */
+    public Entry get(String fileName) {
+        return mEntries.get(fileName);
+    }
+
+    /**
+     * @return how many flags are in the atlas.
+     */
+    public int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * @return how many pages the atlas has.
+     */
+    public int getPageCount() {
+        return mPagePaths.length;
+    }
+
+    /**
+     * @param page a page number.
+     * @return the path of the page image in the assets folder.
+     */
+    public String getPagePath(int page) {
+        return mPagePaths[page];
+    }
+
+    /**
+     * @param page a page number.
+     * @return the width of the page image, in pixels.
+     */
+    public int getPageWidth(int page) {
+        return mPageWidths[page];
+    }
+
+    /**
+     * @param page a page number.
+     * @return the height of the page image, in pixels.
+     */
+    public int getPageHeight(int page) {
+        return mPageHeights[page];
+    }
+}
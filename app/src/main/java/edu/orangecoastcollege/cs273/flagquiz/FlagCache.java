@@ -0,0 +1,193 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.v4.util.LruCache;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * FlagCache keeps decoded flags in memory, least recently used first out, so replaying a
+ * region or starting a new quiz does not decode the same flags over and over.
+ *
+ * The cache is keyed by Country.getFileName() and bounded by the number of bytes of the
+ * Bitmaps it holds.  Flags which are evicted go to the BitmapPool so their memory is reused,
+ * unless they are still displayed (pinned).
+ *
+ * hitCount(), missCount() and evictionCount() can be used to tune the budget per device.  Only
+ * get() counts, contains() checks for a flag without changing the counts or the LRU order, so
+ * the FlagLoader's prefetches do not show up as misses.
+ * All methods must be called on the main thread.
+ */
+public class FlagCache {
+
+    private final LruCache<String, Bitmap> mCache;
+    private final BitmapPool mPool;
+    // the keys in mCache, for contains(); LruCache has no lookup which is not counted
+    private final Set<String> mKeys = new HashSet<>();
+
+    // flags which are handed out to the UI and how many times, they must not be reused when
+    // they are evicted
+    private final IdentityHashMap<Bitmap, Integer> mPinned = new IdentityHashMap<>();
+    // pinned flags which were evicted, they go to the pool once they are unpinned
+    private final Set<Bitmap> mEvictedPinned = Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+
+    /**
+     * @param maxBytes the most memory the cached flags may use.
+     * @param pool receives the flags which are evicted and not pinned.
+     */
+    public FlagCache(int maxBytes, BitmapPool pool) {
+        mPool = pool;
+        mCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap flag) {
+                return byteCount(flag);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldFlag, Bitmap newFlag) {
+                if (newFlag == null)
+                    mKeys.remove(key);
+                if (oldFlag == newFlag)
+                    return;
+                if (mPinned.containsKey(oldFlag))
+                    mEvictedPinned.add(oldFlag);
+                else
+                    mPool.put(oldFlag);
+            }
+        };
+    }
+
+    /**
+     * @param fileName the Country's file name.
+     * @return the cached flag, or null.
+     */
+    public Bitmap get(String fileName) {
+        return mCache.get(fileName);
+    }
+
+    /**
+     * Checks for a flag without counting a hit or a miss or making it the most recently used.
+     * @param fileName the Country's file name.
+     * @return true if the flag is cached.
+     */
+    public boolean contains(String fileName) {
+        return mKeys.contains(fileName);
+    }
+
+    /**
+     * Adds a decoded flag, which may evict the least recently used ones.
+     * @param fileName the Country's file name.
+     * @param flag the decoded flag.
+     */
+    public void put(String fileName, Bitmap flag) {
+        mKeys.add(fileName);
+        mCache.put(fileName, flag);
+    }
+
+    /**
+     * Marks a flag as displayed, so it is not reused while it is on the screen.  A flag can be
+     * pinned more than once (e.g. shown and prefetched), it stays pinned until every pin()
+     * was matched by an unpin().
+     * @param flag a flag from this cache.
+     */
+    public void pin(Bitmap flag) {
+        if (flag == null)
+            return;
+        Integer pins = mPinned.get(flag);
+        mPinned.put(flag, pins != null ? pins + 1 : 1);
+    }
+
+    /**
+     * Takes back one pin() of a flag.  Once it is not pinned anymore and it was evicted in the
+     * meantime it goes to the BitmapPool.
+     * @param flag a flag passed to pin() before.
+     */
+    public void unpin(Bitmap flag) {
+        Integer pins = flag != null ? mPinned.get(flag) : null;
+        if (pins == null)
+            return;
+        if (pins > 1) {
+            mPinned.put(flag, pins - 1);
+            return;
+        }
+        mPinned.remove(flag);
+        if (mEvictedPinned.remove(flag))
+            mPool.put(flag);
+    }
+
+    /**
+     * Releases memory when the system asks for it (see ComponentCallbacks2.onTrimMemory).
+     * @param level the trim level passed to onTrimMemory.
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            mCache.evictAll();
+            mPool.clear();
+        }
+        else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+            mPool.clear();
+        }
+    }
+
+    /**
+     * Drops every cached flag.
+     */
+    public void evictAll() {
+        mCache.evictAll();
+    }
+
+    /**
+     * @return how many lookups found their flag in the cache.
+     */
+    public int hitCount() {
+        return mCache.hitCount();
+    }
+
+    /**
+     * @return how many lookups did not find their flag in the cache.
+     */
+    public int missCount() {
+        return mCache.missCount();
+    }
+
+    /**
+     * @return how many flags were evicted to stay under the byte budget.
+     */
+    public int evictionCount() {
+        return mCache.evictionCount();
+    }
+
+    /**
+     * @return how many bytes the cached flags use.
+     */
+    public int size() {
+        return mCache.size();
+    }
+
+    /**
+     * @return the byte budget of the cache.
+     */
+    public int maxSize() {
+        return mCache.maxSize();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FlagCache[%d/%d KB, hits=%d, misses=%d, evictions=%d]",
+                size() / 1024, maxSize() / 1024, hitCount(), missCount(), evictionCount());
+    }
+
+    private static int byteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+            return bitmap.getAllocationByteCount();
+        return bitmap.getByteCount();
+    }
+}
@@ -0,0 +1,287 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+
+/**
+ * FlagDecoder decodes a flag image from the assets folder at (about) the size it will be
+ * displayed at, instead of at the full resolution of the PNG.
+ *
+ * The image bounds are read first, then a power of two sample size is chosen so the decoded
+ * Bitmap is the smallest one which still covers the target size.  The pixels are decoded into
+ * a Bitmap from the BitmapPool when one fits, so after the first few questions no new pixel
+ * buffers are allocated.
+ *
+ * When a FlagVariants.Variant is given, every flag is decoded from that variant (i.e. smaller
+ * palette PNGs scaled for the screen density) instead of the original PNGs, which are not in
+ * the APK when the variants replace them.
+ *
+ * Otherwise, when a FlagAtlas is given, flags are copied out of its decoded pages instead, and
+ * only flags which are not in the atlas are decoded from their own PNG.  The atlas is packed
+ * from the original PNGs, so it is not used with a variant.
+ *
+ * When a FlagDiskCache is given, decode() first looks the flag up there, at the target size,
+ * and copies its pixels into a pooled Bitmap, which takes a fraction of decoding the PNG.  A
+ * flag which had to be decoded is copied into a mapped disk cache file, which is forced to the
+ * disk on the given Executor, so the next start finds it.
+ *
+ * decode() can be called from any thread, setTargetSize() is normally called from the main
+ * thread whenever the flag's ImageView is laid out.
+ */
+public class FlagDecoder {
+
+    private static final String TAG = FlagDecoder.class.getSimpleName();
+
+    private static final Bitmap.Config CONFIG = Bitmap.Config.ARGB_8888;
+
+    private final AssetManager mAssets;
+    private final BitmapPool mPool;
+    private final FlagAtlas mAtlas;
+    private final FlagVariants.Variant mVariant;
+    private final FlagDiskCache mDiskCache;
+    private final Executor mDiskWriter;
+    private volatile int mTargetWidth;
+    private volatile int mTargetHeight;
+
+    /**
+     * @param assets the AssetManager used to open the flags.
+     * @param pool the pool decoded Bitmaps are taken from.
+     * @param targetWidth width the flags are decoded for, until setTargetSize() is called.
+     * @param targetHeight height the flags are decoded for, until setTargetSize() is called.
+     */
+    public FlagDecoder(AssetManager assets, BitmapPool pool, int targetWidth, int targetHeight) {
+        this(assets, pool, null, targetWidth, targetHeight);
+    }
+
+    /**
+     * @param assets the AssetManager used to open the flags.
+     * @param pool the pool decoded Bitmaps are taken from.
+     * @param atlas the atlas flags are copied from, or null to decode every flag from its PNG.
+     * @param targetWidth width the flags are decoded for, until setTargetSize() is called.
+     * @param targetHeight height the flags are decoded for, until setTargetSize() is called.
+     */
+    public FlagDecoder(AssetManager assets, BitmapPool pool, FlagAtlas atlas, int targetWidth, int targetHeight) {
+        this(assets, pool, atlas, null, targetWidth, targetHeight);
+    }
+
+    /**
+     * @param assets the AssetManager used to open the flags.
+     * @param pool the pool decoded Bitmaps are taken from.
+     * @param atlas the atlas flags are copied from, or null to decode every flag from its PNG.
+     * @param variant the flag variant to decode, or null for the original PNGs.
+     * @param targetWidth width the flags are decoded for, until setTargetSize() is called.
+     * @param targetHeight height the flags are decoded for, until setTargetSize() is called.
+     */
+    public FlagDecoder(AssetManager assets, BitmapPool pool, FlagAtlas atlas, FlagVariants.Variant variant,
+                       int targetWidth, int targetHeight) {
+        this(assets, pool, atlas, variant, null, null, targetWidth, targetHeight);
+    }
+
+    /**
+     * @param assets the AssetManager used to open the flags.
+     * @param pool the pool decoded Bitmaps are taken from.
+     * @param atlas the atlas flags are copied from, or null to decode every flag from its PNG.
+     * @param variant the flag variant to decode, or null for the original PNGs.
+     * @param diskCache the decoded flags kept on disk, or null to always decode them.
+     * @param diskWriter writes decoded flags to diskCache, off the decoding thread.
+     * @param targetWidth width the flags are decoded for, until setTargetSize() is called.
+     * @param targetHeight height the flags are decoded for, until setTargetSize() is called.
+     */
+    public FlagDecoder(AssetManager assets, BitmapPool pool, FlagAtlas atlas, FlagVariants.Variant variant,
+                       FlagDiskCache diskCache, Executor diskWriter, int targetWidth, int targetHeight) {
+        mAssets = assets;
+        mPool = pool;
+        mAtlas = atlas;
+        mVariant = variant;
+        mDiskCache = diskCache;
+        mDiskWriter = diskWriter;
+        setTargetSize(targetWidth, targetHeight);
+    }
+
+    /**
+     * @param width the width of the view the flags are displayed in, in pixels.
+     * @param height the height of the view the flags are displayed in, in pixels.
+     */
+    public void setTargetSize(int width, int height) {
+        if (width > 0 && height > 0) {
+            mTargetWidth = width;
+            mTargetHeight = height;
+        }
+    }
+
+    /**
+     * @return the pool decoded Bitmaps come from, Bitmaps which are not displayed anymore
+     * should be given back to it.
+     */
+    public BitmapPool getPool() {
+        return mPool;
+    }
+
+    /**
+     * Decodes a flag, from the disk cache or the atlas if it is there.
+     * @param fileName the path of the flag in the assets folder.
+     * @return a mutable Bitmap at least as big as the target size (unless the image is smaller).
+     * @throws IOException if the asset can not be read or is not an image.
+     */
+    public Bitmap decode(String fileName) throws IOException {
+        // the flags are decoded for the target size, so it is part of the key
+        String key = fileName + "@" + mTargetWidth + "x" + mTargetHeight;
+        if (mDiskCache != null) {
+            Bitmap flag = readDiskCache(key);
+            if (flag != null)
+                return flag;
+        }
+        Bitmap flag = null;
+        if (mAtlas != null && !hasVariant()) {
+            try {
+                flag = mAtlas.extract(fileName, mTargetWidth, mTargetHeight, mPool);
+            }
+            catch (IOException e) {
+                Log.w(TAG, "Could not copy " + fileName + " from the atlas, decoding its PNG", e);
+            }
+        }
+        if (flag == null)
+            flag = decodeAsset(fileName);
+        if (mDiskCache != null && flag.getConfig() == CONFIG)
+            writeDiskCache(key, flag);
+        return flag;
+    }
+
+    // copies a flag out of the disk cache into a pooled Bitmap, null if it is not there
+    private Bitmap readDiskCache(String key) {
+        FlagDiskCache.Pixels cached = mDiskCache.get(key);
+        if (cached == null || cached.getFormat() != FlagDiskCache.FORMAT_ARGB_8888)
+            return null;
+        int width = cached.getWidth();
+        int height = cached.getHeight();
+        Bitmap flag = mPool.get(width, height, CONFIG);
+        if (flag != null && (flag.getWidth() != width || flag.getHeight() != height)) {
+            // a bigger pooled Bitmap (KitKat and up only) takes the size of the flag
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+                flag.reconfigure(width, height, CONFIG);
+            else
+                flag = null;
+        }
+        if (flag == null)
+            flag = Bitmap.createBitmap(width, height, CONFIG);
+        flag.copyPixelsFromBuffer(cached.getBuffer());
+        return flag;
+    }
+
+    // copies the pixels of a decoded flag straight into a mapped disk cache file, then forces
+    // and renames it on mDiskWriter; the Bitmap itself can not be handed over, it goes back to
+    // the pool once it is not displayed
+    private void writeDiskCache(final String key, Bitmap flag) {
+        final FlagDiskCache.Entry entry;
+        try {
+            entry = mDiskCache.edit(key, FlagDiskCache.FORMAT_ARGB_8888, flag.getWidth(), flag.getHeight());
+            if (entry == null)
+                return;
+        }
+        catch (IOException e) {
+            Log.w(TAG, "Could not write " + key + " to the disk cache", e);
+            return;
+        }
+        try {
+            flag.copyPixelsToBuffer(entry.getBuffer());
+        }
+        catch (RuntimeException e) {
+            entry.abort();
+            throw e;
+        }
+        mDiskWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    entry.commit();
+                }
+                catch (IOException e) {
+                    Log.w(TAG, "Could not write " + key + " to the disk cache", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Decodes a flag from its own image, in the flag variant if there is one, even if it is in
+     * the atlas.
+     * @param fileName the path of the original flag in the assets folder.
+     * @return a mutable Bitmap at least as big as the target size (unless the image is smaller).
+     * @throws IOException if the asset can not be read or is not an image.
+     */
+    public Bitmap decodeAsset(String fileName) throws IOException {
+        return decodeFile(hasVariant() ? mVariant.resolve(fileName) : fileName);
+    }
+
+    // true if the flags are decoded from a variant, not from the original PNGs
+    private boolean hasVariant() {
+        return mVariant != null && !mVariant.isOriginal();
+    }
+
+    private Bitmap decodeFile(String fileName) throws IOException {
+        InputStream stream = mAssets.open(fileName);
+        try {
+            // the asset stream supports mark/reset, so bounds and pixels are read with one open
+            stream.mark(Integer.MAX_VALUE);
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeStream(stream, null, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0)
+                throw new IOException("Not an image: " + fileName);
+
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = calculateSampleSize(options.outWidth, options.outHeight,
+                    mTargetWidth, mTargetHeight);
+            options.inMutable = true;
+            options.inPreferredConfig = CONFIG;
+            options.inBitmap = mPool.get(
+                    scaledSize(options.outWidth, options.inSampleSize),
+                    scaledSize(options.outHeight, options.inSampleSize), CONFIG);
+
+            Bitmap bitmap;
+            stream.reset();
+            try {
+                bitmap = BitmapFactory.decodeStream(stream, null, options);
+            }
+            catch (IllegalArgumentException e) {
+                // the pooled Bitmap could not be reused after all, decode into a new one
+                Log.w(TAG, "Could not reuse bitmap for " + fileName, e);
+                options.inBitmap = null;
+                stream.reset();
+                bitmap = BitmapFactory.decodeStream(stream, null, options);
+            }
+            if (bitmap == null)
+                throw new IOException("Could not decode " + fileName);
+            return bitmap;
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Finds the largest power of two sample size which keeps the decoded image at least as big
+     * as the target in both dimensions.
+     * @return the inSampleSize to decode with, 1 if the image is not bigger than the target.
+     */
+    static int calculateSampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0)
+            return sampleSize;
+        while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight)
+            sampleSize *= 2;
+        return sampleSize;
+    }
+
+    // size of a dimension after sampling, rounded up so a pooled Bitmap is never too small
+    private static int scaledSize(int size, int sampleSize) {
+        return (size + sampleSize - 1) / sampleSize;
+    }
+}
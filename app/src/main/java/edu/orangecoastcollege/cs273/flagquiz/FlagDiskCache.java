@@ -0,0 +1,447 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FlagDiskCache keeps decoded flags on disk as raw pixels, already scaled to the flag's
+ * ImageView, so a warm start shows the first flag by mapping a file instead of inflating and
+ * unfiltering a PNG.  It is the second level behind the FlagCache in memory: the FlagDecoder
+ * looks a flag up here before decoding it, and writes every flag it had to decode.
+ *
+ * Every flag is a file of its own, a 32 byte big-endian header followed by the pixels:
+ *  - int magic "FQPX", short version and short pixel format (FORMAT_ARGB_8888)
+ *  - int width, int height and int pixel byte count
+ *  - int hash of the flag's key (it is in the file name too, but sanitized) and 8 bytes 0
+ * get() maps the file read only and hands out the pixels as a ByteBuffer, which the decoder
+ * copies into a Bitmap, so the pages are read straight from the page cache.
+ *
+ * The files are in a directory named after VERSION and a hash of the version key the cache
+ * is opened with (MainActivity uses the catalog fingerprint, the time the APK was installed
+ * and the flag variant), so flags of an older APK or an older catalog are never shown:
+ * opening the cache deletes every other directory.
+ *
+ * The files take at most maxBytes, the least recently used ones are deleted first.  The order
+ * is kept across starts in the files' modification times, get() touches the file it reads.
+ *
+ * Writes are crash safe: the flag is written to a temporary file, forced to the disk and
+ * renamed over the old one, so a file is either complete or not there.  edit() hands out the
+ * temporary file mapped read write, so the decoder copies a Bitmap's pixels straight into the
+ * file instead of into a buffer of its own, and commit() does the rest on another thread.  Temporary files left
+ * by a crash are deleted when the cache is opened, and a file which is not a valid entry
+ * anyway (e.g. the disk was full) is deleted when it is read and is a miss.
+ *
+ * get(), put() and edit() can be called from any thread, put() and commit() usually on a
+ * background thread as they wait for the disk.
+ */
+public class FlagDiskCache {
+
+    static final int MAGIC = 0x46515058; // "FQPX"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    private static final String SUFFIX = ".px";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** 4 bytes per pixel, as Bitmap.copyPixelsToBuffer() writes an ARGB_8888 Bitmap. */
+    public static final int FORMAT_ARGB_8888 = 1;
+
+    /**
+     * The pixels of a cached flag.
+     */
+    public static class Pixels {
+        private final int mFormat;
+        private final int mWidth;
+        private final int mHeight;
+        private final ByteBuffer mBuffer;
+
+        Pixels(int format, int width, int height, ByteBuffer buffer) {
+            mFormat = format;
+            mWidth = width;
+            mHeight = height;
+            mBuffer = buffer;
+        }
+
+        /**
+         * @return the pixel format, i.e. FORMAT_ARGB_8888.
+         */
+        public int getFormat() {
+            return mFormat;
+        }
+
+        /**
+         * @return the width in pixels.
+         */
+        public int getWidth() {
+            return mWidth;
+        }
+
+        /**
+         * @return the height in pixels.
+         */
+        public int getHeight() {
+            return mHeight;
+        }
+
+        /**
+         * @return the pixels, row by row, from the position to the limit.  Read only, mapped
+         * from the file.
+         */
+        public ByteBuffer getBuffer() {
+            return mBuffer;
+        }
+    }
+
+    /**
+     * A flag being written, see edit().  Either commit() or abort() it.
+     */
+    public class Entry {
+        private final String mFileName;
+        private final File mTemp;
+        private final RandomAccessFile mFile;
+        private final MappedByteBuffer mMapped;
+        private final ByteBuffer mPixels;
+
+        Entry(String fileName, File temp, RandomAccessFile file, MappedByteBuffer mapped) {
+            mFileName = fileName;
+            mTemp = temp;
+            mFile = file;
+            mMapped = mapped;
+            mMapped.position(HEADER_BYTES);
+            mPixels = mMapped.slice();
+        }
+
+        /**
+         * @return where the pixels go, width * height * 4 bytes mapped from the temporary
+         * file, e.g. for Bitmap.copyPixelsToBuffer().
+         */
+        public ByteBuffer getBuffer() {
+            return mPixels;
+        }
+
+        /**
+         * Forces the pixels to the disk and renames the temporary file, so the flag is cached.
+         * The least recently used flags are deleted if they take more than maxBytes with it.
+         * @throws IOException if the flag could not be written, nothing was cached then.
+         */
+        public void commit() throws IOException {
+            boolean written = false;
+            try {
+                mMapped.force();
+                mFile.getChannel().force(true); // on the disk before the name is, so a crash leaves no torn file
+                mFile.close();
+                long size = HEADER_BYTES + mPixels.capacity();
+                synchronized (FlagDiskCache.this) {
+                    if (!mTemp.renameTo(new File(mDirectory, mFileName)))
+                        throw new IOException("Can not rename " + mTemp + " to " + mFileName);
+                    written = true;
+                    Long old = mEntries.put(mFileName, size);
+                    mBytes += size - (old != null ? old : 0);
+                    trimTo(mMaxBytes);
+                }
+            }
+            finally {
+                if (!written)
+                    abort();
+            }
+        }
+
+        /**
+         * Deletes the temporary file, nothing is cached.
+         */
+        public void abort() {
+            try {
+                mFile.close();
+            }
+            catch (IOException e) {
+                // deleted below anyway
+            }
+            mTemp.delete();
+        }
+    }
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    // file name -> file size, least recently used first
+    private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<>(64, 0.75f, true);
+    private long mBytes;
+    private int mHitCount;
+    private int mMissCount;
+    private int mEvictionCount;
+
+    private FlagDiskCache(File directory, long maxBytes) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Opens the cache, creating its directory if needed.  The directories of other versions
+     * and temporary files left by a crash are deleted, and the least recently used flags if
+     * they take more than maxBytes.
+     * @param root the directory the cache keeps its directory in, i.e. in Context.getCacheDir().
+     * @param versionKey what the cached flags depend on, flags cached with another key are
+     * deleted.
+     * @param maxBytes the most the cached files may take.
+     * @return the cache.
+     * @throws IOException if the directory can not be created.
+     */
+    public static FlagDiskCache open(File root, String versionKey, long maxBytes) throws IOException {
+        String name = "v" + VERSION + "-" + Integer.toHexString(versionKey.hashCode());
+        File directory = new File(root, name);
+        File[] others = root.listFiles();
+        if (others != null)
+            for (File other : others)
+                if (!other.getName().equals(name))
+                    deleteRecursively(other);
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Can not create " + directory);
+
+        FlagDiskCache cache = new FlagDiskCache(directory, maxBytes);
+        File[] files = directory.listFiles();
+        if (files == null)
+            throw new IOException("Can not list " + directory);
+        List<File> entries = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX))
+                entries.add(file);
+            else
+                file.delete(); // a write which did not finish
+        }
+        final Map<File, Long> touched = new LinkedHashMap<>();
+        for (File file : entries)
+            touched.put(file, file.lastModified());
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                // not Long.compare(), which Android only has since API 19
+                long x = touched.get(a);
+                long y = touched.get(b);
+                return x < y ? -1 : x == y ? 0 : 1;
+            }
+        });
+        synchronized (cache) {
+            for (File file : entries) {
+                cache.mEntries.put(file.getName(), file.length());
+                cache.mBytes += file.length();
+            }
+            cache.trimTo(maxBytes);
+        }
+        return cache;
+    }
+
+    /**
+     * Looks a flag up.
+     * @param key the flag's key, e.g. its file name and the size it was scaled to.
+     * @return its pixels, mapped from the file, or null if it is not cached.
+     */
+    public Pixels get(String key) {
+        String fileName = fileName(key);
+        synchronized (this) {
+            if (mEntries.get(fileName) == null) {
+                ++mMissCount;
+                return null;
+            }
+        }
+        File file = new File(mDirectory, fileName);
+        Pixels pixels = null;
+        try {
+            pixels = map(file, key);
+        }
+        catch (IOException e) {
+            // deleted in the meantime, or the disk failed; dropped below like a bad entry
+        }
+        synchronized (this) {
+            if (pixels == null) {
+                ++mMissCount;
+                remove(fileName);
+                return null;
+            }
+            ++mHitCount;
+        }
+        file.setLastModified(System.currentTimeMillis()); // keeps the order for the next start
+        return pixels;
+    }
+
+    // maps an entry, null if the file is not a valid entry for key
+    private static Pixels map(File file, String key) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        MappedByteBuffer mapped;
+        try {
+            if (in.length() < HEADER_BYTES)
+                return null;
+            // the mapping stays valid once the file is closed
+            mapped = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+        }
+        finally {
+            in.close();
+        }
+        if (mapped.getInt(0) != MAGIC || mapped.getShort(4) != VERSION)
+            return null;
+        int format = mapped.getShort(6);
+        int width = mapped.getInt(8);
+        int height = mapped.getInt(12);
+        int byteCount = mapped.getInt(16);
+        if (format != FORMAT_ARGB_8888 || width <= 0 || height <= 0 || byteCount != width * height * 4
+                || mapped.getInt(20) != key.hashCode() || mapped.capacity() != HEADER_BYTES + byteCount)
+            return null;
+        mapped.position(HEADER_BYTES);
+        return new Pixels(format, width, height, mapped.slice());
+    }
+
+    /**
+     * Writes a flag, replacing the one cached with the same key.  The least recently used
+     * flags are deleted if they take more than maxBytes with it.
+     * @param key the flag's key, e.g. its file name and the size it was scaled to.
+     * @param format the pixel format, FORMAT_ARGB_8888.
+     * @param width the width in pixels.
+     * @param height the height in pixels.
+     * @param pixels width * height * 4 bytes, from the position to the limit.  Not changed.
+     * @throws IOException if the flag could not be written, nothing was cached then.
+     */
+    public void put(String key, int format, int width, int height, ByteBuffer pixels) throws IOException {
+        if (pixels.remaining() != width * height * 4)
+            throw new IllegalArgumentException("Not " + width + "x" + height + " ARGB_8888 pixels: "
+                    + pixels.remaining() + " bytes");
+        Entry entry = edit(key, format, width, height);
+        if (entry == null)
+            return;
+        entry.getBuffer().put(pixels.duplicate());
+        entry.commit();
+    }
+
+    /**
+     * Starts writing a flag: creates its temporary file, with the header, and maps it.  The
+     * caller copies the pixels into the Entry's buffer and commits it, which replaces the flag
+     * cached with the same key.
+     * @param key the flag's key, e.g. its file name and the size it was scaled to.
+     * @param format the pixel format, FORMAT_ARGB_8888.
+     * @param width the width in pixels.
+     * @param height the height in pixels.
+     * @return the entry to copy the pixels into, or null if the flag alone takes more than
+     * maxBytes.
+     * @throws IOException if the temporary file could not be created.
+     */
+    public Entry edit(String key, int format, int width, int height) throws IOException {
+        if (format != FORMAT_ARGB_8888 || width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Not " + width + "x" + height + " ARGB_8888 pixels");
+        int byteCount = width * height * 4;
+        if (HEADER_BYTES + byteCount > mMaxBytes)
+            return null;
+
+        // a name of its own, a put of the same flag on another thread writes another file
+        File temp = File.createTempFile(fileName(key), TEMP_SUFFIX, mDirectory);
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(temp, "rw");
+            MappedByteBuffer mapped = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + byteCount);
+            mapped.putInt(MAGIC).putShort((short) VERSION).putShort((short) format)
+                    .putInt(width).putInt(height).putInt(byteCount).putInt(key.hashCode());
+            return new Entry(fileName(key), temp, file, mapped);
+        }
+        catch (IOException | RuntimeException e) {
+            if (file != null)
+                file.close();
+            temp.delete();
+            throw e;
+        }
+    }
+
+    // deletes the least recently used files until the others take at most maxBytes
+    private void trimTo(long maxBytes) {
+        Iterator<Map.Entry<String, Long>> entries = mEntries.entrySet().iterator();
+        while (mBytes > maxBytes && entries.hasNext()) {
+            Map.Entry<String, Long> entry = entries.next();
+            new File(mDirectory, entry.getKey()).delete();
+            mBytes -= entry.getValue();
+            entries.remove();
+            ++mEvictionCount;
+        }
+    }
+
+    private void remove(String fileName) {
+        Long size = mEntries.remove(fileName);
+        if (size != null)
+            mBytes -= size;
+        new File(mDirectory, fileName).delete();
+    }
+
+    // the file name of a key, everything but letters, digits, '.' and '-' becomes '_'
+    static String fileName(String key) {
+        char[] name = key.toCharArray();
+        for (int i = 0; i < name.length; i++) {
+            char c = name[i];
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '.' || c == '-'))
+                name[i] = '_';
+        }
+        return new String(name) + SUFFIX;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null)
+            for (File child : children)
+                deleteRecursively(child);
+        file.delete();
+    }
+
+    /**
+     * @return the directory the flags are in.
+     */
+    public File getDirectory() {
+        return mDirectory;
+    }
+
+    /**
+     * @return how many bytes the cached files take.
+     */
+    public synchronized long getBytes() {
+        return mBytes;
+    }
+
+    /**
+     * @return how many flags are cached.
+     */
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * @return how many get() found their flag.
+     */
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return how many get() did not.
+     */
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return how many flags were deleted to stay under maxBytes.
+     */
+    public synchronized int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * @return a one line summary, for the log.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("FlagDiskCache[%d flags, %d KB of %d KB, %d hits, %d misses, %d evicted]",
+                mEntries.size(), mBytes / 1024, mMaxBytes / 1024, mHitCount, mMissCount, mEvictionCount);
+    }
+}
@@ -0,0 +1,254 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * FlagLoader decodes flag images from the assets folder on a background thread, using a
+ * FlagDecoder so the flags are decoded at the size they are displayed at.  Decoded flags
+ * are kept in a FlagCache, so they are not decoded again in later quizzes.
+ *
+ * MainActivity asks for the flag of the current question with load(), and calls prefetch()
+ * for the next questions so they are decoded while the user is still answering (or waiting
+ * for the 2 second delay after a correct answer).  When a prefetched flag is asked for with
+ * load() it is usually already decoded and is handed back straight away.
+ *
+ * All the public methods must be called on the main thread, and callbacks are delivered on
+ * the main thread.  cancelAll() drops every pending decode, it is used when the quiz is reset.
+ * A flag handed out by load() stays pinned in the cache until it is given back with release(),
+ * so its memory is not reused while it is displayed.
+ *
+ * The loader counts how each load() was served, see getReadyCount(), getInFlightCount()
+ * and getColdCount().  It also times every decode and counts the cache hits and the bytes
+ * decoded in the QuizMetrics.
+ */
+public class FlagLoader {
+
+    private static final String TAG = FlagLoader.class.getSimpleName();
+
+    /**
+     * Receives a decoded flag on the main thread.
+     */
+    public interface Callback {
+        /**
+         * @param country the country the flag was requested for.
+         * @param flag the decoded flag, or null if it could not be loaded.
+         */
+        void onFlagLoaded(Country country, Bitmap flag);
+    }
+
+    private final FlagDecoder mDecoder;
+    private final FlagCache mCache;
+    private final QuizMetrics mMetrics;
+    private final ExecutorService mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // decodes which have not finished yet, keyed by file name
+    private final Map<String, Request> mRequests = new HashMap<>();
+
+    private int mReadyCount; // load() found the flag already decoded (in the cache)
+    private int mInFlightCount; // load() found the flag still being decoded
+    private int mColdCount; // load() had to start decoding the flag
+
+    /**
+     * @param decoder decodes the flag images.
+     * @param cache keeps the decoded flags.
+     * @param metrics times the decodes and counts the cache hits.
+     */
+    public FlagLoader(FlagDecoder decoder, FlagCache cache, QuizMetrics metrics) {
+        mDecoder = decoder;
+        mCache = cache;
+        mMetrics = metrics;
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "FlagLoader");
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Starts decoding a flag which will be needed soon.  Does nothing if the flag is already
+     * decoded or being decoded.
+     * @param country the country whose flag will be needed.
+     */
+    public void prefetch(Country country) {
+        String fileName = country.getFileName();
+        if (!mRequests.containsKey(fileName) && !mCache.contains(fileName))
+            submit(country);
+    }
+
+    /**
+     * Gets the flag of a country.  If the flag has already been decoded the callback is
+     * called before this method returns, otherwise it is called once decoding finishes.
+     * @param country the country whose flag is needed now.
+     * @param callback receives the flag on the main thread.
+     */
+    public void load(Country country, Callback callback) {
+        Bitmap flag = mCache.get(country.getFileName());
+        if (flag != null) {
+            ++mReadyCount;
+            mMetrics.count(QuizMetrics.Counter.FLAG_CACHE_HITS, 1);
+            mCache.pin(flag);
+            callback.onFlagLoaded(country, flag);
+            return;
+        }
+
+        mMetrics.count(QuizMetrics.Counter.FLAG_CACHE_MISSES, 1);
+        Request request = mRequests.get(country.getFileName());
+        if (request == null) {
+            ++mColdCount;
+            request = submit(country);
+        }
+        else
+            ++mInFlightCount;
+        request.mCallback = callback;
+    }
+
+    /**
+     * Gives a flag which is not displayed anymore back, so its memory can be reused once it
+     * leaves the cache.
+     * @param flag a Bitmap delivered by this loader, may be null.
+     */
+    public void release(Bitmap flag) {
+        mCache.unpin(flag);
+    }
+
+    /**
+     * Sets the size the flags are decoded at, flags which are already decoded are not affected.
+     * @param width the width of the flag's ImageView.
+     * @param height the height of the flag's ImageView.
+     */
+    public void setTargetSize(int width, int height) {
+        mDecoder.setTargetSize(width, height);
+    }
+
+    /**
+     * Cancels every decode which has not started yet.  Callbacks of pending loads are never
+     * called, decodes which are already running still end up in the cache.
+     */
+    public void cancelAll() {
+        Iterator<Request> requests = mRequests.values().iterator();
+        while (requests.hasNext()) {
+            Request request = requests.next();
+            request.mCallback = null;
+            request.mFuture.cancel(false);
+            requests.remove();
+        }
+    }
+
+    /**
+     * Cancels everything and stops the background thread, the loader can not be used afterwards.
+     */
+    public void shutdown() {
+        cancelAll();
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * @return how many times load() found the flag already decoded.
+     */
+    public int getReadyCount() {
+        return mReadyCount;
+    }
+
+    /**
+     * @return how many times load() found the flag prefetched but still being decoded.
+     */
+    public int getInFlightCount() {
+        return mInFlightCount;
+    }
+
+    /**
+     * @return how many times load() was called for a flag that was never prefetched.
+     */
+    public int getColdCount() {
+        return mColdCount;
+    }
+
+    /**
+     * @return a one line summary of the counters, for the log.
+     */
+    public String getStats() {
+        int loads = mReadyCount + mInFlightCount + mColdCount;
+        return String.format("%d flag loads: %d ready (%.0f%%), %d in flight, %d cold, %s", loads,
+                mReadyCount, loads == 0 ? 0.0 : 100.0 * mReadyCount / loads, mInFlightCount, mColdCount,
+                mCache);
+    }
+
+    private Request submit(Country country) {
+        Request request = new Request(country);
+        mRequests.put(country.getFileName(), request);
+        request.mFuture = mExecutor.submit(request);
+        return request;
+    }
+
+    // decodes the flag, runs on the background thread
+    private Bitmap decode(Country country) {
+        long started = mMetrics.start(QuizMetrics.Stage.DECODE_FLAG);
+        try {
+            Bitmap flag = mDecoder.decode(country.getFileName());
+            mMetrics.count(QuizMetrics.Counter.DECODED_BYTES, flag.getByteCount());
+            return flag;
+        }
+        catch (IOException exception) {
+            Log.e(TAG, "Error loading " + country.getFileName(), exception);
+            return null;
+        }
+        finally {
+            mMetrics.stop(QuizMetrics.Stage.DECODE_FLAG, started);
+        }
+    }
+
+    /**
+     * A single flag decode.  run() decodes on the background thread, then posts the result
+     * back to the main thread, where every field except mFlag is read and written.
+     */
+    private class Request implements Runnable {
+        private final Country mCountry;
+        private Future<?> mFuture;
+        private Bitmap mFlag;
+        private Callback mCallback;
+
+        Request(Country country) {
+            mCountry = country;
+        }
+
+        @Override
+        public void run() {
+            mFlag = decode(mCountry);
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    deliver();
+                }
+            });
+        }
+
+        private void deliver() {
+            String fileName = mCountry.getFileName();
+            if (mRequests.get(fileName) == this)
+                mRequests.remove(fileName);
+            // pin first, so the flag can not be evicted to the pool while it is handed out
+            if (mCallback != null)
+                mCache.pin(mFlag);
+            if (mFlag != null)
+                mCache.put(fileName, mFlag);
+            if (mCallback != null)
+                mCallback.onFlagLoaded(mCountry, mFlag);
+        }
+    }
+}
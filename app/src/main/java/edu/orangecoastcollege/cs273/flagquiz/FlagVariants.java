@@ -0,0 +1,179 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * FlagVariants reads flags/FlagVariants.txt, written at build time by the encodeFlagVariants
+ * Gradle task (see app/flags.gradle), and picks the variant of the flag images which suits the
+ * device best.
+ *
+ * Every line of the manifest is one variant: its name, the screen density (dpi) it is scaled
+ * for, its encoding, the lowest API level which can decode it and the size of all its flags
+ * in bytes.  Lines starting with # are comments.  The "original" variant is the PNGs in
+ * assets/<Region>/, it is only in the manifest when they are in the APK: the build leaves them
+ * out when a variant decodes on every API level the app runs on.
+ *
+ * Country.getFileName() always returns the path of the original PNG, which is also the key of
+ * the FlagCache and the FlagAtlas, and Variant.resolve() turns it into the path of the flag in
+ * the chosen variant.
+ */
+public class FlagVariants {
+
+    static final String MANIFEST = "flags/FlagVariants.txt";
+    static final String ORIGINAL = "original";
+
+    /**
+     * One set of flag images, all scaled for the same density and encoded the same way.
+     */
+    public static class Variant {
+        private final String mName;
+        private final int mDensity;
+        private final String mEncoding;
+        private final int mMinSdk;
+        private final long mBytes;
+
+        Variant(String name, int density, String encoding, int minSdk, long bytes) {
+            mName = name;
+            mDensity = density;
+            mEncoding = encoding;
+            mMinSdk = minSdk;
+            mBytes = bytes;
+        }
+
+        /**
+         * @return the name of the variant, i.e. "hdpi-png8".
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * @return the screen density the flags are scaled for, in dpi.
+         */
+        public int getDensity() {
+            return mDensity;
+        }
+
+        /**
+         * @return the encoding, "png", "png8", "webp" or "webp-lossless".
+         */
+        public String getEncoding() {
+            return mEncoding;
+        }
+
+        /**
+         * @return the lowest API level which can decode the flags.
+         */
+        public int getMinSdk() {
+            return mMinSdk;
+        }
+
+        /**
+         * @return the size of all the flags of the variant, in bytes.
+         */
+        public long getBytes() {
+            return mBytes;
+        }
+
+        /**
+         * @return true for the original PNGs.
+         */
+        public boolean isOriginal() {
+            return ORIGINAL.equals(mName);
+        }
+
+        /**
+         * @param fileName the path of the original flag, as Country.getFileName() returns it.
+         * @return the path of the flag in this variant, i.e. "flags/hdpi-webp/Africa/Africa-Chad.webp".
+         */
+        public String resolve(String fileName) {
+            if (isOriginal())
+                return fileName;
+            String extension = mEncoding.startsWith("webp") ? ".webp" : ".png";
+            int dot = fileName.lastIndexOf('.');
+            return "flags/" + mName + "/" + (dot < 0 ? fileName : fileName.substring(0, dot)) + extension;
+        }
+
+        @Override
+        public String toString() {
+            return mName + " (" + mDensity + " dpi, " + mEncoding + ", " + mBytes + " bytes)";
+        }
+    }
+
+    private final List<Variant> mVariants;
+
+    private FlagVariants(List<Variant> variants) {
+        mVariants = Collections.unmodifiableList(variants);
+    }
+
+    /**
+     * Reads the manifest.
+     * @param in the manifest, it is not closed.
+     * @return the variants in the manifest.
+     * @throws IOException if the manifest can not be read or is malformed.
+     */
+    public static FlagVariants read(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        List<Variant> variants = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] fields = line.split("\\s+");
+            if (fields.length != 5)
+                throw new IOException("Malformed flag variant: " + line);
+            try {
+                variants.add(new Variant(fields[0], Integer.parseInt(fields[1]), fields[2],
+                        Integer.parseInt(fields[3]), Long.parseLong(fields[4])));
+            }
+            catch (NumberFormatException e) {
+                throw new IOException("Malformed flag variant: " + line, e);
+            }
+        }
+        return new FlagVariants(variants);
+    }
+
+    /**
+     * @return every variant in the manifest, the original included if it is in the APK.
+     */
+    public List<Variant> getVariants() {
+        return mVariants;
+    }
+
+    /**
+     * Picks the variant for a device: of the variants it can decode, the one with the lowest
+     * density which is still at least the device's, so flags are never scaled up, or the one
+     * with the highest density if none is.  Between variants of the same density the smallest
+     * one wins, since it reads the fewest bytes.
+     * @param densityDpi the screen density of the device.
+     * @param sdkInt the API level of the device.
+     * @return the variant, the original if nothing is better, null if the device can decode none.
+     */
+    public Variant select(int densityDpi, int sdkInt) {
+        Variant best = null;
+        for (Variant variant : mVariants) {
+            if (variant.mMinSdk > sdkInt)
+                continue;
+            if (best == null || isBetter(variant, best, densityDpi))
+                best = variant;
+        }
+        return best;
+    }
+
+    private static boolean isBetter(Variant a, Variant b, int densityDpi) {
+        boolean aCovers = a.mDensity >= densityDpi;
+        boolean bCovers = b.mDensity >= densityDpi;
+        if (aCovers != bCovers)
+            return aCovers;
+        if (a.mDensity != b.mDensity)
+            return aCovers ? a.mDensity < b.mDensity : a.mDensity > b.mDensity;
+        return a.mBytes < b.mBytes;
+    }
+}
@@ -1,59 +1,84 @@
 package edu.orangecoastcollege.cs273.flagquiz;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.List;
 
 /**
  * Class loads Country data from a formatted JSON (JavaScript Object Notation) file.
  * Populates data model (Country) with data.
+ *
+ * The build compiles Countries.json into a binary catalog (Countries.bin) which is
+ * memory mapped and read by BinaryCatalogReader.  If the binary catalog is missing or
+ * can not be read, Countries.json is streamed through CountryCatalogParser instead.
+ * Either way the countries end up in a CountryCatalog.
  */
 
 public class JSONLoader {
 
+    private static final String TAG = JSONLoader.class.getSimpleName();
+
+    static final String CATALOG_JSON = "Countries.json";
+    static final String CATALOG_BINARY = "Countries.bin";
+
     /**
      * Loads JSON data from a file in the assets directory.
      * @param context The activity from which the data is loaded.
-     * @throws IOException If there is an error reading from the JSON file.
+     * @throws IOException If there is an error reading from the JSON file,
+     *                     or if the file is not valid JSON.
      */
     public static List<Country> loadJSONFromAsset(Context context) throws IOException {
-        List<Country> allCountries = new ArrayList<>();
-        String json = null;
-            InputStream is = context.getAssets().open("Countries.json");
-            int size = is.available();
-            byte[] buffer = new byte[size];
-            is.read(buffer);
-            is.close();
-            json = new String(buffer, "UTF-8");
+        return loadCatalog(context).asList();
+    }
 
+    /**
+     * Loads the country catalog from the assets directory, the binary catalog if it is
+     * there, Countries.json otherwise.
+     * @param context The activity from which the data is loaded.
+     * @throws IOException If neither catalog can be read.
+     */
+    public static CountryCatalog loadCatalog(Context context) throws IOException {
+        AssetManager assets = context.getAssets();
         try {
-            JSONObject jsonRootObject = new JSONObject(json);
-            JSONArray allCountriesJSON = jsonRootObject.getJSONArray("Countries");
-            int numberOfEvents = allCountriesJSON.length();
-
-            for (int i = 0; i < numberOfEvents; i++) {
-                JSONObject CountryJSON = allCountriesJSON.getJSONObject(i);
-
-                String name = CountryJSON.getString("Name");
-                String region = CountryJSON.getString("Region");
-                Country country = new Country(name, region);
-
-            allCountries.add(country);
+            return loadBinaryCatalog(assets);
         }
+        catch (IOException e) {
+            Log.w(TAG, "Binary catalog unavailable, falling back to " + CATALOG_JSON, e);
         }
-        catch (JSONException e)
-        {
-            Log.e("Flag Quiz", e.getMessage());
+
+        InputStream is = assets.open(CATALOG_JSON);
+        try {
+            return CountryCatalogParser.parse(is);
+        }
+        finally {
+            is.close();
         }
+    }
 
-        return allCountries;
+    // maps Countries.bin straight out of the APK (it is stored uncompressed, see catalog.gradle)
+    private static CountryCatalog loadBinaryCatalog(AssetManager assets) throws IOException {
+        AssetFileDescriptor fd = assets.openFd(CATALOG_BINARY);
+        try {
+            FileInputStream in = fd.createInputStream();
+            try {
+                ByteBuffer buffer = in.getChannel().map(
+                        FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+                return BinaryCatalogReader.read(buffer);
+            }
+            finally {
+                in.close();
+            }
+        }
+        finally {
+            fd.close();
+        }
     }
 }
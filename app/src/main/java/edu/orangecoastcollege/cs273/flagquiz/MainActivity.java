@@ -1,32 +1,53 @@
 package edu.orangecoastcollege.cs273.flagquiz;
 
+import android.app.ActivityManager;
+import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
 import android.content.res.AssetManager;
-import android.graphics.drawable.Drawable;
+import android.graphics.Bitmap;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.support.v4.content.ContextCompat;
+import android.support.v4.os.TraceCompat;
 import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.preference.PreferenceManager;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.DisplayMetrics;
 import android.util.Log;
+import android.view.KeyEvent;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.inputmethod.EditorInfo;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.SecureRandom;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * MainActivity is the main Controller for version 2 of our Flag Quiz app.
@@ -39,58 +60,117 @@ import java.util.List;
  *  - Buttons, this is initialized to 8.
  *  - LinearLayouts, this is initialized to 4, but these will change according to user preference.
  *
- *  There are lists of Countries to represent:
- *  - All 230-odd countries from the JSON file
- *  - The 10 countries being used in the user's instance of the game.
- *  - The filtered list of countries depending on the chosen region.
+ *  There is a CountryCatalog of all 230-odd Countries from the JSON file, and a RegionIndex built
+ *  from it once, which knows the countries of every region.  Other countries are kept as ids:
+ *  - The filtered countries depending on the chosen regions, as country ids in the catalog.
+ *  - The 10 countries being used in the user's instance of the game, as indices in the
+ *    filtered countries.
  *
  *  There are member variables to represent:
- *     - the correct Country
+ *     - the correct Country, and its id
  *     - total number of guesses
  *     - number of correct guesses
- *     - a random number generator
- *     - a handler for delaying being each flag when a correct flag is guessed
+ *     - a fast (not cryptographic) random number generator, and the QuizEngine which uses
+ *       it to pick countries
+ *     - a handler, and the QuestionScheduler which uses it to move to the next question after
+ *       a correct guess, while the next question is prepared
+ *     - a loader which decodes flags in the background, and a cache of decoded flags
+ *     - the flag atlas, which lets the loader copy flags out of a few decoded images
+ *     - the flag disk cache, which keeps the decoded flags across starts
+ *     - the startup pipeline, which loads the catalog in the background and holds back the
+ *       answer buttons until the first question is ready, and the startup metrics
+ *     - the quiz saved by onSaveInstanceState, to be restored once the catalog is there
+ *     - the QuizMetrics, which time loading the catalog, selecting the regions, resetting the
+ *       quiz, preparing a question, decoding a flag and a guess (as systrace sections too),
+ *       and count the flag cache hits and the bytes decoded, for the whole process
  *     - how many buttons, or how many flag names the user wishes to display each round, 2,4,6,8
- *     - which region the user wants to study, i.e. Europe or Africa
+ *     - which regions the user wants to study, i.e. Europe and Africa
  *
  *   There are Views :
  *      - TextViews for the current question number and whether a guess was right/wrong
  *      - ImageView to display the flag
  *
+ *  What is slow to load (the catalog, the RegionIndex, the flag atlas, the GuessStats, the
+ *  AttemptLog and the decoded flags) is kept for the whole process, not per activity, so when
+ *  the activity is recreated, e.g. after the device is rotated, nothing is parsed or decoded
+ *  again, and a single background thread loads it and writes the files.
+ *
  *   The methods of this class include:
- *      - onCreate, this sets the content view, registers the SharedPreferencesChangeListener
- *              which listens for when the user updates the settings.  This method also loads the
- *              countries from the JSON file, initializes the country lists, the random number
- *              generator and the handler.  All the View widgets are wired up and text set,
- *              Buttons and LinearLayouts are connected.  The selection from the settings menu
- *              is captured and the number of buttons and regions are updated via their respective
- *              method calls.  Finally the quiz is reset.
+ *      - onCreate, this sets the content view and wires up the View widgets, Buttons and
+ *              LinearLayouts, then starts loading in the background.  The layout is drawn
+ *              straight away with a progress bar and disabled buttons.  If the quiz was loaded
+ *              already by an earlier instance of the activity it is used straight away.
+ *
+ *      - onQuizLoaded, runs on the main thread once the catalog is loaded.  It initializes the
+ *              country lists, the random number generator and the flag loader, registers the
+ *              SharedPreferencesChangeListener which listens for when the user updates the
+ *              settings.  The selection from the settings menu is captured and the number of
+ *              buttons and regions are updated via their respective method calls.  Finally the
+ *              quiz is restored if it was saved, otherwise it is reset.  The buttons are enabled
+ *              once the first flag is shown.
+ *
+ *      - onStartupFailed, shows an AlertDialog to retry or quit when the catalog or the first
+ *              flag can not be loaded.
+ *
+ *      - resetQuiz, the QuizSession, which holds the state of the quiz apart from the Views,
+ *              resets the guesses and picks ten unique countries from the correct region(s)
+ *              for the new game, favouring the flags the user often gets wrong, which is
+ *              started by calling loadNextFlag.
  *
- *      - resetQuiz, resets guess variables, clears the country list from a previous game,
- *              then a while loop is used to add countries to the newly cleared list. Once
- *              ten unique entries from the correct region(s) are added to the list,
- *              the game is started by calling loadNextFlag.
+ *      - restoreQuiz, shows the question the QuizSession was restored at, with its guessed
+ *              buttons disabled, and carries on where the quiz was: to the next question if
+ *              it was answered, or to the results if it was finished.
  *
- *      - loadNextFlag, removes a country from the list of 10 countries, the answer text view
- *              is set to a blank string.  The current question out of 10 is displayed.
- *              The AssetManager is used in conjunction with a try/catch to load the next flag
- *              as a Drawable which will be set to the ImageView. A do while loop is used to
- *              shuffle the names and orders of the Country names to be used on the Buttons
- *              for guessing. A for loop is used to enable the buttons visibility and set
- *              their text.  Finally, one of the buttons is selected at random and the name
- *              of the correct country is set.
+ *      - loadNextFlag, prepares the next question and shows it straight away, it is used for
+ *              the first question of a quiz.
+ *
+ *      - prepareNextQuestion, picks the next of the 10 countries.  The FlagLoader decodes its
+ *              flag in the background, while the flags of the following questions are
+ *              prefetched so they are ready by the time they are needed. The QuizEngine picks
+ *              the countries to be used on the Buttons for guessing, the correct one included
+ *              at a random position, which make up the Question.  With the Look-alike Flags
+ *              setting the wrong answers are the flags most like the correct one, looked up in
+ *              the FlagSimilarityIndex generated at build time.
+ *
+ *      - showPreparedQuestion, the answer text view is set to a blank string.  The current
+ *              question out of 10 is displayed with its flag, if it is decoded already.  A for
+ *              loop is used to enable the buttons and set their text.
  *
  *      - makeGuess(View v), takes a View parameter, this represents the button the user tapped on.
- *              The View is downcast to a Button.  The text of the chosen button is retrieved
- *              as well as the text of the correct answer.  The total guesses is incremented.
+ *              The View is downcast to a Button.  Its tag is the slot of the choice it shows,
+ *              which the Question compares with the slot of the correct country.  The total
+ *              guesses is incremented.
  *              If the guess is correct, the correct guesses is incremented and the name of the flag
  *              is display in green text.  All the buttons are disabled.  If this is correct guess
  *              10 out of 10, we use an AlertDialog builder to display the user's score.
  *              Using the AlertDialog builder, a PositiveButton is set which enables the user
- *              to retry the quiz.  If there are still more flags left to guess, then loadNextFlag
- *              is called after a 2 second delay by the handler.  If the user makes an incorrect
- *              guess, then the name of the incorrect guess is display in red text and that
- *              country's button is disabled.
+ *              to retry the quiz.  If there are still more flags left to guess, the next question
+ *              is shown after a 2 second delay by the QuestionScheduler, which prepares it during
+ *              the delay.  If the user makes an incorrect guess, then the name of the incorrect
+ *              guess is display in red text and that country's button is disabled.  The first
+ *              guess of every question is recorded in the GuessStats, which changes how likely
+ *              the country is to come up in the next quizzes, and every guess is recorded in
+ *              the AttemptLog.
+ *
+ *      - mAnswerWatcher, in the Type Answers mode the country name is typed instead.  On every
+ *              keystroke the CountryNameTrie suggests the countries whose names start with
+ *              what was typed, forgiving a typo or two, and the buttons show the suggestions.
+ *              Tapping a suggestion, or pressing Done, guesses that country.
+ *
+ *      - applySettings, the settings changed in a row are collected by the SettingsDebouncer
+ *              and applied at once when the user stops changing them.  Only a change of the
+ *              regions or the answer mode restarts the quiz, a change of the number of choices
+ *              or the look-alike flags gives the current question new choices.
+ *
+ *      - onSaveInstanceState, saves the quiz as a snapshot of a few dozen bytes of country
+ *              ids, so it goes on where it was when the activity is recreated.
+ *
+ *      - onStop, writes the AttemptLog and saves the GuessStats in the background, so they are
+ *              kept across sessions, and dumps the QuizMetrics to the log and to metrics.txt.
+ *
+ *      - onDestroy, stops decoding flags and gives the flags it shows back to the cache.
+ *
+ *      - onTrimMemory, releases cached flags when the system is low on memory.
  *
  *      - onCreateOptionsMenu, is used to inflate the settings menu.
  *
@@ -103,62 +183,139 @@ public class MainActivity extends AppCompatActivity {
     private static final String TAG = MainActivity.class.getSimpleName();
 
     private static final int FLAGS_IN_QUIZ = 10;
+    private static final String GUESS_STATS_FILE = "GuessStats.bin";
+    private static final String ATTEMPT_LOG_DIRECTORY = "attempts";
+    private static final String METRICS_FILE = "metrics.txt"; // the QuizMetrics dump, written in onStop
+    private static final int FLAGS_TO_PREFETCH = 2; // upcoming flags decoded ahead of time
+    private static final int BITMAP_POOL_SIZE = FLAGS_TO_PREFETCH + 2; // flag bitmaps kept for reuse
+    private static final int FLAG_CACHE_MEMORY_FRACTION = 8; // 1/8 of the app's memory for flags
+    private static final int FLAG_ATLAS_MEMORY_FRACTION = 8; // 1/8 for decoded flag atlas pages
+    private static final String FLAG_DISK_CACHE_DIRECTORY = "flag-pixels"; // in the cache directory
+    private static final long FLAG_DISK_CACHE_BYTES = 24 * 1024 * 1024; // about 40 flags of a phone screen
+    private static final String QUIZ_STATE = "quizState"; // the QuizSession snapshot in the saved state
+    private static final long SETTINGS_WINDOW_MILLIS = 300; // settings changed within it are applied at once
+
+    // loads the quiz and writes the AttemptLog, the GuessStats and the FlagDiskCache, for the whole process
+    private static final ExecutorService sBackground = Executors.newSingleThreadExecutor();
+    // the loaded quiz, kept for the whole process so recreating the activity does not load it
+    // again; set by the loader on sBackground
+    private static volatile LoadedQuiz sLoadedQuiz;
+    // times the hot paths and marks them in the system trace, for the whole process
+    private static final QuizMetrics sMetrics = new QuizMetrics(Clock.SYSTEM, new QuizMetrics.Tracer() {
+        @Override
+        public void beginSection(String name) {
+            TraceCompat.beginSection(name);
+        }
+
+        @Override
+        public void endSection() {
+            TraceCompat.endSection();
+        }
+    });
 
     private Button[] mButtons = new Button[8];
     private LinearLayout[] mLayouts = new LinearLayout[4];
-    private List<Country> mAllCountriesList; // all the countries loaded from JSON
-    private List<Country> mQuizCountriesList; // countries in current quiz
-    private List<Country> mFilteredCountriesList; // countries filtered by selected region
+    private CountryCatalog mCatalog; // all the countries loaded from JSON
+    private RegionIndex mRegionIndex; // countries of every region, built once from mCatalog
+    private QuizSession mSession; // the quiz: its countries, the current and prepared question, the guesses
+    private int mCorrectCountryId = -1; // id in mCatalog of the correct country for the current flag
     private Country mCorrectCountry; // correct country for the current flag
-    private int mTotalGuesses; // number of guesses made
-    private int mCorrectGuesses; // number of correct guesses
-    private SecureRandom rng; // used to randomize the quiz
-    private Handler handler; // used to delay loading next flag
+    private GuessStats mGuessStats; // right and wrong first guesses of every country
+    private AttemptLog mAttemptLog; // every guess ever made, null if it could not be opened
+    private long mQuestionShownAt; // uptime when the current flag was shown, for the guess latency
+    private QuizRandom rng; // used to randomize the quiz
+    private Handler handler; // runs the startup callbacks and the question delays on the main thread
+    private QuestionScheduler mScheduler; // shows the next question after the feedback delay
+    private SettingsDebouncer mSettingsDebouncer; // applies the settings changed in a row at once
+    private int mPreparedCountryId = -1; // id in mCatalog of the prepared question's country, -1 if none
+    private Bitmap mPreparedFlag; // the prepared question's flag, once it is decoded
+    private boolean mPreparedFlagLoaded; // true once the prepared question's flag was delivered
+    private FlagLoader mFlagLoader; // decodes flags in the background
+    private FlagCache mFlagCache; // decoded flags, kept across quizzes and regions
+    private FlagAtlas mFlagAtlas; // the flags packed into a few pages per region, null if not built or not used
+    private FlagVariants.Variant mFlagVariant; // the flag images best suited to the screen, null if not built
+    private FlagSimilarityIndex mSimilarity; // which flags look alike, null if not built
+    private Bitmap mDisplayedFlag; // the flag shown in flagImageView
+    private int mFlagWidth; // size of flagImageView once it is laid out, 0 before
+    private int mFlagHeight;
+    private int mChoiceCount; // number of buttons used by the current question
+
+    private StartupMetrics mStartupMetrics; // times to first frame and to interactive
+    private StartupPipeline<LoadedQuiz> mStartup; // enables the quiz once the first question is ready
+    private byte[] mSavedQuiz; // the snapshot of the quiz before the activity was recreated, null if none
 
     private TextView questionNumberTextView; // shows current question #
     private ImageView flagImageView; // displays a flag
     private TextView answerTextView; // displays correct answer
+    private EditText answerEditText; // where the answer is typed, in the typed answer mode
+    private ProgressBar loadingProgressBar; // shown until the first question is ready
 
     private int mChoices; // stores how many choices (buttons) selected
-    private String mRegion; // stores which region is selected
+    private Set<String> mRegions; // stores which regions are selected
+    private BitSet mSelectedRegions; // the ids in mRegionIndex of the regions whose countries are in mSession
+    private boolean mHardDistractors; // stores whether the wrong answers are look-alike flags
+    private boolean mTypedAnswers; // stores whether answers are typed instead of tapped
+    private CountryNameTrie.Matcher mAnswerMatcher; // suggests countries for the typed answer, null until that mode is on
+    private LoadedQuiz mLoadedQuiz; // keeps the CountryNameTrie once the typed answer mode built it
+    private final int[] mSuggestedIds = new int[8]; // ids in mCatalog of the countries suggested on the buttons
+    private int mSuggestionCount; // number of buttons showing a suggestion
 
     // Keys used in preferences.xml
     private static final String CHOICES = "pref_numberOfChoices";
-    private static final String REGIONS = "pref_regions";
+    private static final String REGIONS = "pref_regionSet";
+    private static final String HARD_DISTRACTORS = "pref_hardDistractors";
+    private static final String TYPED_ANSWERS = "pref_typedAnswers";
+    // single region ListPreference of older versions, "All" or one region
+    private static final String LEGACY_REGION = "pref_regions";
 
     /**
-     * - onCreate, this sets the content view, registers the SharedPreferencesChangeListener
-     *              which listens for when the user updates the settings.  This method also loads the
-     *              countries from the JSON file, initializes the country lists, the random number
-     *              generator and the handler.  All the View widgets are wired up and text set,
-     *              Buttons and LinearLayouts are connected.  The selection from the settings menu
-     *              is captured and the number of buttons and regions are updated via their respective
-     *              method calls.  Finally the quiz is reset.
+     * - onCreate, this sets the content view and wires up the View widgets, Buttons and
+     *              LinearLayouts, then starts loading in the background.  The layout is drawn
+     *              straight away with a progress bar and disabled buttons.
      * @param savedInstanceState
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        mStartupMetrics = new StartupMetrics(Clock.SYSTEM);
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        // Let's register the OnSharedPreferencesChangeListener
-        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(this);
-        preferences.registerOnSharedPreferenceChangeListener(mPreferenceChangeListener);
-
-        try {
-            mAllCountriesList = JSONLoader.loadJSONFromAsset(this);
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading JSON file", e);
-        }
-
-        mQuizCountriesList = new ArrayList<>();
-        rng = new SecureRandom();
         handler = new Handler();
+        QuestionScheduler.Timer timer = new QuestionScheduler.Timer() {
+            @Override
+            public void postDelayed(Runnable task, long delayMillis) {
+                handler.postDelayed(task, delayMillis);
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+                handler.removeCallbacks(task);
+            }
+        };
+        mScheduler = new QuestionScheduler(timer);
+        mSettingsDebouncer = new SettingsDebouncer(timer, SETTINGS_WINDOW_MILLIS, new SettingsDebouncer.Listener() {
+            @Override
+            public void onSettingsChanged(Set<String> keys) {
+                applySettings(keys);
+            }
+        });
 
         // get references to GUI components
         questionNumberTextView =
                 (TextView) findViewById(R.id.questionNumberTextView);
         flagImageView = (ImageView) findViewById(R.id.flagImageView);
+        // decode the flags at the size of the ImageView once it is known
+        flagImageView.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                mFlagWidth = right - left;
+                mFlagHeight = bottom - top;
+                if (mFlagLoader != null)
+                    mFlagLoader.setTargetSize(mFlagWidth, mFlagHeight);
+            }
+        });
+        loadingProgressBar = (ProgressBar) findViewById(R.id.loadingProgressBar);
 
         mButtons[0] = (Button) findViewById(R.id.button);
         mButtons[1] = (Button) findViewById(R.id.button2);
@@ -168,6 +325,9 @@ public class MainActivity extends AppCompatActivity {
         mButtons[5] = (Button) findViewById(R.id.button6);
         mButtons[6] = (Button) findViewById(R.id.button7);
         mButtons[7] = (Button) findViewById(R.id.button8);
+        // every button is bound to a choice slot of the question, makeGuess compares slots
+        for (int i = 0; i < mButtons.length; i++)
+            mButtons[i].setTag(i);
 
         mLayouts[0] = (LinearLayout) findViewById(R.id.row1LinearLayout);
         mLayouts[1] = (LinearLayout) findViewById(R.id.row2LinearLayout);
@@ -175,124 +335,521 @@ public class MainActivity extends AppCompatActivity {
         mLayouts[3] = (LinearLayout) findViewById(R.id.row4LinearLayout);
 
         answerTextView = (TextView) findViewById(R.id.answerTextView);
+        answerEditText = (EditText) findViewById(R.id.answerEditText);
+        answerEditText.addTextChangedListener(mAnswerWatcher);
+        answerEditText.setOnEditorActionListener(mAnswerDoneListener);
+
+        // record the first frame, it is drawn while the catalog is still loading
+        final View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                mStartupMetrics.markFirstFrame();
+                return true;
+            }
+        });
+
+        if (savedInstanceState != null)
+            mSavedQuiz = savedInstanceState.getByteArray(QUIZ_STATE);
+        mStartup = new StartupPipeline<>(sBackground, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                handler.post(command);
+            }
+        }, mStartupMetrics, mStartupListener);
+        startLoading();
+    }
+
+    // everything the first question needs which is slow to load, loaded off the main thread
+    // once per process.  Apart from the catalog and the RegionIndex it is only used on the main
+    // thread, by one activity at a time.
+    private static class LoadedQuiz {
+        CountryCatalog mCatalog;
+        RegionIndex mRegionIndex;
+        FlagAtlas mFlagAtlas;
+        FlagVariants.Variant mFlagVariant;
+        FlagSimilarityIndex mSimilarity;
+        CountryNameTrie mNameTrie; // null until the typed answer mode is used
+        GuessStats mGuessStats;
+        AttemptLog mAttemptLog;
+        FlagCache mFlagCache;
+        BitmapPool mBitmapPool;
+        FlagDiskCache mFlagDiskCache; // null if it could not be opened
+    }
+
+    // shows the loading state and loads the catalog, the flag atlas index and the flag variant,
+    // unless an earlier instance of the activity loaded them already
+    private void startLoading() {
+        questionNumberTextView.setText(R.string.loading);
+        answerTextView.setText("");
+        loadingProgressBar.setVisibility(View.VISIBLE);
+        for (Button b : mButtons)
+            b.setText("");
+        mChoiceCount = 0;
+        disableButtons();
+
+        if (sLoadedQuiz != null) {
+            // e.g. after a rotation: set up the quiz right away, it waits for the first flag
+            mStartup.startLoaded(sLoadedQuiz);
+            return;
+        }
+        final AssetManager assets = getAssets();
+        final DisplayMetrics metrics = getResources().getDisplayMetrics();
+        final int memoryClass = ((ActivityManager) getSystemService(ACTIVITY_SERVICE)).getMemoryClass();
+        final Context context = getApplicationContext();
+        final File guessStatsFile = new File(getFilesDir(), GUESS_STATS_FILE);
+        final File attemptLogDirectory = new File(getFilesDir(), ATTEMPT_LOG_DIRECTORY);
+        final File flagDiskCacheRoot = new File(getCacheDir(), FLAG_DISK_CACHE_DIRECTORY);
+        final long installed = installedAt();
+        mStartup.start(new Callable<LoadedQuiz>() {
+            @Override
+            public LoadedQuiz call() throws IOException {
+                // loads run one after the other on sBackground, so an activity recreated while
+                // the first one was loading gets what that one loaded
+                if (sLoadedQuiz != null)
+                    return sLoadedQuiz;
+                LoadedQuiz quiz = new LoadedQuiz();
+                long started = sMetrics.start(QuizMetrics.Stage.LOAD_CATALOG);
+                quiz.mCatalog = JSONLoader.loadCatalog(context);
+                sMetrics.stop(QuizMetrics.Stage.LOAD_CATALOG, started);
+                if (quiz.mCatalog.size() == 0)
+                    throw new IOException("The country catalog is empty");
+                quiz.mRegionIndex = new RegionIndex(quiz.mCatalog);
+                // the trie is only needed to type answers, otherwise updateAnswerMode() builds it
+                // when the mode is turned on
+                if (PreferenceManager.getDefaultSharedPreferences(context).getBoolean(TYPED_ANSWERS, false))
+                    quiz.mNameTrie = CountryNameTrie.of(quiz.mCatalog);
+                quiz.mFlagVariant = selectFlagVariant(assets, metrics);
+                // the atlas is packed from the original flags, a variant replaces it
+                if (quiz.mFlagVariant == null || quiz.mFlagVariant.isOriginal())
+                    quiz.mFlagAtlas = FlagAtlas.open(assets, memoryClass * 1024 * 1024 / FLAG_ATLAS_MEMORY_FRACTION);
+                quiz.mSimilarity = loadSimilarityIndex(assets, quiz.mCatalog);
+                quiz.mGuessStats = GuessStats.load(guessStatsFile, quiz.mCatalog);
+                try {
+                    // the log shares the loading thread, which is idle once the quiz is loaded
+                    quiz.mAttemptLog = AttemptLog.open(attemptLogDirectory, sBackground);
+                }
+                catch (IOException e) {
+                    Log.e(TAG, "Unable to open the attempt log, guesses will not be kept", e);
+                }
+                quiz.mBitmapPool = new BitmapPool(BITMAP_POOL_SIZE);
+                quiz.mFlagCache = new FlagCache(memoryClass * 1024 * 1024 / FLAG_CACHE_MEMORY_FRACTION,
+                        quiz.mBitmapPool);
+                try {
+                    // cached flags are only valid for the catalog, the APK and the variant they came from
+                    String version = GuessStats.fingerprint(quiz.mCatalog) + "/" + installed + "/"
+                            + (quiz.mFlagVariant != null ? quiz.mFlagVariant.getName() : "original");
+                    quiz.mFlagDiskCache = FlagDiskCache.open(flagDiskCacheRoot, version, FLAG_DISK_CACHE_BYTES);
+                    Log.d(TAG, quiz.mFlagDiskCache.toString());
+                }
+                catch (IOException e) {
+                    Log.w(TAG, "Unable to open the flag disk cache, every flag will be decoded", e);
+                }
+                sLoadedQuiz = quiz;
+                return quiz;
+            }
+        });
+    }
+
+    // receives the progress of the startup on the main thread
+    private final StartupPipeline.Listener<LoadedQuiz> mStartupListener = new StartupPipeline.Listener<LoadedQuiz>() {
+        @Override
+        public void onLoaded(LoadedQuiz quiz) {
+            onQuizLoaded(quiz);
+        }
+
+        @Override
+        public void onInteractive() {
+            loadingProgressBar.setVisibility(View.GONE);
+            enableButtons();
+            Log.i(TAG, mStartupMetrics.toString());
+        }
+
+        @Override
+        public void onFailed(Exception error) {
+            onStartupFailed(error);
+        }
+    };
 
-        // set questionNumberTextView's text
-        questionNumberTextView.setText(
-                getString(R.string.question, 1, FLAGS_IN_QUIZ));
+    /**
+     * - onQuizLoaded, runs on the main thread once the catalog is loaded.  It initializes the
+     *              country lists, the random number generator and the flag loader, registers the
+     *              SharedPreferencesChangeListener which listens for when the user updates the
+     *              settings.  The selection from the settings menu is captured and the number of
+     *              buttons and regions are updated via their respective method calls.  Finally the
+     *              quiz is restored if it was saved, otherwise it is reset.  The buttons are enabled
+     *              once the first flag is shown.
+     * @param quiz what was loaded in the background, or by an earlier instance of the activity.
+     */
+    private void onQuizLoaded(LoadedQuiz quiz) {
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(this);
+
+        mCatalog = quiz.mCatalog;
+        mRegionIndex = quiz.mRegionIndex;
+        mFlagAtlas = quiz.mFlagAtlas;
+        mFlagVariant = quiz.mFlagVariant;
+        mSimilarity = quiz.mSimilarity;
+        mGuessStats = quiz.mGuessStats;
+        mAttemptLog = quiz.mAttemptLog;
+        mLoadedQuiz = quiz;
+        mAnswerMatcher = null;
+
+        rng = QuizRandom.create();
+        mSession = new QuizSession(new QuizEngine(rng), FLAGS_IN_QUIZ, mGuessStats);
+        // until the ImageView is laid out, decode flags for the width of the screen
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        if (mFlagLoader != null)
+            mFlagLoader.shutdown(); // a retry after the first flag failed
+        // the flags decoded before a rotation stay in the cache and are shown scaled
+        mFlagCache = quiz.mFlagCache;
+        // the flag disk cache shares the loading thread too
+        mFlagLoader = new FlagLoader(new FlagDecoder(getAssets(), quiz.mBitmapPool, mFlagAtlas, mFlagVariant,
+                quiz.mFlagDiskCache, sBackground, metrics.widthPixels, metrics.heightPixels / 2),
+                mFlagCache, sMetrics);
+        mFlagLoader.setTargetSize(mFlagWidth, mFlagHeight);
+
+        migrateRegionPreference(preferences);
+
+        // Let's register the OnSharedPreferencesChangeListener
+        preferences.registerOnSharedPreferenceChangeListener(mPreferenceChangeListener);
 
-        mRegion = preferences.getString(REGIONS, "All");
+        mRegions = preferences.getStringSet(REGIONS, allRegions());
         mChoices = Integer.parseInt(preferences.getString(CHOICES, "4"));
+        mHardDistractors = preferences.getBoolean(HARD_DISTRACTORS, false);
+        mTypedAnswers = preferences.getBoolean(TYPED_ANSWERS, false);
         updateChoices();
-        updateRegion();
+        updateAnswerMode();
+        selectRegions();
+        updateDistractors();
 
-        resetQuiz();
+        // the saved quiz does not fit if the settings changed in the meantime
+        if (mSavedQuiz != null && mSession.restoreSnapshot(mSavedQuiz))
+            restoreQuiz();
+        else
+            resetQuiz();
+        mSavedQuiz = null;
     }
 
     /**
-     * - resetQuiz, resets guess variables, clears the country list from a previous game,
-     *              then a while loop is used to add countries to the newly cleared list. Once
-     *              ten unique entries from the correct region(s) are added to the list,
-     *              the game is started by calling loadNextFlag.
+     * - onStartupFailed, shows an AlertDialog to retry or quit when the catalog or the first
+     *              flag can not be loaded.
+     * @param error what went wrong.
+     */
+    private void onStartupFailed(Exception error) {
+        Log.e(TAG, "Could not start the quiz", error);
+        loadingProgressBar.setVisibility(View.GONE);
+        questionNumberTextView.setText("");
+        disableButtons();
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setMessage(R.string.startup_error);
+        builder.setPositiveButton(R.string.retry, new DialogInterface.OnClickListener() {
+            public void onClick(DialogInterface dialog, int id) {
+                startLoading();
+            }
+        });
+        builder.setNegativeButton(R.string.quit, new DialogInterface.OnClickListener() {
+            public void onClick(DialogInterface dialog, int id) {
+                finish();
+            }
+        });
+        builder.setCancelable(false);
+        builder.show();
+    }
+
+    // the time the APK was installed or last updated, its flags may have changed then
+    private long installedAt() {
+        try {
+            return getPackageManager().getPackageInfo(getPackageName(), 0).lastUpdateTime;
+        }
+        catch (PackageManager.NameNotFoundException e) {
+            return 0; // can not happen, it is this app
+        }
+    }
+
+    // picks the flag variant for the screen from flags/FlagVariants.txt, null to decode the original
+    // PNGs; the instrumented tests decode the flags the app decodes with it
+    static FlagVariants.Variant selectFlagVariant(AssetManager assets, DisplayMetrics metrics) {
+        try {
+            InputStream in = assets.open(FlagVariants.MANIFEST);
+            try {
+                FlagVariants.Variant variant = FlagVariants.read(in)
+                        .select(metrics.densityDpi, Build.VERSION.SDK_INT);
+                Log.d(TAG, "Flag variant for " + metrics.densityDpi + " dpi: " + variant);
+                return variant;
+            }
+            finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "No flag variants, decoding the original flags", e);
+            return null;
+        }
+    }
+
+    // the look-alike flags for the hard distractors mode, null if the APK has no (valid) index
+    private static FlagSimilarityIndex loadSimilarityIndex(AssetManager assets, CountryCatalog catalog) {
+        try {
+            InputStream in = assets.open(FlagSimilarityIndex.ASSET);
+            try {
+                return FlagSimilarityIndex.read(in, catalog);
+            }
+            finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "No flag similarity index, distractors are always random", e);
+            return null;
+        }
+    }
+
+    /**
+     * - resetQuiz, the QuizSession resets the guesses and picks ten unique countries from the
+     *              correct region(s) for the new game, favouring the flags the user often gets
+     *              wrong, which is started by calling loadNextFlag.
      */
     // set up and start the next quiz
     public void resetQuiz() {
 
-        mCorrectGuesses = 0; // reset the number of correct guesses made
-        mTotalGuesses = 0; // reset the total number of guesses the user made
-        mQuizCountriesList.clear(); // clear prior list of quiz countries
+        mScheduler.cancel(); // the next question of the prior quiz must not be shown
+        dropPreparedQuestion();
+        mFlagLoader.cancelAll(); // flags prefetched for the prior quiz are not needed anymore
 
-        int flagCounter = 1;
-        int numberOfFlags = mFilteredCountriesList.size();
+        long started = sMetrics.start(QuizMetrics.Stage.RESET_QUIZ);
+        // pick FLAGS_IN_QUIZ distinct countries from the filtered list, weak flags more likely
+        mSession.reset();
 
-        // add FLAGS_IN_QUIZ rng file names to the mQuizCountriesList
-        while (flagCounter <= FLAGS_IN_QUIZ) {
-            int randomIndex = rng.nextInt(numberOfFlags);
+        loadNextFlag(); // start the quiz by loading the first flag
+        sMetrics.stop(QuizMetrics.Stage.RESET_QUIZ, started);
+    }
 
-            // get the rng file name
-            Country randomCountry = mFilteredCountriesList.get(randomIndex);
+    /**
+     * - restoreQuiz, shows the question the QuizSession was restored at, with its guessed
+     *              buttons disabled, and carries on where the quiz was: to the next question if
+     *              it was answered, or to the results if it was finished.  The flag is usually
+     *              still in the FlagCache, then it is shown before this method returns.
+     */
+    private void restoreQuiz() {
+        Question question = mSession.getQuestion();
+        if (question == null) { // saved before the first question was shown
+            loadNextFlag();
+            return;
+        }
+        mCorrectCountryId = question.getCorrectId();
+        mCorrectCountry = mCatalog.getCountry(mCorrectCountryId);
+        showQuestion(question);
 
-            // if the rng country hasn't already been added
-            if (!mQuizCountriesList.contains(randomCountry)) {
-                mQuizCountriesList.add(randomCountry); // add the rng country to the list
-                ++flagCounter;
+        if (mSession.isAnswered()) {
+            answerTextView.setText(mCorrectCountry.getName() + "!");
+            answerTextView.setTextColor(ContextCompat.getColor(this, R.color.correct_answer));
+        }
+        else {
+            for (int i = 0; i < mChoiceCount; i++) {
+                if (mSession.isGuessed(i)) {
+                    answerTextView.setText(R.string.incorrect_answer);
+                    answerTextView.setTextColor(ContextCompat.getColor(this, R.color.incorrect_answer));
+                    break;
+                }
             }
         }
 
-        loadNextFlag(); // start the quiz by loading the first flag
+        // the callback shows the flag, as the flag of the current question
+        mFlagLoader.load(mCorrectCountry, mFlagLoadedCallback);
+        prefetchUpcomingFlags();
+
+        if (mSession.isFinished())
+            showResults();
+        else if (mSession.isAnswered())
+            mScheduler.schedule(2000, mNextQuestion); // the delay starts over
     }
 
-    // after the user guesses a correct flag, load the next flag
+    // shows the first question of a quiz
     private void loadNextFlag() {
-        // Get file name of the next flag and remove it from the list
-        mCorrectCountry = mQuizCountriesList.remove(0); // update the correct answer
-        answerTextView.setText(""); // clear answerTextView
+        prepareNextQuestion();
+        showPreparedQuestion();
+    }
 
-        // Display current question number
-        questionNumberTextView.setText(getString(
-                R.string.question, (mCorrectGuesses + 1), FLAGS_IN_QUIZ));
+    // moves to the next question after a correct guess, the next question is prepared during the delay
+    private final QuestionScheduler.Transition mNextQuestion = new QuestionScheduler.Transition() {
+        @Override
+        public void prepare() {
+            prepareNextQuestion();
+        }
 
-        // Use AssetManager to load next image from assets folder
-        AssetManager am = getAssets();
+        @Override
+        public void advance() {
+            showPreparedQuestion();
+        }
+    };
 
-        // COMPLETED: Get an InputStream to the asset representing the next flag
-        // COMPLETED: and try to use the InputStream
-        try {
-            InputStream stream =
-                    am.open(mCorrectCountry.getFileName());
+    // picks the next country of the quiz and its choices, and starts decoding its flag
+    private void prepareNextQuestion() {
+        long started = sMetrics.start(QuizMetrics.Stage.PREPARE_QUESTION);
+        // Get the next country of the quiz and the countries for the buttons, the correct one
+        // is at a random position
+        mPreparedCountryId = mSession.prepareNextQuestion().getCorrectId();
+        mPreparedFlag = null;
+        mPreparedFlagLoaded = false;
 
-            // load the asset as a Drawable and display on the flagImageView
-            Drawable flag = Drawable.createFromStream(stream, mCorrectCountry.getName());
-            flagImageView.setImageDrawable(flag);
+        // The flag is kept until the question is shown (usually it has been prefetched already),
+        // the scheduler is told the question is prepared once it is delivered
+        mFlagLoader.load(mCatalog.getCountry(mPreparedCountryId), mFlagLoadedCallback);
+
+        prefetchUpcomingFlags();
+        sMetrics.stop(QuizMetrics.Stage.PREPARE_QUESTION, started);
+    }
+
+    // Start decoding the flags of the next questions while this one is being answered
+    private void prefetchUpcomingFlags() {
+        for (int i = 0; i < FLAGS_TO_PREFETCH && mSession.getUpcomingCountryId(i) >= 0; i++)
+            mFlagLoader.prefetch(mCatalog.getCountry(mSession.getUpcomingCountryId(i)));
+    }
+
+    // shows the prepared question
+    private void showPreparedQuestion() {
+        Question question = mSession.showPreparedQuestion();
+        mCorrectCountryId = question.getCorrectId(); // update the correct answer
+        mCorrectCountry = mCatalog.getCountry(mCorrectCountryId);
+        mPreparedCountryId = -1;
+        showQuestion(question);
+
+        // Display the flag if it is decoded, otherwise the prior flag is cleared so it is never
+        // shown with the new question, and the flag is shown as soon as it is delivered
+        if (mPreparedFlagLoaded) {
+            showQuestionFlag(mCorrectCountry, mPreparedFlag);
+            mQuestionShownAt = SystemClock.uptimeMillis();
         }
-        catch (IOException exception) {
-            Log.e(TAG, "Error loading " + mCorrectCountry.getFileName(), exception);
+        else
+            showFlag(null);
+        mPreparedFlag = null;
+    }
+
+    // shows the question number and the choices of the current question
+    private void showQuestion(Question question) {
+        answerTextView.setText(""); // clear answerTextView
+
+        // Display current question number, an answered question still counts as the current one
+        int number = mSession.getCorrectGuesses() + (mSession.isAnswered() ? 0 : 1);
+        questionNumberTextView.setText(getString(R.string.question, number, FLAGS_IN_QUIZ));
+
+        // Loop through the buttons, set them to the chosen countries and enable the ones not
+        // guessed yet, the buttons of the first question stay disabled until its flag is shown
+        mChoiceCount = question.getChoiceCount();
+        if (mTypedAnswers)
+            answerEditText.setText(""); // no suggestions until something is typed
+        else {
+            for (int i = 0; i < mChoiceCount; i++)
+            {
+                mButtons[i].setText(mCatalog.getName(question.getChoiceId(i)));
+            }
         }
+        if (mStartup.isReady())
+            enableButtons();
+        else
+            disableButtons();
+    }
 
-        // COMPLETED: Shuffle the order of all the countries (use Collections.shuffle)
-        do {
-            Collections.shuffle(mFilteredCountriesList);
-        } while (mFilteredCountriesList.subList(0, mChoices).contains(mCorrectCountry));
+    // gives back the flag of a question which was prepared but will never be shown
+    private void dropPreparedQuestion() {
+        mSession.dropPreparedQuestion();
+        mPreparedCountryId = -1;
+        mFlagLoader.release(mPreparedFlag);
+        mPreparedFlag = null;
+        mPreparedFlagLoaded = false;
+    }
 
-        // COMPLETED: Loop through all 4 buttons, enable them all and set them to the first 4 countries
-        // COMPLETED: in the all countries list
-        for (int i = 0; i < mChoices; i++)
-        {
-            mButtons[i].setEnabled(true);
-            mButtons[i].setText(mFilteredCountriesList.get(i).getName());
+    // displays a flag decoded by the FlagLoader, if it still belongs to the current question
+    private final FlagLoader.Callback mFlagLoadedCallback = new FlagLoader.Callback() {
+        @Override
+        public void onFlagLoaded(Country country, Bitmap flag) {
+            // every Country comes from mCatalog, so comparing ids is enough
+            if (country.getId() == mPreparedCountryId) {
+                mPreparedFlag = flag;
+                mPreparedFlagLoaded = true;
+                mScheduler.prepared();
+            }
+            else if (country.getId() == mCorrectCountryId) {
+                showQuestionFlag(country, flag);
+                mQuestionShownAt = SystemClock.uptimeMillis();
+            }
+            else
+                mFlagLoader.release(flag);
         }
-        // COMPLETED: After the loop, randomly replace one of the 4 buttons with the name of the correct country
-        mButtons[rng.nextInt(mChoices)].setText(mCorrectCountry.getName());
+    };
 
+    // displays the flag of the current question
+    private void showQuestionFlag(Country country, Bitmap flag) {
+        showFlag(flag);
+        // the first question is ready once its flag is shown
+        if (flag != null)
+            mStartup.questionReady();
+        else
+            mStartup.fail(new IOException("Could not load the flag of " + country.getName()));
+    }
 
+    // displays a flag and gives the prior one back to the FlagLoader for reuse
+    private void showFlag(Bitmap flag) {
+        flagImageView.setImageBitmap(flag);
+        mFlagLoader.release(mDisplayedFlag);
+        mDisplayedFlag = flag;
     }
 
     /**
      * - makeGuess(View v), takes a View parameter, this represents the button the user tapped on.
-     *              The View is downcast to a Button.  The text of the chosen button is retrieved
-     *              as well as the text of the correct answer.  The total guesses is incremented.
+     *              The View is downcast to a Button.  Its tag is the slot of the choice it shows,
+     *              which the Question compares with the slot of the correct country.  The total
+     *              guesses is incremented.
      *              If the guess is correct, the correct guesses is incremented and the name of the flag
      *              is display in green text.  All the buttons are disabled.  If this is correct guess
      *              10 out of 10, we use an AlertDialog builder to display the user's score.
      *              Using the AlertDialog builder, a PositiveButton is set which enables the user
-     *              to retry the quiz.  If there are still more flags left to guess, then loadNextFlag
-     *              is called after a 2 second delay by the handler.  If the user makes an incorrect
-     *              guess, then the name of the incorrect guess is display in red text and that
-     *              country's button is disabled.
+     *              to retry the quiz.  If there are still more flags left to guess, the next question
+     *              is shown after a 2 second delay by the QuestionScheduler, which prepares it during
+     *              the delay.  If the user makes an incorrect guess, then the name of the incorrect
+     *              guess is display in red text and that country's button is disabled.  In the
+     *              typed answer mode the button shows a suggestion, and its country is guessed.
      *
      * @param v is a View object, the Button that the user tapped on.
      */
     public void makeGuess(View v) {
 
         Button guessButton = (Button) v;
-        String guess = guessButton.getText().toString();
-        String answer = mCorrectCountry.getName();
-        ++mTotalGuesses; // increment number of guesses the user has made
+        int slot = (Integer) guessButton.getTag(); // the choice of the question on this button
+        if (mTypedAnswers) {
+            guessCountry(mSuggestedIds[slot]); // the button shows a suggestion instead
+            return;
+        }
+        long started = sMetrics.start(QuizMetrics.Stage.GUESS);
+        recordAttempt(mSession.getQuestion().getChoiceId(slot));
+        // the session counts the guess and records the first one in the GuessStats
+        showOutcome(mSession.guess(slot), guessButton);
+        sMetrics.stop(QuizMetrics.Stage.GUESS, started);
+    }
 
-        if (guess.equals(answer)) { // if the guess is correct
-            ++mCorrectGuesses; // increment the number of correct answers
+    // guesses a typed or suggested country, which need not be one of the question's choices
+    private void guessCountry(int countryId) {
+        long started = sMetrics.start(QuizMetrics.Stage.GUESS);
+        recordAttempt(countryId);
+        showOutcome(mSession.guessCountry(countryId), null);
+        sMetrics.stop(QuizMetrics.Stage.GUESS, started);
+    }
+
+    // adds a guess of the current question to the AttemptLog
+    private void recordAttempt(int guessedCountryId) {
+        if (mAttemptLog != null) {
+            mAttemptLog.record(mCorrectCountryId, guessedCountryId,
+                    (int) (SystemClock.uptimeMillis() - mQuestionShownAt), System.currentTimeMillis());
+        }
+    }
+
+    // shows whether a guess was right, guessButton is the button of a wrong guess to disable,
+    // null for a typed answer
+    private void showOutcome(QuizSession.Outcome outcome, Button guessButton) {
+        if (outcome != QuizSession.Outcome.WRONG) { // if the guess is correct
 
             // display correct answer in green text
-            answerTextView.setText(answer + "!");
+            answerTextView.setText(mCorrectCountry.getName() + "!");
             answerTextView.setTextColor(ContextCompat.getColor(this, R.color.correct_answer));
 
 
@@ -300,36 +857,15 @@ public class MainActivity extends AppCompatActivity {
 
 
             // if the user has correctly identified FLAGS_IN_QUIZ flags
-            if (mCorrectGuesses == FLAGS_IN_QUIZ) {
-                // DialogFragment to display quiz stats and start new quiz
-                AlertDialog.Builder builder = new AlertDialog.Builder(this);
-                builder.setMessage(
-                        getString(R.string.results,
-                                mTotalGuesses,
-                                (1000 / (double) mTotalGuesses)));
-                // "Reset Quiz" Button
-                builder.setPositiveButton(R.string.reset_quiz,
-                        new DialogInterface.OnClickListener() {
-                            public void onClick(DialogInterface dialog,
-                                                int id) {
-                                resetQuiz();
-                            }
-                        }
-                );
-                builder.setCancelable(false);
-                builder.create();
-                builder.show();
-
+            if (outcome == QuizSession.Outcome.FINISHED) {
+                Log.d(TAG, mFlagLoader.getStats() + " " + mScheduler
+                        + (mAttemptLog != null ? " " + mAttemptLog : "")
+                        + (mFlagAtlas != null ? " " + mFlagAtlas : ""));
+                showResults();
             }
             else { // answer is correct but quiz is not over
-                // load the next flag after a 2-second delay
-                handler.postDelayed(
-                        new Runnable() {
-                            @Override
-                            public void run() {
-                                loadNextFlag();
-                            }
-                        }, 2000); // 2000 milliseconds for 2-second delay
+                // show the next question after a 2-second delay, it is prepared in the meantime
+                mScheduler.schedule(2000, mNextQuestion); // 2000 milliseconds for 2-second delay
             }
         }
         else { // answer was incorrect
@@ -337,16 +873,209 @@ public class MainActivity extends AppCompatActivity {
             // display "Incorrect!" in red
             answerTextView.setText(R.string.incorrect_answer);
             answerTextView.setTextColor(ContextCompat.getColor(this, R.color.incorrect_answer));
-            guessButton.setEnabled(false); // disable incorrect answer
+            if (guessButton != null)
+                guessButton.setEnabled(false); // disable incorrect answer
+            else
+                answerEditText.selectAll(); // so the next try replaces the typed answer
+        }
+    }
+
+    // shows the best suggestions for the typed answer on the buttons, on every keystroke
+    private final TextWatcher mAnswerWatcher = new TextWatcher() {
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
         }
 
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+        }
 
+        @Override
+        public void afterTextChanged(Editable typed) {
+            if (!mTypedAnswers || mSession == null || mSession.getQuestion() == null)
+                return; // i.e. the text restored with the EditText before the quiz is loaded
+            // the Matcher reuses its buffers, looking up a keystroke does not allocate
+            int found = typed.length() == 0 ? 0
+                    : mAnswerMatcher.match(typed, CountryNameTrie.maxEdits(typed.length()));
+            mSuggestionCount = Math.min(found, mChoiceCount);
+            for (int i = 0; i < mChoiceCount; i++) {
+                if (i < mSuggestionCount) {
+                    mSuggestedIds[i] = mAnswerMatcher.getCountryId(i);
+                    mButtons[i].setText(mCatalog.getName(mSuggestedIds[i]));
+                }
+                else
+                    mButtons[i].setText("");
+            }
+            if (mStartup.isReady() && !mSession.isAnswered())
+                enableButtons();
+        }
+    };
+
+    // guesses the typed answer when Done is pressed: the country with exactly that name,
+    // otherwise the best suggestion
+    private final TextView.OnEditorActionListener mAnswerDoneListener = new TextView.OnEditorActionListener() {
+        @Override
+        public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
+            if (actionId != EditorInfo.IME_ACTION_DONE)
+                return false;
+            if (mSession == null || !mStartup.isReady() || mSession.isAnswered())
+                return true;
+            int countryId = mAnswerMatcher.find(v.getText());
+            if (countryId < 0 && mSuggestionCount > 0)
+                countryId = mSuggestedIds[0];
+            if (countryId >= 0)
+                guessCountry(countryId);
+            return true; // the keyboard stays up for the next question
+        }
+    };
+
+    // displays the user's score, with a button to start a new quiz
+    private void showResults() {
+        // DialogFragment to display quiz stats and start new quiz
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setMessage(
+                getString(R.string.results,
+                        mSession.getTotalGuesses(),
+                        (1000 / (double) mSession.getTotalGuesses())));
+        // "Reset Quiz" Button
+        builder.setPositiveButton(R.string.reset_quiz,
+                new DialogInterface.OnClickListener() {
+                    public void onClick(DialogInterface dialog,
+                                        int id) {
+                        resetQuiz();
+                    }
+                }
+        );
+        builder.setCancelable(false);
+        builder.create();
+        builder.show();
     }
 
     // utility method that disables all Buttons
     private void disableButtons() {
         for (Button b : mButtons)
             b.setEnabled(false);
+        answerEditText.setEnabled(false);
+    }
+
+    // enables the Buttons of the current question which were not guessed yet
+    private void enableButtons() {
+        if (mTypedAnswers) {
+            // the buttons with a suggestion, and typing until the question is answered
+            answerEditText.setEnabled(!mSession.isAnswered());
+            for (int i = 0; i < mChoiceCount; i++)
+                mButtons[i].setEnabled(!mSession.isAnswered() && i < mSuggestionCount);
+            return;
+        }
+        for (int i = 0; i < mChoiceCount; i++)
+            mButtons[i].setEnabled(!mSession.isAnswered() && !mSession.isGuessed(i));
+    }
+
+    /**
+     * - onSaveInstanceState, saves the quiz as a snapshot of a few dozen bytes of country ids,
+     *              so it goes on where it was when the activity is recreated, e.g. after the
+     *              device is rotated.  The catalog and the flags are kept for the process, they
+     *              are not saved.
+     * @param outState the Bundle to save the quiz in.
+     */
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (mSession != null)
+            outState.putByteArray(QUIZ_STATE, mSession.toSnapshot());
+        else if (mSavedQuiz != null)
+            outState.putByteArray(QUIZ_STATE, mSavedQuiz); // recreated again while loading
+    }
+
+    /**
+     * - onStop, writes the attempts recorded so far and saves the GuessStats.  The stats are
+     *              copied on the main thread, which records the guesses, and written to a file on
+     *              the background thread, which also writes the AttemptLog.  The percentiles of
+     *              the QuizMetrics are logged and written to metrics.txt, e.g. for
+     *              "adb shell run-as edu.orangecoastcollege.cs273.flagquiz cat files/metrics.txt".
+     */
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (mAttemptLog != null)
+            mAttemptLog.flush();
+        saveMetrics();
+        if (mGuessStats == null)
+            return;
+        final File file = new File(getFilesDir(), GUESS_STATS_FILE);
+        final byte[] bytes = mGuessStats.toBytes();
+        sBackground.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    GuessStats.save(file, bytes);
+                }
+                catch (IOException e) {
+                    Log.e(TAG, "Unable to save the guess stats", e);
+                }
+            }
+        });
+    }
+
+    // logs the QuizMetrics and writes them to METRICS_FILE in the background
+    private void saveMetrics() {
+        final String dump = sMetrics.dump();
+        Log.d(TAG, "Metrics:\n" + dump);
+        final File file = new File(getFilesDir(), METRICS_FILE);
+        sBackground.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    FileOutputStream out = new FileOutputStream(file);
+                    try {
+                        out.write(dump.getBytes("UTF-8"));
+                    }
+                    finally {
+                        out.close();
+                    }
+                }
+                catch (IOException e) {
+                    Log.e(TAG, "Unable to save the metrics", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * - onDestroy, stops the background thread of the FlagLoader and gives the flags it shows
+     *              back to the FlagCache, which outlives the activity.  The AttemptLog and the
+     *              background thread are kept for the next instance, onStop wrote what was
+     *              recorded.
+     */
+    @Override
+    protected void onDestroy() {
+        mStartup.cancel();
+        mScheduler.cancel();
+        mSettingsDebouncer.cancel(); // settings changed this late are read by the next instance
+        PreferenceManager.getDefaultSharedPreferences(this)
+                .unregisterOnSharedPreferenceChangeListener(mPreferenceChangeListener);
+        flagImageView.setImageDrawable(null);
+        if (mFlagLoader != null) {
+            mFlagLoader.release(mDisplayedFlag);
+            mFlagLoader.release(mPreparedFlag);
+            mFlagLoader.shutdown();
+        }
+        mDisplayedFlag = null;
+        mPreparedFlag = null;
+        super.onDestroy();
+    }
+
+    /**
+     * - onTrimMemory, releases cached flags when the system is low on memory.
+     * @param level how much memory should be released.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (mFlagCache != null)
+            mFlagCache.trimMemory(level);
+        if (mFlagAtlas != null)
+            mFlagAtlas.trimMemory(level);
     }
 
     /**
@@ -378,32 +1107,85 @@ public class MainActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
+    // the settings are applied once the user has not changed any for SETTINGS_WINDOW_MILLIS
     SharedPreferences.OnSharedPreferenceChangeListener mPreferenceChangeListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
         @Override
         public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+            mSettingsDebouncer.changed(key);
+        }
+    };
 
-            // Let's figure out which key changed
-            switch (key)
-            {
-                case CHOICES:
-                    // Read the number of choices from shared preferences
-                    mChoices = Integer.parseInt(sharedPreferences.getString(CHOICES, "4"));
-                    // Call method to update choices (visually)
-                    updateChoices();
-                    break;
-                case REGIONS:
-                    mRegion = sharedPreferences.getString(REGIONS, "All");
-                    updateRegion();
-                    break;
+    /**
+     * - applySettings, applies the settings changed in a row as one transaction.  The quiz is
+     *              restarted once, and only if the regions or the answer mode changed: the
+     *              countries of the regions selected or deselected are added to or removed from
+     *              the QuizSession, the others stay where they are.  If only the number of
+     *              choices or the Look-alike Flags setting changed, the current question keeps
+     *              its flag and just gets new choices.
+     * @param keys the keys of the changed preferences.
+     */
+    private void applySettings(Set<String> keys) {
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(this);
+        boolean restart = false;
+        boolean resample = false;
+
+        if (keys.contains(REGIONS)) {
+            Set<String> regions = preferences.getStringSet(REGIONS, allRegions());
+            if (regions.isEmpty()) {
+                // at least one region is needed, storing the default calls the listener again
+                // and changes nothing then
+                Toast.makeText(this, R.string.default_region_message, Toast.LENGTH_LONG).show();
+                regions = Collections.singleton(getString(R.string.default_region));
+                preferences.edit().putStringSet(REGIONS, regions).apply();
+            }
+            restart |= updateRegion(regions);
+        }
+        if (keys.contains(CHOICES)) {
+            // Read the number of choices from shared preferences
+            int choices = Integer.parseInt(preferences.getString(CHOICES, "4"));
+            if (choices != mChoices) {
+                mChoices = choices;
+                // Call method to update choices (visually)
+                updateChoices();
+                resample = true;
+            }
+        }
+        if (keys.contains(HARD_DISTRACTORS)) {
+            boolean hardDistractors = preferences.getBoolean(HARD_DISTRACTORS, false);
+            if (hardDistractors != mHardDistractors) {
+                mHardDistractors = hardDistractors;
+                updateDistractors();
+                resample = true;
             }
+        }
+        if (keys.contains(TYPED_ANSWERS)) {
+            boolean typedAnswers = preferences.getBoolean(TYPED_ANSWERS, false);
+            if (typedAnswers != mTypedAnswers) {
+                mTypedAnswers = typedAnswers;
+                updateAnswerMode();
+                restart = true;
+            }
+        }
+        Log.d(TAG, "Settings " + keys + (restart ? " restart" : resample ? " resample" : " unchanged")
+                + " " + mSettingsDebouncer);
 
+        if (restart) {
             resetQuiz();
             // Notify the user that the quiz will restart
-            Toast.makeText(MainActivity.this, R.string.restarting_quiz, Toast.LENGTH_SHORT).show();
+            Toast.makeText(this, R.string.restarting_quiz, Toast.LENGTH_SHORT).show();
         }
-    };
+        else if (resample) {
+            // the resampled question is shown straight away, an answered one keeps its
+            // buttons and the next question gets the new choices
+            Question question = mSession.resampleChoices();
+            if (question != null)
+                showQuestion(question);
+        }
+    }
 
     private void updateChoices() {
+        mSession.setChoices(mChoices); // used from the next prepared question on
+
         // Enable/Show all the linear layouts < mChoices / 2
         // Disable/Hide all the others
         // Let's loop through all linear layouts
@@ -422,18 +1204,68 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private void updateRegion() {
-        // Make a decision:
-        // If region is "All", filtered list is same as all
-        if (mRegion.equals("All"))
-            mFilteredCountriesList = new ArrayList<>(mAllCountriesList);
-        else
-        {
-            mFilteredCountriesList = new ArrayList<>();
-            // Loop through all countries
-            for (Country c: mAllCountriesList)
-                if (c.getRegion().equals(mRegion))
-                    mFilteredCountriesList.add(c);
+    private void selectRegions() {
+        long started = sMetrics.start(QuizMetrics.Stage.SELECT_REGIONS);
+        // The RegionIndex unions the countries of the selected regions, no Country is copied
+        mSelectedRegions = mRegionIndex.toRegionIds(mRegions);
+        mSession.setCountries(mRegionIndex.select(mSelectedRegions));
+        sMetrics.stop(QuizMetrics.Stage.SELECT_REGIONS, started);
+    }
+
+    // adds the countries of the regions selected since to the session and removes the ones of the
+    // regions deselected, false if the same regions are selected
+    private boolean updateRegion(Set<String> regions) {
+        mRegions = regions;
+        BitSet selected = mRegionIndex.toRegionIds(regions);
+        BitSet added = (BitSet) selected.clone();
+        added.andNot(mSelectedRegions);
+        BitSet removed = (BitSet) mSelectedRegions.clone();
+        removed.andNot(selected);
+        if (added.isEmpty() && removed.isEmpty())
+            return false;
+
+        // added first, so there are never fewer countries in between than at the end
+        long started = sMetrics.start(QuizMetrics.Stage.SELECT_REGIONS);
+        for (int id = added.nextSetBit(0); id >= 0; id = added.nextSetBit(id + 1))
+            mSession.addCountries(mRegionIndex.getCountries(id));
+        for (int id = removed.nextSetBit(0); id >= 0; id = removed.nextSetBit(id + 1))
+            mSession.removeCountries(mRegionIndex.getCountries(id));
+        mSelectedRegions = selected;
+        sMetrics.stop(QuizMetrics.Stage.SELECT_REGIONS, started);
+        return true;
+    }
+
+    private void updateDistractors() {
+        // without an index the hard mode has nothing to pick look-alikes from, stay random
+        mSession.setSimilarity(mHardDistractors ? mSimilarity : null);
+    }
+
+    private void updateAnswerMode() {
+        // in the typed answer mode the buttons show the suggestions for the typed name
+        answerEditText.setVisibility(mTypedAnswers ? View.VISIBLE : View.GONE);
+        mSuggestionCount = 0;
+        if (mTypedAnswers && mAnswerMatcher == null) {
+            // turned on in the settings since the quiz was loaded, the trie is built on first use
+            if (mLoadedQuiz.mNameTrie == null)
+                mLoadedQuiz.mNameTrie = CountryNameTrie.of(mCatalog);
+            mAnswerMatcher = mLoadedQuiz.mNameTrie.newMatcher(mSuggestedIds.length);
         }
     }
+
+    // every region of the catalog, the default selection
+    private Set<String> allRegions() {
+        Set<String> regions = new HashSet<>();
+        for (int id = 0; id < mRegionIndex.getRegionCount(); id++)
+            regions.add(mRegionIndex.getRegionName(id));
+        return regions;
+    }
+
+    // older versions stored a single region (or "All"), turn it into a region set once
+    private void migrateRegionPreference(SharedPreferences preferences) {
+        if (!preferences.contains(LEGACY_REGION))
+            return;
+        String region = preferences.getString(LEGACY_REGION, "All");
+        Set<String> regions = region.equals("All") ? allRegions() : new HashSet<>(Arrays.asList(region));
+        preferences.edit().remove(LEGACY_REGION).putStringSet(REGIONS, regions).apply();
+    }
 }
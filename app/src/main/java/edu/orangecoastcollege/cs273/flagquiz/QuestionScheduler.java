@@ -0,0 +1,173 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+/**
+ * QuestionScheduler moves the quiz to the next question after the feedback delay of a correct
+ * answer, instead of a Runnable posted straight to a Handler.
+ *
+ * A Transition is prepared as soon as it is scheduled (the next country and choices are picked
+ * and its flag starts loading) while the answer is still shown, and advanced once both the delay
+ * has passed and prepared() has been called, so the next question appears the moment the delay
+ * ends unless its flag is late.
+ *
+ * Only one transition is pending at a time: scheduling while one is pending is fused into it
+ * (quick taps do not skip questions), and cancel() drops it, which MainActivity does when the
+ * quiz is reset and when it is destroyed, so no callback runs on an old quiz or a dead activity.
+ *
+ * All methods must be called on the same thread as the Timer runs its tasks (the main thread).
+ * MainActivity gives it a Handler based Timer and the unit tests a virtual one.
+ */
+public class QuestionScheduler {
+
+    /**
+     * Runs tasks after a delay, on the scheduler's thread.
+     */
+    public interface Timer {
+        /**
+         * @param task the task to run.
+         * @param delayMillis how long to wait before running it.
+         */
+        void postDelayed(Runnable task, long delayMillis);
+
+        /**
+         * @param task a task passed to postDelayed() which must not run anymore.
+         */
+        void cancel(Runnable task);
+    }
+
+    /**
+     * A move to the next question.
+     */
+    public interface Transition {
+        /**
+         * Starts preparing the next question, called when the transition is scheduled.
+         * QuestionScheduler.prepared() must be called once it is ready, this may be from
+         * within prepare().
+         */
+        void prepare();
+
+        /**
+         * Shows the prepared question.
+         */
+        void advance();
+    }
+
+    private final Timer mTimer;
+    private final Runnable mDelayTask = new Runnable() {
+        @Override
+        public void run() {
+            mDelayElapsed = true;
+            advanceIfReady();
+        }
+    };
+
+    private Transition mPending; // null when nothing is scheduled
+    private boolean mDelayElapsed;
+    private boolean mPrepared;
+
+    private int mScheduledCount;
+    private int mFusedCount;
+    private int mCancelledCount;
+    private int mLateCount;
+
+    /**
+     * @param timer runs the feedback delays.
+     */
+    public QuestionScheduler(Timer timer) {
+        mTimer = timer;
+    }
+
+    /**
+     * Schedules a transition, unless one is pending already.
+     * @param delayMillis the feedback delay, the shortest time before the transition advances.
+     * @param transition the transition, prepare() is called before this method returns.
+     * @return false if the transition was fused into a pending one and will not run.
+     */
+    public boolean schedule(long delayMillis, Transition transition) {
+        if (mPending != null) {
+            ++mFusedCount;
+            return false;
+        }
+        ++mScheduledCount;
+        mPending = transition;
+        mDelayElapsed = false;
+        mPrepared = false;
+        mTimer.postDelayed(mDelayTask, delayMillis);
+        transition.prepare();
+        return true;
+    }
+
+    /**
+     * Tells the scheduler the pending transition is prepared.  Does nothing if there is none.
+     */
+    public void prepared() {
+        if (mPending == null || mPrepared)
+            return;
+        mPrepared = true;
+        if (mDelayElapsed)
+            ++mLateCount; // the user waited for the question longer than the delay
+        advanceIfReady();
+    }
+
+    private void advanceIfReady() {
+        if (mPending != null && mDelayElapsed && mPrepared) {
+            Transition transition = mPending;
+            mPending = null;
+            transition.advance();
+        }
+    }
+
+    /**
+     * Drops the pending transition, if any, it will neither advance nor be prepared any further.
+     */
+    public void cancel() {
+        if (mPending == null)
+            return;
+        ++mCancelledCount;
+        mTimer.cancel(mDelayTask);
+        mPending = null;
+    }
+
+    /**
+     * @return true while a transition is scheduled and has not advanced yet.
+     */
+    public boolean isPending() {
+        return mPending != null;
+    }
+
+    /**
+     * @return how many transitions were scheduled.
+     */
+    public int getScheduledCount() {
+        return mScheduledCount;
+    }
+
+    /**
+     * @return how many transitions were fused into a pending one.
+     */
+    public int getFusedCount() {
+        return mFusedCount;
+    }
+
+    /**
+     * @return how many transitions were cancelled.
+     */
+    public int getCancelledCount() {
+        return mCancelledCount;
+    }
+
+    /**
+     * @return how many transitions were prepared only after their delay had passed.
+     */
+    public int getLateCount() {
+        return mLateCount;
+    }
+
+    /**
+     * @return a one line summary of the counters, for the log.
+     */
+    @Override
+    public String toString() {
+        return "QuestionScheduler[" + mScheduledCount + " scheduled, " + mFusedCount + " fused, "
+                + mCancelledCount + " cancelled, " + mLateCount + " late]";
+    }
+}
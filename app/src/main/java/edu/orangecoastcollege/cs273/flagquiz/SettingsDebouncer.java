@@ -0,0 +1,106 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * SettingsDebouncer turns the preference changes made in a row in the SettingsActivity into a
+ * single reconfiguration of the quiz, instead of one per preference.
+ *
+ * Every changed key is collected and the quiet window starts over; once no key has changed for
+ * the whole window the Listener gets every key changed since the last time, once each, in the
+ * order they first changed.  So ticking three regions and changing the choice count restarts
+ * the quiz once, not four times.
+ *
+ * flush() applies the pending keys straight away, and cancel() drops them, which MainActivity
+ * does when it is destroyed so no change is applied to a dead activity.
+ *
+ * All methods must be called on the same thread as the Timer runs its tasks (the main thread).
+ * Like the QuestionScheduler, MainActivity gives it a Handler based Timer and the unit tests a
+ * virtual one.
+ */
+public class SettingsDebouncer {
+
+    /**
+     * Reconfigures the quiz for the changed preferences.
+     */
+    public interface Listener {
+        /**
+         * @param keys the keys of the preferences changed since the last call, not empty.
+         */
+        void onSettingsChanged(Set<String> keys);
+    }
+
+    private final QuestionScheduler.Timer mTimer;
+    private final long mWindowMillis;
+    private final Listener mListener;
+    private final Runnable mApplyTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private Set<String> mPending = new LinkedHashSet<>();
+    private int mChangeCount;
+    private int mAppliedCount;
+
+    /**
+     * @param timer runs the quiet windows.
+     * @param windowMillis how long no preference may change before the changes are applied.
+     * @param listener applies the changes.
+     */
+    public SettingsDebouncer(QuestionScheduler.Timer timer, long windowMillis, Listener listener) {
+        mTimer = timer;
+        mWindowMillis = windowMillis;
+        mListener = listener;
+    }
+
+    /**
+     * Records a changed preference, the quiet window starts over.
+     * @param key the key of the preference.
+     */
+    public void changed(String key) {
+        ++mChangeCount;
+        mPending.add(key);
+        mTimer.cancel(mApplyTask);
+        mTimer.postDelayed(mApplyTask, mWindowMillis);
+    }
+
+    /**
+     * Applies the pending changes now, if there are any.
+     */
+    public void flush() {
+        mTimer.cancel(mApplyTask);
+        if (mPending.isEmpty())
+            return;
+        Set<String> keys = mPending;
+        mPending = new LinkedHashSet<>(); // the listener may change preferences again
+        ++mAppliedCount;
+        mListener.onSettingsChanged(Collections.unmodifiableSet(keys));
+    }
+
+    /**
+     * Drops the pending changes, they will not be applied.
+     */
+    public void cancel() {
+        mTimer.cancel(mApplyTask);
+        mPending.clear();
+    }
+
+    /**
+     * @return true while changes wait for the quiet window to end.
+     */
+    public boolean isPending() {
+        return !mPending.isEmpty();
+    }
+
+    /**
+     * @return a one line summary of the counters, for the log.
+     */
+    @Override
+    public String toString() {
+        return "SettingsDebouncer[" + mChangeCount + " changes, " + mAppliedCount + " applied]";
+    }
+}
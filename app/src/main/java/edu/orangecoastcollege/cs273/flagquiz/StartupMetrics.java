@@ -0,0 +1,92 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.util.Locale;
+
+/**
+ * StartupMetrics records how long a cold start of the quiz takes, from the moment it is
+ * created (MainActivity.onCreate) to:
+ *  - the first frame, when the layout is drawn for the first time
+ *  - the catalog being loaded
+ *  - interactive, when the first question can be answered (its flag is shown and the answer
+ *    buttons are enabled)
+ *
+ * Every mark is only recorded the first time, so a retry after an error does not move it.
+ * The marks are set on the main thread, they can be read from any thread.
+ */
+public class StartupMetrics {
+
+    private static final long NOT_YET = -1;
+
+    private final Clock mClock;
+    private final long mStartNanos;
+    private volatile long mFirstFrameNanos = NOT_YET;
+    private volatile long mCatalogLoadedNanos = NOT_YET;
+    private volatile long mInteractiveNanos = NOT_YET;
+
+    /**
+     * Starts measuring.
+     * @param clock the clock the times are read from.
+     */
+    public StartupMetrics(Clock clock) {
+        mClock = clock;
+        mStartNanos = clock.nanoTime();
+    }
+
+    /**
+     * Records the first frame, if it has not been recorded yet.
+     */
+    public void markFirstFrame() {
+        if (mFirstFrameNanos == NOT_YET)
+            mFirstFrameNanos = mClock.nanoTime() - mStartNanos;
+    }
+
+    /**
+     * Records the catalog being loaded, if it has not been recorded yet.
+     */
+    public void markCatalogLoaded() {
+        if (mCatalogLoadedNanos == NOT_YET)
+            mCatalogLoadedNanos = mClock.nanoTime() - mStartNanos;
+    }
+
+    /**
+     * Records the first question becoming answerable, if it has not been recorded yet.
+     */
+    public void markInteractive() {
+        if (mInteractiveNanos == NOT_YET)
+            mInteractiveNanos = mClock.nanoTime() - mStartNanos;
+    }
+
+    /**
+     * @return nanoseconds from the start to the first frame, -1 if there was none yet.
+     */
+    public long getTimeToFirstFrameNanos() {
+        return mFirstFrameNanos;
+    }
+
+    /**
+     * @return nanoseconds from the start to the catalog being loaded, -1 if it is not loaded yet.
+     */
+    public long getTimeToCatalogNanos() {
+        return mCatalogLoadedNanos;
+    }
+
+    /**
+     * @return nanoseconds from the start to the first question being answerable, -1 if it is not yet.
+     */
+    public long getTimeToInteractiveNanos() {
+        return mInteractiveNanos;
+    }
+
+    /**
+     * @return the times in milliseconds, for the log.
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "startup: first frame %s, catalog %s, interactive %s",
+                millis(mFirstFrameNanos), millis(mCatalogLoadedNanos), millis(mInteractiveNanos));
+    }
+
+    private static String millis(long nanos) {
+        return nanos == NOT_YET ? "-" : String.format(Locale.US, "%.1f ms", nanos / 1e6);
+    }
+}
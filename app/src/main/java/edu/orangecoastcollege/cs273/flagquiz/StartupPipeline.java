@@ -0,0 +1,198 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * StartupPipeline runs the slow part of a cold start (loading the catalog) on a background
+ * thread, and holds back the quiz until its first question is ready, so the layout is drawn
+ * straight away and the answer buttons are never enabled before there is a question.
+ *
+ * The pipeline goes through these states:
+ *  - LOADING, from start() (or startLoaded(), which skips the loader) until the loader returns and its result is delivered, then until
+ *    questionReady() is called (the first flag is shown)
+ *  - READY, the first question can be answered, onInteractive() has been called
+ *  - FAILED, the loader threw or fail() was called, onFailed() has been called.  start() can
+ *    be called again to retry.
+ *
+ * The loader runs on the background Executor, every Listener method runs on the main Executor,
+ * and start(), questionReady(), fail() and cancel() must be called on the main thread.  Results
+ * of a load which was cancelled, or replaced by a newer start(), are dropped.
+ *
+ * MainActivity runs it with a background thread and a Handler on the main looper, the unit
+ * tests with executors of their own.
+ *
+ * @param <T> what the loader loads.
+ */
+public class StartupPipeline<T> {
+
+    /**
+     * The states of the pipeline.
+     */
+    public enum State { IDLE, LOADING, READY, FAILED }
+
+    /**
+     * Receives the progress of the pipeline on the main thread.
+     * @param <T> what the loader loads.
+     */
+    public interface Listener<T> {
+        /**
+         * The loader has returned, the first question should be set up now.
+         * @param result what the loader returned.
+         */
+        void onLoaded(T result);
+
+        /**
+         * The first question is ready, the answer buttons may be enabled.
+         */
+        void onInteractive();
+
+        /**
+         * The start failed, an error should be shown.
+         * @param error what went wrong.
+         */
+        void onFailed(Exception error);
+    }
+
+    private final Executor mBackground;
+    private final Executor mMain;
+    private final StartupMetrics mMetrics;
+    private final Listener<T> mListener;
+
+    private State mState = State.IDLE;
+    private boolean mLoaded;
+    private boolean mQuestionReady;
+    private int mGeneration; // incremented by every start() and cancel(), older loads are dropped
+
+    /**
+     * @param background runs the loader.
+     * @param main runs the Listener, on the main thread.
+     * @param metrics records when the catalog is loaded and when the quiz becomes interactive.
+     * @param listener receives the progress.
+     */
+    public StartupPipeline(Executor background, Executor main, StartupMetrics metrics, Listener<T> listener) {
+        mBackground = background;
+        mMain = main;
+        mMetrics = metrics;
+        mListener = listener;
+    }
+
+    /**
+     * Starts loading in the background.
+     * @param loader loads what the first question needs, may throw to fail the start.
+     * @throws IllegalStateException if the pipeline is loading or ready already.
+     */
+    public void start(final Callable<T> loader) {
+        final int generation = beginLoading();
+        mBackground.execute(new Runnable() {
+            @Override
+            public void run() {
+                T result = null;
+                Exception error = null;
+                try {
+                    result = loader.call();
+                }
+                catch (Exception e) {
+                    error = e;
+                }
+                final T loaded = result;
+                final Exception failure = error;
+                mMain.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(generation, loaded, failure);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Starts with what an earlier start() loaded, e.g. when the activity is recreated after a
+     * rotation and the catalog is still in memory: the Listener's onLoaded() is called right
+     * away, on the calling thread, and the pipeline waits for questionReady() as usual.
+     * @param loaded what the loader would return.
+     * @throws IllegalStateException if the pipeline is loading or ready already.
+     */
+    public void startLoaded(T loaded) {
+        deliver(beginLoading(), loaded, null);
+    }
+
+    private int beginLoading() {
+        if (mState == State.LOADING || mState == State.READY)
+            throw new IllegalStateException("Startup is " + mState);
+        mState = State.LOADING;
+        mLoaded = false;
+        mQuestionReady = false;
+        return ++mGeneration;
+    }
+
+    // on the main thread
+    private void deliver(int generation, T result, Exception error) {
+        if (generation != mGeneration || mState != State.LOADING)
+            return;
+        if (error != null) {
+            fail(error);
+            return;
+        }
+        mLoaded = true;
+        mMetrics.markCatalogLoaded();
+        mListener.onLoaded(result);
+        openIfReady();
+    }
+
+    /**
+     * Tells the pipeline the first question is ready, usually when its flag is shown.  Does
+     * nothing unless the pipeline is loading.
+     */
+    public void questionReady() {
+        if (mState != State.LOADING)
+            return;
+        mQuestionReady = true;
+        openIfReady();
+    }
+
+    private void openIfReady() {
+        // onLoaded() may have made the question ready already
+        if (mState == State.LOADING && mLoaded && mQuestionReady) {
+            mState = State.READY;
+            mMetrics.markInteractive();
+            mListener.onInteractive();
+        }
+    }
+
+    /**
+     * Fails the start, i.e. when the first flag can not be decoded.  Does nothing unless the
+     * pipeline is loading.
+     * @param error what went wrong.
+     */
+    public void fail(Exception error) {
+        if (mState != State.LOADING)
+            return;
+        mState = State.FAILED;
+        mListener.onFailed(error);
+    }
+
+    /**
+     * Drops the result of the load in progress, if any, the Listener is not called anymore.
+     */
+    public void cancel() {
+        ++mGeneration;
+        if (mState == State.LOADING)
+            mState = State.IDLE;
+    }
+
+    /**
+     * @return the state of the pipeline.
+     */
+    public State getState() {
+        return mState;
+    }
+
+    /**
+     * @return true once the first question can be answered.
+     */
+    public boolean isReady() {
+        return mState == State.READY;
+    }
+}
@@ -0,0 +1,193 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares time-to-first-frame and time-to-interactive of a cold start which does everything on
+ * the main thread, like onCreate used to, with one which runs through StartupPipeline.
+ *
+ * A single thread executor stands in for the main thread: the first frame is drawn when the main
+ * thread gets to run the frame task posted right after onCreate.  The work is the real work of a
+ * cold start: parsing Countries.json, building the RegionIndex, picking the quiz and decoding the
+ * first flag (with ImageIO instead of BitmapFactory).  Results are printed to standard out.
+ *
+ * It is not part of the unit tests, run it with ./gradlew testDebugUnitTest -PunitBenchmarks.
+ */
+public class ColdStartBenchmark {
+
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURED_RUNS = 50;
+
+    @Test
+    public void mainThreadVersusPipeline() throws Exception {
+        ExecutorService main = Executors.newSingleThreadExecutor();
+        ExecutorService background = Executors.newSingleThreadExecutor();
+        ExecutorService flagLoader = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                onMainThread(main);
+                withPipeline(main, background, flagLoader);
+            }
+            long[][] old = new long[2][MEASURED_RUNS];
+            long[][] pipeline = new long[2][MEASURED_RUNS];
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                StartupMetrics metrics = onMainThread(main);
+                old[0][i] = metrics.getTimeToFirstFrameNanos();
+                old[1][i] = metrics.getTimeToInteractiveNanos();
+                metrics = withPipeline(main, background, flagLoader);
+                pipeline[0][i] = metrics.getTimeToFirstFrameNanos();
+                pipeline[1][i] = metrics.getTimeToInteractiveNanos();
+            }
+
+            System.out.println(String.format("Cold start (median): main thread: first frame %.2f ms, "
+                            + "interactive %.2f ms | pipeline: first frame %.2f ms, interactive %.2f ms",
+                    median(old[0]) / 1e6, median(old[1]) / 1e6,
+                    median(pipeline[0]) / 1e6, median(pipeline[1]) / 1e6));
+            assertTrue("the first frame must not wait for the catalog", median(pipeline[0]) < median(old[0]));
+        }
+        finally {
+            main.shutdown();
+            background.shutdown();
+            flagLoader.shutdown();
+        }
+    }
+
+    // everything in onCreate, the frame is drawn after it returns
+    private static StartupMetrics onMainThread(ExecutorService main) throws Exception {
+        final StartupMetrics metrics = new StartupMetrics(Clock.SYSTEM);
+        final CountDownLatch drawn = new CountDownLatch(1);
+        main.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    CountryCatalog catalog = loadCatalog();
+                    metrics.markCatalogLoaded();
+                    decodeFlag(firstQuestion(catalog));
+                    metrics.markInteractive();
+                }
+                catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+        main.execute(new Runnable() {
+            @Override
+            public void run() {
+                metrics.markFirstFrame();
+                drawn.countDown();
+            }
+        });
+        assertTrue(drawn.await(10, TimeUnit.SECONDS));
+        return metrics;
+    }
+
+    // onCreate starts the pipeline and returns, the first flag is decoded on the FlagLoader thread
+    private static StartupMetrics withPipeline(final ExecutorService main, ExecutorService background,
+                                               final ExecutorService flagLoader) throws Exception {
+        final StartupMetrics metrics = new StartupMetrics(Clock.SYSTEM);
+        final CountDownLatch interactive = new CountDownLatch(1);
+        final StartupPipeline<?>[] holder = new StartupPipeline<?>[1];
+        final StartupPipeline<CountryCatalog> pipeline = new StartupPipeline<>(background, main, metrics,
+                new StartupPipeline.Listener<CountryCatalog>() {
+                    @Override
+                    public void onLoaded(CountryCatalog catalog) {
+                        final Country first = firstQuestion(catalog);
+                        flagLoader.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    decodeFlag(first);
+                                }
+                                catch (IOException e) {
+                                    throw new AssertionError(e);
+                                }
+                                main.execute(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        holder[0].questionReady();
+                                    }
+                                });
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onInteractive() {
+                        interactive.countDown();
+                    }
+
+                    @Override
+                    public void onFailed(Exception error) {
+                        throw new AssertionError(error);
+                    }
+                });
+        holder[0] = pipeline;
+        main.execute(new Runnable() {
+            @Override
+            public void run() {
+                pipeline.start(new Callable<CountryCatalog>() {
+                    @Override
+                    public CountryCatalog call() throws IOException {
+                        return loadCatalog();
+                    }
+                });
+            }
+        });
+        main.execute(new Runnable() {
+            @Override
+            public void run() {
+                metrics.markFirstFrame();
+            }
+        });
+        assertTrue(interactive.await(10, TimeUnit.SECONDS));
+        return metrics;
+    }
+
+    private static CountryCatalog loadCatalog() throws IOException {
+        InputStream in = new FileInputStream("src/main/assets/Countries.json");
+        try {
+            return CountryCatalogParser.parse(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    // the first country of a quiz of every region
+    private static Country firstQuestion(CountryCatalog catalog) {
+        RegionIndex index = new RegionIndex(catalog);
+        String[] regions = new String[index.getRegionCount()];
+        for (int id = 0; id < regions.length; id++)
+            regions[id] = index.getRegionName(id);
+        int[] countries = index.select(new HashSet<>(Arrays.asList(regions)));
+        QuizEngine engine = new QuizEngine(QuizRandom.create());
+        engine.setSize(countries.length);
+        return catalog.getCountry(countries[engine.pickQuiz(10)[0]]);
+    }
+
+    private static void decodeFlag(Country country) throws IOException {
+        assertNotNull(ImageIO.read(new File("src/main/assets", country.getFileName())));
+    }
+
+    private static long median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,86 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for FlagAtlasIndex, the index is written the way the packFlagAtlases
+ * task in app/catalog.gradle writes it.
+ */
+public class FlagAtlasIndexTest {
+
+    private static byte[] index(int flagY) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FlagAtlasIndex.MAGIC);
+        out.writeShort(FlagAtlasIndex.VERSION);
+
+        out.writeShort(2);
+        out.writeUTF("atlas/Africa-0.png");
+        out.writeShort(1904);
+        out.writeShort(1933);
+        out.writeUTF("atlas/South_America-0.png");
+        out.writeShort(1904);
+        out.writeShort(1240);
+
+        out.writeInt(2);
+        out.writeUTF("Africa/Africa-Chad.png");
+        for (int value : new int[] {0, 479, flagY, 475, 332})
+            out.writeShort(value);
+        out.writeUTF("South_America/South_America-Peru.png");
+        for (int value : new int[] {1, 0, 646, 469, 310})
+            out.writeShort(value);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void readsPagesAndFlags() throws Exception {
+        FlagAtlasIndex index = FlagAtlasIndex.read(new ByteArrayInputStream(index(336)));
+
+        assertEquals(2, index.getPageCount());
+        assertEquals(2, index.size());
+        assertEquals("atlas/South_America-0.png", index.getPagePath(1));
+        assertEquals(1904, index.getPageWidth(0));
+        assertEquals(1240, index.getPageHeight(1));
+
+        FlagAtlasIndex.Entry chad = index.get("Africa/Africa-Chad.png");
+        assertEquals(0, chad.getPage());
+        assertEquals(479, chad.getX());
+        assertEquals(336, chad.getY());
+        assertEquals(475, chad.getWidth());
+        assertEquals(332, chad.getHeight());
+        assertEquals(1, index.get("South_America/South_America-Peru.png").getPage());
+        assertNull(index.get("Europe/Europe-France.png"));
+    }
+
+    @Test
+    public void findsEveryCatalogFlagByFileName() throws Exception {
+        Country peru = new Country("Peru", "South America");
+        FlagAtlasIndex index = FlagAtlasIndex.read(new ByteArrayInputStream(index(336)));
+        assertNotNull(index.get(peru.getFileName()));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFlagsOutsideOfTheirPage() throws Exception {
+        FlagAtlasIndex.read(new ByteArrayInputStream(index(1700)));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws Exception {
+        FlagAtlasIndex.read(new ByteArrayInputStream("{\"Countries\": []}".getBytes("UTF-8")));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedIndex() throws Exception {
+        byte[] index = index(336);
+        FlagAtlasIndex.read(new ByteArrayInputStream(Arrays.copyOf(index, index.length - 3)));
+    }
+}
@@ -0,0 +1,140 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the time to the first flag of a warm start with and without the FlagDiskCache:
+ * decoding the flag's PNG and scaling it to the ImageView (with ImageIO instead of
+ * BitmapFactory), or opening the disk cache and copying the flag's mapped pixels into the
+ * Bitmap's pixels (an int array here, like Bitmap.copyPixelsFromBuffer()).  The first flags of
+ * FLAGS random quizzes are cached beforehand, as earlier starts would have.  The files are in
+ * the page cache for both, like on a warm start.  Results are printed to standard out.
+ *
+ * It is not part of the unit tests, run it with ./gradlew testDebugUnitTest -PunitBenchmarks.
+ */
+public class FlagDiskCacheBenchmark {
+
+    private static final int FLAGS = 40;
+    private static final int RUNS = 10;
+    private static final int TARGET_WIDTH = 360; // the ImageView of a small phone
+    private static final int TARGET_HEIGHT = 240;
+    private static final String VERSION_KEY = "benchmark";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void warmStartFirstFlag() throws Exception {
+        CountryCatalog catalog = loadCatalog();
+        QuizEngine engine = new QuizEngine(QuizRandom.create(25));
+        engine.setSize(catalog.size());
+        String[] flags = new String[FLAGS];
+        for (int i = 0; i < FLAGS; i++)
+            flags[i] = catalog.getFileName(engine.pickQuiz(1)[0]);
+
+        File root = mFolder.newFolder("flags");
+        FlagDiskCache cache = FlagDiskCache.open(root, VERSION_KEY, 64 << 20);
+        for (String flag : flags) {
+            BufferedImage image = decodeAndScale(flag);
+            cache.put(key(flag), FlagDiskCache.FORMAT_ARGB_8888, image.getWidth(), image.getHeight(),
+                    toPixels(image));
+        }
+
+        long[] decoded = new long[FLAGS * RUNS];
+        long[] mapped = new long[FLAGS * RUNS];
+        long checksum = 0;
+        for (int warmUp = 0; warmUp < 3; warmUp++)
+            for (String flag : flags)
+                checksum += decodeAndScale(flag).getRGB(0, 0) + fromDiskCache(root, flag)[0];
+        for (int run = 0; run < RUNS; run++) {
+            for (int i = 0; i < FLAGS; i++) {
+                long start = System.nanoTime();
+                int[] pixels = toArgb(decodeAndScale(flags[i]));
+                decoded[run * FLAGS + i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                int[] cached = fromDiskCache(root, flags[i]);
+                mapped[run * FLAGS + i] = System.nanoTime() - start;
+                assertArrayEquals(flags[i], pixels, cached);
+                checksum += cached[0];
+            }
+        }
+
+        System.out.println(String.format("Warm start, first flag at %dx%d (median, p90): decode PNG %.2f ms,"
+                        + " %.2f ms | disk cache %.2f ms, %.2f ms | %s (%d)",
+                TARGET_WIDTH, TARGET_HEIGHT, percentile(decoded, 0.5) / 1e6, percentile(decoded, 0.9) / 1e6,
+                percentile(mapped, 0.5) / 1e6, percentile(mapped, 0.9) / 1e6, cache, checksum & 1));
+        assertTrue("mapping the pixels must be faster than decoding them",
+                percentile(mapped, 0.5) < percentile(decoded, 0.5));
+    }
+
+    // what a warm start does with the cache: open it, then map the flag and copy its pixels
+    private static int[] fromDiskCache(File root, String flag) throws IOException {
+        FlagDiskCache cache = FlagDiskCache.open(root, VERSION_KEY, 64 << 20);
+        FlagDiskCache.Pixels cached = cache.get(key(flag));
+        int[] pixels = new int[cached.getWidth() * cached.getHeight()];
+        cached.getBuffer().asIntBuffer().get(pixels);
+        return pixels;
+    }
+
+    // what a start without the cache does: decode the PNG, at the size of the ImageView
+    private static BufferedImage decodeAndScale(String flag) throws IOException {
+        BufferedImage image = ImageIO.read(new File("src/main/assets", flag));
+        double scale = Math.min((double) TARGET_WIDTH / image.getWidth(), (double) TARGET_HEIGHT / image.getHeight());
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    private static int[] toArgb(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    private static ByteBuffer toPixels(BufferedImage image) {
+        int[] argb = toArgb(image);
+        ByteBuffer pixels = ByteBuffer.allocate(argb.length * 4);
+        pixels.asIntBuffer().put(argb);
+        return pixels;
+    }
+
+    private static String key(String flag) {
+        return flag + "@" + TARGET_WIDTH + "x" + TARGET_HEIGHT;
+    }
+
+    private static CountryCatalog loadCatalog() throws IOException {
+        InputStream in = new FileInputStream("src/main/assets/Countries.json");
+        try {
+            return CountryCatalogParser.parse(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static long percentile(long[] nanos, double fraction) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) (fraction * (sorted.length - 1))];
+    }
+}
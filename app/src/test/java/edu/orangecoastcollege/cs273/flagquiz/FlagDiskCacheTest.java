@@ -0,0 +1,156 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for FlagDiskCache, in a temporary folder.
+ */
+public class FlagDiskCacheTest {
+
+    private static final String KEY = "catalog 1a2b, installed 1000, variant xhdpi";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mRoot;
+
+    @Before
+    public void setUp() throws IOException {
+        mRoot = mFolder.newFolder("flags");
+    }
+
+    @Test
+    public void pixelsComeBackAsTheyWereWritten() throws IOException {
+        FlagDiskCache cache = FlagDiskCache.open(mRoot, KEY, 1 << 20);
+        ByteBuffer pixels = pixels(30, 20, 7);
+        cache.put("Europe/Europe-Albania.png@30x20", FlagDiskCache.FORMAT_ARGB_8888, 30, 20, pixels);
+        assertEquals(0, pixels.position()); // not consumed
+
+        FlagDiskCache.Pixels cached = cache.get("Europe/Europe-Albania.png@30x20");
+        assertEquals(FlagDiskCache.FORMAT_ARGB_8888, cached.getFormat());
+        assertEquals(30, cached.getWidth());
+        assertEquals(20, cached.getHeight());
+        assertEquals(pixels, cached.getBuffer());
+        assertNull(cache.get("Europe/Europe-Albania.png@60x40"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void keptAcrossStarts() throws IOException {
+        FlagDiskCache.open(mRoot, KEY, 1 << 20).put("a@4x4", FlagDiskCache.FORMAT_ARGB_8888, 4, 4, pixels(4, 4, 1));
+        FlagDiskCache cache = FlagDiskCache.open(mRoot, KEY, 1 << 20);
+        assertEquals(1, cache.size());
+        assertEquals(FlagDiskCache.HEADER_BYTES + 64, cache.getBytes());
+        assertEquals(pixels(4, 4, 1), cache.get("a@4x4").getBuffer());
+    }
+
+    @Test
+    public void anotherVersionKeyStartsEmpty() throws IOException {
+        FlagDiskCache old = FlagDiskCache.open(mRoot, KEY, 1 << 20);
+        old.put("a@4x4", FlagDiskCache.FORMAT_ARGB_8888, 4, 4, pixels(4, 4, 1));
+        FlagDiskCache cache = FlagDiskCache.open(mRoot, KEY + " updated", 1 << 20);
+        assertNull(cache.get("a@4x4"));
+        assertFalse(old.getDirectory().exists());
+        assertEquals(1, mRoot.listFiles().length);
+    }
+
+    @Test
+    public void leastRecentlyUsedAreEvicted() throws IOException {
+        long entry = FlagDiskCache.HEADER_BYTES + 16 * 16 * 4;
+        FlagDiskCache cache = FlagDiskCache.open(mRoot, KEY, 3 * entry);
+        for (String name : new String[] {"a", "b", "c"})
+            cache.put(name, FlagDiskCache.FORMAT_ARGB_8888, 16, 16, pixels(16, 16, name.charAt(0)));
+        assertNotNull(cache.get("a")); // b is the least recently used now
+        cache.put("d", FlagDiskCache.FORMAT_ARGB_8888, 16, 16, pixels(16, 16, 'd'));
+
+        assertEquals(3 * entry, cache.getBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+        assertEquals(3, cache.getDirectory().listFiles().length);
+
+        // a smaller cap on the next start drops the oldest ones
+        new File(cache.getDirectory(), FlagDiskCache.fileName("a")).setLastModified(1000);
+        FlagDiskCache smaller = FlagDiskCache.open(mRoot, KEY, 2 * entry);
+        assertEquals(2, smaller.size());
+        assertNull(smaller.get("a"));
+    }
+
+    @Test
+    public void tooBigToCache() throws IOException {
+        FlagDiskCache cache = FlagDiskCache.open(mRoot, KEY, 100);
+        cache.put("big", FlagDiskCache.FORMAT_ARGB_8888, 16, 16, pixels(16, 16, 0));
+        assertEquals(0, cache.size());
+        assertNull(cache.get("big"));
+    }
+
+    @Test
+    public void leftoversOfACrashAreDeleted() throws IOException {
+        FlagDiskCache cache = FlagDiskCache.open(mRoot, KEY, 1 << 20);
+        cache.put("a", FlagDiskCache.FORMAT_ARGB_8888, 4, 4, pixels(4, 4, 1));
+        cache.put("b", FlagDiskCache.FORMAT_ARGB_8888, 4, 4, pixels(4, 4, 2));
+        File temp = new File(cache.getDirectory(), "c.px1234.tmp"); // a write cut short
+        assertTrue(temp.createNewFile());
+        RandomAccessFile b = new RandomAccessFile(new File(cache.getDirectory(), FlagDiskCache.fileName("b")), "rw");
+        b.setLength(FlagDiskCache.HEADER_BYTES + 10); // e.g. the disk was full
+        b.close();
+
+        cache = FlagDiskCache.open(mRoot, KEY, 1 << 20);
+        assertFalse(temp.exists());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getDirectory().listFiles().length);
+    }
+
+    @Test
+    public void editedFlagIsCachedOnceCommitted() throws IOException {
+        FlagDiskCache cache = FlagDiskCache.open(mRoot, KEY, 1 << 20);
+        FlagDiskCache.Entry entry = cache.edit("a@8x4", FlagDiskCache.FORMAT_ARGB_8888, 8, 4);
+        entry.getBuffer().put(pixels(8, 4, 5)); // like Bitmap.copyPixelsToBuffer()
+        assertNull(cache.get("a@8x4"));
+        entry.commit();
+        assertEquals(pixels(8, 4, 5), cache.get("a@8x4").getBuffer());
+        assertEquals(FlagDiskCache.HEADER_BYTES + 128, cache.getBytes());
+
+        cache.edit("b@8x4", FlagDiskCache.FORMAT_ARGB_8888, 8, 4).abort();
+        assertNull(cache.get("b@8x4"));
+        assertEquals(1, cache.getDirectory().listFiles().length);
+        assertNull(FlagDiskCache.open(mRoot, KEY, 100).edit("big", FlagDiskCache.FORMAT_ARGB_8888, 16, 16));
+    }
+
+    @Test
+    public void keysAreCheckedAfterSanitizing() throws IOException {
+        FlagDiskCache cache = FlagDiskCache.open(mRoot, KEY, 1 << 20);
+        assertEquals("Africa_Chad.png_4x4.px", FlagDiskCache.fileName("Africa/Chad.png@4x4"));
+        cache.put("Africa/Chad.png@4x4", FlagDiskCache.FORMAT_ARGB_8888, 4, 4, pixels(4, 4, 3));
+        assertNull(cache.get("Africa_Chad.png@4x4")); // same file name, other key
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pixelsMustFitTheSize() throws IOException {
+        FlagDiskCache.open(mRoot, KEY, 1 << 20).put("a", FlagDiskCache.FORMAT_ARGB_8888, 4, 5, pixels(4, 4, 0));
+    }
+
+    // width * height ARGB pixels of a pattern which depends on seed
+    static ByteBuffer pixels(int width, int height, int seed) {
+        ByteBuffer pixels = ByteBuffer.allocate(width * height * 4);
+        for (int i = 0; i < width * height; i++)
+            pixels.putInt(0xFF000000 | (i * 0x9E3779B1 + seed) & 0xFFFFFF);
+        pixels.flip();
+        return pixels;
+    }
+}
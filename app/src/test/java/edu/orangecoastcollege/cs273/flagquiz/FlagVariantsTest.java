@@ -0,0 +1,91 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for FlagVariants, the manifest is written the way the encodeFlagVariants
+ * task in app/flags.gradle writes it.
+ */
+public class FlagVariantsTest {
+
+    private static final String MANIFEST = "# variant density encoding minSdk bytes\n"
+            + "original 320 png 1 2352867\n"
+            + "mdpi-png8 160 png8 1 755582\n"
+            + "hdpi-png8 240 png8 1 1135071\n"
+            + "hdpi-webp 240 webp 18 871892\n"
+            + "xhdpi-png8 320 png8 1 1297042\n";
+
+    private static FlagVariants read(String manifest) throws IOException {
+        return FlagVariants.read(new ByteArrayInputStream(manifest.getBytes("UTF-8")));
+    }
+
+    @Test
+    public void readsEveryVariant() throws Exception {
+        FlagVariants variants = read(MANIFEST);
+
+        assertEquals(5, variants.getVariants().size());
+        FlagVariants.Variant webp = variants.getVariants().get(3);
+        assertEquals("hdpi-webp", webp.getName());
+        assertEquals(240, webp.getDensity());
+        assertEquals("webp", webp.getEncoding());
+        assertEquals(18, webp.getMinSdk());
+        assertEquals(871892, webp.getBytes());
+        assertTrue(variants.getVariants().get(0).isOriginal());
+    }
+
+    @Test
+    public void selectsLowestDensityAtLeastTheScreens() throws Exception {
+        FlagVariants variants = read(MANIFEST);
+
+        assertEquals("mdpi-png8", variants.select(120, 16).getName());
+        assertEquals("mdpi-png8", variants.select(160, 16).getName());
+        assertEquals("hdpi-png8", variants.select(213, 16).getName());
+        assertEquals("xhdpi-png8", variants.select(320, 16).getName());
+    }
+
+    @Test
+    public void selectsSmallestVariantTheDeviceCanDecode() throws Exception {
+        FlagVariants variants = read(MANIFEST);
+
+        assertEquals("hdpi-png8", variants.select(240, 17).getName());
+        assertEquals("hdpi-webp", variants.select(240, 18).getName());
+    }
+
+    @Test
+    public void selectsHighestDensityOnDenserScreens() throws Exception {
+        // xhdpi-png8 and the original are both 320 dpi, the palette PNGs are smaller
+        assertEquals("xhdpi-png8", read(MANIFEST).select(480, 25).getName());
+        assertTrue(read("original 320 png 1 2352867\n").select(480, 25).isOriginal());
+    }
+
+    @Test
+    public void resolvesPathsInTheVariant() throws Exception {
+        FlagVariants variants = read(MANIFEST);
+        String chad = "Africa/Africa-Chad.png";
+
+        assertEquals(chad, variants.getVariants().get(0).resolve(chad));
+        assertEquals("flags/mdpi-png8/Africa/Africa-Chad.png", variants.getVariants().get(1).resolve(chad));
+        assertEquals("flags/hdpi-webp/Africa/Africa-Chad.webp", variants.getVariants().get(3).resolve(chad));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMalformedLines() throws Exception {
+        read("original 320 png 1 2352867\nmdpi-png8 160 png8 1\n");
+    }
+
+    @Test
+    public void variantsReplaceTheOriginal() throws Exception {
+        // the build leaves the originals out when a variant decodes on every API level
+        FlagVariants variants = read("mdpi-png8 160 png8 1 755582\nxhdpi-webp 320 webp 18 998877\n");
+
+        assertEquals(2, variants.getVariants().size());
+        assertEquals("mdpi-png8", variants.select(480, 16).getName());
+        assertEquals("xhdpi-webp", variants.select(480, 18).getName());
+        assertNull(read("xhdpi-webp 320 webp 18 998877\n").select(320, 16));
+    }
+}
@@ -0,0 +1,188 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for QuestionScheduler, on a virtual clock: tasks only run when the test
+ * moves the time forward, like a Handler whose looper the test drives.
+ */
+public class QuestionSchedulerTest {
+
+    // a Timer which runs its tasks when advanceBy() passes their time, SettingsDebouncerTest uses it too
+    static class VirtualTimer implements QuestionScheduler.Timer, Clock {
+        private long mNowMillis;
+        private final List<Object[]> mTasks = new ArrayList<>(); // {Long due, Runnable task}
+
+        @Override
+        public long nanoTime() {
+            return mNowMillis * 1000000L;
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMillis) {
+            mTasks.add(new Object[] {mNowMillis + delayMillis, task});
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            Iterator<Object[]> tasks = mTasks.iterator();
+            while (tasks.hasNext())
+                if (tasks.next()[1] == task)
+                    tasks.remove();
+        }
+
+        void advanceBy(long millis) {
+            long end = mNowMillis + millis;
+            while (true) {
+                Object[] next = null;
+                for (Object[] task : mTasks)
+                    if ((Long) task[0] <= end && (next == null || (Long) task[0] < (Long) next[0]))
+                        next = task;
+                if (next == null)
+                    break;
+                mTasks.remove(next);
+                mNowMillis = (Long) next[0];
+                ((Runnable) next[1]).run();
+            }
+            mNowMillis = end;
+        }
+
+        int pending() {
+            return mTasks.size();
+        }
+    }
+
+    // records when it was prepared and advanced, on the virtual clock
+    private class RecordingTransition implements QuestionScheduler.Transition {
+        final String mName;
+        final boolean mPrepareImmediately;
+        long mPreparedAt = -1;
+        long mAdvancedAt = -1;
+
+        RecordingTransition(String name, boolean prepareImmediately) {
+            mName = name;
+            mPrepareImmediately = prepareImmediately;
+        }
+
+        @Override
+        public void prepare() {
+            mEvents.add("prepare " + mName);
+            if (mPrepareImmediately) {
+                mPreparedAt = mTimer.nanoTime() / 1000000L;
+                mScheduler.prepared();
+            }
+        }
+
+        @Override
+        public void advance() {
+            mEvents.add("advance " + mName);
+            mAdvancedAt = mTimer.nanoTime() / 1000000L;
+        }
+    }
+
+    private VirtualTimer mTimer;
+    private QuestionScheduler mScheduler;
+    private final List<String> mEvents = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mTimer = new VirtualTimer();
+        mScheduler = new QuestionScheduler(mTimer);
+    }
+
+    @Test
+    public void advancesWhenTheDelayEnds() {
+        RecordingTransition next = new RecordingTransition("q2", true);
+        assertTrue(mScheduler.schedule(2000, next));
+        assertEquals(0, next.mPreparedAt);
+
+        mTimer.advanceBy(1999);
+        assertEquals(-1, next.mAdvancedAt);
+        assertTrue(mScheduler.isPending());
+        mTimer.advanceBy(1);
+        assertEquals(2000, next.mAdvancedAt);
+        assertFalse(mScheduler.isPending());
+        assertEquals(0, mScheduler.getLateCount());
+    }
+
+    @Test
+    public void preparesDuringTheDelay() {
+        // the flag takes 1500 ms to decode, which is hidden by the 2000 ms delay
+        RecordingTransition next = new RecordingTransition("q2", false);
+        mScheduler.schedule(2000, next);
+        mTimer.advanceBy(1500);
+        mScheduler.prepared();
+        assertEquals(-1, next.mAdvancedAt);
+
+        mTimer.advanceBy(500);
+        assertEquals(2000, next.mAdvancedAt);
+    }
+
+    @Test
+    public void waitsForALatePreparation() {
+        RecordingTransition next = new RecordingTransition("q2", false);
+        mScheduler.schedule(2000, next);
+        mTimer.advanceBy(2600);
+        assertEquals(-1, next.mAdvancedAt);
+
+        mScheduler.prepared();
+        assertEquals(2600, next.mAdvancedAt);
+        assertEquals(1, mScheduler.getLateCount());
+    }
+
+    @Test
+    public void quickTapsAreFused() {
+        RecordingTransition first = new RecordingTransition("q2", true);
+        RecordingTransition second = new RecordingTransition("q3", true);
+        assertTrue(mScheduler.schedule(2000, first));
+        mTimer.advanceBy(100);
+        assertFalse(mScheduler.schedule(2000, second));
+
+        mTimer.advanceBy(5000);
+        assertEquals(2000, first.mAdvancedAt);
+        assertEquals(-1, second.mPreparedAt);
+        assertEquals(2, mEvents.size());
+        assertEquals(1, mScheduler.getFusedCount());
+        assertEquals(0, mTimer.pending());
+    }
+
+    @Test
+    public void resetCancelsThePendingAdvance() {
+        RecordingTransition next = new RecordingTransition("q2", false);
+        mScheduler.schedule(2000, next);
+        mTimer.advanceBy(1000);
+        mScheduler.cancel();
+        assertEquals(0, mTimer.pending());
+
+        // the flag of the dropped question arrives after the reset
+        mScheduler.prepared();
+        mTimer.advanceBy(5000);
+        assertEquals(-1, next.mAdvancedAt);
+        assertEquals(1, mScheduler.getCancelledCount());
+
+        // a new quiz schedules normally
+        RecordingTransition again = new RecordingTransition("q2 of the new quiz", true);
+        assertTrue(mScheduler.schedule(2000, again));
+        mTimer.advanceBy(2000);
+        assertEquals(8000, again.mAdvancedAt);
+    }
+
+    @Test
+    public void aWholeQuizOfAdvances() {
+        for (int question = 2; question <= 10; question++) {
+            RecordingTransition next = new RecordingTransition("q" + question, true);
+            mScheduler.schedule(2000, next);
+            mTimer.advanceBy(2000);
+            assertEquals(question - 1, next.mAdvancedAt / 2000);
+        }
+        assertEquals(9, mScheduler.getScheduledCount());
+        assertEquals("QuestionScheduler[9 scheduled, 0 fused, 0 cancelled, 0 late]", mScheduler.toString());
+    }
+}
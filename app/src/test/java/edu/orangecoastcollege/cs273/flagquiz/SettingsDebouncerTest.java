@@ -0,0 +1,79 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for SettingsDebouncer, on the virtual clock of QuestionSchedulerTest.
+ */
+public class SettingsDebouncerTest {
+
+    private static final long WINDOW = 300;
+
+    private QuestionSchedulerTest.VirtualTimer mTimer;
+    private SettingsDebouncer mDebouncer;
+    private final List<String> mApplied = new ArrayList<>(); // the keys of every call, as a String
+
+    @Before
+    public void setUp() {
+        mTimer = new QuestionSchedulerTest.VirtualTimer();
+        mDebouncer = new SettingsDebouncer(mTimer, WINDOW, new SettingsDebouncer.Listener() {
+            @Override
+            public void onSettingsChanged(Set<String> keys) {
+                mApplied.add(keys.toString());
+            }
+        });
+    }
+
+    @Test
+    public void changesInARowAreAppliedOnce() {
+        mDebouncer.changed("regions");
+        mTimer.advanceBy(200);
+        mDebouncer.changed("choices");
+        mTimer.advanceBy(200);
+        mDebouncer.changed("regions");
+        mTimer.advanceBy(WINDOW - 1);
+        assertTrue(mApplied.isEmpty());
+        assertTrue(mDebouncer.isPending());
+
+        mTimer.advanceBy(1);
+        assertEquals("[[regions, choices]]", mApplied.toString());
+        assertFalse(mDebouncer.isPending());
+        assertEquals(0, mTimer.pending());
+        assertEquals("SettingsDebouncer[3 changes, 1 applied]", mDebouncer.toString());
+    }
+
+    @Test
+    public void laterChangesAreAnotherTransaction() {
+        mDebouncer.changed("choices");
+        mTimer.advanceBy(WINDOW);
+        mDebouncer.changed("regions");
+        mTimer.advanceBy(WINDOW);
+        assertEquals("[[choices], [regions]]", mApplied.toString());
+    }
+
+    @Test
+    public void flushAppliesStraightAway() {
+        mDebouncer.flush(); // nothing pending
+        mDebouncer.changed("choices");
+        mDebouncer.flush();
+        assertEquals("[[choices]]", mApplied.toString());
+        mTimer.advanceBy(WINDOW);
+        assertEquals(1, mApplied.size());
+    }
+
+    @Test
+    public void cancelledChangesAreNeverApplied() {
+        mDebouncer.changed("regions");
+        mDebouncer.cancel();
+        mTimer.advanceBy(10 * WINDOW);
+        assertTrue(mApplied.isEmpty());
+        assertEquals(0, mTimer.pending());
+    }
+}
@@ -0,0 +1,217 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for StartupPipeline and StartupMetrics.  Both executors are queues the
+ * test runs by hand, so every interleaving of the background load and the main thread is
+ * deterministic, and the clock only moves when the test moves it.
+ */
+public class StartupPipelineTest {
+
+    // runs its tasks only when the test says so
+    private static class QueueExecutor implements Executor {
+        final Queue<Runnable> mTasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            while (!mTasks.isEmpty())
+                mTasks.remove().run();
+        }
+    }
+
+    private static class FakeClock implements Clock {
+        long mNanos;
+
+        @Override
+        public long nanoTime() {
+            return mNanos;
+        }
+    }
+
+    private final QueueExecutor mBackground = new QueueExecutor();
+    private final QueueExecutor mMain = new QueueExecutor();
+    private final FakeClock mClock = new FakeClock();
+    private final List<String> mEvents = new ArrayList<>();
+    private StartupMetrics mMetrics;
+    private StartupPipeline<String> mPipeline;
+
+    @Before
+    public void setUp() {
+        mClock.mNanos = 1000000000L;
+        mMetrics = new StartupMetrics(mClock);
+        mPipeline = new StartupPipeline<>(mBackground, mMain, mMetrics, new StartupPipeline.Listener<String>() {
+            @Override
+            public void onLoaded(String result) {
+                mEvents.add("loaded " + result);
+            }
+
+            @Override
+            public void onInteractive() {
+                mEvents.add("interactive");
+            }
+
+            @Override
+            public void onFailed(Exception error) {
+                mEvents.add("failed " + error.getMessage());
+            }
+        });
+    }
+
+    private static Callable<String> returning(final String result) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return result;
+            }
+        };
+    }
+
+    private static Callable<String> throwing(final String message) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                throw new IOException(message);
+            }
+        };
+    }
+
+    @Test
+    public void readyOnlyAfterLoadAndFirstQuestion() {
+        mPipeline.start(returning("catalog"));
+        assertEquals(StartupPipeline.State.LOADING, mPipeline.getState());
+        assertTrue("nothing runs on the main thread while loading", mMain.mTasks.isEmpty());
+
+        mBackground.runAll();
+        mMain.runAll();
+        assertEquals(1, mEvents.size());
+        assertEquals("loaded catalog", mEvents.get(0));
+        assertFalse(mPipeline.isReady());
+
+        mPipeline.questionReady();
+        assertTrue(mPipeline.isReady());
+        assertEquals("interactive", mEvents.get(1));
+    }
+
+    @Test
+    public void questionReadyDuringOnLoadedOpensTheGate() {
+        // a cached first flag is delivered while the first question is set up
+        mPipeline = new StartupPipeline<>(mBackground, mMain, mMetrics, new StartupPipeline.Listener<String>() {
+            @Override
+            public void onLoaded(String result) {
+                mPipeline.questionReady();
+            }
+
+            @Override
+            public void onInteractive() {
+                mEvents.add("interactive");
+            }
+
+            @Override
+            public void onFailed(Exception error) {
+                fail();
+            }
+        });
+        mPipeline.start(returning("catalog"));
+        mBackground.runAll();
+        mMain.runAll();
+
+        assertTrue(mPipeline.isReady());
+        assertEquals(1, mEvents.size());
+    }
+
+    @Test
+    public void loaderErrorFailsAndRetrySucceeds() {
+        mPipeline.start(throwing("no catalog"));
+        mBackground.runAll();
+        mMain.runAll();
+        assertEquals(StartupPipeline.State.FAILED, mPipeline.getState());
+        assertEquals("failed no catalog", mEvents.get(0));
+
+        mPipeline.start(returning("catalog"));
+        mBackground.runAll();
+        mMain.runAll();
+        mPipeline.questionReady();
+        assertTrue(mPipeline.isReady());
+    }
+
+    @Test
+    public void firstFlagErrorFails() {
+        mPipeline.start(returning("catalog"));
+        mBackground.runAll();
+        mMain.runAll();
+        mPipeline.fail(new IOException("no flag"));
+
+        assertEquals(StartupPipeline.State.FAILED, mPipeline.getState());
+        assertEquals("failed no flag", mEvents.get(1));
+        // a later question's flag can not fail a started quiz
+        mPipeline.questionReady();
+        assertFalse(mPipeline.isReady());
+    }
+
+    @Test
+    public void cancelledLoadIsDropped() {
+        mPipeline.start(returning("catalog"));
+        mBackground.runAll();
+        mPipeline.cancel();
+        mMain.runAll();
+
+        assertTrue(mEvents.isEmpty());
+        assertEquals(StartupPipeline.State.IDLE, mPipeline.getState());
+    }
+
+    @Test
+    public void startLoadedSkipsTheLoader() {
+        mPipeline.startLoaded("held catalog");
+        assertTrue(mBackground.mTasks.isEmpty());
+        assertTrue(mMain.mTasks.isEmpty());
+        assertEquals("loaded held catalog", mEvents.get(0));
+        assertEquals(StartupPipeline.State.LOADING, mPipeline.getState());
+
+        mPipeline.questionReady();
+        assertTrue(mPipeline.isReady());
+        assertEquals(2, mEvents.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotStartTwice() {
+        mPipeline.start(returning("catalog"));
+        mPipeline.start(returning("catalog"));
+    }
+
+    @Test
+    public void metricsRecordEachMarkOnce() {
+        assertEquals(-1, mMetrics.getTimeToFirstFrameNanos());
+        mClock.mNanos += 16000000L;
+        mMetrics.markFirstFrame();
+
+        mPipeline.start(returning("catalog"));
+        mBackground.runAll();
+        mClock.mNanos += 50000000L;
+        mMain.runAll();
+        mClock.mNanos += 30000000L;
+        mPipeline.questionReady();
+        mClock.mNanos += 1000000000L;
+        mMetrics.markFirstFrame();
+
+        assertEquals(16000000L, mMetrics.getTimeToFirstFrameNanos());
+        assertEquals(66000000L, mMetrics.getTimeToCatalogNanos());
+        assertEquals(96000000L, mMetrics.getTimeToInteractiveNanos());
+        assertEquals("startup: first frame 16.0 ms, catalog 66.0 ms, interactive 96.0 ms", mMetrics.toString());
+    }
+}
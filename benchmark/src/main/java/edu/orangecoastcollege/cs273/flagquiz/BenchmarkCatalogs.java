@@ -0,0 +1,126 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Catalogs the benchmarks run on: the real Countries.json for a size of 223, otherwise a
+ * synthetic catalog with the same six regions and the same JSON layout.  The names of a
+ * synthetic catalog are all "Country <n>", names() makes up names which look more like the
+ * country names the player types.
+ *
+ * The path of the real catalog is passed by the jmh Gradle task in the flagquiz.catalog
+ * system property.
+ */
+final class BenchmarkCatalogs {
+
+    static final int REAL_SIZE = 223;
+    static final String[] REGIONS = {"Africa", "Asia", "Europe", "North America", "Oceania", "South America"};
+
+    private static final String[] SYLLABLES = {
+            "ba", "bel", "bur", "ca", "cha", "da", "do", "el", "gua", "ga", "hon", "i", "ja", "ke",
+            "la", "li", "lo", "ma", "mo", "na", "ni", "o", "pa", "per", "que", "ra", "ri", "sa",
+            "se", "ta", "to", "tu", "u", "va", "ver", "za"
+    };
+    private static final String[] WORDS = {"", "", "", "", "North ", "South ", "New ", "Saint ", "East "};
+
+    private BenchmarkCatalogs() {
+    }
+
+    /**
+     * @param size how many countries the catalog has.
+     * @return the catalog as UTF-8 encoded JSON.
+     */
+    static byte[] json(int size) throws IOException {
+        if (size == REAL_SIZE)
+            return readFully(new FileInputStream(
+                    System.getProperty("flagquiz.catalog", "../app/src/main/assets/Countries.json")));
+
+        StringBuilder json = new StringBuilder("{\n  \"Countries\": [\n");
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                json.append(",\n");
+            json.append("      {\n        \"Name\": \"Country ").append(i)
+                    .append("\",\n        \"Region\": \"").append(REGIONS[i % REGIONS.length])
+                    .append("\"\n      }");
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString().getBytes("UTF-8");
+    }
+
+    /**
+     * @param size how many countries the catalog has.
+     * @return the catalog, parsed the way the app parses it.
+     */
+    static CountryCatalog catalog(int size) throws IOException {
+        return CountryCatalogParser.parse(new ByteArrayInputStream(json(size)));
+    }
+
+    /**
+     * @param size how many names.
+     * @return the country names of Countries.json for a size of 223, otherwise made up names of
+     * two to five syllables, some with a second word.
+     */
+    static List<String> names(int size) throws IOException {
+        List<String> names = new ArrayList<>(size);
+        if (size == REAL_SIZE) {
+            for (Country country : catalog(size).asList())
+                names.add(country.getName());
+            return names;
+        }
+        Random random = new Random(size);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            name.setLength(0);
+            name.append(WORDS[random.nextInt(WORDS.length)]);
+            for (int s = 2 + random.nextInt(4); s > 0; s--)
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            names.add(name.toString());
+        }
+        return names;
+    }
+
+    /**
+     * The loading code JSONLoader used before it was switched to the streaming parser:
+     * the whole file in a String, then an org.json DOM.
+     */
+    static List<Country> loadWithDom(InputStream is) throws Exception {
+        List<Country> allCountries = new ArrayList<>();
+        int size = is.available();
+        byte[] buffer = new byte[size];
+        is.read(buffer);
+        is.close();
+        String json = new String(buffer, "UTF-8");
+
+        JSONObject jsonRootObject = new JSONObject(json);
+        JSONArray allCountriesJSON = jsonRootObject.getJSONArray("Countries");
+        for (int i = 0; i < allCountriesJSON.length(); i++) {
+            JSONObject countryJSON = allCountriesJSON.getJSONObject(i);
+            allCountries.add(new Country(countryJSON.getString("Name"), countryJSON.getString("Region")));
+        }
+        return allCountries;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int read;
+            while ((read = in.read(chunk)) != -1)
+                out.write(chunk, 0, read);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
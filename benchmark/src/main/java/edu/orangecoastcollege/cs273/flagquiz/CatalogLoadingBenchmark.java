@@ -0,0 +1,58 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the catalog the three ways JSONLoader has done it: the old org.json DOM, the
+ * streaming CountryCatalogParser (the fallback) and the binary catalog (the default).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogLoadingBenchmark {
+
+    @Param({"223", "10000", "100000"})
+    public int size;
+
+    private byte[] mJson;
+    private byte[] mBinary;
+
+    @Setup
+    public void setUp() throws Exception {
+        mJson = BenchmarkCatalogs.json(size);
+        mBinary = BinaryCatalogTestWriter.write(BenchmarkCatalogs.catalog(size).asList());
+    }
+
+    @Benchmark
+    public List<Country> dom() throws Exception {
+        return BenchmarkCatalogs.loadWithDom(new ByteArrayInputStream(mJson));
+    }
+
+    @Benchmark
+    public CountryCatalog streaming() throws Exception {
+        return CountryCatalogParser.parse(new ByteArrayInputStream(mJson));
+    }
+
+    @Benchmark
+    public CountryCatalog binary() throws Exception {
+        return BinaryCatalogReader.read(ByteBuffer.wrap(mBinary));
+    }
+}
@@ -0,0 +1,89 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The catalog part of time-to-first-flag: from opening the catalog file to having every Country
+ * in memory, for Countries.json read and streamed through CountryCatalogParser and for the
+ * compiled Countries.bin read through a memory map.
+ *
+ * Unlike CatalogLoadingBenchmark every invocation opens the file again, like a cold start does.
+ * The files are written to a temporary directory first, so they are in the page cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogStartupBenchmark {
+
+    private File mJson;
+    private File mBinary;
+
+    @Setup
+    public void setUp() throws Exception {
+        byte[] json = BenchmarkCatalogs.json(BenchmarkCatalogs.REAL_SIZE);
+        mJson = write("Countries", ".json", json);
+        mBinary = write("Countries", ".bin", BinaryCatalogTestWriter.write(
+                CountryCatalogParser.parse(new ByteArrayInputStream(json)).asList()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        mJson.delete();
+        mBinary.delete();
+    }
+
+    @Benchmark
+    public CountryCatalog json() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(mJson, "r");
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            file.readFully(bytes);
+            return CountryCatalogParser.parse(new ByteArrayInputStream(bytes));
+        } finally {
+            file.close();
+        }
+    }
+
+    @Benchmark
+    public CountryCatalog binary() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(mBinary, "r");
+        try {
+            return BinaryCatalogReader.read(file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length()));
+        } finally {
+            file.close();
+        }
+    }
+
+    private static File write(String prefix, String suffix, byte[] bytes) throws IOException {
+        File file = File.createTempFile(prefix, suffix);
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,106 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating, comparing and hashing Countries: standalone Countries (one small catalog each,
+ * compared field by field) against views of one CountryCatalog (compared by id).
+ *
+ * The contains benchmarks look up the last country, the worst case of List.contains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountryBenchmark {
+
+    @Param({"223", "10000", "100000"})
+    public int size;
+
+    private String[] mNames;
+    private String[] mRegions;
+    private CountryCatalog mCatalog;
+    private List<Country> mStandalone;
+    private List<Country> mViews;
+
+    @Setup
+    public void setUp() throws Exception {
+        mCatalog = BenchmarkCatalogs.catalog(size);
+        mNames = new String[size];
+        mRegions = new String[size];
+        mStandalone = new ArrayList<>(size);
+        mViews = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            mNames[i] = mCatalog.getName(i);
+            mRegions[i] = mCatalog.getRegion(i);
+            mStandalone.add(new Country(mNames[i], mRegions[i]));
+            mViews.add(mCatalog.getCountry(i));
+        }
+    }
+
+    @Benchmark
+    public void constructStandalone(Blackhole blackhole) {
+        for (int i = 0; i < size; i++)
+            blackhole.consume(new Country(mNames[i], mRegions[i]));
+    }
+
+    @Benchmark
+    public CountryCatalog buildCatalog() {
+        CountryCatalog.Builder builder = new CountryCatalog.Builder(size);
+        for (int i = 0; i < size; i++)
+            builder.add(mNames[i], mRegions[i]);
+        return builder.build();
+    }
+
+    @Benchmark
+    public boolean containsStandalone() {
+        return mStandalone.contains(new Country(mNames[size - 1], mRegions[size - 1]));
+    }
+
+    @Benchmark
+    public boolean containsView() {
+        return mViews.contains(mCatalog.getCountry(size - 1));
+    }
+
+    @Benchmark
+    public boolean containsId() {
+        int target = size - 1;
+        for (int id = 0; id < size; id++)
+            if (id == target)
+                return true;
+        return false;
+    }
+
+    @Benchmark
+    public int hashCodeStandalone() {
+        int hash = 0;
+        for (int i = 0; i < size; i++)
+            hash += mStandalone.get(i).hashCode();
+        return hash;
+    }
+
+    @Benchmark
+    public int hashCodeFreshViews() {
+        int hash = 0;
+        for (int i = 0; i < size; i++)
+            hash += mCatalog.getCountry(i).hashCode();
+        return hash;
+    }
+}
@@ -0,0 +1,80 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RegionFilterBenchmark with many more regions than the six of Countries.json, i.e. sub-regions:
+ * the old linear scan and the RegionIndex lookup on catalogs of "Country <n>" in "Region <n % regions>",
+ * with a few of the regions selected, spread over all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManyRegionFilterBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"200", "2000"})
+    public int regions;
+
+    // how many of the regions are selected
+    @Param({"1", "20"})
+    public int selected;
+
+    private List<Country> mCountries;
+    private Set<String> mRegions;
+    private RegionIndex mIndex;
+    private BitSet mRegionIds;
+
+    @Setup
+    public void setUp() {
+        mCountries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            mCountries.add(new Country("Country " + i, "Region " + (i % regions)));
+        mIndex = new RegionIndex(mCountries);
+        mRegions = new HashSet<>();
+        for (int i = 0; i < selected; i++)
+            mRegions.add(mIndex.getRegionName(i * (regions / selected)));
+        mRegionIds = mIndex.toRegionIds(mRegions);
+    }
+
+    @Benchmark
+    public List<Country> linearScan() {
+        List<Country> filtered = new ArrayList<>();
+        for (Country country : mCountries)
+            if (mRegions.contains(country.getRegion()))
+                filtered.add(country);
+        return filtered;
+    }
+
+    @Benchmark
+    public int[] regionIndexByName() {
+        return mIndex.select(mRegions);
+    }
+
+    @Benchmark
+    public int[] regionIndexById() {
+        return mIndex.select(mRegionIds);
+    }
+}
@@ -0,0 +1,73 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The overhead of QuizMetrics: timing one stage, counting one event, and everything a question
+ * records (preparing it, decoding its flag, a wrong and a right guess, and the cache and decode
+ * counters), with the metrics enabled and disabled.  "clockOnly" is the two clock reads any
+ * timing needs, for comparison.
+ *
+ * A question has a frame budget of 16.7 ms at 60 Hz, the metrics must stay under 1% of it,
+ * i.e. "question" must take well under 167 us (it takes well under 1 us).  The JVM has no
+ * system trace, the Tracer does nothing; on Android TraceCompat only checks a flag while
+ * nothing is tracing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuizMetricsBenchmark {
+
+    @Param({"true", "false"})
+    public boolean enabled;
+
+    private QuizMetrics mMetrics;
+
+    @Setup
+    public void setUp() {
+        mMetrics = new QuizMetrics(Clock.SYSTEM, QuizMetrics.Tracer.NONE);
+        mMetrics.setEnabled(enabled);
+    }
+
+    @Benchmark
+    public long clockOnly() {
+        long started = System.nanoTime();
+        return System.nanoTime() - started;
+    }
+
+    @Benchmark
+    public void stage() {
+        mMetrics.stop(QuizMetrics.Stage.GUESS, mMetrics.start(QuizMetrics.Stage.GUESS));
+    }
+
+    @Benchmark
+    public void counter() {
+        mMetrics.count(QuizMetrics.Counter.FLAG_CACHE_HITS, 1);
+    }
+
+    @Benchmark
+    public void question() {
+        mMetrics.stop(QuizMetrics.Stage.PREPARE_QUESTION, mMetrics.start(QuizMetrics.Stage.PREPARE_QUESTION));
+        mMetrics.stop(QuizMetrics.Stage.DECODE_FLAG, mMetrics.start(QuizMetrics.Stage.DECODE_FLAG));
+        mMetrics.count(QuizMetrics.Counter.DECODED_BYTES, 64 * 1024);
+        mMetrics.count(QuizMetrics.Counter.FLAG_CACHE_MISSES, 1);
+        mMetrics.count(QuizMetrics.Counter.FLAG_CACHE_HITS, 1);
+        mMetrics.stop(QuizMetrics.Stage.GUESS, mMetrics.start(QuizMetrics.Stage.GUESS));
+        mMetrics.stop(QuizMetrics.Stage.GUESS, mMetrics.start(QuizMetrics.Stage.GUESS));
+    }
+}
@@ -0,0 +1,75 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of one whole quiz (the ten countries, then the answer choices of every question)
+ * with each generator QuizRandom offers, and of creating and seeding the generator, which
+ * MainActivity does once per start.
+ *
+ * "secure" is the SecureRandom MainActivity used before, "jdk" is java.util.Random.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuizRandomBenchmark {
+
+    private static final int FLAGS_IN_QUIZ = 10;
+    private static final int CHOICES = 4;
+
+    @Param({"secure", "jdk", "xoshiro", "splitmix"})
+    public String generator;
+
+    private QuizEngine mEngine;
+
+    @Setup
+    public void setUp() {
+        mEngine = new QuizEngine(create(generator));
+        mEngine.setSize(223);
+    }
+
+    @Benchmark
+    public void quiz(Blackhole blackhole) {
+        int[] quiz = mEngine.pickQuiz(FLAGS_IN_QUIZ);
+        for (int correct : quiz)
+            blackhole.consume(mEngine.pickChoices(correct, CHOICES));
+    }
+
+    @Benchmark
+    public long createAndFirstNumber() {
+        return create(generator).nextLong();
+    }
+
+    private static QuizRandom create(String generator) {
+        switch (generator) {
+            case "secure":
+                return QuizRandom.wrap(new SecureRandom());
+            case "jdk":
+                return QuizRandom.wrap(new Random());
+            case "xoshiro":
+                return QuizRandom.create();
+            case "splitmix":
+                return QuizRandom.splitMix(System.nanoTime());
+            default:
+                throw new IllegalArgumentException(generator);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One whole quiz of selections, as done by MainActivity.resetQuiz and loadNextFlag: pick the
+ * ten countries of the quiz, then the answer choices of every question.
+ *
+ * The old code retried random picks with List.contains and shuffled the whole filtered list
+ * for every question, the QuizEngine does partial Fisher-Yates shuffles.  The catalogs go from
+ * 50 to 1,000,000 countries, the old code gets slower with the size, the QuizEngine does not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuizSelectionBenchmark {
+
+    private static final int FLAGS_IN_QUIZ = 10;
+
+    @Param({"50", "223", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"4", "8"})
+    public int choices;
+
+    private List<Country> mFiltered;
+    private Random mRandom;
+    private QuizEngine mEngine;
+
+    @Setup
+    public void setUp() throws Exception {
+        mFiltered = new ArrayList<>(BenchmarkCatalogs.catalog(size).asList());
+        mRandom = new Random(1);
+        mEngine = new QuizEngine(QuizRandom.create(1));
+        mEngine.setSize(size);
+    }
+
+    @Benchmark
+    public void oldQuiz(Blackhole blackhole) {
+        List<Country> quiz = new ArrayList<>();
+        while (quiz.size() < FLAGS_IN_QUIZ) {
+            Country random = mFiltered.get(mRandom.nextInt(mFiltered.size()));
+            if (!quiz.contains(random))
+                quiz.add(random);
+        }
+        for (Country correct : quiz) {
+            // the old loadNextFlag: shuffle until the correct one is not a choice, then put it in
+            do {
+                Collections.shuffle(mFiltered, mRandom);
+            } while (mFiltered.subList(0, choices - 1).contains(correct));
+            List<Country> buttons = new ArrayList<>(mFiltered.subList(0, choices - 1));
+            buttons.add(mRandom.nextInt(choices), correct);
+            blackhole.consume(buttons);
+        }
+    }
+
+    @Benchmark
+    public void quizEngine(Blackhole blackhole) {
+        int[] quiz = mEngine.pickQuiz(FLAGS_IN_QUIZ);
+        for (int correct : quiz)
+            blackhole.consume(mEngine.pickChoices(correct, choices));
+    }
+}
@@ -0,0 +1,274 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs simulated players through QuizSession, the quiz MainActivity plays without its Views,
+ * on every core, and checks what they were asked:
+ *
+ *   ./gradlew :benchmark:simulate -PsimulateArgs="--players 1000000 --accuracy 0.7"
+ *
+ * Every player plays one quiz: each question is prepared and shown, then the player picks the
+ * right answer with the given accuracy, otherwise a wrong answer it has not tried yet.  The
+ * simulator reports quizzes per second, the latency percentiles of every step, and checks
+ * that every country comes up about equally often as a question and as a distractor, that the
+ * correct answer is in every slot about equally often and that no question has the same
+ * country twice.  With --adaptive every player has its own GuessStats, so the first two
+ * distribution checks do not apply and are only reported.
+ *
+ * Options, all optional:
+ *   --players n      how many quizzes to play (default 1000000)
+ *   --threads n      how many threads to play them on (default: the number of cores)
+ *   --accuracy p     how likely a guess is right, 0 to 1 (default 0.7)
+ *   --choices n      answer choices per question, 2 to 8 (default 4)
+ *   --size n         countries in the catalog, 223 is Countries.json (default 223)
+ *   --seed n         the seed of the players' random numbers (default: a new one every run)
+ *   --adaptive       pick the quiz countries by the players' GuessStats
+ *
+ * The process exits with status 1 if a check fails.
+ */
+public class QuizSimulator {
+
+    private static final int QUESTIONS = 10;
+    // z of p = 0.001, one sided, for the chi square bounds
+    private static final double Z_999 = 3.090;
+
+    private static final String[] STEPS = {"reset", "prepare", "show", "guess"};
+    private static final int RESET = 0;
+    private static final int PREPARE = 1;
+    private static final int SHOW = 2;
+    private static final int GUESS = 3;
+
+    private int mPlayers = 1000000;
+    private int mThreads = Runtime.getRuntime().availableProcessors();
+    private double mAccuracy = 0.7;
+    private int mChoices = 4;
+    private int mSize = BenchmarkCatalogs.REAL_SIZE;
+    private long mSeed = System.nanoTime();
+    private boolean mAdaptive;
+
+    public static void main(String[] args) throws Exception {
+        QuizSimulator simulator = new QuizSimulator();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--players"))
+                simulator.mPlayers = Integer.parseInt(args[++i]);
+            else if (arg.equals("--threads"))
+                simulator.mThreads = Integer.parseInt(args[++i]);
+            else if (arg.equals("--accuracy"))
+                simulator.mAccuracy = Double.parseDouble(args[++i]);
+            else if (arg.equals("--choices"))
+                simulator.mChoices = Integer.parseInt(args[++i]);
+            else if (arg.equals("--size"))
+                simulator.mSize = Integer.parseInt(args[++i]);
+            else if (arg.equals("--seed"))
+                simulator.mSeed = Long.parseLong(args[++i]);
+            else if (arg.equals("--adaptive"))
+                simulator.mAdaptive = true;
+            else if (!arg.isEmpty()) {
+                System.err.println("Unknown option " + arg + ", see the QuizSimulator class comment");
+                System.exit(2);
+            }
+        }
+        System.exit(simulator.run() ? 0 : 1);
+    }
+
+    // what one thread saw, merged when every thread is done
+    private static class Tally {
+        final long[] mQuestions; // per catalog id: how often it was the question
+        final long[] mDistractors; // per catalog id: how often it was a wrong choice
+        final long[] mCorrectSlots; // per slot: how often it held the correct answer
+        final LatencyHistogram[] mLatencies = new LatencyHistogram[STEPS.length];
+        long mQuizzes;
+        long mGuesses;
+        long mDuplicates; // questions with a country twice, or without the correct one
+
+        Tally(int size, int choices) {
+            mQuestions = new long[size];
+            mDistractors = new long[size];
+            mCorrectSlots = new long[choices];
+            for (int i = 0; i < mLatencies.length; i++)
+                mLatencies[i] = new LatencyHistogram();
+        }
+
+        void add(Tally other) {
+            for (int i = 0; i < mQuestions.length; i++) {
+                mQuestions[i] += other.mQuestions[i];
+                mDistractors[i] += other.mDistractors[i];
+            }
+            for (int i = 0; i < mCorrectSlots.length; i++)
+                mCorrectSlots[i] += other.mCorrectSlots[i];
+            for (int i = 0; i < mLatencies.length; i++)
+                mLatencies[i].add(other.mLatencies[i]);
+            mQuizzes += other.mQuizzes;
+            mGuesses += other.mGuesses;
+            mDuplicates += other.mDuplicates;
+        }
+    }
+
+    private boolean run() throws Exception {
+        final CountryCatalog catalog = BenchmarkCatalogs.catalog(mSize);
+        final int[] countryIds = new RegionIndex(catalog).select(regionNames(catalog));
+        System.out.println(String.format("%,d players, %d threads, accuracy %.2f, %d choices, %d countries%s, seed %d",
+                mPlayers, mThreads, mAccuracy, mChoices, catalog.size(), mAdaptive ? ", adaptive" : "", mSeed));
+
+        QuizRandom seeds = QuizRandom.create(mSeed);
+        ExecutorService executor = Executors.newFixedThreadPool(mThreads);
+        List<Future<Tally>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < mThreads; t++) {
+            final QuizRandom random = seeds.split();
+            final int players = mPlayers / mThreads + (t < mPlayers % mThreads ? 1 : 0);
+            results.add(executor.submit(new Callable<Tally>() {
+                @Override
+                public Tally call() throws IOException {
+                    return play(catalog, countryIds, random, players);
+                }
+            }));
+        }
+        Tally total = new Tally(catalog.size(), mChoices);
+        for (Future<Tally> result : results)
+            total.add(result.get());
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        System.out.println(String.format("%,d quizzes in %.2f s: %,.0f quizzes/s, %,.0f guesses/s, %.2f guesses per question",
+                total.mQuizzes, elapsed / 1e9, total.mQuizzes / (elapsed / 1e9), total.mGuesses / (elapsed / 1e9),
+                total.mGuesses / (double) (total.mQuizzes * QUESTIONS)));
+        System.out.println(String.format("%-8s %10s %10s %10s %10s %10s", "step", "p50 ns", "p90 ns", "p99 ns", "p99.9 ns", "max ns"));
+        for (int i = 0; i < STEPS.length; i++) {
+            LatencyHistogram h = total.mLatencies[i];
+            System.out.println(String.format("%-8s %10d %10d %10d %10d %10d", STEPS[i],
+                    h.percentile(0.5), h.percentile(0.9), h.percentile(0.99), h.percentile(0.999), h.getMax()));
+        }
+
+        boolean passed = true;
+        passed &= check("no country twice in a question", total.mDuplicates == 0, total.mDuplicates + " questions");
+        passed &= checkUniform("questions per country", total.mQuestions, !mAdaptive);
+        passed &= checkUniform("distractors per country", total.mDistractors, !mAdaptive);
+        passed &= checkUniform("correct answers per slot", total.mCorrectSlots, true);
+        return passed;
+    }
+
+    // one thread's players, each with a session of its own like a MainActivity
+    private Tally play(CountryCatalog catalog, int[] countryIds, QuizRandom random, int players) {
+        Tally tally = new Tally(catalog.size(), mChoices);
+        long[] latencies = new long[STEPS.length];
+        boolean[] tried = new boolean[mChoices];
+        QuizSession session = null;
+        for (int player = 0; player < players; player++) {
+            if (session == null || mAdaptive) {
+                session = new QuizSession(new QuizEngine(random.split()), QUESTIONS,
+                        mAdaptive ? new GuessStats(catalog) : null);
+                session.setCountries(countryIds);
+                session.setChoices(mChoices);
+            }
+            long time = System.nanoTime();
+            session.reset();
+            tally.mLatencies[RESET].record(System.nanoTime() - time);
+
+            QuizSession.Outcome outcome = QuizSession.Outcome.CORRECT;
+            while (outcome != QuizSession.Outcome.FINISHED) {
+                time = System.nanoTime();
+                Question question = session.prepareNextQuestion();
+                latencies[PREPARE] = System.nanoTime() - time;
+                time = System.nanoTime();
+                session.showPreparedQuestion();
+                latencies[SHOW] = System.nanoTime() - time;
+                tally.mLatencies[PREPARE].record(latencies[PREPARE]);
+                tally.mLatencies[SHOW].record(latencies[SHOW]);
+                tallyQuestion(tally, question);
+
+                int choices = question.getChoiceCount();
+                int wrongLeft = choices - 1;
+                for (int i = 0; i < choices; i++)
+                    tried[i] = false;
+                do {
+                    int slot;
+                    if (wrongLeft == 0 || random.nextLong(1L << 53) < mAccuracy * (1L << 53))
+                        slot = question.getCorrectSlot();
+                    else {
+                        // the n-th wrong choice which is still enabled
+                        int n = random.nextInt(wrongLeft);
+                        slot = -1;
+                        while (n >= 0)
+                            if (++slot != question.getCorrectSlot() && !tried[slot])
+                                --n;
+                        tried[slot] = true;
+                        --wrongLeft;
+                    }
+                    time = System.nanoTime();
+                    outcome = session.guess(slot);
+                    tally.mLatencies[GUESS].record(System.nanoTime() - time);
+                    ++tally.mGuesses;
+                } while (outcome == QuizSession.Outcome.WRONG);
+            }
+            ++tally.mQuizzes;
+        }
+        return tally;
+    }
+
+    private static void tallyQuestion(Tally tally, Question question) {
+        int correctId = question.getCorrectId();
+        ++tally.mQuestions[correctId];
+        ++tally.mCorrectSlots[question.getCorrectSlot()];
+        boolean valid = question.getChoiceId(question.getCorrectSlot()) == correctId;
+        for (int i = 0; i < question.getChoiceCount(); i++) {
+            int id = question.getChoiceId(i);
+            if (i != question.getCorrectSlot()) {
+                ++tally.mDistractors[id];
+                valid &= id != correctId;
+            }
+            for (int j = 0; j < i; j++)
+                valid &= question.getChoiceId(j) != id;
+        }
+        if (!valid)
+            ++tally.mDuplicates;
+    }
+
+    // a chi square test against the uniform distribution, at p = 0.001
+    private static boolean checkUniform(String name, long[] counts, boolean required) {
+        long total = 0;
+        for (long count : counts)
+            total += count;
+        double expected = total / (double) counts.length;
+        double chiSquare = 0;
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (long count : counts) {
+            chiSquare += (count - expected) * (count - expected) / expected;
+            min = Math.min(min, count);
+            max = Math.max(max, count);
+        }
+        int degrees = counts.length - 1;
+        // Wilson-Hilferty approximation of the chi square quantile
+        double a = 2.0 / (9 * degrees);
+        double bound = degrees * Math.pow(1 - a + Z_999 * Math.sqrt(a), 3);
+        String detail = String.format("chi square %.1f, bound %.1f, %,d to %,d per bucket (expected %,.0f)",
+                chiSquare, bound, min, max, expected);
+        if (!required) {
+            System.out.println(String.format("  --    %s: %s (not uniform by design)", name, detail));
+            return true;
+        }
+        return check(name + " uniform", chiSquare < bound, detail);
+    }
+
+    private static boolean check(String name, boolean passed, String detail) {
+        System.out.println(String.format("  %s  %s: %s", passed ? "ok  " : "FAIL", name, detail));
+        return passed;
+    }
+
+    private static List<String> regionNames(CountryCatalog catalog) {
+        RegionIndex index = new RegionIndex(catalog);
+        List<String> names = new ArrayList<>();
+        for (int id = 0; id < index.getRegionCount(); id++)
+            names.add(index.getRegionName(id));
+        return names;
+    }
+}
@@ -0,0 +1,74 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What MainActivity.updateRegion does when the selected regions change: the old linear scan
+ * of every Country against the selection, and the RegionIndex lookup which replaced it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionFilterBenchmark {
+
+    @Param({"223", "10000", "100000"})
+    public int size;
+
+    // how many of the six regions are selected
+    @Param({"1", "3", "6"})
+    public int selected;
+
+    private List<Country> mCountries;
+    private Set<String> mRegions;
+    private RegionIndex mIndex;
+    private BitSet mRegionIds;
+
+    @Setup
+    public void setUp() throws Exception {
+        CountryCatalog catalog = BenchmarkCatalogs.catalog(size);
+        mCountries = new ArrayList<>(catalog.asList());
+        mRegions = new HashSet<>(Arrays.asList(BenchmarkCatalogs.REGIONS).subList(0, selected));
+        mIndex = new RegionIndex(catalog);
+        mRegionIds = mIndex.toRegionIds(mRegions);
+    }
+
+    @Benchmark
+    public List<Country> linearScan() {
+        List<Country> filtered = new ArrayList<>();
+        for (Country country : mCountries)
+            if (mRegions.contains(country.getRegion()))
+                filtered.add(country);
+        return filtered;
+    }
+
+    @Benchmark
+    public int[] regionIndexByName() {
+        return mIndex.select(mRegions);
+    }
+
+    @Benchmark
+    public int[] regionIndexById() {
+        return mIndex.select(mRegionIds);
+    }
+}
@@ -0,0 +1,97 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One keystroke of the typed answer mode: the suggestions for what was typed so far, cycling
+ * through every prefix of names picked at random, most of them with two letters swapped.
+ *
+ * The CountryNameTrie, forgiving CountryNameTrie.maxEdits() typos, against the simplest thing
+ * which could work: a scan of every lower case name for the typed prefix, without typos.  The
+ * GC profiler of the jmh task shows the trie does not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TypedAnswerBenchmark {
+
+    private static final int SUGGESTIONS = 8;
+
+    // the real names, or a dictionary of made up names
+    @Param({"223", "1000000"})
+    public int size;
+
+    private String[] mLowerCaseNames;
+    private CountryNameTrie.Matcher mMatcher;
+    private String[] mKeystrokes;
+    private int mNext;
+    private final int[] mFound = new int[SUGGESTIONS];
+
+    @Setup
+    public void setUp() throws Exception {
+        List<String> names = BenchmarkCatalogs.names(size);
+        CountryNameTrie.Builder builder = new CountryNameTrie.Builder();
+        mLowerCaseNames = new String[names.size()];
+        for (int id = 0; id < names.size(); id++) {
+            builder.add(names.get(id), id);
+            mLowerCaseNames[id] = names.get(id).toLowerCase(Locale.US);
+        }
+        mMatcher = builder.build().newMatcher(SUGGESTIONS);
+
+        Random random = new Random(22);
+        List<String> keystrokes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            char[] name = names.get(random.nextInt(names.size())).toCharArray();
+            if (name.length > 3 && random.nextInt(4) != 0) {
+                int at = 1 + random.nextInt(name.length - 2);
+                char swapped = name[at];
+                name[at] = name[at + 1];
+                name[at + 1] = swapped;
+            }
+            for (int length = 1; length <= name.length; length++)
+                keystrokes.add(new String(name, 0, length));
+        }
+        mKeystrokes = keystrokes.toArray(new String[keystrokes.size()]);
+    }
+
+    private String nextKeystroke() {
+        String typed = mKeystrokes[mNext];
+        mNext = (mNext + 1) % mKeystrokes.length;
+        return typed;
+    }
+
+    @Benchmark
+    public int trie() {
+        String typed = nextKeystroke();
+        return mMatcher.match(typed, CountryNameTrie.maxEdits(typed.length()));
+    }
+
+    @Benchmark
+    public int linearPrefixScan() {
+        String typed = nextKeystroke().toLowerCase(Locale.US);
+        int found = 0;
+        for (int id = 0; id < mLowerCaseNames.length && found < SUGGESTIONS; id++)
+            if (mLowerCaseNames[id].startsWith(typed))
+                mFound[found++] = id;
+        return found;
+    }
+}
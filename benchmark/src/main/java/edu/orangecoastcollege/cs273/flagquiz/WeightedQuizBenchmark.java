@@ -0,0 +1,94 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One whole quiz with adaptive selection, as done by MainActivity: pick the ten countries of
+ * the quiz by weight, then change the weight of each of them after its first guess.
+ *
+ * The WeightedSampler does both in O(log n), the linear version scans the prefix sums of a
+ * plain weight array for every pick, which is O(n) per pick but O(1) per update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeightedQuizBenchmark {
+
+    private static final int FLAGS_IN_QUIZ = 10;
+
+    @Param({"223", "10000", "100000"})
+    public int size;
+
+    private QuizRandom mRandom;
+    private QuizEngine mEngine;
+    private int[] mWeights;
+    private WeightedSampler mSampler;
+
+    @Setup
+    public void setUp() {
+        mRandom = QuizRandom.create(1);
+        mEngine = new QuizEngine(QuizRandom.create(1));
+        mEngine.setSize(size);
+        mWeights = new int[size];
+        for (int i = 0; i < size; i++)
+            mWeights[i] = nextWeight();
+        mSampler = new WeightedSampler(mWeights);
+    }
+
+    @Benchmark
+    public void uniform(Blackhole blackhole) {
+        blackhole.consume(mEngine.pickQuiz(FLAGS_IN_QUIZ));
+    }
+
+    @Benchmark
+    public void fenwick(Blackhole blackhole) {
+        int[] quiz = mEngine.pickQuiz(FLAGS_IN_QUIZ, mSampler);
+        for (int index : quiz)
+            mSampler.set(index, nextWeight());
+        blackhole.consume(quiz);
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        int[] quiz = new int[FLAGS_IN_QUIZ];
+        int[] removed = new int[FLAGS_IN_QUIZ];
+        long total = 0;
+        for (int weight : mWeights)
+            total += weight;
+        for (int n = 0; n < FLAGS_IN_QUIZ; n++) {
+            long target = mRandom.nextLong(total);
+            int index = 0;
+            while (target >= mWeights[index])
+                target -= mWeights[index++];
+            quiz[n] = index;
+            removed[n] = mWeights[index];
+            total -= mWeights[index];
+            mWeights[index] = 0;
+        }
+        for (int n = 0; n < FLAGS_IN_QUIZ; n++)
+            mWeights[quiz[n]] = removed[n];
+        for (int index : quiz)
+            mWeights[index] = nextWeight();
+        blackhole.consume(quiz);
+    }
+
+    private int nextWeight() {
+        return GuessStats.MIN_WEIGHT + mRandom.nextInt(GuessStats.MAX_WEIGHT - GuessStats.MIN_WEIGHT + 1);
+    }
+}
@@ -0,0 +1,61 @@
+package edu.orangecoastcollege.cs273.flagquiz.build;
+
+/**
+ * The encodings a flag variant can use.  The names are the ones used in the flagVariants
+ * property of app/flags.gradle and in the FlagVariants.txt manifest.
+ */
+public enum FlagEncoding {
+
+    /** 8 bit palette PNG, decodes on every API level. */
+    PNG8("png8", "png", 1, 1),
+    /** Lossy WebP.  Opaque images decode from API 14, images with alpha from API 18. */
+    WEBP("webp", "webp", 14, 18),
+    /** Lossless WebP, API 18. */
+    WEBP_LOSSLESS("webp-lossless", "webp", 18, 18);
+
+    private final String mName;
+    private final String mExtension;
+    private final int mMinSdk;
+    private final int mMinSdkWithAlpha;
+
+    FlagEncoding(String name, String extension, int minSdk, int minSdkWithAlpha) {
+        mName = name;
+        mExtension = extension;
+        mMinSdk = minSdk;
+        mMinSdkWithAlpha = minSdkWithAlpha;
+    }
+
+    /**
+     * @return the name used in the build properties and the manifest.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return the file extension of the encoded flags.
+     */
+    public String getExtension() {
+        return mExtension;
+    }
+
+    /**
+     * @param hasAlpha whether any encoded flag has transparent pixels.
+     * @return the lowest API level which can decode the flags.
+     */
+    public int getMinSdk(boolean hasAlpha) {
+        return hasAlpha ? mMinSdkWithAlpha : mMinSdk;
+    }
+
+    /**
+     * @param name an encoding name, i.e. "webp".
+     * @return the encoding.
+     * @throws IllegalArgumentException if there is no such encoding.
+     */
+    public static FlagEncoding forName(String name) {
+        for (FlagEncoding encoding : values())
+            if (encoding.mName.equals(name))
+                return encoding;
+        throw new IllegalArgumentException("Unknown flag encoding " + name);
+    }
+}
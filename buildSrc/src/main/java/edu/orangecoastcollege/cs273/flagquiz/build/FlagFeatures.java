@@ -0,0 +1,169 @@
+package edu.orangecoastcollege.cs273.flagquiz.build;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The visual features of a flag which the flag similarity index compares, one vector per flag:
+ *  - a color histogram, the share of the flag's pixels nearest to each of the PALETTE colors
+ *    most flags are drawn with
+ *  - the stripe layout, the mean CIELAB color of every cell of a GRID_COLUMNS x GRID_ROWS grid
+ *    over the flag, so tricolors with the same colors in the same order end up close
+ *
+ * Every dimension is scaled to 0 to 255, so the vector is stored as bytes with quantize().
+ * distance() weighs the dimensions so the grid counts as the mean Delta E of its cells and the
+ * histogram about as much as the grid: Chad and Romania are close, Chad and Italy less so, and
+ * Chad and Japan far apart.
+ */
+public final class FlagFeatures {
+
+    static final int GRID_COLUMNS = 6;
+    static final int GRID_ROWS = 4;
+
+    // red, maroon, orange, yellow, green, light blue, blue, navy, white, black
+    static final int[] PALETTE = {
+            0xCE1126, 0x8D1B3D, 0xFF8200, 0xFCD116, 0x009A44,
+            0x75AADB, 0x0038A8, 0x00205B, 0xFFFFFF, 0x000000
+    };
+
+    /** How many dimensions a feature vector has. */
+    public static final int DIMENSIONS = PALETTE.length + GRID_COLUMNS * GRID_ROWS * 3;
+
+    // flags are scaled to this width first, their stripes and colors do not need more pixels
+    private static final int SAMPLE_WIDTH = 96;
+    // a histogram share of 1 counts like a Delta E of 40 in every grid cell
+    private static final double HISTOGRAM_WEIGHT = 40;
+
+    private static final float[] WEIGHTS = weights();
+
+    private FlagFeatures() {
+    }
+
+    /**
+     * @param flag a flag image.
+     * @return its features, every dimension from 0 to 255 but not rounded.
+     */
+    public static float[] extract(BufferedImage flag) {
+        BufferedImage image = FlagImages.scale(flag, Math.min(1.0, SAMPLE_WIDTH / (double) flag.getWidth()));
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        double[][] palette = new double[PALETTE.length][3];
+        for (int i = 0; i < PALETTE.length; i++)
+            PerceptualError.toLab(0xFF000000 | PALETTE[i], palette[i]);
+
+        double[] histogram = new double[PALETTE.length];
+        double[] grid = new double[GRID_COLUMNS * GRID_ROWS * 3];
+        int[] cellPixels = new int[GRID_COLUMNS * GRID_ROWS];
+        // flags have few colors, convert each one once
+        Map<Integer, double[]> labs = new HashMap<>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = pixels[y * width + x];
+                double[] lab = labs.get(argb);
+                if (lab == null) {
+                    lab = new double[4];
+                    PerceptualError.toLab(argb, lab);
+                    lab[3] = nearest(lab, palette);
+                    labs.put(argb, lab);
+                }
+                ++histogram[(int) lab[3]];
+                int cell = (y * GRID_ROWS / height) * GRID_COLUMNS + x * GRID_COLUMNS / width;
+                ++cellPixels[cell];
+                for (int c = 0; c < 3; c++)
+                    grid[3 * cell + c] += lab[c];
+            }
+        }
+
+        float[] features = new float[DIMENSIONS];
+        for (int i = 0; i < PALETTE.length; i++)
+            features[i] = (float) (255 * histogram[i] / pixels.length);
+        for (int cell = 0; cell < cellPixels.length; cell++) {
+            int n = Math.max(1, cellPixels[cell]);
+            int d = PALETTE.length + 3 * cell;
+            features[d] = (float) clamp(2.55 * grid[3 * cell] / n); // L is 0 to 100
+            features[d + 1] = (float) clamp(128 + grid[3 * cell + 1] / n); // a and b are about -128 to 127
+            features[d + 2] = (float) clamp(128 + grid[3 * cell + 2] / n);
+        }
+        return features;
+    }
+
+    /**
+     * @param features features as extract() returns them.
+     * @return the features rounded to bytes, unsigned.
+     */
+    public static byte[] quantize(float[] features) {
+        byte[] vector = new byte[features.length];
+        for (int d = 0; d < features.length; d++)
+            vector[d] = (byte) Math.round(features[d]);
+        return vector;
+    }
+
+    /**
+     * @return the weight of every dimension, written to the index so the app computes the same
+     * distances.  The array is shared, do not change it.
+     */
+    public static float[] getWeights() {
+        return WEIGHTS;
+    }
+
+    /**
+     * @return the distance of two feature vectors, 0 for identical flags.
+     */
+    public static double distance(float[] a, float[] b) {
+        double sum = 0;
+        for (int d = 0; d < a.length; d++) {
+            double difference = WEIGHTS[d] * (a[d] - b[d]);
+            sum += difference * difference;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * @return the distance of two quantized feature vectors, 0 for identical flags.
+     */
+    public static double distance(byte[] a, byte[] b) {
+        double sum = 0;
+        for (int d = 0; d < a.length; d++) {
+            double difference = WEIGHTS[d] * ((a[d] & 0xFF) - (b[d] & 0xFF));
+            sum += difference * difference;
+        }
+        return Math.sqrt(sum);
+    }
+
+    private static float[] weights() {
+        float[] weights = new float[DIMENSIONS];
+        for (int i = 0; i < PALETTE.length; i++)
+            weights[i] = (float) (HISTOGRAM_WEIGHT / 255);
+        // the root of the mean of the squared Delta E of the cells
+        double cellWeight = 1 / Math.sqrt(GRID_COLUMNS * GRID_ROWS);
+        for (int d = PALETTE.length; d < DIMENSIONS; d += 3) {
+            weights[d] = (float) (cellWeight / 2.55);
+            weights[d + 1] = (float) cellWeight;
+            weights[d + 2] = (float) cellWeight;
+        }
+        return weights;
+    }
+
+    private static int nearest(double[] lab, double[][] palette) {
+        int nearest = 0;
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < palette.length; i++) {
+            double dl = lab[0] - palette[i][0];
+            double da = lab[1] - palette[i][1];
+            double db = lab[2] - palette[i][2];
+            double distance = dl * dl + da * da + db * db;
+            if (distance < best) {
+                best = distance;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,176 @@
+package edu.orangecoastcollege.cs273.flagquiz.build;
+
+import com.luciad.imageio.webp.WebPImageReaderSpi;
+import com.luciad.imageio.webp.WebPImageWriterSpi;
+import com.luciad.imageio.webp.WebPWriteParam;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Reading, scaling, encoding and decoding flag images with ImageIO.
+ *
+ * The WebP reader and writer are created directly instead of being looked up through ImageIO,
+ * because the ImageIO plugin registry does not see the build script's class path.
+ */
+public final class FlagImages {
+
+    private FlagImages() {
+    }
+
+    /**
+     * @param assetsDir the assets folder, with one folder of flag PNGs per region.
+     * @return the paths of the flag PNGs, relative to the assets folder, i.e.
+     * "Africa/Africa-Chad.png", sorted.
+     */
+    public static List<String> list(File assetsDir) {
+        List<String> flags = new ArrayList<>();
+        File[] regions = assetsDir.listFiles();
+        if (regions == null)
+            return flags;
+        Arrays.sort(regions);
+        for (File region : regions) {
+            File[] files = region.isDirectory() ? region.listFiles() : null;
+            if (files == null)
+                continue;
+            Arrays.sort(files);
+            for (File file : files)
+                if (file.getName().endsWith(".png"))
+                    flags.add(region.getName() + "/" + file.getName());
+        }
+        return flags;
+    }
+
+    /**
+     * @param file a PNG.
+     * @return the image as ARGB.
+     * @throws IOException if the file can not be read.
+     */
+    public static BufferedImage read(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null)
+            throw new IOException("Not an image: " + file);
+        return toArgb(image);
+    }
+
+    /**
+     * Scales an image down with area averaging, which keeps thin lines and stars readable.
+     * @param image the image.
+     * @param scale the scale, 1 returns the image itself.
+     * @return the scaled image, as ARGB.
+     */
+    public static BufferedImage scale(BufferedImage image, double scale) {
+        if (scale == 1)
+            return image;
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        Image scaled = image.getScaledInstance(width, height, Image.SCALE_AREA_AVERAGING);
+        BufferedImage argb = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = argb.createGraphics();
+        graphics.drawImage(scaled, 0, 0, null);
+        graphics.dispose();
+        return argb;
+    }
+
+    /**
+     * @return true if any pixel of the image is not fully opaque.
+     */
+    public static boolean hasAlpha(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha())
+            return false;
+        for (int y = 0; y < image.getHeight(); y++)
+            for (int x = 0; x < image.getWidth(); x++)
+                if ((image.getRGB(x, y) >>> 24) != 0xFF)
+                    return true;
+        return false;
+    }
+
+    /**
+     * @param image the image to encode.
+     * @param encoding the encoding.
+     * @param quality the quality of lossy encodings, 0 to 1.
+     * @return the encoded file.
+     * @throws IOException if the image can not be encoded.
+     */
+    public static byte[] encode(BufferedImage image, FlagEncoding encoding, float quality) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        switch (encoding) {
+            case PNG8:
+                ImageIO.write(PaletteQuantizer.quantize(image, 256), "png", bytes);
+                break;
+            case WEBP:
+            case WEBP_LOSSLESS:
+                ImageWriter writer = new WebPImageWriterSpi().createWriterInstance(null);
+                WebPWriteParam param = new WebPWriteParam(writer.getLocale());
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (encoding == FlagEncoding.WEBP) {
+                    param.setCompressionType(param.getCompressionTypes()[WebPWriteParam.LOSSY_COMPRESSION]);
+                    param.setCompressionQuality(quality);
+                }
+                else {
+                    param.setCompressionType(param.getCompressionTypes()[WebPWriteParam.LOSSLESS_COMPRESSION]);
+                }
+                ImageOutputStream out = new MemoryCacheImageOutputStream(bytes);
+                try {
+                    writer.setOutput(out);
+                    writer.write(null, new IIOImage(image, null, null), param);
+                }
+                finally {
+                    out.close();
+                    writer.dispose();
+                }
+                break;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param bytes a file written by encode().
+     * @param encoding the encoding it was written with.
+     * @return the decoded image, as ARGB.
+     * @throws IOException if the file can not be decoded.
+     */
+    public static BufferedImage decode(byte[] bytes, FlagEncoding encoding) throws IOException {
+        if (encoding == FlagEncoding.PNG8)
+            return toArgb(ImageIO.read(new ByteArrayInputStream(bytes)));
+
+        ImageReader reader = new WebPImageReaderSpi().createReaderInstance(null);
+        ImageInputStream in = new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes));
+        try {
+            reader.setInput(in);
+            return toArgb(reader.read(0));
+        }
+        finally {
+            in.close();
+            reader.dispose();
+        }
+    }
+
+    private static BufferedImage toArgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB)
+            return image;
+        BufferedImage argb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = argb.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return argb;
+    }
+}
@@ -0,0 +1,178 @@
+package edu.orangecoastcollege.cs273.flagquiz.build;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds the flag similarity index, FlagSimilarity.bin, which the app's "hard distractors" mode
+ * picks look-alike flags from with a table lookup.  Used by the indexFlagSimilarity task of
+ * app/flags.gradle.
+ *
+ * The FlagFeatures of every flag under assets/<Region>/ are extracted, then the nearest flags of
+ * every flag are found by comparing its quantized features with those of every other flag.
+ * Both steps run on every core.  There are only a few hundred flags, so the search is exact;
+ * the only approximation is rounding the features to bytes, FlagSimilarityIndexerTest measures
+ * its recall against the full precision features.
+ *
+ * The file is big-endian and laid out as (FlagSimilarityIndex reads it):
+ *  - int magic "FQSI" and short version
+ *  - short flag count, short dimensions and short neighbor count
+ *  - the float weight of every dimension, see FlagFeatures.distance()
+ *  - for every flag: its file name (as Country.getFileName() returns it, modified UTF-8) and its
+ *    quantized features, one unsigned byte per dimension
+ *  - for every flag: the short indices of its nearest flags, nearest first
+ */
+public class FlagSimilarityIndexer {
+
+    static final String ASSET = "FlagSimilarity.bin";
+    static final int MAGIC = 0x46515349; // "FQSI"
+    static final int VERSION = 1;
+
+    private final File mFlagsDir;
+    private final int mNeighbors;
+
+    /**
+     * @param flagsDir the assets folder, with one folder of flag PNGs per region.
+     * @param neighbors how many nearest flags the index keeps for every flag.
+     */
+    public FlagSimilarityIndexer(File flagsDir, int neighbors) {
+        mFlagsDir = flagsDir;
+        mNeighbors = neighbors;
+    }
+
+    /**
+     * @return the paths of the flag PNGs, relative to the assets folder, i.e. "Africa/Africa-Chad.png".
+     */
+    public List<String> flags() {
+        return FlagImages.list(mFlagsDir);
+    }
+
+    /**
+     * Extracts the features of every flag and writes the index.
+     * @param outputDir the generated assets folder.
+     * @return a one line summary for the build log.
+     */
+    public String index(File outputDir) throws IOException {
+        long start = System.nanoTime();
+        List<String> flags = flags();
+        float[][] features = extractFeatures(flags);
+        byte[][] vectors = new byte[features.length][];
+        for (int i = 0; i < features.length; i++)
+            vectors[i] = FlagFeatures.quantize(features[i]);
+        int[][] neighbors = nearestNeighbors(vectors);
+
+        File file = new File(outputDir, ASSET);
+        file.getParentFile().mkdirs();
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(flags.size());
+            out.writeShort(FlagFeatures.DIMENSIONS);
+            out.writeShort(neighbors.length > 0 ? neighbors[0].length : 0);
+            for (float weight : FlagFeatures.getWeights())
+                out.writeFloat(weight);
+            for (int i = 0; i < flags.size(); i++) {
+                out.writeUTF(flags.get(i));
+                out.write(vectors[i]);
+            }
+            for (int[] row : neighbors)
+                for (int neighbor : row)
+                    out.writeShort(neighbor);
+        }
+        finally {
+            out.close();
+        }
+        return String.format("Indexed %d flags, %d neighbors each, %d dimensions: %,d bytes in %d ms",
+                flags.size(), neighbors.length > 0 ? neighbors[0].length : 0, FlagFeatures.DIMENSIONS,
+                file.length(), (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * Extracts the features of flags, on every core.
+     * @param flags paths relative to the assets folder.
+     * @return the features of every flag, in the same order.
+     */
+    public float[][] extractFeatures(List<String> flags) throws IOException {
+        List<Callable<float[]>> tasks = new ArrayList<>();
+        for (final String flag : flags) {
+            tasks.add(new Callable<float[]>() {
+                @Override
+                public float[] call() throws IOException {
+                    return FlagFeatures.extract(FlagImages.read(new File(mFlagsDir, flag)));
+                }
+            });
+        }
+        return runAll(tasks, new float[flags.size()][]);
+    }
+
+    /**
+     * Finds the nearest flags of every flag, on every core.
+     * @param vectors the quantized features of every flag.
+     * @return for every flag the indices of its nearest other flags, nearest first, ties by
+     * index.  Fewer than the neighbor count if there are not that many flags.
+     */
+    public int[][] nearestNeighbors(final byte[][] vectors) throws IOException {
+        final int count = Math.min(mNeighbors, Math.max(0, vectors.length - 1));
+        List<Callable<int[]>> tasks = new ArrayList<>();
+        for (int i = 0; i < vectors.length; i++) {
+            final int flag = i;
+            tasks.add(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    final double[] distances = new double[vectors.length];
+                    Integer[] others = new Integer[vectors.length - 1];
+                    for (int j = 0, n = 0; j < vectors.length; j++) {
+                        if (j != flag) {
+                            distances[j] = FlagFeatures.distance(vectors[flag], vectors[j]);
+                            others[n++] = j;
+                        }
+                    }
+                    // a stable sort, so equal distances stay in index order
+                    Arrays.sort(others, new Comparator<Integer>() {
+                        @Override
+                        public int compare(Integer a, Integer b) {
+                            return Double.compare(distances[a], distances[b]);
+                        }
+                    });
+                    int[] nearest = new int[count];
+                    for (int k = 0; k < count; k++)
+                        nearest[k] = others[k];
+                    return nearest;
+                }
+            });
+        }
+        return runAll(tasks, new int[vectors.length][]);
+    }
+
+    // runs independent tasks on every core, results in task order
+    private static <T> T[] runAll(List<Callable<T>> tasks, T[] results) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<Future<T>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < results.length; i++)
+                results[i] = futures.get(i).get();
+            return results;
+        }
+        catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Could not index the flags", e.getCause());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
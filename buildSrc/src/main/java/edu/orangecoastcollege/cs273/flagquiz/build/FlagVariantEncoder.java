@@ -0,0 +1,252 @@
+package edu.orangecoastcollege.cs273.flagquiz.build;
+
+import org.gradle.api.GradleException;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Re-encodes every flag PNG under assets/<Region>/ into variants, each one a density bucket and
+ * an encoding, i.e. "hdpi-webp".  Used by the encodeFlagVariants task of app/flags.gradle.
+ *
+ * Every variant of a flag is decoded again and compared with the original scaled to the same
+ * size.  If the mean Delta E of any flag is over the threshold the build fails, naming the flags.
+ *
+ * The variants are written to flags/<variant>/<Region>/<Region>-<Name>.<ext>, with a manifest,
+ * flags/FlagVariants.txt, which FlagVariants reads at runtime:
+ *  one line per variant: name, density (dpi), encoding, minimum API level and total bytes.
+ * The first line is the original PNGs, unless the variants replace them: when one of the
+ * variants decodes on every API level the app runs on, the originals are left out of the APK
+ * (see replacesOriginals()) and out of the manifest.  A report of the size and error of every
+ * variant is written for people.
+ */
+public class FlagVariantEncoder {
+
+    static final String MANIFEST = "flags/FlagVariants.txt";
+
+    private final File mFlagsDir;
+    private final int mOriginalDensity;
+    private final Map<String, Integer> mDensities;
+    private final float mQuality;
+    private final double mMaxDeltaE;
+
+    /**
+     * @param flagsDir the assets folder, with one folder of flag PNGs per region.
+     * @param originalDensity the screen density (dpi) the original flags are drawn for.
+     * @param densities density bucket names (i.e. "hdpi") and their dpi.
+     * @param quality the quality of lossy encodings, 0 to 1.
+     * @param maxDeltaE the highest mean Delta E a flag variant may have.
+     */
+    public FlagVariantEncoder(File flagsDir, int originalDensity, Map<String, Integer> densities,
+                              float quality, double maxDeltaE) {
+        mFlagsDir = flagsDir;
+        mOriginalDensity = originalDensity;
+        mDensities = densities;
+        mQuality = quality;
+        mMaxDeltaE = maxDeltaE;
+    }
+
+    /**
+     * @return the paths of the flag PNGs, relative to the assets folder, i.e. "Africa/Africa-Chad.png".
+     */
+    public List<String> flags() {
+        return FlagImages.list(mFlagsDir);
+    }
+
+    /**
+     * Checks whether the original PNGs can be left out of the APK: one of the variants must decode
+     * on every API level from minSdk, even if its flags have transparent pixels.
+     * @param variantNames the variants, i.e. "mdpi-png8", "hdpi-webp".
+     * @param minSdk the minSdkVersion of the app.
+     * @return true if the variants replace the originals.
+     * @throws GradleException if a variant name is invalid.
+     */
+    public boolean replacesOriginals(List<String> variantNames, int minSdk) {
+        for (String name : variantNames)
+            if (variant(name).mEncoding.getMinSdk(true) <= minSdk)
+                return true;
+        return false;
+    }
+
+    /**
+     * Encodes every flag in every variant.
+     * @param variantNames the variants, i.e. "mdpi-png8", "hdpi-webp".
+     * @param minSdk the minSdkVersion of the app, the original PNGs are only in the manifest if
+     * they are needed on it.
+     * @param outputDir the generated assets folder.
+     * @param report the file the report is written to.
+     * @throws GradleException if a variant name is invalid or a flag is over the error threshold.
+     */
+    public void encode(List<String> variantNames, int minSdk, File outputDir, File report) throws IOException {
+        final List<Variant> variants = new ArrayList<>();
+        for (String name : variantNames)
+            variants.add(variant(name));
+        final File flagsOut = new File(outputDir, "flags");
+        List<String> flags = flags();
+
+        // flags are independent, encode them on every core
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<Void>> results = new ArrayList<>();
+        long originalBytes = 0;
+        for (final String flag : flags) {
+            originalBytes += new File(mFlagsDir, flag).length();
+            results.add(executor.submit(new java.util.concurrent.Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    encodeFlag(flag, variants, flagsOut);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> result : results)
+                result.get();
+        }
+        catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Could not encode the flags", e.getCause());
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        writeManifest(new File(outputDir, MANIFEST), variants,
+                replacesOriginals(variantNames, minSdk) ? -1 : originalBytes);
+        writeReport(report, variants, flags.size(), originalBytes);
+
+        List<String> failures = new ArrayList<>();
+        for (Variant variant : variants)
+            failures.addAll(variant.mFailures);
+        if (!failures.isEmpty())
+            throw new GradleException(String.format(Locale.US,
+                    "Flag variants over the perceptual error threshold (mean Delta E %.2f):%n  %s",
+                    mMaxDeltaE, join(failures, String.format("%n  "))));
+    }
+
+    private void encodeFlag(String flag, List<Variant> variants, File flagsOut) throws IOException {
+        BufferedImage original = FlagImages.read(new File(mFlagsDir, flag));
+        String baseName = flag.substring(0, flag.length() - ".png".length());
+        for (Variant variant : variants) {
+            BufferedImage reference = FlagImages.scale(original,
+                    Math.min(1.0, variant.mDensity / (double) mOriginalDensity));
+            byte[] encoded = FlagImages.encode(reference, variant.mEncoding, mQuality);
+            double deltaE = PerceptualError.meanDeltaE(reference, FlagImages.decode(encoded, variant.mEncoding));
+
+            File file = new File(flagsOut, variant.mName + "/" + baseName + "." + variant.mEncoding.getExtension());
+            file.getParentFile().mkdirs();
+            OutputStream out = new FileOutputStream(file);
+            try {
+                out.write(encoded);
+            }
+            finally {
+                out.close();
+            }
+            variant.add(flag, encoded.length, deltaE, FlagImages.hasAlpha(reference), mMaxDeltaE);
+        }
+    }
+
+    private Variant variant(String name) {
+        int dash = name.indexOf('-');
+        Integer density = dash > 0 ? mDensities.get(name.substring(0, dash)) : null;
+        if (density == null)
+            throw new GradleException("Flag variant " + name + " must be <density>-<encoding>, densities are "
+                    + mDensities.keySet());
+        try {
+            return new Variant(name, density, FlagEncoding.forName(name.substring(dash + 1)));
+        }
+        catch (IllegalArgumentException e) {
+            throw new GradleException("Flag variant " + name + ": " + e.getMessage());
+        }
+    }
+
+    // originalBytes is -1 if the originals are not in the APK
+    private void writeManifest(File manifest, List<Variant> variants, long originalBytes) throws IOException {
+        manifest.getParentFile().mkdirs();
+        PrintWriter out = new PrintWriter(manifest, "UTF-8");
+        try {
+            out.println("# variant density encoding minSdk bytes");
+            if (originalBytes >= 0)
+                out.println("original " + mOriginalDensity + " png 1 " + originalBytes);
+            for (Variant variant : variants)
+                out.println(variant.mName + " " + variant.mDensity + " " + variant.mEncoding.getName() + " "
+                        + variant.mEncoding.getMinSdk(variant.mHasAlpha) + " " + variant.mBytes);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private void writeReport(File report, List<Variant> variants, int flagCount, long originalBytes)
+            throws IOException {
+        report.getParentFile().mkdirs();
+        PrintWriter out = new PrintWriter(report, "UTF-8");
+        try {
+            out.println(String.format(Locale.US, "%d flags, originals %,d bytes, threshold mean Delta E %.2f",
+                    flagCount, originalBytes, mMaxDeltaE));
+            out.println(String.format(Locale.US, "%-20s %6s %12s %8s %8s %8s  %s",
+                    "variant", "dpi", "bytes", "size", "mean dE", "max dE", "worst flag"));
+            for (Variant variant : variants)
+                out.println(String.format(Locale.US, "%-20s %6d %,12d %7.1f%% %8.2f %8.2f  %s",
+                        variant.mName, variant.mDensity, variant.mBytes, 100.0 * variant.mBytes / originalBytes,
+                        variant.mDeltaESum / flagCount, variant.mWorstDeltaE, variant.mWorstFlag));
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private static String join(List<String> strings, String separator) {
+        StringBuilder joined = new StringBuilder();
+        for (String s : strings) {
+            if (joined.length() > 0)
+                joined.append(separator);
+            joined.append(s);
+        }
+        return joined.toString();
+    }
+
+    // one variant and what was measured while encoding the flags in it
+    private static class Variant {
+        final String mName;
+        final int mDensity;
+        final FlagEncoding mEncoding;
+        long mBytes;
+        boolean mHasAlpha;
+        double mDeltaESum;
+        double mWorstDeltaE;
+        String mWorstFlag;
+        final List<String> mFailures = new ArrayList<>();
+
+        Variant(String name, int density, FlagEncoding encoding) {
+            mName = name;
+            mDensity = density;
+            mEncoding = encoding;
+        }
+
+        synchronized void add(String flag, int bytes, double deltaE, boolean hasAlpha, double maxDeltaE) {
+            mBytes += bytes;
+            mHasAlpha |= hasAlpha;
+            mDeltaESum += deltaE;
+            if (deltaE >= mWorstDeltaE) {
+                mWorstDeltaE = deltaE;
+                mWorstFlag = flag;
+            }
+            if (deltaE > maxDeltaE)
+                mFailures.add(String.format(Locale.US, "%s %s: %.2f", mName, flag, deltaE));
+        }
+    }
+}
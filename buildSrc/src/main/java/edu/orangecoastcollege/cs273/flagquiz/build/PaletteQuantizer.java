@@ -0,0 +1,204 @@
+package edu.orangecoastcollege.cs273.flagquiz.build;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reduces an image to a palette of at most 256 colors with median cut, for palette PNGs.
+ *
+ * The distinct colors (alpha included) are weighted by how many pixels have them.  The box of
+ * colors with the most pixels is split at the weighted median of its widest channel until there
+ * are as many boxes as palette entries, then every box becomes its pixel weighted average color.
+ * Pixels are mapped to the nearest palette color, without dithering, so flat areas stay flat.
+ */
+public final class PaletteQuantizer {
+
+    private PaletteQuantizer() {
+    }
+
+    /**
+     * @param image an ARGB image.
+     * @param maxColors the most colors of the palette, 2 to 256.
+     * @return the image with an IndexColorModel.
+     */
+    public static BufferedImage quantize(BufferedImage image, int maxColors) {
+        if (maxColors < 2 || maxColors > 256)
+            throw new IllegalArgumentException("maxColors must be 2 to 256: " + maxColors);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        // distinct colors and how many pixels have them, fully transparent pixels are all one color
+        Map<Integer, int[]> counts = new HashMap<>();
+        for (int i = 0; i < pixels.length; i++) {
+            if ((pixels[i] >>> 24) == 0)
+                pixels[i] = 0;
+            int[] count = counts.get(pixels[i]);
+            if (count == null)
+                counts.put(pixels[i], new int[] {1});
+            else
+                ++count[0];
+        }
+        int[] colors = new int[counts.size()];
+        int[] weights = new int[counts.size()];
+        int n = 0;
+        for (Map.Entry<Integer, int[]> entry : counts.entrySet()) {
+            colors[n] = entry.getKey();
+            weights[n++] = entry.getValue()[0];
+        }
+
+        int[] palette = colors.length <= maxColors ? colors : medianCut(colors, weights, maxColors);
+        byte[] a = new byte[palette.length];
+        byte[] r = new byte[palette.length];
+        byte[] g = new byte[palette.length];
+        byte[] b = new byte[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            a[i] = (byte) (palette[i] >>> 24);
+            r[i] = (byte) (palette[i] >> 16);
+            g[i] = (byte) (palette[i] >> 8);
+            b[i] = (byte) palette[i];
+        }
+        IndexColorModel model = new IndexColorModel(8, palette.length, r, g, b, a);
+        BufferedImage indexed = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, model);
+        WritableRaster raster = indexed.getRaster();
+        Map<Integer, Integer> nearest = new HashMap<>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int color = pixels[y * width + x];
+                Integer index = nearest.get(color);
+                if (index == null) {
+                    index = nearest(palette, color);
+                    nearest.put(color, index);
+                }
+                raster.setSample(x, y, 0, index);
+            }
+        }
+        return indexed;
+    }
+
+    private static int[] medianCut(int[] colors, int[] weights, int maxColors) {
+        List<Box> boxes = new ArrayList<>();
+        Integer[] order = new Integer[colors.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        boxes.add(new Box(colors, weights, order, 0, order.length));
+
+        while (boxes.size() < maxColors) {
+            // split the box with the most pixels which still has more than one color
+            Box biggest = null;
+            for (Box box : boxes)
+                if (box.mEnd - box.mStart > 1 && (biggest == null || box.mPixels > biggest.mPixels))
+                    biggest = box;
+            if (biggest == null)
+                break;
+            boxes.remove(biggest);
+            Box[] halves = biggest.split();
+            boxes.add(halves[0]);
+            boxes.add(halves[1]);
+        }
+
+        int[] palette = new int[boxes.size()];
+        for (int i = 0; i < palette.length; i++)
+            palette[i] = boxes.get(i).average();
+        return palette;
+    }
+
+    private static int nearest(int[] palette, int color) {
+        int best = 0;
+        long bestDistance = Long.MAX_VALUE;
+        for (int i = 0; i < palette.length; i++) {
+            long distance = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                int d = ((palette[i] >>> shift) & 0xFF) - ((color >>> shift) & 0xFF);
+                distance += d * d;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    // the colors order[start .. end) of the image
+    private static class Box {
+        final int[] mColors;
+        final int[] mWeights;
+        final Integer[] mOrder;
+        final int mStart;
+        final int mEnd;
+        final long mPixels;
+
+        Box(int[] colors, int[] weights, Integer[] order, int start, int end) {
+            mColors = colors;
+            mWeights = weights;
+            mOrder = order;
+            mStart = start;
+            mEnd = end;
+            long pixels = 0;
+            for (int i = start; i < end; i++)
+                pixels += weights[order[i]];
+            mPixels = pixels;
+        }
+
+        Box[] split() {
+            // the channel (alpha, red, green or blue) with the widest range
+            int widestShift = 0;
+            int widestRange = -1;
+            for (int shift = 0; shift < 32; shift += 8) {
+                int min = 255;
+                int max = 0;
+                for (int i = mStart; i < mEnd; i++) {
+                    int value = (mColors[mOrder[i]] >>> shift) & 0xFF;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                if (max - min > widestRange) {
+                    widestRange = max - min;
+                    widestShift = shift;
+                }
+            }
+            final int shift = widestShift;
+            Arrays.sort(mOrder, mStart, mEnd, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return ((mColors[a] >>> shift) & 0xFF) - ((mColors[b] >>> shift) & 0xFF);
+                }
+            });
+
+            // split at the weighted median, both halves keep at least one color
+            long half = mPixels / 2;
+            long seen = 0;
+            int split = mStart + 1;
+            for (int i = mStart; i < mEnd - 1; i++) {
+                seen += mWeights[mOrder[i]];
+                split = i + 1;
+                if (seen >= half)
+                    break;
+            }
+            return new Box[] {new Box(mColors, mWeights, mOrder, mStart, split),
+                    new Box(mColors, mWeights, mOrder, split, mEnd)};
+        }
+
+        int average() {
+            long a = 0, r = 0, g = 0, b = 0;
+            for (int i = mStart; i < mEnd; i++) {
+                int color = mColors[mOrder[i]];
+                long weight = mWeights[mOrder[i]];
+                a += ((color >>> 24) & 0xFF) * weight;
+                r += ((color >>> 16) & 0xFF) * weight;
+                g += ((color >>> 8) & 0xFF) * weight;
+                b += (color & 0xFF) * weight;
+            }
+            return (int) ((a + mPixels / 2) / mPixels) << 24 | (int) ((r + mPixels / 2) / mPixels) << 16
+                    | (int) ((g + mPixels / 2) / mPixels) << 8 | (int) ((b + mPixels / 2) / mPixels);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package edu.orangecoastcollege.cs273.flagquiz.build;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Measures how different an encoded flag looks from its reference, as the mean CIE76 color
+ * difference (Delta E in CIELAB) over all pixels.  A Delta E around 2.3 is the smallest
+ * difference most people can see side by side.
+ *
+ * Both images are composited over white first, the background the flags are displayed on,
+ * so differences in fully transparent pixels do not count.
+ */
+public final class PerceptualError {
+
+    private PerceptualError() {
+    }
+
+    /**
+     * @param reference the image before encoding.
+     * @param candidate the encoded image, decoded again.
+     * @return the mean Delta E.
+     * @throws IllegalArgumentException if the images are not the same size.
+     */
+    public static double meanDeltaE(BufferedImage reference, BufferedImage candidate) {
+        int width = reference.getWidth();
+        int height = reference.getHeight();
+        if (candidate.getWidth() != width || candidate.getHeight() != height)
+            throw new IllegalArgumentException("Images are " + width + "x" + height + " and "
+                    + candidate.getWidth() + "x" + candidate.getHeight());
+
+        int[] a = reference.getRGB(0, 0, width, height, null, 0, width);
+        int[] b = candidate.getRGB(0, 0, width, height, null, 0, width);
+        double[] labA = new double[3];
+        double[] labB = new double[3];
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i])
+                continue;
+            toLab(a[i], labA);
+            toLab(b[i], labB);
+            double dl = labA[0] - labB[0];
+            double da = labA[1] - labB[1];
+            double db = labA[2] - labB[2];
+            sum += Math.sqrt(dl * dl + da * da + db * db);
+        }
+        return sum / a.length;
+    }
+
+    // sRGB (composited over white) to CIELAB, D65 white point
+    static void toLab(int argb, double[] lab) {
+        double alpha = (argb >>> 24) / 255.0;
+        double r = linear(over(((argb >> 16) & 0xFF) / 255.0, alpha));
+        double g = linear(over(((argb >> 8) & 0xFF) / 255.0, alpha));
+        double b = linear(over((argb & 0xFF) / 255.0, alpha));
+
+        double x = (0.4124 * r + 0.3576 * g + 0.1805 * b) / 0.95047;
+        double y = 0.2126 * r + 0.7152 * g + 0.0722 * b;
+        double z = (0.0193 * r + 0.1192 * g + 0.9505 * b) / 1.08883;
+
+        double fx = f(x);
+        double fy = f(y);
+        double fz = f(z);
+        lab[0] = 116 * fy - 16;
+        lab[1] = 500 * (fx - fy);
+        lab[2] = 200 * (fy - fz);
+    }
+
+    private static double over(double channel, double alpha) {
+        return channel * alpha + (1 - alpha);
+    }
+
+    private static double linear(double channel) {
+        return channel <= 0.04045 ? channel / 12.92 : Math.pow((channel + 0.055) / 1.055, 2.4);
+    }
+
+    private static double f(double t) {
+        return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+    }
+}
@@ -0,0 +1,97 @@
+package edu.orangecoastcollege.cs273.flagquiz.build;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the flag encoding pipeline, on a small tricolor with a star.
+ */
+public class FlagImagesTest {
+
+    private static BufferedImage flag() {
+        BufferedImage image = new BufferedImage(90, 60, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(0, 85, 164));
+        graphics.fillRect(0, 0, 30, 60);
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(30, 0, 30, 60);
+        graphics.setColor(new Color(239, 65, 53));
+        graphics.fillRect(60, 0, 30, 60);
+        graphics.setColor(new Color(255, 204, 0));
+        graphics.fillOval(38, 23, 14, 14);
+        graphics.dispose();
+        return image;
+    }
+
+    @Test
+    public void identicalImagesHaveNoError() {
+        assertEquals(0.0, PerceptualError.meanDeltaE(flag(), flag()), 0.0);
+    }
+
+    @Test
+    public void blackAndWhiteAreAHundredApart() {
+        double[] white = new double[3];
+        double[] black = new double[3];
+        PerceptualError.toLab(0xFFFFFFFF, white);
+        PerceptualError.toLab(0xFF000000, black);
+
+        assertEquals(100.0, white[0], 0.01);
+        assertEquals(0.0, black[0], 0.01);
+        // a fully transparent pixel is the white background
+        double[] transparent = new double[3];
+        PerceptualError.toLab(0x00000000, transparent);
+        assertEquals(white[0], transparent[0], 1e-9);
+    }
+
+    @Test
+    public void paletteKeepsFewColorsExact() {
+        BufferedImage image = flag();
+        BufferedImage indexed = PaletteQuantizer.quantize(image, 256);
+
+        assertTrue(indexed.getColorModel() instanceof IndexColorModel);
+        assertTrue(((IndexColorModel) indexed.getColorModel()).getMapSize() <= 256);
+        assertTrue(PerceptualError.meanDeltaE(image, indexed) < 0.5);
+    }
+
+    @Test
+    public void paletteOfTwoColorsLosesDetail() {
+        BufferedImage image = flag();
+
+        assertTrue(PerceptualError.meanDeltaE(image, PaletteQuantizer.quantize(image, 2)) > 5);
+    }
+
+    @Test
+    public void encodingsRoundTrip() throws Exception {
+        BufferedImage image = flag();
+        for (FlagEncoding encoding : FlagEncoding.values()) {
+            byte[] encoded = FlagImages.encode(image, encoding, 0.9f);
+            BufferedImage decoded = FlagImages.decode(encoded, encoding);
+
+            assertEquals(encoding.getName(), 90, decoded.getWidth());
+            assertEquals(encoding.getName(), 60, decoded.getHeight());
+            assertTrue(encoding.getName(), PerceptualError.meanDeltaE(image, decoded) < 3);
+        }
+        assertEquals(0.0, PerceptualError.meanDeltaE(image, FlagImages.decode(
+                FlagImages.encode(image, FlagEncoding.WEBP_LOSSLESS, 1f), FlagEncoding.WEBP_LOSSLESS)), 0.0);
+    }
+
+    @Test
+    public void scalesToTheDensity() {
+        BufferedImage scaled = FlagImages.scale(flag(), 160 / 320.0);
+
+        assertEquals(45, scaled.getWidth());
+        assertEquals(30, scaled.getHeight());
+        assertFalse(FlagImages.hasAlpha(scaled));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownEncodingIsRejected() {
+        FlagEncoding.forName("jpeg");
+    }
+}
@@ -0,0 +1,158 @@
+package edu.orangecoastcollege.cs273.flagquiz.build;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the flag features and the similarity index, on drawn tricolors and on the
+ * app's flags.
+ */
+public class FlagSimilarityIndexerTest {
+
+    private static final File FLAGS_DIR = new File("../app/src/main/assets");
+    private static final int NEIGHBORS = 16;
+
+    private static BufferedImage tricolor(Color first, Color second, Color third, boolean vertical) {
+        BufferedImage image = new BufferedImage(90, 60, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        Color[] colors = {first, second, third};
+        for (int i = 0; i < 3; i++) {
+            graphics.setColor(colors[i]);
+            if (vertical)
+                graphics.fillRect(30 * i, 0, 30, 60);
+            else
+                graphics.fillRect(0, 20 * i, 90, 20);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    @Test
+    public void stripesAndColorsMakeFlagsSimilar() {
+        Color blue = new Color(0, 43, 127);
+        Color yellow = new Color(252, 209, 22);
+        Color red = new Color(206, 17, 38);
+        float[] chad = FlagFeatures.extract(tricolor(blue, yellow, red, true));
+        float[] romania = FlagFeatures.extract(tricolor(new Color(0, 43, 127), new Color(252, 209, 22),
+                new Color(200, 16, 46), true));
+        float[] sideways = FlagFeatures.extract(tricolor(blue, yellow, red, false));
+        float[] italy = FlagFeatures.extract(tricolor(new Color(0, 146, 70), Color.WHITE, red, true));
+
+        assertEquals(FlagFeatures.DIMENSIONS, chad.length);
+        assertTrue(FlagFeatures.distance(chad, romania) < 5);
+        // same colors in other stripes, then other colors in the same stripes
+        assertTrue(FlagFeatures.distance(chad, sideways) > 10 * FlagFeatures.distance(chad, romania));
+        assertTrue(FlagFeatures.distance(chad, italy) > 10 * FlagFeatures.distance(chad, romania));
+        assertEquals(FlagFeatures.distance(chad, italy), FlagFeatures.distance(italy, chad), 0);
+    }
+
+    @Test
+    public void quantizingKeepsDistances() {
+        float[] a = FlagFeatures.extract(tricolor(Color.RED, Color.WHITE, Color.BLUE, false));
+        float[] b = FlagFeatures.extract(tricolor(Color.WHITE, Color.BLUE, Color.RED, false));
+        double exact = FlagFeatures.distance(a, b);
+        double quantized = FlagFeatures.distance(FlagFeatures.quantize(a), FlagFeatures.quantize(b));
+        assertEquals(exact, quantized, 0.01 * exact);
+    }
+
+    @Test
+    public void indexOfTheAppFlags() throws Exception {
+        Assume.assumeTrue(FLAGS_DIR.isDirectory());
+        FlagSimilarityIndexer indexer = new FlagSimilarityIndexer(FLAGS_DIR, NEIGHBORS);
+        List<String> flags = indexer.flags();
+        float[][] features = indexer.extractFeatures(flags);
+        byte[][] vectors = new byte[features.length][];
+        for (int i = 0; i < features.length; i++)
+            vectors[i] = FlagFeatures.quantize(features[i]);
+        int[][] table = indexer.nearestNeighbors(vectors);
+
+        // recall of the table against a brute force search of the full precision features
+        int found = 0;
+        for (int i = 0; i < flags.size(); i++) {
+            Set<Integer> exact = new HashSet<>();
+            for (int neighbor : bruteForce(features, i, NEIGHBORS))
+                exact.add(neighbor);
+            for (int neighbor : table[i])
+                if (exact.contains(neighbor))
+                    ++found;
+        }
+        double recall = found / (double) (flags.size() * NEIGHBORS);
+        System.out.println(String.format("Flag similarity recall@%d: %.3f over %d flags", NEIGHBORS, recall, flags.size()));
+        assertTrue("recall " + recall, recall >= 0.95);
+
+        // flags which are famously hard to tell apart
+        assertAmongNearest(flags, table, "Africa/Africa-Chad.png", "Europe/Europe-Romania.png", 3);
+        assertAmongNearest(flags, table, "Asia/Asia-Indonesia.png", "Europe/Europe-Monaco.png", 2);
+        assertAmongNearest(flags, table, "Oceania/Oceania-Australia.png", "Oceania/Oceania-New_Zealand.png", 2);
+    }
+
+    @Test
+    public void writesTheIndex() throws Exception {
+        Assume.assumeTrue(FLAGS_DIR.isDirectory());
+        File out = Files.createTempDirectory("similarity").toFile();
+        FlagSimilarityIndexer indexer = new FlagSimilarityIndexer(FLAGS_DIR, NEIGHBORS);
+        System.out.println(indexer.index(out));
+
+        File file = new File(out, FlagSimilarityIndexer.ASSET);
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            assertEquals(FlagSimilarityIndexer.MAGIC, in.readInt());
+            assertEquals(FlagSimilarityIndexer.VERSION, in.readShort());
+            assertEquals(indexer.flags().size(), in.readShort());
+            assertEquals(FlagFeatures.DIMENSIONS, in.readShort());
+            assertEquals(NEIGHBORS, in.readShort());
+        }
+        finally {
+            in.close();
+        }
+        assertTrue(file.delete());
+        assertTrue(out.delete());
+    }
+
+    private static void assertAmongNearest(List<String> flags, int[][] table, String flag, String lookAlike, int within) {
+        int[] row = table[flags.indexOf(flag)];
+        StringBuilder nearest = new StringBuilder();
+        for (int k = 0; k < within; k++) {
+            if (flags.get(row[k]).equals(lookAlike))
+                return;
+            nearest.append(' ').append(flags.get(row[k]));
+        }
+        fail(flag + " looks more like" + nearest + " than " + lookAlike);
+    }
+
+    private static int[] bruteForce(float[][] features, int flag, int count) {
+        final double[] distances = new double[features.length];
+        Integer[] others = new Integer[features.length - 1];
+        for (int j = 0, n = 0; j < features.length; j++) {
+            if (j != flag) {
+                distances[j] = FlagFeatures.distance(features[flag], features[j]);
+                others[n++] = j;
+            }
+        }
+        Arrays.sort(others, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(distances[a], distances[b]);
+            }
+        });
+        int[] nearest = new int[count];
+        for (int k = 0; k < count; k++)
+            nearest[k] = others[k];
+        return nearest;
+    }
+}
@@ -0,0 +1,545 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+
+/**
+ * AttemptLog keeps every guess the user makes (the country of the question, the country
+ * chosen, how long it took and when) across quizzes and sessions.
+ *
+ * record() only copies the attempt into an in-memory chunk and updates the per-country
+ * aggregates, so it never touches the disk and is cheap enough for makeGuess.  The chunks are
+ * appended to the log file on the writer Executor, all the ones recorded since the last write
+ * in a single write: whatever is recorded while one write is going on goes out with the next.
+ *
+ * Two files are kept in the log's directory:
+ *  - attempts.log, big-endian: int magic "FQAL", short version, long log id, then frames of
+ *    int record count (at most 256), count records of RECORD_BYTES (short country id, short chosen id,
+ *    int latency in milliseconds, long time in milliseconds) and the int CRC32 of the records.
+ *  - attempts.agg, big-endian: int magic "FQAG", short version, long id of the last log folded
+ *    into it, int country count, then per country int attempts, int correct attempts and
+ *    long total latency in milliseconds.
+ *
+ * Once the log passes the compaction size, the writer folds it into attempts.agg and starts a
+ * new log with the next id.  Both files are replaced by writing a temporary file and renaming
+ * it, and a log whose id is not newer than the one attempts.agg has folded is ignored, so a
+ * crash at any point neither loses nor double counts the attempts.  A crash in the middle of
+ * a write leaves a partial frame at the end of the log, which open() drops.
+ */
+public class AttemptLog {
+
+    static final int LOG_MAGIC = 0x4651414C; // "FQAL"
+    static final int AGGREGATE_MAGIC = 0x46514147; // "FQAG"
+    static final int VERSION = 1;
+    static final String LOG_FILE = "attempts.log";
+    static final String AGGREGATE_FILE = "attempts.agg";
+
+    /** The size of one attempt in the log. */
+    public static final int RECORD_BYTES = 2 + 2 + 4 + 8;
+    /** The default log size which triggers a compaction, about 65000 attempts. */
+    public static final long DEFAULT_COMPACT_BYTES = 1024 * 1024;
+
+    private static final int LOG_HEADER_BYTES = 4 + 2 + 8;
+    private static final int FRAME_OVERHEAD_BYTES = 4 + 4;
+    private static final int MAX_COUNTRIES = 0xFFFF;
+    private static final int CHUNK_RECORDS = 256; // one frame, 4 KB
+    private static final int MAX_FREE_CHUNKS = 16;
+
+    private final File mDirectory;
+    private final Executor mWriter;
+    private final long mCompactBytes;
+
+    // guarded by this: the attempts not handed to the writer yet and what has been recorded.
+    // Attempts go into fixed size chunks laid out as frames, so a burst of attempts never
+    // copies a buffer while the lock is held, and the writer only fills in count and CRC.
+    private ByteBuffer mChunk;
+    private final ArrayList<ByteBuffer> mFullChunks = new ArrayList<>();
+    private final ArrayList<ByteBuffer> mFreeChunks = new ArrayList<>();
+    private boolean mWriteScheduled;
+    private final Aggregates mLive;
+
+    // only used on the writer thread, after open(): what is on disk
+    private final Aggregates mDurable;
+    private long mLogId;
+    private FileChannel mLog;
+    private final CRC32 mCrc = new CRC32();
+    private long mWriteCount;
+    private long mCompactionCount;
+
+    private final Runnable mWriteTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                writeBatch();
+            }
+            catch (IOException e) {
+                // the attempts of this batch are lost, the next batch tries again
+                mWriteError = e;
+            }
+        }
+    };
+    private volatile IOException mWriteError;
+
+    private AttemptLog(File directory, Executor writer, long compactBytes) {
+        mDirectory = directory;
+        mWriter = writer;
+        mCompactBytes = compactBytes;
+        mLive = new Aggregates();
+        mDurable = new Aggregates();
+        mChunk = takeChunk();
+    }
+
+    /**
+     * Opens the log, reading the aggregates and replaying the attempts logged since the last
+     * compaction.  This reads files, so it must not be called on the main thread.
+     * @param directory where the log files are, created if needed.
+     * @param writer runs the writes, one at a time, e.g. a single thread executor.
+     * @return the log.
+     * @throws IOException if the files can not be read or created.
+     */
+    public static AttemptLog open(File directory, Executor writer) throws IOException {
+        return open(directory, writer, DEFAULT_COMPACT_BYTES);
+    }
+
+    /**
+     * @param directory where the log files are, created if needed.
+     * @param writer runs the writes, one at a time, e.g. a single thread executor.
+     * @param compactBytes the log size which triggers a compaction.
+     * @return the log.
+     * @throws IOException if the files can not be read or created.
+     */
+    public static AttemptLog open(File directory, Executor writer, long compactBytes) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Can not create " + directory);
+        AttemptLog log = new AttemptLog(directory, writer, compactBytes);
+        log.recover();
+        return log;
+    }
+
+    /**
+     * Records an attempt, without blocking on the disk.  May be called from any thread.
+     * @param countryId the catalog id of the question's country.
+     * @param chosenId the catalog id of the country the user chose.
+     * @param latencyMillis how long the user took.
+     * @param timeMillis when the guess was made, i.e. System.currentTimeMillis().
+     */
+    public void record(int countryId, int chosenId, int latencyMillis, long timeMillis) {
+        if (countryId < 0 || countryId >= MAX_COUNTRIES || chosenId < 0 || chosenId >= MAX_COUNTRIES)
+            throw new IllegalArgumentException("Country ids must be 0 to " + (MAX_COUNTRIES - 1));
+        boolean schedule;
+        synchronized (this) {
+            if (mChunk.remaining() < RECORD_BYTES + 4) {
+                mFullChunks.add(mChunk);
+                mChunk = takeChunk();
+            }
+            mChunk.putShort((short) countryId).putShort((short) chosenId)
+                    .putInt(latencyMillis).putLong(timeMillis);
+            mLive.add(countryId, countryId == chosenId, latencyMillis);
+            schedule = !mWriteScheduled;
+            mWriteScheduled = true;
+        }
+        if (schedule)
+            mWriter.execute(mWriteTask);
+    }
+
+    /**
+     * Writes the attempts recorded so far, e.g. when the app goes to the background.
+     * @return a task which is done once they are on disk; wait on it only off the main thread.
+     */
+    public FutureTask<Void> flush() {
+        FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                writeBatch();
+                mLog.force(false);
+                return null;
+            }
+        });
+        mWriter.execute(task);
+        return task;
+    }
+
+    /**
+     * Writes the attempts recorded so far and closes the log file.
+     * @return a task which is done once the log is closed.
+     */
+    public FutureTask<Void> close() {
+        FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                try {
+                    writeBatch();
+                    mLog.force(false);
+                }
+                finally {
+                    mLog.close();
+                }
+                return null;
+            }
+        });
+        mWriter.execute(task);
+        return task;
+    }
+
+    /**
+     * @param countryId a catalog id.
+     * @return how many guesses were made on its flag, ever.
+     */
+    public synchronized int getAttempts(int countryId) {
+        return mLive.getAttempts(countryId);
+    }
+
+    /**
+     * @param countryId a catalog id.
+     * @return how many of them were right.
+     */
+    public synchronized int getCorrect(int countryId) {
+        return mLive.getCorrect(countryId);
+    }
+
+    /**
+     * @param countryId a catalog id.
+     * @return the average time of the guesses on its flag, 0 if there were none.
+     */
+    public synchronized double getMeanLatencyMillis(int countryId) {
+        int attempts = mLive.getAttempts(countryId);
+        return attempts == 0 ? 0 : mLive.getLatency(countryId) / (double) attempts;
+    }
+
+    /**
+     * @return how many guesses were made, on every flag.
+     */
+    public synchronized long getTotalAttempts() {
+        return mLive.mTotalAttempts;
+    }
+
+    /**
+     * @return how many of them were right.
+     */
+    public synchronized long getTotalCorrect() {
+        return mLive.mTotalCorrect;
+    }
+
+    /**
+     * @return the error of the last write which failed, null if none did.
+     */
+    public IOException getWriteError() {
+        return mWriteError;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AttemptLog[" + mLive.mTotalAttempts + " attempts, " + mLive.mTotalCorrect + " correct, "
+                + mWriteCount + " writes, " + mCompactionCount + " compactions]";
+    }
+
+    // reads attempts.agg and replays attempts.log into both aggregates
+    private void recover() throws IOException {
+        long foldedLogId = readAggregates();
+        mLive.addAll(mDurable);
+
+        File logFile = new File(mDirectory, LOG_FILE);
+        long logId = readLogId(logFile);
+        if (logId <= foldedLogId) {
+            // no log, or one which was folded already by a compaction interrupted before it replaced the log
+            startLog(foldedLogId + 1);
+            return;
+        }
+        mLogId = logId;
+        mLog = new RandomAccessFile(logFile, "rw").getChannel();
+        long end = replay(mLog);
+        if (end < mLog.size())
+            mLog.truncate(end); // a write was interrupted, drop the partial frame
+        mLog.position(end);
+    }
+
+    // returns the id of the last log folded into attempts.agg, 0 if there is none
+    private long readAggregates() throws IOException {
+        File file = new File(mDirectory, AGGREGATE_FILE);
+        if (!file.exists())
+            return 0;
+        ByteBuffer buffer = ByteBuffer.wrap(readFully(file));
+        try {
+            if (buffer.getInt() != AGGREGATE_MAGIC)
+                throw new IOException("Not an attempt aggregate file");
+            int version = buffer.getShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported attempt aggregate version " + version);
+            long foldedLogId = buffer.getLong();
+            int countries = buffer.getInt();
+            for (int id = 0; id < countries; id++)
+                mDurable.set(id, buffer.getInt(), buffer.getInt(), buffer.getLong());
+            return foldedLogId;
+        }
+        catch (BufferUnderflowException e) {
+            throw new IOException("Truncated attempt aggregate file", e);
+        }
+    }
+
+    // returns the id of a log file, 0 if there is none or its header is incomplete
+    private static long readLogId(File file) throws IOException {
+        if (file.length() < LOG_HEADER_BYTES)
+            return 0;
+        FileInputStream in = new FileInputStream(file);
+        try {
+            byte[] header = new byte[LOG_HEADER_BYTES];
+            int read = 0;
+            while (read < header.length) {
+                int n = in.read(header, read, header.length - read);
+                if (n < 0)
+                    return 0;
+                read += n;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            if (buffer.getInt() != LOG_MAGIC)
+                throw new IOException("Not an attempt log");
+            int version = buffer.getShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported attempt log version " + version);
+            return buffer.getLong();
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    // adds every complete frame of the log to both aggregates, returns where the last one ends
+    private long replay(FileChannel log) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = LOG_HEADER_BYTES;
+        long size = log.size();
+        while (position + FRAME_OVERHEAD_BYTES <= size) {
+            buffer.clear().limit(4);
+            log.read(buffer, position);
+            int count = buffer.getInt(0);
+            long frameBytes = FRAME_OVERHEAD_BYTES + (long) count * RECORD_BYTES;
+            if (count <= 0 || position + frameBytes > size)
+                break;
+            if (buffer.capacity() < frameBytes)
+                buffer = ByteBuffer.allocate((int) frameBytes);
+            buffer.clear().limit((int) frameBytes);
+            while (buffer.hasRemaining())
+                if (log.read(buffer, position + buffer.position()) < 0)
+                    break;
+            mCrc.reset();
+            mCrc.update(buffer.array(), 4, count * RECORD_BYTES);
+            if ((int) mCrc.getValue() != buffer.getInt(4 + count * RECORD_BYTES))
+                break;
+            buffer.position(4);
+            for (int i = 0; i < count; i++) {
+                int countryId = buffer.getShort() & 0xFFFF;
+                int chosenId = buffer.getShort() & 0xFFFF;
+                int latency = buffer.getInt();
+                buffer.getLong();
+                mDurable.add(countryId, countryId == chosenId, latency);
+                mLive.add(countryId, countryId == chosenId, latency);
+            }
+            position += frameBytes;
+        }
+        return position;
+    }
+
+    // on the writer thread: appends the recorded chunks, one frame each, compacts if the log is big
+    private void writeBatch() throws IOException {
+        ByteBuffer[] chunks;
+        synchronized (this) {
+            mWriteScheduled = false;
+            if (mChunk.position() > 4) {
+                mFullChunks.add(mChunk);
+                mChunk = takeChunk();
+            }
+            if (mFullChunks.isEmpty())
+                return;
+            chunks = mFullChunks.toArray(new ByteBuffer[mFullChunks.size()]);
+            mFullChunks.clear();
+        }
+        long frameBytes = 0;
+        for (ByteBuffer chunk : chunks) {
+            int end = chunk.position();
+            mCrc.reset();
+            mCrc.update(chunk.array(), 4, end - 4);
+            chunk.putInt(0, (end - 4) / RECORD_BYTES);
+            chunk.putInt((int) mCrc.getValue());
+            chunk.flip();
+            frameBytes += chunk.remaining();
+        }
+        long start = mLog.position();
+        try {
+            long written = 0;
+            while (written < frameBytes)
+                written += mLog.write(chunks);
+        }
+        catch (IOException e) {
+            // drop the partial frame, or every frame appended after it would be lost on replay
+            mLog.truncate(start);
+            mLog.position(start);
+            throw e;
+        }
+        ++mWriteCount;
+
+        for (ByteBuffer chunk : chunks) {
+            int count = chunk.getInt(0);
+            chunk.position(4);
+            for (int i = 0; i < count; i++) {
+                int countryId = chunk.getShort() & 0xFFFF;
+                int chosenId = chunk.getShort() & 0xFFFF;
+                int latency = chunk.getInt();
+                chunk.getLong();
+                mDurable.add(countryId, countryId == chosenId, latency);
+            }
+        }
+        synchronized (this) {
+            for (int i = 0; i < chunks.length && mFreeChunks.size() < MAX_FREE_CHUNKS; i++)
+                mFreeChunks.add(chunks[i]);
+        }
+
+        if (mLog.position() >= mCompactBytes)
+            compact();
+    }
+
+    // on the writer thread: folds the log into attempts.agg, then starts the next log
+    private void compact() throws IOException {
+        mLog.force(false);
+        ByteBuffer aggregates = ByteBuffer.allocate(4 + 2 + 8 + 4 + mDurable.size() * (4 + 4 + 8));
+        aggregates.putInt(AGGREGATE_MAGIC).putShort((short) VERSION).putLong(mLogId).putInt(mDurable.size());
+        for (int id = 0; id < mDurable.size(); id++)
+            aggregates.putInt(mDurable.getAttempts(id)).putInt(mDurable.getCorrect(id)).putLong(mDurable.getLatency(id));
+        writeAtomically(new File(mDirectory, AGGREGATE_FILE), aggregates.array());
+        // a crash here leaves the old log, which is ignored since its id is folded already
+        mLog.close();
+        startLog(mLogId + 1);
+        ++mCompactionCount;
+    }
+
+    // guarded by this: an empty chunk, positioned after the room for the record count
+    private ByteBuffer takeChunk() {
+        ByteBuffer chunk = mFreeChunks.isEmpty()
+                ? ByteBuffer.allocate(4 + CHUNK_RECORDS * RECORD_BYTES + 4)
+                : mFreeChunks.remove(mFreeChunks.size() - 1);
+        chunk.clear();
+        chunk.position(4);
+        return chunk;
+    }
+
+    // replaces the log file with an empty log
+    private void startLog(long logId) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+        header.putInt(LOG_MAGIC).putShort((short) VERSION).putLong(logId);
+        File logFile = new File(mDirectory, LOG_FILE);
+        writeAtomically(logFile, header.array());
+        mLogId = logId;
+        mLog = new RandomAccessFile(logFile, "rw").getChannel();
+        mLog.position(LOG_HEADER_BYTES);
+    }
+
+    private static void writeAtomically(File file, byte[] bytes) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+        finally {
+            out.close();
+        }
+        if (!temp.renameTo(file))
+            throw new IOException("Can not rename " + temp + " to " + file);
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0)
+                    break;
+                read += n;
+            }
+            return read == bytes.length ? bytes : Arrays.copyOf(bytes, read);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    // per-country attempt counts, correct counts and latency totals, grown as ids show up
+    private static class Aggregates {
+        private int[] mAttempts = new int[0];
+        private int[] mCorrect = new int[0];
+        private long[] mLatency = new long[0];
+        private int mSize; // highest id seen + 1
+        long mTotalAttempts;
+        long mTotalCorrect;
+
+        int size() {
+            return mSize;
+        }
+
+        int getAttempts(int id) {
+            return id < mAttempts.length ? mAttempts[id] : 0;
+        }
+
+        int getCorrect(int id) {
+            return id < mCorrect.length ? mCorrect[id] : 0;
+        }
+
+        long getLatency(int id) {
+            return id < mLatency.length ? mLatency[id] : 0;
+        }
+
+        void add(int id, boolean correct, int latencyMillis) {
+            ensureSize(id + 1);
+            ++mAttempts[id];
+            ++mTotalAttempts;
+            if (correct) {
+                ++mCorrect[id];
+                ++mTotalCorrect;
+            }
+            mLatency[id] += latencyMillis;
+        }
+
+        void set(int id, int attempts, int correct, long latency) {
+            ensureSize(id + 1);
+            mTotalAttempts += attempts - mAttempts[id];
+            mTotalCorrect += correct - mCorrect[id];
+            mAttempts[id] = attempts;
+            mCorrect[id] = correct;
+            mLatency[id] = latency;
+        }
+
+        void addAll(Aggregates other) {
+            for (int id = 0; id < other.size(); id++) {
+                ensureSize(id + 1);
+                mAttempts[id] += other.mAttempts[id];
+                mCorrect[id] += other.mCorrect[id];
+                mLatency[id] += other.mLatency[id];
+            }
+            mTotalAttempts += other.mTotalAttempts;
+            mTotalCorrect += other.mTotalCorrect;
+        }
+
+        private void ensureSize(int size) {
+            if (size > mAttempts.length) {
+                int capacity = Math.max(size, mAttempts.length * 2);
+                mAttempts = Arrays.copyOf(mAttempts, capacity);
+                mCorrect = Arrays.copyOf(mCorrect, capacity);
+                mLatency = Arrays.copyOf(mLatency, capacity);
+            }
+            mSize = Math.max(mSize, size);
+        }
+    }
+}
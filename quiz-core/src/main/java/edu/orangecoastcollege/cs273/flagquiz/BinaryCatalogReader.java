@@ -0,0 +1,77 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * BinaryCatalogReader loads the Countries.bin asset produced at build time by the
+ * compileCountryCatalog Gradle task (see app/catalog.gradle) from Countries.json.
+ *
+ * The file is big-endian and laid out as:
+ *  - int magic "FQCT" and short version
+ *  - int string count, then (count + 1) int offsets into the string blob, then the UTF-8 blob
+ *  - short region count (at most CountryCatalog.MAX_REGIONS), then one int string index per
+ *    region name
+ *  - int country count, then for every country:
+ *      int name string index, byte region id, int flag file name string index
+ *
+ * Because flag file names are precomputed at build time, no string manipulation is
+ * needed to create the Countries at runtime.
+ */
+public class BinaryCatalogReader {
+
+    static final int MAGIC = 0x46514354; // "FQCT"
+    static final int VERSION = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Reads every Country from a buffer holding a whole Countries.bin file, the buffer can be
+     * a memory mapped region of the asset.
+     *
+     * @param buffer the catalog, read from its current position.
+     * @return every Country in catalog order.
+     * @throws IOException if the buffer does not contain a valid catalog.
+     */
+    public static CountryCatalog read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a country catalog");
+            int version = buffer.getShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported country catalog version " + version);
+
+            // string table
+            int stringCount = buffer.getInt();
+            int[] offsets = new int[stringCount + 1];
+            for (int i = 0; i <= stringCount; i++)
+                offsets[i] = buffer.getInt();
+            byte[] blob = new byte[offsets[stringCount]];
+            buffer.get(blob);
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++)
+                strings[i] = new String(blob, offsets[i], offsets[i + 1] - offsets[i], UTF_8);
+
+            // region names
+            String[] regions = new String[buffer.getShort() & 0xFFFF];
+            for (int i = 0; i < regions.length; i++)
+                regions[i] = strings[buffer.getInt()];
+
+            // countries
+            int countryCount = buffer.getInt();
+            CountryCatalog.Builder catalog = new CountryCatalog.Builder(countryCount);
+            for (int i = 0; i < countryCount; i++) {
+                String name = strings[buffer.getInt()];
+                String region = regions[buffer.get() & 0xFF];
+                String fileName = strings[buffer.getInt()];
+                catalog.add(name, region, fileName);
+            }
+            return catalog.build();
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Truncated or corrupt country catalog", e);
+        }
+    }
+}
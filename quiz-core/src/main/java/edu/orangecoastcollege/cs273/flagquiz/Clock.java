@@ -0,0 +1,23 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+/**
+ * A source of monotonic time, so code which measures or waits for time can be unit tested
+ * with a clock the test moves forward itself.
+ */
+public interface Clock {
+
+    /**
+     * The clock of the system, System.nanoTime().
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * @return the current time in nanoseconds, only differences between two calls mean anything.
+     */
+    long nanoTime();
+}
@@ -0,0 +1,175 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+
+/**
+ * This Country class is used to model Country objects.
+ *
+ * A 'Country' has a name, region and filename.
+ *
+ * We use 10 Country objects for the user to guess their respective
+ * flags from, which is how the app is used/played.
+ *
+ * The countries themselves are stored in a CountryCatalog, column by column.
+ * A Country is a thin view of one entry of a catalog: it only holds the catalog
+ * and the country's id (its index in the catalog).
+ *
+ * There are accessor methods, a Country can not be changed.
+ * There are constructors which create a Country outside of a catalog, e.g. for tests.
+ * Such a Country holds its name, region and fileName itself, the flag's fileName is
+ * created from the country's region and name and appends .png.
+ *
+ * The last three methods: equals, getHashCode and toString
+ * are overriden from Java's Object class.  These allow two
+ * countries to be compared or displayed.
+ */
+public class Country {
+
+    private final CountryCatalog mCatalog; // null outside of a catalog
+    private final int mId;
+    // the country itself when it is not in a catalog
+    private final String mName;
+    private final String mRegion;
+    private final String mFileName;
+    private int mHashCode; // cached, 0 until hashCode is first called
+
+    /**
+     *
+     * Country is a parameterized constructor which accepts two arguments,
+     * name and region.  The file name of the picture to be looked up and
+     * displayed is constructed from the name and region appended to .png.
+     *
+     * @param name of the country.
+     * @param region which area of the world the country resides.
+     */
+    public Country(String name, String region) {
+        this(name, region, CountryCatalog.fileName(name, region));
+    }
+
+    /**
+     *
+     * Country is a parameterized constructor for when the file name of the flag is already
+     * known, i.e. it was precomputed at build time in the binary catalog.
+     *
+     * @param name of the country.
+     * @param region which area of the world the country resides.
+     * @param fileName the path of the country's flag in the assets directory.
+     */
+    public Country(String name, String region, String fileName) {
+        mCatalog = null;
+        mId = 0;
+        mName = name;
+        mRegion = region;
+        mFileName = fileName;
+    }
+
+    /**
+     * Creates a view of a country in a catalog, use CountryCatalog.getCountry.
+     *
+     * @param catalog the catalog the country is in.
+     * @param id the country's index in the catalog.
+     */
+    Country(CountryCatalog catalog, int id) {
+        mCatalog = catalog;
+        mId = id;
+        mName = null;
+        mRegion = null;
+        mFileName = null;
+    }
+
+    /**
+     *
+     * @return the catalog this country is in, null if it was created outside of one.
+     */
+    public CountryCatalog getCatalog() {
+        return mCatalog;
+    }
+
+    /**
+     *
+     * @return the country's id, its index in its catalog (0 outside of a catalog).
+     */
+    public int getId() {
+        return mId;
+    }
+
+    /**
+     *
+     * @return the country's name.
+     */
+    public String getName() { return mCatalog != null ? mCatalog.getName(mId) : mName; }
+
+    /**
+     *
+     * @return get country's region of the world where it resides,
+     * i.e. North America or Africa.
+     */
+    public String getRegion() {
+        return mCatalog != null ? mCatalog.getRegion(mId) : mRegion;
+    }
+
+    /**
+     *
+     * @return the fileName of the Country's flag as a .png
+     */
+    public String getFileName() {
+        return mCatalog != null ? mCatalog.getFileName(mId) : mFileName;
+    }
+
+    /**
+     * This method is inherited by all objects in Java.
+     * We must write our own implementation which makes sense for a Country object.
+     * Two views of the same catalog are the same Country if their ids are the same.
+     * Otherwise if the two objects' names, regions and file names are the same then the
+     * Countries are the same.
+     * @param o is the object "this" object is being compared against
+     * @return
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Country country = (Country) o;
+
+        if (mCatalog != null && mCatalog == country.mCatalog) return mId == country.mId;
+        if (!getName().equals(country.getName())) return false;
+        if (!getRegion().equals(country.getRegion())) return false;
+        return getFileName().equals(country.getFileName());
+
+    }
+
+    /**
+     * This is another method inherited by all objects in Java.
+     * hashCode is used to ensure that if two objects are the same according to the equals method,
+     * then their hashCodes should match.  i.e. if object1 == object2 then their hashCodes
+     * are the same.  The hashCode is only computed once.
+     * @return
+     */
+    @Override
+    public int hashCode() {
+        int result = mHashCode;
+        if (result == 0) {
+            result = getName().hashCode();
+            result = 31 * result + getRegion().hashCode();
+            result = 31 * result + getFileName().hashCode();
+            mHashCode = result;
+        }
+        return result;
+    }
+
+    /**
+     * Yet another method inherited by all objects in Java.
+     * The default object implementation of this method provides scant information.
+     * By overriding toString, when we print an object, we can customize what information
+     * will be displayed.
+     * @return
+     */
+    @Override
+    public String toString() {
+        return "Country{" +
+                "Name='" + getName() + '\'' +
+                ", Region='" + getRegion() + '\'' +
+                ", FileName='" + getFileName() + '\'' +
+                '}';
+    }
+}
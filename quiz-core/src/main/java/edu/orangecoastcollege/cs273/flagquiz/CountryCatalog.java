@@ -0,0 +1,225 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * CountryCatalog holds every country of the quiz as columns (struct of arrays) instead of
+ * one object per country:
+ *  - the names, one String per country
+ *  - the region of every country as a byte id, and one String per distinct region
+ *  - the flag file names, either given when the catalog is built (the binary catalog stores
+ *    them) or built the first time they are asked for
+ *
+ * A country is identified by its int id, its index in the catalog.  Quiz state refers to
+ * countries by id, and two ids of the same catalog are equal only if they are the same
+ * country.  Country objects are thin views (catalog + id) for code which wants an object.
+ *
+ * A catalog is immutable once built, so it can be shared between threads.
+ * Catalogs are built with a CountryCatalog.Builder.
+ */
+public class CountryCatalog {
+
+    /** Most regions a catalog can have, region ids are stored as (unsigned) bytes. */
+    public static final int MAX_REGIONS = 256;
+
+    private final String[] mNames;
+    private final byte[] mRegionIds;
+    private final String[] mRegionNames;
+    // flag file names, null entries are built from the name and region when needed
+    private final String[] mFileNames;
+    private List<Country> mCountries;
+
+    private CountryCatalog(String[] names, byte[] regionIds, String[] regionNames, String[] fileNames) {
+        mNames = names;
+        mRegionIds = regionIds;
+        mRegionNames = regionNames;
+        mFileNames = fileNames;
+    }
+
+    /**
+     * @return how many countries are in the catalog, ids go from 0 to size() - 1.
+     */
+    public int size() {
+        return mNames.length;
+    }
+
+    /**
+     * @param id a country id.
+     * @return the country's name.
+     */
+    public String getName(int id) {
+        return mNames[id];
+    }
+
+    /**
+     * @param id a country id.
+     * @return the id of the country's region, 0 to getRegionCount() - 1.
+     */
+    public int getRegionId(int id) {
+        return mRegionIds[id] & 0xFF;
+    }
+
+    /**
+     * @param id a country id.
+     * @return the name of the country's region.
+     */
+    public String getRegion(int id) {
+        return mRegionNames[mRegionIds[id] & 0xFF];
+    }
+
+    /**
+     * @return how many distinct regions the countries are in.
+     */
+    public int getRegionCount() {
+        return mRegionNames.length;
+    }
+
+    /**
+     * @param regionId a region id.
+     * @return the region's name.
+     */
+    public String getRegionName(int regionId) {
+        return mRegionNames[regionId];
+    }
+
+    /**
+     * @param id a country id.
+     * @return the path of the country's flag in the assets folder, i.e. "Africa/Africa-Chad.png".
+     */
+    public String getFileName(int id) {
+        String fileName = mFileNames[id];
+        if (fileName == null) {
+            // Strings are immutable, so building the same name twice on two threads is harmless
+            fileName = fileName(mNames[id], getRegion(id));
+            mFileNames[id] = fileName;
+        }
+        return fileName;
+    }
+
+    /**
+     * @param id a country id.
+     * @return a Country view of the country.
+     */
+    public Country getCountry(int id) {
+        if (id < 0 || id >= mNames.length)
+            throw new IndexOutOfBoundsException("No country " + id + " in a catalog of " + mNames.length);
+        return new Country(this, id);
+    }
+
+    /**
+     * @return every country as a read only list of Country views, in id order.
+     */
+    public List<Country> asList() {
+        if (mCountries == null)
+            mCountries = new CountryList();
+        return mCountries;
+    }
+
+    /**
+     * Builds the flag's file name the way the assets folder is organized: the name and
+     * region with spaces replaced by underscores, as Region/Region-Name.png.
+     * @param name the country's name.
+     * @param region the country's region.
+     * @return the path of the flag in the assets folder.
+     */
+    public static String fileName(String name, String region) {
+        String folder = region.replace(' ', '_');
+        return folder + "/" + folder + "-" + name.replace(' ', '_') + ".png";
+    }
+
+    private class CountryList extends AbstractList<Country> implements RandomAccess {
+        @Override
+        public Country get(int id) {
+            return getCountry(id);
+        }
+
+        @Override
+        public int size() {
+            return mNames.length;
+        }
+    }
+
+    /**
+     * Builds a CountryCatalog one country at a time.  Region names are stored once, however
+     * many countries are in the region.
+     */
+    public static class Builder {
+        private String[] mNames;
+        private byte[] mRegionIds;
+        private String[] mFileNames;
+        private int mSize;
+        private final List<String> mRegionNames = new ArrayList<>();
+        private final Map<String, Integer> mRegionIdsByName = new HashMap<>();
+
+        /**
+         * Creates a builder for an unknown number of countries.
+         */
+        public Builder() {
+            this(256);
+        }
+
+        /**
+         * @param expectedSize how many countries will be added, the builder grows if needed.
+         */
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 1);
+            mNames = new String[capacity];
+            mRegionIds = new byte[capacity];
+            mFileNames = new String[capacity];
+        }
+
+        /**
+         * Adds a country, its flag file name is built when it is first needed.
+         * @param name the country's name.
+         * @param region the country's region.
+         * @return this builder.
+         */
+        public Builder add(String name, String region) {
+            return add(name, region, null);
+        }
+
+        /**
+         * Adds a country with a known flag file name.
+         * @param name the country's name.
+         * @param region the country's region.
+         * @param fileName the path of the country's flag in the assets folder, or null.
+         * @return this builder.
+         * @throws IllegalStateException if the catalog would have more than MAX_REGIONS regions.
+         */
+        public Builder add(String name, String region, String fileName) {
+            if (mSize == mNames.length) {
+                int capacity = mSize * 2;
+                mNames = Arrays.copyOf(mNames, capacity);
+                mRegionIds = Arrays.copyOf(mRegionIds, capacity);
+                mFileNames = Arrays.copyOf(mFileNames, capacity);
+            }
+            Integer regionId = mRegionIdsByName.get(region);
+            if (regionId == null) {
+                if (mRegionNames.size() == MAX_REGIONS)
+                    throw new IllegalStateException("A catalog can not have more than " + MAX_REGIONS + " regions");
+                regionId = mRegionNames.size();
+                mRegionIdsByName.put(region, regionId);
+                mRegionNames.add(region);
+            }
+            mNames[mSize] = name;
+            mRegionIds[mSize] = (byte) (int) regionId;
+            mFileNames[mSize] = fileName;
+            ++mSize;
+            return this;
+        }
+
+        /**
+         * @return the catalog of every country added so far.
+         */
+        public CountryCatalog build() {
+            return new CountryCatalog(Arrays.copyOf(mNames, mSize), Arrays.copyOf(mRegionIds, mSize),
+                    mRegionNames.toArray(new String[mRegionNames.size()]), Arrays.copyOf(mFileNames, mSize));
+        }
+    }
+}
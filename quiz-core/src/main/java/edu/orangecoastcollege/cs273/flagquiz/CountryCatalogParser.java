@@ -0,0 +1,317 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CountryCatalogParser is a small streaming (pull) parser for Countries.json.
+ *
+ * Instead of reading the whole file into a String and building a JSON DOM, the parser
+ * reads the file through a fixed size char buffer and hands each Country to a
+ * CountryHandler as soon as its closing brace has been read.
+ *
+ * The expected document looks like:
+ *  { "Countries": [ { "Name": "Algeria", "Region": "Africa" }, ... ] }
+ *
+ * Unknown keys (at the root or inside a country) are skipped, so the file can grow
+ * new fields without breaking older versions of the app.
+ */
+public class CountryCatalogParser {
+
+    /**
+     * Receives the countries as they are parsed.
+     */
+    public interface CountryHandler {
+        /**
+         * @param name the country's name.
+         * @param region the country's region, the same String instance is reused for
+         *               every country of the same region.
+         */
+        void onCountry(String name, String region);
+    }
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // size of the char window the parser reads through, the file is never buffered as a whole
+    static final int BUFFER_SIZE = 2048;
+
+    private static final char[] COUNTRIES_KEY = "Countries".toCharArray();
+    private static final char[] NAME_KEY = "Name".toCharArray();
+    private static final char[] REGION_KEY = "Region".toCharArray();
+
+    private final Reader mReader;
+    private final char[] mBuffer;
+    private int mPos; // next char to read in mBuffer
+    private int mLimit; // number of valid chars in mBuffer
+    private long mOffset; // chars consumed before mBuffer[0], used in error messages
+
+    // scratch space for the string currently being read (grows if a value is very long)
+    private char[] mScratch = new char[64];
+    private int mScratchLength;
+
+    // regions repeat for every country, so we keep one String per distinct region
+    private final List<String> mRegions = new ArrayList<>();
+
+    /**
+     * @param reader the source of the JSON text, it is read in BUFFER_SIZE chunks.
+     */
+    public CountryCatalogParser(Reader reader) {
+        this(reader, BUFFER_SIZE);
+    }
+
+    CountryCatalogParser(Reader reader, int bufferSize) {
+        mReader = reader;
+        mBuffer = new char[bufferSize];
+    }
+
+    /**
+     * Convenience method which parses a UTF-8 encoded stream into a CountryCatalog.
+     * The stream is not closed.
+     *
+     * @param in the stream containing Countries.json.
+     * @return every Country in the order they appear in the file.
+     * @throws IOException if the stream can not be read or is not valid JSON.
+     */
+    public static CountryCatalog parse(InputStream in) throws IOException {
+        final CountryCatalog.Builder catalog = new CountryCatalog.Builder();
+        new CountryCatalogParser(new InputStreamReader(in, UTF_8)).parse(new CountryHandler() {
+            @Override
+            public void onCountry(String name, String region) {
+                catalog.add(name, region);
+            }
+        });
+        return catalog.build();
+    }
+
+    /**
+     * Parses the whole document, calling the handler once for every country that has both
+     * a Name and a Region.
+     *
+     * @param handler receives the countries as they are read.
+     * @throws IOException if the reader fails or the document is not valid JSON.
+     */
+    public void parse(CountryHandler handler) throws IOException {
+        expect('{');
+        if (nextNonWhitespace() == '}')
+            return;
+        mPos--;
+
+        do {
+            readString();
+            expect(':');
+            if (scratchEquals(COUNTRIES_KEY))
+                parseCountries(handler);
+            else
+                skipValue();
+        } while (nextSeparator('}'));
+    }
+
+    private void parseCountries(CountryHandler handler) throws IOException {
+        expect('[');
+        if (nextNonWhitespace() == ']')
+            return;
+        mPos--;
+
+        do {
+            parseCountry(handler);
+        } while (nextSeparator(']'));
+    }
+
+    private void parseCountry(CountryHandler handler) throws IOException {
+        expect('{');
+        String name = null;
+        String region = null;
+
+        if (nextNonWhitespace() != '}') {
+            mPos--;
+            do {
+                readString();
+                expect(':');
+                if (scratchEquals(NAME_KEY)) {
+                    readString();
+                    name = new String(mScratch, 0, mScratchLength);
+                }
+                else if (scratchEquals(REGION_KEY)) {
+                    readString();
+                    region = region();
+                }
+                else
+                    skipValue();
+            } while (nextSeparator('}'));
+        }
+
+        if (name != null && region != null)
+            handler.onCountry(name, region);
+    }
+
+    // returns the shared String for the region currently in the scratch buffer
+    private String region() {
+        for (int i = 0; i < mRegions.size(); i++) {
+            String region = mRegions.get(i);
+            if (scratchEquals(region))
+                return region;
+        }
+        String region = new String(mScratch, 0, mScratchLength);
+        mRegions.add(region);
+        return region;
+    }
+
+    // reads either a ',' (returns true) or the closing char (returns false)
+    private boolean nextSeparator(char close) throws IOException {
+        char c = nextNonWhitespace();
+        if (c == ',')
+            return true;
+        if (c == close)
+            return false;
+        throw syntaxError("Expected ',' or '" + close + "' but was '" + c + "'");
+    }
+
+    private void expect(char expected) throws IOException {
+        char c = nextNonWhitespace();
+        if (c != expected)
+            throw syntaxError("Expected '" + expected + "' but was '" + c + "'");
+    }
+
+    // reads a quoted string into mScratch, the opening quote must be the next non whitespace char
+    private void readString() throws IOException {
+        expect('"');
+        mScratchLength = 0;
+        while (true) {
+            char c = nextChar();
+            if (c == '"')
+                return;
+            if (c == '\\')
+                c = readEscape();
+            if (mScratchLength == mScratch.length) {
+                char[] bigger = new char[mScratch.length * 2];
+                System.arraycopy(mScratch, 0, bigger, 0, mScratchLength);
+                mScratch = bigger;
+            }
+            mScratch[mScratchLength++] = c;
+        }
+    }
+
+    private char readEscape() throws IOException {
+        char c = nextChar();
+        switch (c) {
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(nextChar(), 16);
+                    if (digit < 0)
+                        throw syntaxError("Invalid unicode escape");
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            default:
+                throw syntaxError("Invalid escape '\\" + c + "'");
+        }
+    }
+
+    // skips a value of any type, nested objects and arrays included
+    private void skipValue() throws IOException {
+        char c = nextNonWhitespace();
+        switch (c) {
+            case '"':
+                mPos--;
+                readString();
+                break;
+            case '{':
+                if (nextNonWhitespace() == '}')
+                    break;
+                mPos--;
+                do {
+                    readString();
+                    expect(':');
+                    skipValue();
+                } while (nextSeparator('}'));
+                break;
+            case '[':
+                if (nextNonWhitespace() == ']')
+                    break;
+                mPos--;
+                do {
+                    skipValue();
+                } while (nextSeparator(']'));
+                break;
+            default:
+                // number, true, false or null: consume until a structural char
+                if (!isLiteral(c))
+                    throw syntaxError("Unexpected '" + c + "'");
+                while (fill() && isLiteral(mBuffer[mPos]))
+                    mPos++;
+        }
+    }
+
+    private static boolean isLiteral(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || c == '-' || c == '+' || c == '.'
+                || c == 'E';
+    }
+
+    private char nextNonWhitespace() throws IOException {
+        while (true) {
+            char c = nextChar();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                return c;
+        }
+    }
+
+    private char nextChar() throws IOException {
+        if (!fill())
+            throw syntaxError("Unexpected end of input");
+        return mBuffer[mPos++];
+    }
+
+    // makes sure at least one char is available, a read may return fewer chars than asked for
+    private boolean fill() throws IOException {
+        if (mPos < mLimit)
+            return true;
+        mOffset += mLimit;
+        mPos = 0;
+        mLimit = 0;
+        int read;
+        do {
+            read = mReader.read(mBuffer, 0, mBuffer.length);
+        } while (read == 0);
+        if (read < 0)
+            return false;
+        mLimit = read;
+        return true;
+    }
+
+    private boolean scratchEquals(char[] key) {
+        if (key.length != mScratchLength)
+            return false;
+        for (int i = 0; i < mScratchLength; i++)
+            if (mScratch[i] != key[i])
+                return false;
+        return true;
+    }
+
+    private boolean scratchEquals(String s) {
+        if (s.length() != mScratchLength)
+            return false;
+        for (int i = 0; i < mScratchLength; i++)
+            if (mScratch[i] != s.charAt(i))
+                return false;
+        return true;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed Countries.json at char " + (mOffset + mPos) + ": " + message);
+    }
+}
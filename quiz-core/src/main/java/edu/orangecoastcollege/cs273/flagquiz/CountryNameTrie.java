@@ -0,0 +1,431 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * CountryNameTrie suggests countries while the player types a country name, in the typed
+ * answer mode.  Names are matched after folding case and accents and ignoring punctuation, so
+ * "cote d" finds "C\u00f4te d'Ivoire", and up to a few typos are forgiven: "Chian" finds "China"
+ * and "Swtizerland" finds "Switzerland".
+ *
+ * The trie is stored in a few parallel arrays with its nodes in depth first (preorder) order,
+ * so every node's subtree is one contiguous run of nodes and of country ids:
+ *  - mLabels, the character on the edge into every node
+ *  - mEnds, the node after the last node of every node's subtree, which is also the next
+ *    sibling of the node
+ *  - mValueStarts, where the country ids of every node start in mValues, so the countries of
+ *    a whole subtree are mValues[mValueStarts[node]] to mValues[mValueStarts[mEnds[node]]]
+ * A country can be added under several names (i.e. its localized names), and a name can
+ * belong to several countries.
+ *
+ * A Matcher searches the trie with a Damerau-Levenshtein (optimal string alignment) row per
+ * depth, pruning branches which are already too many edits away, and keeps the best few
+ * suggestions: the fewest edits first, then in alphabetical order.  All its buffers are
+ * allocated up front, so a keystroke does not allocate.
+ *
+ * The trie is immutable and can be shared by threads, every thread needs its own Matcher.
+ */
+public class CountryNameTrie {
+
+    /** The most typos a search may forgive. */
+    public static final int MAX_EDITS = 3;
+
+    private static final char SPACE = ' ';
+    // folded characters of U+0000 to U+024F (Latin up to Latin Extended-B), 0 if dropped
+    private static final char[] FOLDED = foldTable();
+
+    private final char[] mLabels; // node -> the character of the edge into it, 0 for the root
+    private final int[] mEnds; // node -> end of its subtree
+    private final int[] mValueStarts; // node -> index of its first country id in mValues
+    private final int[] mValues; // country ids, in the order of their nodes
+    private final int mMaxKeyLength;
+
+    private CountryNameTrie(char[] labels, int[] ends, int[] valueStarts, int[] values, int maxKeyLength) {
+        mLabels = labels;
+        mEnds = ends;
+        mValueStarts = valueStarts;
+        mValues = values;
+        mMaxKeyLength = maxKeyLength;
+    }
+
+    /**
+     * @param catalog the countries.
+     * @return a trie of the names of every country of the catalog.
+     */
+    public static CountryNameTrie of(CountryCatalog catalog) {
+        Builder builder = new Builder();
+        for (int id = 0; id < catalog.size(); id++)
+            builder.add(catalog.getName(id), id);
+        return builder.build();
+    }
+
+    /**
+     * How many typos are forgiven for an answer typed so far: none for the first two letters,
+     * which match too many names already, one up to five letters and two after that.
+     * @param typedLength the length of the typed text.
+     * @return the edits to pass to Matcher.match().
+     */
+    public static int maxEdits(int typedLength) {
+        return typedLength <= 2 ? 0 : typedLength <= 5 ? 1 : 2;
+    }
+
+    /**
+     * @return how many nodes the trie has, the root included.
+     */
+    public int getNodeCount() {
+        return mLabels.length;
+    }
+
+    /**
+     * @return how many names the trie has.
+     */
+    public int size() {
+        return mValues.length;
+    }
+
+    /**
+     * @param suggestions the most suggestions a search keeps.
+     * @return a new Matcher, for one thread.
+     */
+    public Matcher newMatcher(int suggestions) {
+        return new Matcher(suggestions);
+    }
+
+    /**
+     * Folds a name the way the trie matches it: lower case, without accents, words separated
+     * by single spaces and other punctuation dropped.  "Dem. Rep. of the Congo" is
+     * "dem rep of the congo" and "Timor-Leste" is "timor leste".
+     * @param name a name.
+     * @param folded receives the folded name.
+     * @return the length of the folded name, or -1 if it does not fit in folded.
+     */
+    static int fold(CharSequence name, char[] folded) {
+        int length = 0;
+        boolean space = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = fold(name.charAt(i));
+            if (c == 0)
+                continue;
+            if (c == SPACE) {
+                space = length > 0; // no leading space
+                continue;
+            }
+            if (space) {
+                if (length == folded.length)
+                    return -1;
+                folded[length++] = SPACE;
+                space = false;
+            }
+            if (length == folded.length)
+                return -1;
+            folded[length++] = c;
+        }
+        // a trailing space is kept, "united " is on its way to "united states"
+        if (space) {
+            if (length == folded.length)
+                return -1;
+            folded[length++] = SPACE;
+        }
+        return length;
+    }
+
+    private static char fold(char c) {
+        if (c < FOLDED.length)
+            return FOLDED[c];
+        if (Character.isLetterOrDigit(c))
+            return Character.toLowerCase(c);
+        return Character.isWhitespace(c) ? SPACE : 0;
+    }
+
+    private static char[] foldTable() {
+        char[] table = new char[0x250];
+        for (char c = 0; c < table.length; c++) {
+            if (Character.isLetterOrDigit(c)) {
+                // the base letter of an accented letter is the first character of its decomposition
+                char base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+                table[c] = Character.toLowerCase(Character.isLetterOrDigit(base) ? base : c);
+            }
+            else if (Character.isWhitespace(c) || c == '-' || c == '_' || c == '/')
+                table[c] = SPACE;
+        }
+        return table;
+    }
+
+    /**
+     * Searches a CountryNameTrie for the names starting with what was typed so far, and keeps
+     * the best suggestions.  It is reused for every keystroke and must only be used by one
+     * thread at a time.
+     */
+    public class Matcher {
+
+        private final char[] mQuery;
+        private final int[][] mRows; // depth -> edit distances of the query prefixes to the node's prefix
+        private final int[] mIds; // the suggestions, fewest edits then alphabetical
+        private final int[] mEdits;
+        private int mQueryLength;
+        private int mMaxEdits;
+        private int mCount;
+
+        private Matcher(int suggestions) {
+            if (suggestions <= 0)
+                throw new IllegalArgumentException("A Matcher needs room for a suggestion, not " + suggestions);
+            // a longer query is more than MAX_EDITS edits away from every name
+            mQuery = new char[mMaxKeyLength + MAX_EDITS];
+            mRows = new int[mMaxKeyLength + 1][mQuery.length + 1];
+            mIds = new int[suggestions];
+            mEdits = new int[suggestions];
+        }
+
+        /**
+         * Finds the countries with a name which starts with typed, give or take maxEdits typos
+         * (a wrong, missing, extra or swapped letter each).
+         * @param typed the text typed so far, an empty text matches every name.
+         * @param maxEdits how many typos are forgiven, 0 to MAX_EDITS.
+         * @return how many suggestions were found, at most the size of the Matcher.
+         */
+        public int match(CharSequence typed, int maxEdits) {
+            if (maxEdits < 0 || maxEdits > MAX_EDITS)
+                throw new IllegalArgumentException("Edits must be 0 to " + MAX_EDITS + ", not " + maxEdits);
+            mCount = 0;
+            mQueryLength = fold(typed, mQuery);
+            if (mQueryLength < 0)
+                return 0;
+            // names with fewer edits come first, so the more forgiving searches are only
+            // needed while there is room for more suggestions
+            for (int edits = 0; edits <= maxEdits && !isFull(); edits++) {
+                mMaxEdits = edits;
+                int[] root = mRows[0];
+                for (int j = 0; j <= mQueryLength; j++)
+                    root[j] = Math.min(j, edits + 1);
+                visit(0, 0, root[mQueryLength], 0);
+            }
+            return mCount;
+        }
+
+        /**
+         * @return how many suggestions the last match() found.
+         */
+        public int getCount() {
+            return mCount;
+        }
+
+        /**
+         * @param rank a suggestion, 0 is the best.
+         * @return the suggested country id.
+         */
+        public int getCountryId(int rank) {
+            return mIds[rank];
+        }
+
+        /**
+         * @param rank a suggestion, 0 is the best.
+         * @return how many typos the suggestion forgave.
+         */
+        public int getEdits(int rank) {
+            return mEdits[rank];
+        }
+
+        /**
+         * @param typed a country name.
+         * @return the id of a country with exactly this name (after folding), -1 if none.
+         */
+        public int find(CharSequence typed) {
+            int length = fold(typed, mQuery);
+            int node = 0;
+            for (int i = 0; i < length && node >= 0; i++)
+                node = child(node, mQuery[i]);
+            if (length < 0 || node < 0 || mValueStarts[node] == mValueStarts[node + 1])
+                return -1;
+            return mValues[mValueStarts[node]];
+        }
+
+        // best is the fewest edits of the query to any prefix of the node's name, min the
+        // lowest cell of its row.  Only the cells of a row at most mMaxEdits from its diagonal
+        // can be within mMaxEdits, they are the only ones computed, with a cell of too many
+        // (mMaxEdits + 1) on either side.
+        private void visit(int node, int depth, int best, int min) {
+            int tooMany = mMaxEdits + 1;
+            int[] row = mRows[depth];
+            // the rows of the nodes below are never lower than this one, so the names below
+            // can do no better than best, or the branch is too far away
+            if (best < tooMany && best <= min) {
+                suggest(mValueStarts[node], mValueStarts[mEnds[node]], best);
+                return;
+            }
+            if (isFull() && min >= mEdits[mCount - 1])
+                return;
+            if (best < tooMany)
+                suggest(mValueStarts[node], mValueStarts[node + 1], best);
+
+            int[] next = mRows[depth + 1];
+            int[] previous = depth > 0 ? mRows[depth - 1] : null;
+            char label = mLabels[node];
+            int from = Math.max(1, depth + 1 - mMaxEdits);
+            int to = Math.min(mQueryLength, depth + 1 + mMaxEdits);
+            for (int child = node + 1; child < mEnds[node]; child = mEnds[child]) {
+                char c = mLabels[child];
+                next[0] = Math.min(depth + 1, tooMany);
+                int childMin = next[0];
+                if (from > 1)
+                    next[from - 1] = tooMany;
+                for (int j = from; j <= to; j++) {
+                    char q = mQuery[j - 1];
+                    int edits = Math.min(Math.min(row[j], next[j - 1]) + 1, row[j - 1] + (q == c ? 0 : 1));
+                    // two swapped letters count as one typo
+                    if (previous != null && j > 1 && q == label && mQuery[j - 2] == c)
+                        edits = Math.min(edits, previous[j - 2] + 1);
+                    next[j] = Math.min(edits, tooMany);
+                    childMin = Math.min(childMin, next[j]);
+                }
+                if (childMin == tooMany && best == tooMany)
+                    continue; // the whole branch is too far
+                if (to < mQueryLength)
+                    next[to + 1] = tooMany;
+                int last = mQueryLength == 0 ? next[0] : mQueryLength >= from && mQueryLength <= to
+                        ? next[mQueryLength] : tooMany;
+                visit(child, depth + 1, Math.min(best, last), childMin);
+            }
+        }
+
+        // the names of values from to to, in alphabetical order, are edits away
+        private void suggest(int from, int to, int edits) {
+            for (int v = from; v < to; v++) {
+                // the names found from now on come later in the alphabet, they lose ties
+                if (isFull() && edits >= mEdits[mCount - 1])
+                    return;
+                add(mValues[v], edits);
+            }
+        }
+
+        private void add(int countryId, int edits) {
+            // a country found by another of its names keeps the better one
+            for (int i = 0; i < mCount; i++) {
+                if (mIds[i] == countryId) {
+                    if (mEdits[i] <= edits)
+                        return;
+                    System.arraycopy(mIds, i + 1, mIds, i, mCount - i - 1);
+                    System.arraycopy(mEdits, i + 1, mEdits, i, mCount - i - 1);
+                    --mCount;
+                    break;
+                }
+            }
+            int at = mCount;
+            while (at > 0 && mEdits[at - 1] > edits)
+                --at;
+            int moved = Math.min(mCount, mIds.length - 1) - at;
+            System.arraycopy(mIds, at, mIds, at + 1, moved);
+            System.arraycopy(mEdits, at, mEdits, at + 1, moved);
+            mIds[at] = countryId;
+            mEdits[at] = edits;
+            mCount = Math.min(mCount + 1, mIds.length);
+        }
+
+        private boolean isFull() {
+            return mCount == mIds.length;
+        }
+
+        // the child of node with the label c, -1 if none
+        private int child(int node, char c) {
+            for (int child = node + 1; child < mEnds[node]; child = mEnds[child])
+                if (mLabels[child] == c)
+                    return child;
+            return -1;
+        }
+    }
+
+    /**
+     * Collects names and builds a CountryNameTrie of them.
+     */
+    public static class Builder {
+
+        private final List<String> mNames = new ArrayList<>();
+        private int[] mIds = new int[64];
+
+        /**
+         * Adds a name, names which fold to nothing (i.e. "...") are ignored.
+         * @param name a name of the country, in any case and with or without accents.
+         * @param countryId the country's catalog id.
+         * @return this Builder.
+         */
+        public Builder add(String name, int countryId) {
+            char[] folded = new char[name.length() + 1];
+            int length = fold(name, folded);
+            // the trailing space of a name is not part of it
+            if (length > 0 && folded[length - 1] == SPACE)
+                --length;
+            if (length == 0)
+                return this;
+            if (mNames.size() == mIds.length)
+                mIds = Arrays.copyOf(mIds, 2 * mIds.length);
+            mIds[mNames.size()] = countryId;
+            mNames.add(new String(folded, 0, length));
+            return this;
+        }
+
+        /**
+         * @return a trie of the names added so far.
+         */
+        public CountryNameTrie build() {
+            // in alphabetical order the nodes are created in preorder, the countries of a name by id
+            Integer[] order = new Integer[mNames.size()];
+            for (int i = 0; i < order.length; i++)
+                order[i] = i;
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    int byName = mNames.get(a).compareTo(mNames.get(b));
+                    // not Integer.compare(), which Android only has since API 19
+                    return byName != 0 ? byName : mIds[a] < mIds[b] ? -1 : mIds[a] == mIds[b] ? 0 : 1;
+                }
+            });
+
+            int maxKeyLength = 0;
+            for (String name : mNames)
+                maxKeyLength = Math.max(maxKeyLength, name.length());
+            int capacity = 16;
+            char[] labels = new char[capacity];
+            int[] ends = new int[capacity];
+            int[] valueCounts = new int[capacity];
+            int[] values = new int[order.length];
+            int[] path = new int[maxKeyLength + 1]; // depth -> node of the current name
+            int nodes = 1; // the root
+            String previous = "";
+            for (int v = 0; v < order.length; v++) {
+                String name = mNames.get(order[v]);
+                int common = 0;
+                while (common < Math.min(previous.length(), name.length())
+                        && previous.charAt(common) == name.charAt(common))
+                    ++common;
+                // the subtrees of the previous name's nodes below the common prefix are complete
+                for (int depth = previous.length(); depth > common; depth--)
+                    ends[path[depth]] = nodes;
+                for (int depth = common + 1; depth <= name.length(); depth++) {
+                    if (nodes == capacity) {
+                        capacity *= 2;
+                        labels = Arrays.copyOf(labels, capacity);
+                        ends = Arrays.copyOf(ends, capacity);
+                        valueCounts = Arrays.copyOf(valueCounts, capacity);
+                    }
+                    labels[nodes] = name.charAt(depth - 1);
+                    path[depth] = nodes++;
+                }
+                ++valueCounts[path[name.length()]];
+                values[v] = mIds[order[v]];
+                previous = name;
+            }
+            for (int depth = previous.length(); depth > 0; depth--)
+                ends[path[depth]] = nodes;
+            ends[0] = nodes;
+
+            int[] valueStarts = new int[nodes + 1];
+            for (int node = 0; node < nodes; node++)
+                valueStarts[node + 1] = valueStarts[node] + valueCounts[node];
+            return new CountryNameTrie(Arrays.copyOf(labels, nodes), Arrays.copyOf(ends, nodes),
+                    valueStarts, values, maxKeyLength);
+        }
+    }
+}
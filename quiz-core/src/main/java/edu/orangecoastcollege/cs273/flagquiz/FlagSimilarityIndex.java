@@ -0,0 +1,148 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * FlagSimilarityIndex reads FlagSimilarity.bin, produced at build time by the
+ * indexFlagSimilarity Gradle task (see app/flags.gradle and FlagSimilarityIndexer), which
+ * tells which flags look alike.  The "hard distractors" mode of QuizSession picks the wrong
+ * answers of a question from the flags most similar to the correct one.
+ *
+ * For every flag the file has a small vector of visual features (a color histogram and the
+ * stripe layout, one byte per dimension) and its nearest flags, nearest first.  Looking up the
+ * nearest flags is all a question usually needs; distance() compares the vectors for when too
+ * few of the nearest flags are in the selected regions.
+ *
+ * The file is big-endian and laid out as:
+ *  - int magic "FQSI" and short version
+ *  - short flag count, short dimensions and short neighbor count
+ *  - the float weight of every dimension
+ *  - for every flag: its file name (as Country.getFileName() returns it, modified UTF-8) and
+ *    its features, one unsigned byte per dimension
+ *  - for every flag: the short indices of its nearest flags, nearest first
+ *
+ * Flags are matched to the catalog by file name, countries of the catalog without a flag in
+ * the index have no neighbors.  The index is immutable.
+ */
+public class FlagSimilarityIndex {
+
+    /** The asset the index is generated into. */
+    public static final String ASSET = "FlagSimilarity.bin";
+    static final int MAGIC = 0x46515349; // "FQSI"
+    static final int VERSION = 1;
+
+    private final float[] mWeights;
+    private final byte[][] mFeatures; // catalog id -> features, null if the flag is not indexed
+    private final int[][] mNeighbors; // catalog id -> catalog ids of the nearest flags
+
+    private FlagSimilarityIndex(float[] weights, byte[][] features, int[][] neighbors) {
+        mWeights = weights;
+        mFeatures = features;
+        mNeighbors = neighbors;
+    }
+
+    /**
+     * Reads a whole FlagSimilarity.bin file.  The stream is not closed.
+     * @param in the stream containing the index.
+     * @param catalog the catalog the flags are looked up in.
+     * @return the index.
+     * @throws IOException if the stream can not be read or does not contain a valid index.
+     */
+    public static FlagSimilarityIndex read(InputStream in, CountryCatalog catalog) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        try {
+            if (data.readInt() != MAGIC)
+                throw new IOException("Not a flag similarity index");
+            int version = data.readShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported flag similarity index version " + version);
+
+            int flagCount = data.readUnsignedShort();
+            int dimensions = data.readUnsignedShort();
+            int neighborCount = data.readUnsignedShort();
+            float[] weights = new float[dimensions];
+            for (int d = 0; d < dimensions; d++)
+                weights[d] = data.readFloat();
+
+            // the index's flags are in file name order, map them to catalog ids
+            Map<String, Integer> ids = new HashMap<>();
+            for (int id = 0; id < catalog.size(); id++)
+                ids.put(catalog.getFileName(id), id);
+            int[] countryIds = new int[flagCount];
+            byte[][] features = new byte[catalog.size()][];
+            for (int i = 0; i < flagCount; i++) {
+                Integer id = ids.get(data.readUTF());
+                countryIds[i] = id != null ? id : -1;
+                byte[] vector = new byte[dimensions];
+                data.readFully(vector);
+                if (id != null)
+                    features[id] = vector;
+            }
+
+            int[][] neighbors = new int[catalog.size()][];
+            int[] row = new int[neighborCount];
+            for (int i = 0; i < flagCount; i++) {
+                int n = 0;
+                for (int k = 0; k < neighborCount; k++) {
+                    int neighbor = data.readUnsignedShort();
+                    if (neighbor >= flagCount)
+                        throw new IOException("Flag " + i + " has neighbor " + neighbor + " of " + flagCount);
+                    if (countryIds[neighbor] >= 0)
+                        row[n++] = countryIds[neighbor];
+                }
+                if (countryIds[i] >= 0)
+                    neighbors[countryIds[i]] = Arrays.copyOf(row, n);
+            }
+            int[] none = new int[0];
+            for (int id = 0; id < neighbors.length; id++)
+                if (neighbors[id] == null)
+                    neighbors[id] = none;
+            return new FlagSimilarityIndex(weights, features, neighbors);
+        }
+        catch (EOFException e) {
+            throw new IOException("Truncated flag similarity index", e);
+        }
+    }
+
+    /**
+     * @param countryId a catalog id.
+     * @return the catalog ids of the flags most similar to the country's, nearest first, empty
+     * if its flag is not indexed.  Do not change the array.
+     */
+    public int[] getNeighbors(int countryId) {
+        return mNeighbors[countryId];
+    }
+
+    /**
+     * @param countryId a catalog id.
+     * @return true if the country's flag is in the index.
+     */
+    public boolean contains(int countryId) {
+        return mFeatures[countryId] != null;
+    }
+
+    /**
+     * @param a a catalog id.
+     * @param b another catalog id.
+     * @return how different their flags look, 0 for identical flags, Double.MAX_VALUE if either
+     * flag is not indexed.
+     */
+    public double distance(int a, int b) {
+        byte[] first = mFeatures[a];
+        byte[] second = mFeatures[b];
+        if (first == null || second == null)
+            return Double.MAX_VALUE;
+        double sum = 0;
+        for (int d = 0; d < first.length; d++) {
+            double difference = mWeights[d] * ((first[d] & 0xFF) - (second[d] & 0xFF));
+            sum += difference * difference;
+        }
+        return Math.sqrt(sum);
+    }
+}
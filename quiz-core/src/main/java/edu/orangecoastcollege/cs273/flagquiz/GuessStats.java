@@ -0,0 +1,216 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * GuessStats remembers, for every country of the catalog, how often the user got its flag
+ * right and wrong on the first guess, and turns that into the weight the quiz picks it with:
+ * flags the user keeps getting wrong come up more often.
+ *
+ * Both counts are a single unsigned byte per country, so the stats of the whole catalog take
+ * 2 bytes per country.  When a count would pass 255 both counts are halved, which keeps the
+ * ratio and lets old guesses fade, so a flag the user has finally learned drops back down.
+ *
+ * The stats file is big-endian and laid out as:
+ *  - int magic "FQGS" and short version
+ *  - int catalog fingerprint and int country count
+ *  - for every country in catalog order: byte wrong count, byte right count
+ * The fingerprint is a hash of the country names, so stats are dropped instead of applied to
+ * the wrong countries when the catalog changes.
+ */
+public class GuessStats {
+
+    static final int MAGIC = 0x46514753; // "FQGS"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 4 + 4;
+
+    /** The weight of a country always answered right, 16 times less likely than MAX_WEIGHT. */
+    public static final int MIN_WEIGHT = 4;
+    /** The weight of a country always answered wrong. */
+    public static final int MAX_WEIGHT = 64;
+
+    private final int mFingerprint;
+    private final byte[] mWrong;
+    private final byte[] mRight;
+
+    /**
+     * @param catalog the catalog the stats are for, every country starts with no guesses.
+     */
+    public GuessStats(CountryCatalog catalog) {
+        this(fingerprint(catalog), catalog.size());
+    }
+
+    private GuessStats(int fingerprint, int size) {
+        mFingerprint = fingerprint;
+        mWrong = new byte[size];
+        mRight = new byte[size];
+    }
+
+    /**
+     * @return how many countries there are stats for.
+     */
+    public int size() {
+        return mWrong.length;
+    }
+
+    /**
+     * @param id a catalog id.
+     * @return how often its flag was answered wrong, after decay.
+     */
+    public int getWrongCount(int id) {
+        return mWrong[id] & 0xFF;
+    }
+
+    /**
+     * @param id a catalog id.
+     * @return how often its flag was answered right, after decay.
+     */
+    public int getRightCount(int id) {
+        return mRight[id] & 0xFF;
+    }
+
+    /**
+     * Records the first guess of a question.
+     * @param id the catalog id of the question's country.
+     * @param correct whether the guess was right.
+     */
+    public void recordGuess(int id, boolean correct) {
+        byte[] counts = correct ? mRight : mWrong;
+        if ((counts[id] & 0xFF) == 0xFF) {
+            mWrong[id] = (byte) ((mWrong[id] & 0xFF) >> 1);
+            mRight[id] = (byte) ((mRight[id] & 0xFF) >> 1);
+        }
+        counts[id] = (byte) ((counts[id] & 0xFF) + 1);
+    }
+
+    /**
+     * The error rate, smoothed so a country with no guesses sits in the middle, scaled from
+     * MIN_WEIGHT to MAX_WEIGHT.
+     * @param id a catalog id.
+     * @return the weight to pick the country with.
+     */
+    public int weight(int id) {
+        int wrong = mWrong[id] & 0xFF;
+        int right = mRight[id] & 0xFF;
+        return MIN_WEIGHT + (MAX_WEIGHT - MIN_WEIGHT) * (wrong + 1) / (wrong + right + 2);
+    }
+
+    /**
+     * @param ids catalog ids, i.e. the countries of the selected regions.
+     * @return a sampler over the indices of ids, weighted by weight().
+     */
+    public WeightedSampler sampler(int[] ids) {
+        int[] weights = new int[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            weights[i] = weight(ids[i]);
+        return new WeightedSampler(weights);
+    }
+
+    /**
+     * @return the stats file contents.
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 2 * size());
+        buffer.putInt(MAGIC).putShort((short) VERSION).putInt(mFingerprint).putInt(size());
+        for (int i = 0; i < size(); i++)
+            buffer.put(mWrong[i]).put(mRight[i]);
+        return buffer.array();
+    }
+
+    /**
+     * @param buffer a stats file, read from its current position.
+     * @param catalog the catalog the stats must be for.
+     * @return the stats.
+     * @throws IOException if the buffer is not a valid stats file or is for another catalog.
+     */
+    public static GuessStats read(ByteBuffer buffer, CountryCatalog catalog) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a guess stats file");
+            int version = buffer.getShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported guess stats version " + version);
+            int fingerprint = buffer.getInt();
+            int size = buffer.getInt();
+            if (fingerprint != fingerprint(catalog) || size != catalog.size())
+                throw new IOException("Guess stats are for another catalog");
+            GuessStats stats = new GuessStats(fingerprint, size);
+            for (int i = 0; i < size; i++) {
+                stats.mWrong[i] = buffer.get();
+                stats.mRight[i] = buffer.get();
+            }
+            return stats;
+        }
+        catch (BufferUnderflowException e) {
+            throw new IOException("Truncated guess stats", e);
+        }
+    }
+
+    /**
+     * Loads the stats of the last session, or starts from scratch if there are none usable.
+     * @param file the stats file, which may not exist.
+     * @param catalog the catalog the stats are for.
+     * @return the stats.
+     */
+    public static GuessStats load(File file, CountryCatalog catalog) {
+        if (file.length() == 0)
+            return new GuessStats(catalog);
+        try {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                byte[] bytes = new byte[(int) file.length()];
+                int read = 0;
+                while (read < bytes.length) {
+                    int n = in.read(bytes, read, bytes.length - read);
+                    if (n < 0)
+                        break;
+                    read += n;
+                }
+                return read(ByteBuffer.wrap(bytes, 0, read), catalog);
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException e) {
+            return new GuessStats(catalog);
+        }
+    }
+
+    /**
+     * Writes stats to a temporary file and renames it over the old one, so a crash while saving
+     * leaves the previous stats instead of a truncated file.
+     * @param file the stats file.
+     * @param bytes the result of toBytes(), taken on the thread which records the guesses.
+     * @throws IOException if the file can not be written.
+     */
+    public static void save(File file, byte[] bytes) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+        finally {
+            out.close();
+        }
+        if (!temp.renameTo(file))
+            throw new IOException("Can not rename " + temp + " to " + file);
+    }
+
+    /**
+     * @param catalog a catalog.
+     * @return a hash of its country names, in order.
+     */
+    public static int fingerprint(CountryCatalog catalog) {
+        int hash = catalog.size();
+        for (int id = 0; id < catalog.size(); id++)
+            hash = 31 * hash + catalog.getName(id).hashCode();
+        return hash;
+    }
+}
@@ -0,0 +1,103 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+/**
+ * LatencyHistogram counts latencies in nanoseconds for percentiles, in buckets of 1/16 of a
+ * power of two: values below 16 ns have a bucket each, above that a bucket is about 6% wide.
+ * That is precise enough for percentiles, and one histogram is a fixed 8 KB whatever it
+ * records, so every thread can keep its own and they are merged with add() at the end.
+ *
+ * It is not thread safe.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final long[] mCounts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+    private long mCount;
+    private long mSum;
+    private long mMax;
+
+    /**
+     * @param nanos a latency, negative ones count as 0.
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        ++mCounts[bucket(nanos)];
+        ++mCount;
+        mSum += nanos;
+        mMax = Math.max(mMax, nanos);
+    }
+
+    /**
+     * Adds the latencies recorded in another histogram to this one.
+     * @param other the histogram, which is not changed.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < mCounts.length; i++)
+            mCounts[i] += other.mCounts[i];
+        mCount += other.mCount;
+        mSum += other.mSum;
+        mMax = Math.max(mMax, other.mMax);
+    }
+
+    /**
+     * @return how many latencies were recorded.
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return the mean latency, 0 if none was recorded.
+     */
+    public double getMean() {
+        return mCount == 0 ? 0 : mSum / (double) mCount;
+    }
+
+    /**
+     * @return the highest latency, exactly.
+     */
+    public long getMax() {
+        return mMax;
+    }
+
+    /**
+     * @param fraction 0.5 for the median, 0.99 for p99, ...
+     * @return the upper bound of the bucket of that percentile, so at most 6% too high, and
+     * never more than getMax().  0 if nothing was recorded.
+     */
+    public long percentile(double fraction) {
+        long rank = Math.max(1, (long) Math.ceil(fraction * mCount));
+        long seen = 0;
+        for (int i = 0; i < mCounts.length; i++) {
+            seen += mCounts[i];
+            if (seen >= rank)
+                return Math.min(upperBound(i), mMax);
+        }
+        return mMax;
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BITS
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long bound = ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+        return bound < 0 ? Long.MAX_VALUE : bound;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d latencies: p50 %d ns, p99 %d ns, max %d ns",
+                mCount, percentile(0.5), percentile(0.99), mMax);
+    }
+}
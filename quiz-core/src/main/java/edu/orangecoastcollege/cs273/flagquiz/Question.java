@@ -0,0 +1,123 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.util.Arrays;
+
+/**
+ * Question is one question of a quiz: the catalog id of the country whose flag is shown and
+ * the catalog ids of the answer choices, one per button slot, the correct one among them.
+ *
+ * It is built once when the question is prepared, the buttons are bound to its slots, and a
+ * guess is checked by comparing ids, instead of comparing the tapped button's text with the
+ * name of the correct country.  The choices are checked to be distinct when it is built, so a
+ * country can never be on two buttons.
+ */
+public final class Question {
+
+    private final int mCorrectId;
+    private final int[] mChoiceIds;
+    private final int mCorrectSlot;
+
+    private Question(int correctId, int[] choiceIds, int correctSlot) {
+        mCorrectId = correctId;
+        mChoiceIds = choiceIds;
+        mCorrectSlot = correctSlot;
+    }
+
+    /**
+     * @param correctId the catalog id of the correct country.
+     * @param choiceIds the catalog ids of the choices, in button order.  The array is copied.
+     * @return the question.
+     * @throws IllegalArgumentException if the choices are not distinct or do not contain
+     * correctId.
+     */
+    public static Question of(int correctId, int[] choiceIds) {
+        int[] choices = choiceIds.clone();
+        int[] sorted = choices.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++)
+            if (sorted[i] == sorted[i - 1])
+                throw new IllegalArgumentException("Country " + sorted[i] + " is a choice twice");
+        for (int slot = 0; slot < choices.length; slot++)
+            if (choices[slot] == correctId)
+                return new Question(correctId, choices, slot);
+        throw new IllegalArgumentException("Country " + correctId + " is not a choice");
+    }
+
+    /**
+     * Picks the choices of a question with the QuizEngine.
+     * @param engine the engine, whose size is the length of countryIds.
+     * @param countryIds the catalog ids of the countries the engine picks from.
+     * @param correctIndex the index in countryIds of the correct country.
+     * @param choices how many choices the question has.
+     * @return the question.
+     */
+    public static Question pick(QuizEngine engine, int[] countryIds, int correctIndex, int choices) {
+        return fromIndices(countryIds, correctIndex, engine.pickChoices(correctIndex, choices));
+    }
+
+    /**
+     * Puts chosen wrong answers, i.e. look-alike flags, and the correct country in random slots
+     * with the QuizEngine.
+     * @param engine the engine.
+     * @param countryIds the catalog ids of the countries the indices refer to.
+     * @param correctIndex the index in countryIds of the correct country.
+     * @param distractorIndices the indices in countryIds of the wrong answers, all distinct.
+     * @return the question.
+     */
+    public static Question place(QuizEngine engine, int[] countryIds, int correctIndex, int[] distractorIndices) {
+        return fromIndices(countryIds, correctIndex, engine.shuffleChoices(correctIndex, distractorIndices));
+    }
+
+    // the question of choices given as indices in countryIds, picked is turned into catalog ids
+    private static Question fromIndices(int[] countryIds, int correctIndex, int[] picked) {
+        int correctSlot = -1;
+        for (int slot = 0; slot < picked.length; slot++) {
+            if (picked[slot] == correctIndex)
+                correctSlot = slot;
+            picked[slot] = countryIds[picked[slot]];
+        }
+        return new Question(countryIds[correctIndex], picked, correctSlot);
+    }
+
+    /**
+     * @return the catalog id of the country whose flag is shown.
+     */
+    public int getCorrectId() {
+        return mCorrectId;
+    }
+
+    /**
+     * @return how many choices there are.
+     */
+    public int getChoiceCount() {
+        return mChoiceIds.length;
+    }
+
+    /**
+     * @param slot a button slot, 0 to getChoiceCount() - 1.
+     * @return the catalog id of the country on that button.
+     */
+    public int getChoiceId(int slot) {
+        return mChoiceIds[slot];
+    }
+
+    /**
+     * @return the slot of the correct country.
+     */
+    public int getCorrectSlot() {
+        return mCorrectSlot;
+    }
+
+    /**
+     * @param slot the slot of the button the user tapped.
+     * @return true if it is the correct country.
+     */
+    public boolean isCorrect(int slot) {
+        return slot == mCorrectSlot;
+    }
+
+    @Override
+    public String toString() {
+        return "Question[" + mCorrectId + " of " + Arrays.toString(mChoiceIds) + "]";
+    }
+}
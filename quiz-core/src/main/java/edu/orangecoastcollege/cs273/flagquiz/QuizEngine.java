@@ -0,0 +1,157 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.util.Arrays;
+
+/**
+ * QuizEngine picks the countries of a quiz and the answer choices of each question.
+ *
+ * Countries are referred to by their index (0 to size - 1) in the list the quiz is built from.
+ *
+ * Both picks use a partial Fisher-Yates shuffle of a permutation the engine keeps between
+ * calls: picking k countries swaps k entries, so it costs O(k) no matter how big the list is
+ * and never has to retry.  Changing the size only moves the indices added or removed, so the
+ * permutation is never rebuilt.
+ */
+public class QuizEngine {
+
+    private final QuizRandom mRandom;
+    private int mSize;
+    private int[] mPermutation = new int[0]; // its first mSize entries are a permutation of 0 .. mSize - 1
+    private int[] mPositions = new int[0]; // mPositions[i] is where i is in mPermutation
+
+    /**
+     * @param random the source of randomness for every pick.
+     */
+    public QuizEngine(QuizRandom random) {
+        mRandom = random;
+    }
+
+    /**
+     * Sets how many countries the quiz is built from, in O(change): countries added are put at
+     * the end of the permutation, countries removed are swapped to its end and dropped.
+     * @param size the number of countries, they are referred to as 0 to size - 1.
+     */
+    public void setSize(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("size < 0: " + size);
+        if (size > mPermutation.length) {
+            int capacity = Math.max(size, mPermutation.length * 2);
+            mPermutation = Arrays.copyOf(mPermutation, capacity);
+            mPositions = Arrays.copyOf(mPositions, capacity);
+        }
+        for (int i = mSize; i < size; i++) {
+            mPermutation[i] = i;
+            mPositions[i] = i;
+        }
+        // put every index >= size in its own entry, highest first, the first size entries keep the others
+        for (int i = mSize - 1; i >= size; i--)
+            swap(mPositions[i], i);
+        mSize = size;
+    }
+
+    /**
+     * @return how many countries the quiz is built from.
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * Picks the countries of a quiz.
+     * @param count how many countries the quiz has.
+     * @return count distinct indices, in random order.
+     */
+    public int[] pickQuiz(int count) {
+        if (count < 0 || count > mSize)
+            throw new IllegalArgumentException("Can not pick " + count + " of " + mSize + " countries");
+        int[] quiz = new int[count];
+        pick(mSize, quiz, 0, count);
+        return quiz;
+    }
+
+    /**
+     * Picks the countries of a quiz, favouring the ones with a bigger weight, e.g. the flags
+     * the user often gets wrong.  Costs O(count log size), the permutation is not used.
+     * @param count how many countries the quiz has.
+     * @param weights the weight of every country, its size must be at least getSize(), the
+     * indices from getSize() on (spare room of the QuizSession) must weigh 0.
+     * @return count distinct indices, in random order (shuffled, since the heavier ones tend
+     * to be picked first).
+     */
+    public int[] pickQuiz(int count, WeightedSampler weights) {
+        if (weights.size() < mSize)
+            throw new IllegalArgumentException(weights.size() + " weights for " + mSize + " countries");
+        if (count < 0 || count > mSize)
+            throw new IllegalArgumentException("Can not pick " + count + " of " + mSize + " countries");
+        int[] quiz = weights.sampleDistinct(count, mRandom);
+        for (int i = count - 1; i > 0; i--) {
+            int j = mRandom.nextInt(i + 1);
+            int t = quiz[i];
+            quiz[i] = quiz[j];
+            quiz[j] = t;
+        }
+        return quiz;
+    }
+
+    /**
+     * Picks the answer choices of a question: the correct country and choices - 1 other
+     * distinct countries, with the correct one at a random position.
+     * @param correct the index of the correct country.
+     * @param choices how many choices the question has, at most getSize().
+     * @return choices distinct indices, one of them is correct.
+     */
+    public int[] pickChoices(int correct, int choices) {
+        if (correct < 0 || correct >= mSize)
+            throw new IllegalArgumentException("No country " + correct + " in " + mSize);
+        if (choices < 1 || choices > mSize)
+            throw new IllegalArgumentException("Can not pick " + choices + " of " + mSize + " choices");
+
+        // move the correct country to the end, then pick the others from the rest
+        swap(mPositions[correct], mSize - 1);
+        int[] picked = new int[choices];
+        pick(mSize - 1, picked, 0, choices - 1);
+
+        // put the correct country in a random slot
+        int slot = mRandom.nextInt(choices);
+        picked[choices - 1] = picked[slot];
+        picked[slot] = correct;
+        return picked;
+    }
+
+    /**
+     * Puts wrong answers which were chosen already, i.e. look-alike flags, and the correct
+     * country in random slots.
+     * @param correct the index of the correct country.
+     * @param distractors the indices of the wrong answers, not changed.
+     * @return distractors.length + 1 indices, in random order.
+     */
+    public int[] shuffleChoices(int correct, int[] distractors) {
+        int[] choices = new int[distractors.length + 1];
+        System.arraycopy(distractors, 0, choices, 0, distractors.length);
+        choices[distractors.length] = correct;
+        for (int i = choices.length - 1; i > 0; i--) {
+            int j = mRandom.nextInt(i + 1);
+            int choice = choices[i];
+            choices[i] = choices[j];
+            choices[j] = choice;
+        }
+        return choices;
+    }
+
+    // partial Fisher-Yates: moves count random entries of mPermutation[0 .. bound) to its front
+    private void pick(int bound, int[] out, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            swap(i, i + mRandom.nextInt(bound - i));
+            out[offset + i] = mPermutation[i];
+        }
+    }
+
+    private void swap(int i, int j) {
+        int a = mPermutation[i];
+        int b = mPermutation[j];
+        mPermutation[i] = b;
+        mPermutation[j] = a;
+        mPositions[b] = i;
+        mPositions[a] = j;
+    }
+}
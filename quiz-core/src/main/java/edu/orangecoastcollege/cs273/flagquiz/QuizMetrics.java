@@ -0,0 +1,214 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * QuizMetrics times the hot paths of the quiz (loading the catalog, selecting the regions,
+ * resetting the quiz, preparing a question, decoding a flag and handling a guess) and counts
+ * what the flag decoding did, so the percentiles of every stage can be read on a real device.
+ *
+ * A stage is timed by calling start() and passing what it returns to stop(), on the same
+ * thread:
+ *
+ *     long started = metrics.start(QuizMetrics.Stage.RESET_QUIZ);
+ *     ...
+ *     metrics.stop(QuizMetrics.Stage.RESET_QUIZ, started);
+ *
+ * The time is read from a monotonic Clock and recorded in the LatencyHistogram of the stage,
+ * and the stage is also a section of the system trace (MainActivity gives it a Tracer which
+ * calls TraceCompat), so it shows up in systrace next to the frames it delays.  Recording does
+ * not allocate: the histograms and the counters are fixed arrays created with the metrics.
+ *
+ * Stages are timed on the main thread and on the background threads (the catalog loader and
+ * the FlagLoader), so every histogram is locked while it records, which costs next to nothing
+ * when the lock is not contended, and the counters are atomic.  When the metrics are disabled
+ * start() returns NOT_TIMED without reading the clock and stop() and count() do nothing.
+ *
+ * dump() writes the count, p50, p95, p99 and max of every stage and the counters as a small
+ * text table, which MainActivity logs and saves to metrics.txt.
+ */
+public class QuizMetrics {
+
+    /** What start() returns when the metrics are disabled, stop() ignores it. */
+    public static final long NOT_TIMED = Long.MIN_VALUE;
+
+    /**
+     * A timed stage, its name is the name of its trace section.
+     */
+    public enum Stage {
+        LOAD_CATALOG("loadCatalog"),
+        SELECT_REGIONS("updateRegion"),
+        RESET_QUIZ("resetQuiz"),
+        PREPARE_QUESTION("prepareQuestion"),
+        DECODE_FLAG("decodeFlag"),
+        GUESS("makeGuess");
+
+        private final String mSectionName;
+
+        Stage(String sectionName) {
+            mSectionName = sectionName;
+        }
+
+        /**
+         * @return the name of the stage in the trace and in dump().
+         */
+        public String getSectionName() {
+            return mSectionName;
+        }
+    }
+
+    /**
+     * A counted event.
+     */
+    public enum Counter {
+        /** Bytes of pixels decoded, i.e. the byte count of every decoded flag Bitmap. */
+        DECODED_BYTES,
+        /** Flags asked for which were decoded already. */
+        FLAG_CACHE_HITS,
+        /** Flags asked for which still had to be (or were being) decoded. */
+        FLAG_CACHE_MISSES
+    }
+
+    /**
+     * Marks the stages in the system trace, i.e. android.os.Trace.
+     */
+    public interface Tracer {
+        /** A Tracer which does not trace. */
+        Tracer NONE = new Tracer() {
+            @Override
+            public void beginSection(String name) {
+            }
+
+            @Override
+            public void endSection() {
+            }
+        };
+
+        /**
+         * @param name the name of the section starting on this thread.
+         */
+        void beginSection(String name);
+
+        /**
+         * Ends the last section begun on this thread.
+         */
+        void endSection();
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private final Clock mClock;
+    private final Tracer mTracer;
+    private final LatencyHistogram[] mHistograms = new LatencyHistogram[STAGES.length]; // each locked while used
+    private final AtomicLongArray mCounters = new AtomicLongArray(COUNTERS.length);
+    private volatile boolean mEnabled = true;
+
+    /**
+     * Creates enabled metrics.
+     * @param clock the clock the stages are timed with.
+     * @param tracer marks the stages in the system trace.
+     */
+    public QuizMetrics(Clock clock, Tracer tracer) {
+        mClock = clock;
+        mTracer = tracer;
+        for (int i = 0; i < mHistograms.length; i++)
+            mHistograms[i] = new LatencyHistogram();
+    }
+
+    /**
+     * @param enabled false to stop timing and counting, what was recorded is kept.
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    /**
+     * @return true if stages are timed and events counted.
+     */
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Starts timing a stage and begins its trace section.
+     * @param stage the stage.
+     * @return the time it started, to be passed to stop(), NOT_TIMED if the metrics are disabled.
+     */
+    public long start(Stage stage) {
+        if (!mEnabled)
+            return NOT_TIMED;
+        mTracer.beginSection(stage.mSectionName);
+        return mClock.nanoTime();
+    }
+
+    /**
+     * Records how long a stage took and ends its trace section, on the thread it was started on.
+     * @param stage the stage.
+     * @param startNanos what start() returned.
+     */
+    public void stop(Stage stage, long startNanos) {
+        if (startNanos == NOT_TIMED)
+            return;
+        long nanos = mClock.nanoTime() - startNanos;
+        mTracer.endSection();
+        LatencyHistogram histogram = mHistograms[stage.ordinal()];
+        synchronized (histogram) {
+            histogram.record(nanos);
+        }
+    }
+
+    /**
+     * @param counter the counter.
+     * @param delta what to add to it.
+     */
+    public void count(Counter counter, long delta) {
+        if (mEnabled)
+            mCounters.addAndGet(counter.ordinal(), delta);
+    }
+
+    /**
+     * @param stage a stage.
+     * @return a copy of the latencies recorded for it.
+     */
+    public LatencyHistogram getHistogram(Stage stage) {
+        LatencyHistogram copy = new LatencyHistogram();
+        LatencyHistogram histogram = mHistograms[stage.ordinal()];
+        synchronized (histogram) {
+            copy.add(histogram);
+        }
+        return copy;
+    }
+
+    /**
+     * @param counter a counter.
+     * @return its value.
+     */
+    public long getCount(Counter counter) {
+        return mCounters.get(counter.ordinal());
+    }
+
+    /**
+     * @return every stage with its count and percentiles in microseconds, then every counter,
+     * one per line.  Stages which were never timed are left out.
+     */
+    public String dump() {
+        StringBuilder dump = new StringBuilder();
+        dump.append(String.format(Locale.US, "%-16s %8s %10s %10s %10s %10s\n",
+                "stage (us)", "count", "p50", "p95", "p99", "max"));
+        for (Stage stage : STAGES) {
+            LatencyHistogram histogram = getHistogram(stage);
+            if (histogram.getCount() == 0)
+                continue;
+            dump.append(String.format(Locale.US, "%-16s %8d %10.1f %10.1f %10.1f %10.1f\n",
+                    stage.mSectionName, histogram.getCount(), histogram.percentile(0.5) / 1e3,
+                    histogram.percentile(0.95) / 1e3, histogram.percentile(0.99) / 1e3,
+                    histogram.getMax() / 1e3));
+        }
+        for (Counter counter : COUNTERS)
+            dump.append(String.format(Locale.US, "%-16s %8d\n", counter.name().toLowerCase(Locale.US),
+                    getCount(counter)));
+        return dump.toString();
+    }
+}
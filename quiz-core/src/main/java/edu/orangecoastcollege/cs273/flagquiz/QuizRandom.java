@@ -0,0 +1,241 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * QuizRandom is the source of randomness of every quiz pick.  A quiz needs numbers which look
+ * random to a person, not numbers an attacker can not predict, so the default generator is
+ * xoshiro256**, which is a few shifts and multiplies per number, instead of SecureRandom.
+ *
+ * There are three generators:
+ *  - create() / create(seed): xoshiro256**, the default.  split() hands the current sequence to
+ *    the new generator and jumps this one 2^128 numbers ahead, so the two never overlap.
+ *  - splitMix(seed): SplitMix64, the generator behind java.util.SplittableRandom (API 24), whose
+ *    split() derives a new independent stream from two of its numbers.
+ *  - wrap(random): any java.util.Random, i.e. SecureRandom, for comparison.
+ *
+ * The same seed always gives the same quizzes, which is what tests and reproducible quizzes
+ * use.  A generator must only be used by one thread at a time, other threads get their own
+ * with split().
+ */
+public abstract class QuizRandom {
+
+    // makes the seeds of generators created in the same nanosecond differ, like java.util.Random
+    private static final AtomicLong SEED_UNIQUIFIER = new AtomicLong(0x2545F4914F6CDD1DL);
+
+    /**
+     * @return the next 64 random bits.
+     */
+    public abstract long nextLong();
+
+    /**
+     * @return a new generator whose numbers are independent of this one's.
+     */
+    public abstract QuizRandom split();
+
+    /**
+     * Lemire's multiply and shift, which only rarely needs a second number to stay unbiased.
+     * @param bound the upper bound, must be positive.
+     * @return a uniformly distributed int from 0 (inclusive) to bound (exclusive).
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive: " + bound);
+        long product = (nextLong() >>> 32) * bound;
+        if ((product & 0xFFFFFFFFL) < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while ((product & 0xFFFFFFFFL) < threshold)
+                product = (nextLong() >>> 32) * bound;
+        }
+        return (int) (product >>> 32);
+    }
+
+    /**
+     * Takes the remainder, retrying the rare draws which would make small values more likely.
+     * @param bound the upper bound, must be positive.
+     * @return a uniformly distributed long from 0 (inclusive) to bound (exclusive).
+     */
+    public long nextLong(long bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive: " + bound);
+        long bits = nextLong() >>> 1;
+        long value = bits % bound;
+        while (bits - value + (bound - 1) < 0) {
+            bits = nextLong() >>> 1;
+            value = bits % bound;
+        }
+        return value;
+    }
+
+    /**
+     * @return xoshiro256** with a seed which differs on every call.
+     */
+    public static QuizRandom create() {
+        return create(SEED_UNIQUIFIER.addAndGet(0x9E3779B97F4A7C15L) ^ System.nanoTime());
+    }
+
+    /**
+     * @param seed the seed, the same seed gives the same numbers.
+     * @return xoshiro256**.
+     */
+    public static QuizRandom create(long seed) {
+        return new Xoshiro256(seed);
+    }
+
+    /**
+     * @param seed the seed, the same seed gives the same numbers.
+     * @return SplitMix64.
+     */
+    public static QuizRandom splitMix(long seed) {
+        return new SplitMix64(seed, SplitMix64.GOLDEN_GAMMA);
+    }
+
+    /**
+     * @param random the generator to use.
+     * @return a QuizRandom which takes its numbers from random.
+     */
+    public static QuizRandom wrap(Random random) {
+        return new JdkRandom(random);
+    }
+
+    // the output function of SplitMix64, also used to expand seeds
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * xoshiro256** by David Blackman and Sebastiano Vigna, 256 bits of state.
+     */
+    static final class Xoshiro256 extends QuizRandom {
+
+        // the jump polynomial, equivalent to 2^128 calls of nextLong()
+        private static final long[] JUMP = {0x180EC6D33CFD0ABAL, 0xD5A61266F0C9392CL,
+                0xA9582618E03FC9AAL, 0x39ABDC4529B1661CL};
+
+        private long mS0;
+        private long mS1;
+        private long mS2;
+        private long mS3;
+
+        Xoshiro256(long seed) {
+            // expand the seed with SplitMix64, so similar seeds give unrelated states (never all zero)
+            long x = seed;
+            mS0 = mix64(x += SplitMix64.GOLDEN_GAMMA);
+            mS1 = mix64(x += SplitMix64.GOLDEN_GAMMA);
+            mS2 = mix64(x += SplitMix64.GOLDEN_GAMMA);
+            mS3 = mix64(x + SplitMix64.GOLDEN_GAMMA);
+        }
+
+        private Xoshiro256(long s0, long s1, long s2, long s3) {
+            mS0 = s0;
+            mS1 = s1;
+            mS2 = s2;
+            mS3 = s3;
+        }
+
+        @Override
+        public long nextLong() {
+            long result = Long.rotateLeft(mS1 * 5, 7) * 9;
+            long t = mS1 << 17;
+            mS2 ^= mS0;
+            mS3 ^= mS1;
+            mS1 ^= mS2;
+            mS0 ^= mS3;
+            mS2 ^= t;
+            mS3 = Long.rotateLeft(mS3, 45);
+            return result;
+        }
+
+        @Override
+        public QuizRandom split() {
+            QuizRandom child = new Xoshiro256(mS0, mS1, mS2, mS3);
+            jump();
+            return child;
+        }
+
+        private void jump() {
+            long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            for (long jump : JUMP) {
+                for (int b = 0; b < 64; b++) {
+                    if ((jump & (1L << b)) != 0) {
+                        s0 ^= mS0;
+                        s1 ^= mS1;
+                        s2 ^= mS2;
+                        s3 ^= mS3;
+                    }
+                    nextLong();
+                }
+            }
+            mS0 = s0;
+            mS1 = s1;
+            mS2 = s2;
+            mS3 = s3;
+        }
+    }
+
+    /**
+     * SplitMix64 by Guy Steele, Doug Lea and Christine Flood, as in java.util.SplittableRandom.
+     */
+    static final class SplitMix64 extends QuizRandom {
+
+        static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+        private long mSeed;
+        private final long mGamma; // always odd
+
+        SplitMix64(long seed, long gamma) {
+            mSeed = seed;
+            mGamma = gamma;
+        }
+
+        @Override
+        public long nextLong() {
+            return mix64(mSeed += mGamma);
+        }
+
+        @Override
+        public QuizRandom split() {
+            long seed = nextLong();
+            return new SplitMix64(seed, mixGamma(mSeed += mGamma));
+        }
+
+        // an odd gamma with enough bit transitions, so the new stream is not a shifted copy
+        private static long mixGamma(long z) {
+            z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+            z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            z = (z ^ (z >>> 33)) | 1L;
+            int transitions = Long.bitCount(z ^ (z >>> 1));
+            return transitions < 24 ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+        }
+    }
+
+    /**
+     * Takes its numbers from a java.util.Random.
+     */
+    static final class JdkRandom extends QuizRandom {
+
+        private final Random mRandom;
+
+        JdkRandom(Random random) {
+            mRandom = random;
+        }
+
+        @Override
+        public long nextLong() {
+            return mRandom.nextLong();
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return mRandom.nextInt(bound);
+        }
+
+        @Override
+        public QuizRandom split() {
+            return new JdkRandom(new Random(mRandom.nextLong()));
+        }
+    }
+}
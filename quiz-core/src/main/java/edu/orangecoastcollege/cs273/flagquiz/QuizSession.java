@@ -0,0 +1,617 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * QuizSession is the state of a quiz, without any View: which countries the quiz has, which
+ * question is shown, which one is prepared to be shown next, and the guesses made so far.
+ *
+ * A quiz goes through:
+ *  - reset(), which picks the countries of a new quiz,
+ *  - prepareNextQuestion(), which picks the next country and its answer choices, while the
+ *    current question (or, for the first question, nothing) is still shown,
+ *  - showPreparedQuestion(), which makes the prepared question the current one,
+ *  - guess(slot), or guessCountry(id) for a typed answer, until one is CORRECT; then the
+ *    next question is prepared and shown, or the guess is FINISHED if it was the last question.
+ * MainActivity drives it from its Views and the QuestionScheduler, the QuizServer from HTTP
+ * requests and the QuizSimulator from simulated players.
+ *
+ * With GuessStats, the first guess of every question is recorded in them and the quiz
+ * countries are picked by their weights, otherwise uniformly.  With a FlagSimilarityIndex the
+ * wrong answers are the flags most like the correct one (hard mode), otherwise random.
+ *
+ * The countries quizzes are picked from are set all at once, or added and removed a region at
+ * a time as regions are selected and deselected, which only costs the countries that change:
+ * a removed country's place is taken by the last one, and the QuizEngine and the weights are
+ * updated in place.  After the choice count or the hard mode changed, resampleChoices() picks
+ * the choices of the current question again without starting a new quiz.
+ *
+ * toSnapshot() saves where the quiz is as a few dozen bytes of catalog ids, e.g. in the
+ * Bundle of an activity being recreated, and restoreSnapshot() puts a session with the same
+ * countries back there.  A question which was prepared but not shown is not saved, it is
+ * prepared again.
+ *
+ * A session must only be used by one thread at a time.
+ */
+public class QuizSession {
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * What a guess did.
+     */
+    public enum Outcome {
+        /** The guess was wrong, the question stays. */
+        WRONG,
+        /** The guess was right, the next question can be shown. */
+        CORRECT,
+        /** The guess was right and it was the last question of the quiz. */
+        FINISHED
+    }
+
+    private final QuizEngine mEngine;
+    private final int mQuestionCount;
+    private final GuessStats mStats; // null to pick uniformly
+    private int[] mCountryIds = new int[0]; // catalog ids of the countries quizzes are picked from
+    private int mCountryCount; // how many of mCountryIds are used, the rest is room to add countries
+    private int[] mIndexOf = new int[0]; // catalog id -> index in mCountryIds, -1 if not one of them
+    private WeightedSampler mWeights; // weight of every country in mCountryIds (0 for the room), null without stats
+    private int mChoices = 4;
+    private FlagSimilarityIndex mSimilarity; // null for random wrong answers
+
+    private int[] mQuiz = new int[0]; // indices in mCountryIds of the countries of the quiz
+    private int mNext; // index in mQuiz of the next question to prepare
+    private Question mPrepared; // null if none
+    private int mPreparedIndex;
+    private Question mQuestion; // null before the first question is shown
+    private int mQuestionIndex;
+    private boolean mAnswered; // true once the current question was guessed right
+    private boolean mFirstGuess; // true until the current question was guessed
+    private boolean[] mGuessed = new boolean[0]; // the slots of the current question guessed so far
+    private int mTotalGuesses;
+    private int mCorrectGuesses;
+
+    /**
+     * @param engine picks the quiz countries and the choices, only this session may use it.
+     * @param questionCount how many questions a quiz has.
+     * @param stats the guess stats to record the first guesses in and to pick the countries
+     * with, null to pick them uniformly.
+     */
+    public QuizSession(QuizEngine engine, int questionCount, GuessStats stats) {
+        mEngine = engine;
+        mQuestionCount = questionCount;
+        mStats = stats;
+    }
+
+    /**
+     * Sets the countries quizzes are picked from, e.g. the ones of the selected regions.  This
+     * ends the current quiz, reset() starts one with the new countries.
+     * @param countryIds catalog ids, at least getQuestionCount() of them.  The array is copied.
+     */
+    public void setCountries(int[] countryIds) {
+        if (countryIds.length < mQuestionCount)
+            throw new IllegalArgumentException(countryIds.length + " countries for " + mQuestionCount + " questions");
+        endQuiz();
+        for (int i = 0; i < mCountryCount; i++)
+            mIndexOf[mCountryIds[i]] = -1;
+        mCountryIds = countryIds.clone();
+        mCountryCount = countryIds.length;
+        int maxId = -1;
+        for (int id : countryIds)
+            maxId = Math.max(maxId, id);
+        growIndexOf(maxId);
+        for (int i = 0; i < countryIds.length; i++)
+            mIndexOf[countryIds[i]] = i;
+        mEngine.setSize(countryIds.length);
+        mWeights = mStats != null ? mStats.sampler(countryIds) : null;
+    }
+
+    /**
+     * Adds countries to the ones quizzes are picked from, e.g. the ones of a region which was
+     * selected, in O(added) (O(log n) each with GuessStats).  The countries already there keep
+     * their place and weight.  This ends the current quiz, reset() starts one with the new
+     * countries.
+     * @param countryIds catalog ids, the ones already there are ignored.
+     */
+    public void addCountries(int[] countryIds) {
+        endQuiz();
+        int maxId = -1;
+        for (int id : countryIds)
+            maxId = Math.max(maxId, id);
+        growIndexOf(maxId);
+        if (mCountryCount + countryIds.length > mCountryIds.length)
+            growCountries(Math.max(mCountryCount + countryIds.length, 2 * mCountryIds.length));
+        for (int id : countryIds) {
+            if (mIndexOf[id] >= 0)
+                continue;
+            mCountryIds[mCountryCount] = id;
+            mIndexOf[id] = mCountryCount;
+            if (mWeights != null)
+                mWeights.set(mCountryCount, mStats.weight(id));
+            ++mCountryCount;
+        }
+        mEngine.setSize(mCountryCount);
+    }
+
+    /**
+     * Removes countries from the ones quizzes are picked from, e.g. the ones of a region which
+     * was deselected, in O(removed) (O(log n) each with GuessStats): the last country takes the
+     * place of each one removed.  This ends the current quiz, reset() starts one with the
+     * countries left.
+     * @param countryIds catalog ids, the ones not there are ignored.  At least
+     * getQuestionCount() countries must be left.
+     */
+    public void removeCountries(int[] countryIds) {
+        int left = mCountryCount;
+        for (int id : countryIds)
+            if (indexOf(id) >= 0)
+                --left;
+        if (left < mQuestionCount)
+            throw new IllegalArgumentException(left + " countries for " + mQuestionCount + " questions");
+        endQuiz();
+        for (int id : countryIds) {
+            int index = indexOf(id);
+            if (index < 0)
+                continue;
+            int last = --mCountryCount;
+            int moved = mCountryIds[last];
+            mCountryIds[index] = moved;
+            mIndexOf[moved] = index;
+            mIndexOf[id] = -1;
+            if (mWeights != null) {
+                mWeights.set(index, mWeights.get(last));
+                mWeights.set(last, 0);
+            }
+        }
+        mEngine.setSize(mCountryCount);
+    }
+
+    // makes room in mIndexOf for the catalog ids up to maxId
+    private void growIndexOf(int maxId) {
+        if (maxId < mIndexOf.length)
+            return;
+        int old = mIndexOf.length;
+        mIndexOf = Arrays.copyOf(mIndexOf, maxId + 1);
+        Arrays.fill(mIndexOf, old, mIndexOf.length, -1);
+    }
+
+    // makes room for capacity countries, the weights of the room are 0
+    private void growCountries(int capacity) {
+        mCountryIds = Arrays.copyOf(mCountryIds, capacity);
+        if (mStats != null) {
+            int[] weights = new int[capacity];
+            for (int i = 0; i < mCountryCount; i++)
+                weights[i] = mWeights.get(i);
+            mWeights = new WeightedSampler(weights);
+        }
+    }
+
+    // the indices in mCountryIds are about to change, forget the quiz picked with them
+    private void endQuiz() {
+        dropPreparedQuestion();
+        mQuiz = new int[0];
+        mNext = 0;
+        mQuestion = null;
+    }
+
+    /**
+     * @return the catalog ids of the countries quizzes are picked from, in no particular order.
+     * A copy.
+     */
+    public int[] getCountryIds() {
+        return Arrays.copyOf(mCountryIds, mCountryCount);
+    }
+
+    /**
+     * @return how many countries quizzes are picked from.
+     */
+    public int getCountryCount() {
+        return mCountryCount;
+    }
+
+    /**
+     * @param choices how many answer choices the next prepared questions have, resampleChoices()
+     * gives the current question as many.
+     */
+    public void setChoices(int choices) {
+        if (choices < 2)
+            throw new IllegalArgumentException("A question needs at least 2 choices, not " + choices);
+        mChoices = choices;
+    }
+
+    /**
+     * @param similarity the look-alikes of every flag, the wrong answers of the next prepared
+     * questions (and of the current one after resampleChoices()) are the flags most like the
+     * correct one.  null for random wrong answers.
+     */
+    public void setSimilarity(FlagSimilarityIndex similarity) {
+        mSimilarity = similarity;
+    }
+
+    /**
+     * @return true if the wrong answers are look-alike flags.
+     */
+    public boolean isHard() {
+        return mSimilarity != null;
+    }
+
+    /**
+     * @return how many answer choices a question has, fewer if there are not enough countries.
+     */
+    public int getChoices() {
+        return Math.min(mChoices, mCountryCount);
+    }
+
+    /**
+     * Starts a new quiz: picks its countries and clears the guesses.  The first question still
+     * has to be prepared and shown.
+     */
+    public void reset() {
+        mQuiz = mWeights != null ? mEngine.pickQuiz(mQuestionCount, mWeights) : mEngine.pickQuiz(mQuestionCount);
+        mNext = 0;
+        mPrepared = null;
+        mQuestion = null;
+        mTotalGuesses = 0;
+        mCorrectGuesses = 0;
+    }
+
+    /**
+     * @return true if there is a question left to prepare.
+     */
+    public boolean hasNextQuestion() {
+        return mNext < mQuiz.length;
+    }
+
+    /**
+     * Picks the next country of the quiz and its answer choices.
+     * @return the prepared question.
+     * @throws IllegalStateException if the quiz has no question left.
+     */
+    public Question prepareNextQuestion() {
+        if (!hasNextQuestion())
+            throw new IllegalStateException("The quiz has no question left");
+        mPreparedIndex = mQuiz[mNext++];
+        mPrepared = pickQuestion(mPreparedIndex);
+        return mPrepared;
+    }
+
+    /**
+     * Picks the choices of the current question again, and of the prepared one if there is
+     * one, e.g. after the choice count changed, instead of starting a new quiz.  Their countries
+     * stay, the slots guessed of the current question are cleared but a wrong first guess still
+     * counts.
+     * @return the current question with its new choices, null if there is none to guess (none
+     * is shown yet, or it was answered already).
+     */
+    public Question resampleChoices() {
+        if (mPrepared != null)
+            mPrepared = pickQuestion(mPreparedIndex);
+        if (mQuestion == null || mAnswered)
+            return null;
+        mQuestion = pickQuestion(mQuestionIndex);
+        mGuessed = new boolean[mQuestion.getChoiceCount()];
+        return mQuestion;
+    }
+
+    // picks the choices of a question, look-alikes in hard mode
+    private Question pickQuestion(int correctIndex) {
+        return mSimilarity != null ? pickLookAlikes(correctIndex)
+                : Question.pick(mEngine, mCountryIds, correctIndex, getChoices());
+    }
+
+    // a hard question: its wrong answers are the flags most like the correct one, of the
+    // countries quizzes are picked from
+    private Question pickLookAlikes(int correctIndex) {
+        int correctId = mCountryIds[correctIndex];
+        int[] distractors = new int[getChoices() - 1];
+        int count = 0;
+        for (int neighbor : mSimilarity.getNeighbors(correctId)) {
+            if (count == distractors.length)
+                break;
+            int index = indexOf(neighbor);
+            if (index >= 0)
+                distractors[count++] = index;
+        }
+        // few of its look-alikes are in the selected regions, compare the flags of the others
+        while (count < distractors.length) {
+            int nearest = -1;
+            double nearestDistance = 0;
+            for (int i = 0; i < mCountryCount; i++) {
+                if (i == correctIndex || contains(distractors, count, i))
+                    continue;
+                double distance = mSimilarity.distance(correctId, mCountryIds[i]);
+                if (nearest < 0 || distance < nearestDistance) {
+                    nearest = i;
+                    nearestDistance = distance;
+                }
+            }
+            distractors[count++] = nearest;
+        }
+        return Question.place(mEngine, mCountryIds, correctIndex, distractors);
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++)
+            if (values[i] == value)
+                return true;
+        return false;
+    }
+
+    /**
+     * @return the prepared question, null if there is none.
+     */
+    public Question getPreparedQuestion() {
+        return mPrepared;
+    }
+
+    /**
+     * Forgets the prepared question, e.g. when the quiz is reset before it is shown.
+     */
+    public void dropPreparedQuestion() {
+        mPrepared = null;
+    }
+
+    /**
+     * @return the prepared question, which is now the current one.
+     * @throws IllegalStateException if no question is prepared.
+     */
+    public Question showPreparedQuestion() {
+        if (mPrepared == null)
+            throw new IllegalStateException("No question is prepared");
+        mQuestion = mPrepared;
+        mQuestionIndex = mPreparedIndex;
+        mPrepared = null;
+        mAnswered = false;
+        mFirstGuess = true;
+        mGuessed = new boolean[mQuestion.getChoiceCount()];
+        return mQuestion;
+    }
+
+    /**
+     * @return the current question, null before the first one is shown.
+     */
+    public Question getQuestion() {
+        return mQuestion;
+    }
+
+    /**
+     * @param ahead 0 for the country of the next question to prepare, 1 for the one after, ...
+     * @return its catalog id, -1 if the quiz has fewer questions.
+     */
+    public int getUpcomingCountryId(int ahead) {
+        int next = mNext + ahead;
+        return next < mQuiz.length ? mCountryIds[mQuiz[next]] : -1;
+    }
+
+    /**
+     * Guesses the current question.
+     * @param slot the slot of the chosen answer.
+     * @return what the guess did.
+     * @throws IllegalStateException if no question is shown or it was answered already.
+     */
+    public Outcome guess(int slot) {
+        if (mQuestion == null || mAnswered)
+            throw new IllegalStateException("There is no question to guess");
+        mGuessed[slot] = true;
+        return record(mQuestion.isCorrect(slot));
+    }
+
+    /**
+     * Guesses the current question with a country which need not be one of its choices, i.e.
+     * one typed in the typed answer mode.  A choice of the question counts as guessing its slot.
+     * @param countryId the catalog id of the guessed country.
+     * @return what the guess did.
+     * @throws IllegalStateException if no question is shown or it was answered already.
+     */
+    public Outcome guessCountry(int countryId) {
+        if (mQuestion == null || mAnswered)
+            throw new IllegalStateException("There is no question to guess");
+        for (int slot = 0; slot < mQuestion.getChoiceCount(); slot++)
+            if (mQuestion.getChoiceId(slot) == countryId)
+                return guess(slot);
+        return record(false);
+    }
+
+    // counts a guess of the current question
+    private Outcome record(boolean correct) {
+        ++mTotalGuesses;
+        if (mFirstGuess) {
+            // only the first guess tells whether the user knows the flag
+            mFirstGuess = false;
+            if (mStats != null) {
+                mStats.recordGuess(mQuestion.getCorrectId(), correct);
+                mWeights.set(mQuestionIndex, mStats.weight(mQuestion.getCorrectId()));
+            }
+        }
+        if (!correct)
+            return Outcome.WRONG;
+        mAnswered = true;
+        ++mCorrectGuesses;
+        return mCorrectGuesses == mQuestionCount ? Outcome.FINISHED : Outcome.CORRECT;
+    }
+
+    /**
+     * @return true once the current question was guessed right.
+     */
+    public boolean isAnswered() {
+        return mAnswered;
+    }
+
+    /**
+     * @param slot a slot of the current question.
+     * @return true if it was guessed, i.e. its button is disabled.
+     */
+    public boolean isGuessed(int slot) {
+        return mGuessed[slot];
+    }
+
+    /**
+     * @return true once every question was guessed right.
+     */
+    public boolean isFinished() {
+        return mCorrectGuesses == mQuestionCount;
+    }
+
+    /**
+     * @return how many questions a quiz has.
+     */
+    public int getQuestionCount() {
+        return mQuestionCount;
+    }
+
+    /**
+     * @return how many guesses were made in this quiz.
+     */
+    public int getTotalGuesses() {
+        return mTotalGuesses;
+    }
+
+    /**
+     * @return how many of them were right, which is also how many questions were answered.
+     */
+    public int getCorrectGuesses() {
+        return mCorrectGuesses;
+    }
+
+    /**
+     * Saves where the quiz is: its countries, the current question with its choices and the
+     * slots guessed, and the guess counts, all as catalog ids.  The countries quizzes are picked
+     * from, the choice count and the GuessStats are not saved, they are set up again before
+     * restoreSnapshot().
+     *
+     * The snapshot is a version byte followed by varints (7 bits a byte, the last with the high
+     * bit clear): quiz length, index of the next question, the quiz's catalog ids, total and
+     * correct guesses, flags (1 question shown, 2 answered, 4 not guessed yet), and if a
+     * question is shown: choice count, the choices' catalog ids, the correct slot, then the
+     * guessed slots as a bit set, 8 slots a byte.
+     * @return the snapshot, about 2 bytes per country for a catalog of fewer than 16384.
+     */
+    public byte[] toSnapshot() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(SNAPSHOT_VERSION);
+        writeVarint(out, mQuiz.length);
+        // a prepared question was never seen, it is picked again after restoring
+        writeVarint(out, mPrepared != null ? mNext - 1 : mNext);
+        for (int index : mQuiz)
+            writeVarint(out, mCountryIds[index]);
+        writeVarint(out, mTotalGuesses);
+        writeVarint(out, mCorrectGuesses);
+        writeVarint(out, (mQuestion != null ? 1 : 0) | (mAnswered ? 2 : 0) | (mFirstGuess ? 4 : 0));
+        if (mQuestion != null) {
+            writeVarint(out, mQuestion.getChoiceCount());
+            for (int slot = 0; slot < mQuestion.getChoiceCount(); slot++)
+                writeVarint(out, mQuestion.getChoiceId(slot));
+            writeVarint(out, mQuestion.getCorrectSlot());
+            for (int slot = 0; slot < mGuessed.length; slot += 8) {
+                int bits = 0;
+                for (int i = slot; i < slot + 8 && i < mGuessed.length; i++)
+                    bits |= mGuessed[i] ? 1 << (i - slot) : 0;
+                out.write(bits);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Puts the quiz back where toSnapshot() saved it.  The countries must be set first, every
+     * country of the saved quiz must be one of them.  If the current question was saved with
+     * another choice count than getChoices(), its choices are picked again like
+     * resampleChoices() does (its wrong guesses still count, an answered question stays answered).
+     * @param snapshot a snapshot of a session with the same question count.
+     * @return true if the quiz was restored, false if the snapshot does not fit this session
+     * (e.g. other regions are selected now) or is not a snapshot, the session is unchanged then.
+     */
+    public boolean restoreSnapshot(byte[] snapshot) {
+        try {
+            int[] at = {0};
+            if (snapshot.length == 0 || snapshot[at[0]++] != SNAPSHOT_VERSION)
+                return false;
+            int[] quiz = new int[readVarint(snapshot, at)];
+            int next = readVarint(snapshot, at);
+            if (quiz.length != mQuestionCount || next > quiz.length)
+                return false;
+            for (int i = 0; i < quiz.length; i++) {
+                quiz[i] = indexOf(readVarint(snapshot, at));
+                if (quiz[i] < 0)
+                    return false;
+            }
+            int totalGuesses = readVarint(snapshot, at);
+            int correctGuesses = readVarint(snapshot, at);
+            int flags = readVarint(snapshot, at);
+            Question question = null;
+            boolean[] guessed = new boolean[0];
+            if ((flags & 1) != 0) {
+                if (next == 0)
+                    return false;
+                int[] choiceIds = new int[readVarint(snapshot, at)];
+                for (int slot = 0; slot < choiceIds.length; slot++) {
+                    choiceIds[slot] = readVarint(snapshot, at);
+                    if (indexOf(choiceIds[slot]) < 0)
+                        return false;
+                }
+                question = Question.of(mCountryIds[quiz[next - 1]], choiceIds);
+                if (question.getCorrectSlot() != readVarint(snapshot, at))
+                    return false;
+                guessed = new boolean[choiceIds.length];
+                for (int slot = 0; slot < guessed.length; slot++)
+                    guessed[slot] = (snapshot[at[0] + slot / 8] & (1 << (slot % 8))) != 0;
+                at[0] += (guessed.length + 7) / 8;
+                if (guessed[question.getCorrectSlot()] != ((flags & 2) != 0))
+                    return false;
+            }
+            if (at[0] != snapshot.length || correctGuesses > totalGuesses || correctGuesses > next)
+                return false;
+
+            mQuiz = quiz;
+            mNext = next;
+            mPrepared = null;
+            mQuestion = question;
+            mQuestionIndex = question != null ? quiz[next - 1] : 0;
+            mAnswered = (flags & 2) != 0;
+            mFirstGuess = (flags & 4) != 0;
+            mGuessed = guessed;
+            mTotalGuesses = totalGuesses;
+            mCorrectGuesses = correctGuesses;
+            if (question != null && question.getChoiceCount() != getChoices()) {
+                // the choice count changed since, the saved choices would not fit the buttons
+                mQuestion = pickQuestion(mQuestionIndex);
+                mGuessed = new boolean[mQuestion.getChoiceCount()];
+                mGuessed[mQuestion.getCorrectSlot()] = mAnswered;
+            }
+            return true;
+        }
+        catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            // Question.of() rejected the choices, or the snapshot is truncated
+            return false;
+        }
+    }
+
+    // the index of a catalog id in mCountryIds, -1 if it is not one of them
+    private int indexOf(int countryId) {
+        return countryId < mIndexOf.length ? mIndexOf[countryId] : -1;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    // reads the varint at at[0] and moves at[0] past it
+    private static int readVarint(byte[] bytes, int[] at) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = bytes[at[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0)
+                    throw new IllegalArgumentException("Negative varint");
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+}
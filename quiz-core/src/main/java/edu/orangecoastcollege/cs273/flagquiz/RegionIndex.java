@@ -0,0 +1,184 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RegionIndex is built once when the catalog is loaded and answers "which countries are in
+ * these regions" without scanning or copying the catalog.
+ *
+ * Every region gets an id (in the order the regions first appear in the catalog), a packed
+ * sorted array of the indices of its countries, and a BitSet of the same indices.  Selecting
+ * one region returns its packed array, selecting several returns the union of their BitSets
+ * as a sorted array of catalog indices.
+ *
+ * The arrays returned by the index are shared and must not be modified.
+ */
+public class RegionIndex {
+
+    private final int mCountryCount;
+    private final String[] mRegionNames;
+    private final Map<String, Integer> mRegionIds = new HashMap<>();
+    private final int[][] mMembers; // region id -> sorted catalog indices
+    private final BitSet[] mMemberSets; // region id -> catalog indices
+    private final int[] mAllCountries; // 0 .. mCountryCount - 1
+
+    /**
+     * @param countries the whole catalog, indices in this list are used everywhere else.
+     */
+    public RegionIndex(List<Country> countries) {
+        mCountryCount = countries.size();
+
+        // give every region an id
+        List<String> names = new ArrayList<>();
+        int[] regionOf = new int[mCountryCount];
+        for (int i = 0; i < mCountryCount; i++) {
+            String region = countries.get(i).getRegion();
+            Integer id = mRegionIds.get(region);
+            if (id == null) {
+                id = names.size();
+                mRegionIds.put(region, id);
+                names.add(region);
+            }
+            regionOf[i] = id;
+        }
+        mRegionNames = names.toArray(new String[names.size()]);
+        mMembers = new int[mRegionNames.length][];
+        mMemberSets = new BitSet[mRegionNames.length];
+        mAllCountries = index(regionOf);
+    }
+
+    /**
+     * Builds the index from the region ids the catalog already has, region ids of the index
+     * are the catalog's region ids.
+     * @param catalog the whole catalog, country ids are used everywhere else.
+     */
+    public RegionIndex(CountryCatalog catalog) {
+        mCountryCount = catalog.size();
+        mRegionNames = new String[catalog.getRegionCount()];
+        for (int id = 0; id < mRegionNames.length; id++) {
+            mRegionNames[id] = catalog.getRegionName(id);
+            mRegionIds.put(mRegionNames[id], id);
+        }
+        int[] regionOf = new int[mCountryCount];
+        for (int i = 0; i < mCountryCount; i++)
+            regionOf[i] = catalog.getRegionId(i);
+        mMembers = new int[mRegionNames.length][];
+        mMemberSets = new BitSet[mRegionNames.length];
+        mAllCountries = index(regionOf);
+    }
+
+    // packs the members of every region, returns 0 .. mCountryCount - 1
+    private int[] index(int[] regionOf) {
+        int[] counts = new int[mRegionNames.length];
+        for (int i = 0; i < mCountryCount; i++)
+            ++counts[regionOf[i]];
+        for (int id = 0; id < mRegionNames.length; id++) {
+            mMembers[id] = new int[counts[id]];
+            mMemberSets[id] = new BitSet(mCountryCount);
+        }
+        int[] filled = new int[mRegionNames.length];
+        for (int i = 0; i < mCountryCount; i++) {
+            int id = regionOf[i];
+            mMembers[id][filled[id]++] = i;
+            mMemberSets[id].set(i);
+        }
+
+        int[] all = new int[mCountryCount];
+        for (int i = 0; i < mCountryCount; i++)
+            all[i] = i;
+        return all;
+    }
+
+    /**
+     * @return how many distinct regions the catalog has.
+     */
+    public int getRegionCount() {
+        return mRegionNames.length;
+    }
+
+    /**
+     * @param regionId a region id, 0 to getRegionCount() - 1.
+     * @return the region's name, as it appears in the catalog.
+     */
+    public String getRegionName(int regionId) {
+        return mRegionNames[regionId];
+    }
+
+    /**
+     * @param regionName a region's name, as it appears in the catalog.
+     * @return the region's id, or -1 if no country is in that region.
+     */
+    public int getRegionId(String regionName) {
+        Integer id = mRegionIds.get(regionName);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param regionId a region id.
+     * @return the sorted catalog indices of the region's countries.
+     */
+    public int[] getCountries(int regionId) {
+        return mMembers[regionId];
+    }
+
+    /**
+     * @param regionId a region id.
+     * @return the catalog indices of the region's countries as a BitSet.
+     */
+    public BitSet getCountrySet(int regionId) {
+        return mMemberSets[regionId];
+    }
+
+    /**
+     * Selects the countries of several regions.
+     * @param regionIds the ids of the regions to select.
+     * @return the sorted catalog indices of every country in one of the regions.
+     */
+    public int[] select(BitSet regionIds) {
+        int selected = regionIds.cardinality();
+        if (selected == 0)
+            return new int[0];
+        if (selected == mRegionNames.length)
+            return mAllCountries;
+        if (selected == 1)
+            return mMembers[regionIds.nextSetBit(0)];
+
+        BitSet union = new BitSet(mCountryCount);
+        for (int id = regionIds.nextSetBit(0); id >= 0; id = regionIds.nextSetBit(id + 1))
+            union.or(mMemberSets[id]);
+
+        int[] countries = new int[union.cardinality()];
+        int n = 0;
+        for (int i = union.nextSetBit(0); i >= 0; i = union.nextSetBit(i + 1))
+            countries[n++] = i;
+        return countries;
+    }
+
+    /**
+     * Selects the countries of several regions by name, names not in the catalog are ignored.
+     * @param regionNames the names of the regions to select.
+     * @return the sorted catalog indices of every country in one of the regions.
+     */
+    public int[] select(Collection<String> regionNames) {
+        return select(toRegionIds(regionNames));
+    }
+
+    /**
+     * @param regionNames region names, names not in the catalog are ignored.
+     * @return the ids of the regions as a BitSet.
+     */
+    public BitSet toRegionIds(Collection<String> regionNames) {
+        BitSet ids = new BitSet(mRegionNames.length);
+        for (String name : regionNames) {
+            int id = getRegionId(name);
+            if (id >= 0)
+                ids.set(id);
+        }
+        return ids;
+    }
+}
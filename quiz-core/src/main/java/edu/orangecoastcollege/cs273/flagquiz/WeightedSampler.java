@@ -0,0 +1,127 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+/**
+ * WeightedSampler picks indices 0 to size - 1 at random, each with a probability proportional
+ * to its weight, and lets single weights change between picks.
+ *
+ * The weights are kept in a Fenwick (binary indexed) tree, where entry i holds the sum of the
+ * weights of a range of indices ending at i.  Building the tree is O(n), changing a weight and
+ * picking an index are both O(log n): a pick walks down the tree from the biggest power of two,
+ * subtracting the sums it skips, until it lands on the index whose range contains the random
+ * number.  An alias table would pick in O(1), but it has to be rebuilt in O(n) after every
+ * change, and the weights change after every guess.
+ */
+public class WeightedSampler {
+
+    private final int mSize;
+    private final int[] mWeights;
+    private final long[] mTree; // 1-based, mTree[i] is the sum of weights (i - (i & -i)) .. i - 1
+    private final int mTopStep; // the highest power of two <= size
+    private long mTotal;
+
+    /**
+     * @param weights the weight of every index, none may be negative.  The array is copied.
+     */
+    public WeightedSampler(int[] weights) {
+        mSize = weights.length;
+        mWeights = weights.clone();
+        mTree = new long[mSize + 1];
+        for (int i = 0; i < mSize; i++) {
+            if (weights[i] < 0)
+                throw new IllegalArgumentException("Negative weight " + weights[i] + " at " + i);
+            mTotal += weights[i];
+            mTree[i + 1] += weights[i];
+            int parent = (i + 1) + ((i + 1) & -(i + 1));
+            if (parent <= mSize)
+                mTree[parent] += mTree[i + 1];
+        }
+        mTopStep = mSize == 0 ? 0 : Integer.highestOneBit(mSize);
+    }
+
+    /**
+     * @return how many indices there are.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the sum of all the weights.
+     */
+    public long getTotal() {
+        return mTotal;
+    }
+
+    /**
+     * @param index an index.
+     * @return its weight.
+     */
+    public int get(int index) {
+        return mWeights[index];
+    }
+
+    /**
+     * Changes the weight of one index, in O(log n).
+     * @param index the index.
+     * @param weight its new weight, not negative.
+     */
+    public void set(int index, int weight) {
+        if (weight < 0)
+            throw new IllegalArgumentException("Negative weight " + weight + " at " + index);
+        long delta = weight - mWeights[index];
+        mWeights[index] = weight;
+        mTotal += delta;
+        for (int i = index + 1; i <= mSize; i += i & -i)
+            mTree[i] += delta;
+    }
+
+    /**
+     * Picks one index, in O(log n).
+     * @param random the source of randomness.
+     * @return an index, with a probability of its weight / getTotal().
+     * @throws IllegalStateException if every weight is 0.
+     */
+    public int sample(QuizRandom random) {
+        if (mTotal <= 0)
+            throw new IllegalStateException("Every weight is 0");
+        long target = random.nextLong(mTotal);
+        int position = 0;
+        for (int step = mTopStep; step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= mSize && mTree[next] <= target) {
+                position = next;
+                target -= mTree[next];
+            }
+        }
+        return position; // the 1-based tree position before the one containing target
+    }
+
+    /**
+     * Picks distinct indices, each one with a probability proportional to its weight among the
+     * ones not picked yet, in O(count log n).  The weights are the same afterwards.
+     * @param count how many indices to pick.
+     * @param random the source of randomness.
+     * @return count distinct indices, in the order they were picked.
+     * @throws IllegalArgumentException if fewer than count indices have a weight.
+     */
+    public int[] sampleDistinct(int count, QuizRandom random) {
+        int[] picked = new int[count];
+        int[] weights = new int[count];
+        int n = 0;
+        try {
+            for (; n < count; n++) {
+                if (mTotal <= 0)
+                    throw new IllegalArgumentException("Can not pick " + count + " indices, only "
+                            + n + " have a weight");
+                picked[n] = sample(random);
+                weights[n] = mWeights[picked[n]];
+                set(picked[n], 0);
+            }
+        }
+        finally {
+            for (int i = 0; i < n; i++)
+                set(picked[i], weights[i]);
+        }
+        return picked;
+    }
+}
@@ -0,0 +1,153 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress test of AttemptLog: millions of attempts recorded from several threads at once, then
+ * the log is reopened, cut in the middle of a frame and queried.  The throughput of record(),
+ * of the writer, of the recovery and the query latency are printed to standard out.
+ */
+public class AttemptLogStressTest {
+
+    private static final int THREADS = 4;
+    private static final int ATTEMPTS_PER_THREAD = 500000;
+    private static final int COUNTRIES = 223;
+    private static final int QUERIES = 1000000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private ExecutorService mWriter;
+
+    @Before
+    public void setUp() {
+        mWriter = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        mWriter.shutdownNow();
+    }
+
+    @Test
+    public void millionsOfAttempts() throws Exception {
+        File directory = mFolder.getRoot();
+        final AttemptLog log = AttemptLog.open(directory, mWriter);
+        final CountDownLatch start = new CountDownLatch(1);
+        final long[][] recordNanos = new long[THREADS][ATTEMPTS_PER_THREAD];
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    QuizRandom random = QuizRandom.create(thread);
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        int country = random.nextInt(COUNTRIES);
+                        // every thread's correct guesses are the even i
+                        int chosen = i % 2 == 0 ? country : (country + 1) % COUNTRIES;
+                        long before = System.nanoTime();
+                        log.record(country, chosen, 500 + i % 1000, i);
+                        recordNanos[thread][i] = System.nanoTime() - before;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+        long recorded = System.nanoTime() - begin;
+        log.close().get();
+        long written = System.nanoTime() - begin;
+        assertNull(log.getWriteError());
+
+        long total = (long) THREADS * ATTEMPTS_PER_THREAD;
+        assertEquals(total, log.getTotalAttempts());
+        assertEquals(total / 2, log.getTotalCorrect());
+        // the percentiles include the threads being preempted, on a machine with fewer cores
+        long[] nanos = new long[(int) total];
+        for (int t = 0; t < THREADS; t++)
+            System.arraycopy(recordNanos[t], 0, nanos, t * ATTEMPTS_PER_THREAD, ATTEMPTS_PER_THREAD);
+        Arrays.sort(nanos);
+        System.out.println(String.format("record: %,d attempts from %d threads in %.0f ms, %.0f ns per attempt, "
+                        + "median %d ns, 99%% %d ns, 99.9%% %d ns",
+                total, THREADS, recorded / 1e6, recorded / (double) total,
+                nanos[nanos.length / 2], nanos[nanos.length * 99 / 100], nanos[nanos.length * 999 / 1000]));
+        System.out.println(String.format("write: all on disk after %.0f ms, %.1f MB/s of records, %s",
+                written / 1e6, total * AttemptLog.RECORD_BYTES / (written / 1e3), log));
+
+        // reopening replays the log since the last compaction on top of the aggregates
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        begin = System.nanoTime();
+        AttemptLog reopened = AttemptLog.open(directory, writer);
+        long recovery = System.nanoTime() - begin;
+        assertEquals(total, reopened.getTotalAttempts());
+        assertEquals(total / 2, reopened.getTotalCorrect());
+        for (int id = 0; id < COUNTRIES; id++) {
+            assertEquals(log.getAttempts(id), reopened.getAttempts(id));
+            assertEquals(log.getMeanLatencyMillis(id), reopened.getMeanLatencyMillis(id), 1e-9);
+        }
+        File logFile = new File(directory, AttemptLog.LOG_FILE);
+        System.out.println(String.format("recover: %.1f ms for %,d bytes of log", recovery / 1e6, logFile.length()));
+
+        // a few more frames after the last compaction
+        for (int frame = 0; frame < 3; frame++) {
+            for (int i = 0; i < 1000; i++)
+                reopened.record(i % COUNTRIES, i % COUNTRIES, 500, i);
+            reopened.flush().get();
+        }
+        total += 3000;
+        reopened.close().get();
+        writer.shutdown();
+
+        // a write cut short: the frame it belonged to is dropped, everything before it is kept
+        long length = logFile.length();
+        RandomAccessFile raf = new RandomAccessFile(logFile, "rw");
+        raf.setLength(length - 3);
+        raf.close();
+        writer = Executors.newSingleThreadExecutor();
+        AttemptLog truncated = AttemptLog.open(directory, writer);
+        long droppedFrameBytes = length - logFile.length();
+        long dropped = (droppedFrameBytes - 8) / AttemptLog.RECORD_BYTES;
+        assertTrue(dropped > 0);
+        assertEquals(8 + dropped * AttemptLog.RECORD_BYTES, droppedFrameBytes);
+        assertEquals(total - dropped, truncated.getTotalAttempts());
+        System.out.println(String.format("truncated write: dropped the last frame of %,d attempts", dropped));
+
+        // the aggregates are in memory, a query is a few array reads under the lock
+        QuizRandom random = QuizRandom.create(1);
+        double sum = 0;
+        begin = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            int id = random.nextInt(COUNTRIES);
+            sum += truncated.getCorrect(id) / (double) truncated.getAttempts(id) + truncated.getMeanLatencyMillis(id);
+        }
+        long queries = System.nanoTime() - begin;
+        assertTrue(sum > 0);
+        System.out.println(String.format("query: %.0f ns per country", queries / (double) QUERIES));
+        truncated.close().get();
+        writer.shutdown();
+    }
+}
@@ -0,0 +1,168 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for AttemptLog: reopening, interrupted writes and compactions.
+ */
+public class AttemptLogTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private ExecutorService mWriter;
+    private File mDirectory;
+
+    @Before
+    public void setUp() {
+        mWriter = Executors.newSingleThreadExecutor();
+        mDirectory = new File(mFolder.getRoot(), "attempts");
+    }
+
+    @After
+    public void tearDown() {
+        mWriter.shutdownNow();
+    }
+
+    @Test
+    public void aggregatesAreKeptAcrossSessions() throws Exception {
+        AttemptLog log = AttemptLog.open(mDirectory, mWriter);
+        log.record(3, 3, 1200, 1000L);
+        log.record(3, 5, 800, 2000L);
+        log.record(7, 7, 400, 3000L);
+        assertEquals(2, log.getAttempts(3)); // before anything is written
+        log.close().get();
+
+        log = AttemptLog.open(mDirectory, mWriter);
+        assertEquals(2, log.getAttempts(3));
+        assertEquals(1, log.getCorrect(3));
+        assertEquals(1000.0, log.getMeanLatencyMillis(3), 0);
+        assertEquals(1, log.getCorrect(7));
+        assertEquals(0, log.getAttempts(100));
+        assertEquals(3, log.getTotalAttempts());
+        assertEquals(2, log.getTotalCorrect());
+        log.close().get();
+    }
+
+    @Test
+    public void partialWriteIsDropped() throws Exception {
+        AttemptLog log = AttemptLog.open(mDirectory, mWriter);
+        File file = new File(mDirectory, AttemptLog.LOG_FILE);
+        log.record(1, 1, 100, 1L);
+        log.flush().get();
+        long firstFrameEnd = file.length();
+        log.record(2, 2, 100, 2L);
+        log.record(2, 4, 100, 3L);
+        log.close().get();
+
+        // the process died while the next frame was being written
+        truncate(file, firstFrameEnd + 13);
+
+        log = AttemptLog.open(mDirectory, mWriter);
+        assertEquals(1, log.getTotalAttempts());
+        assertEquals(0, log.getAttempts(2));
+        assertEquals(firstFrameEnd, file.length());
+
+        // appends go after the first frame, not after the dropped bytes
+        log.record(2, 2, 100, 4L);
+        log.close().get();
+        log = AttemptLog.open(mDirectory, mWriter);
+        assertEquals(2, log.getTotalAttempts());
+        assertEquals(1, log.getCorrect(2));
+        log.close().get();
+    }
+
+    @Test
+    public void corruptFrameIsDropped() throws Exception {
+        AttemptLog log = AttemptLog.open(mDirectory, mWriter);
+        log.record(1, 1, 100, 1L);
+        log.flush().get();
+        log.record(2, 2, 100, 2L);
+        log.close().get();
+
+        File file = new File(mDirectory, AttemptLog.LOG_FILE);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(file.length() - 6); // in the time of the second record
+        raf.write(0x55);
+        raf.close();
+
+        log = AttemptLog.open(mDirectory, mWriter);
+        assertEquals(1, log.getTotalAttempts());
+        log.close().get();
+    }
+
+    @Test
+    public void compactionFoldsTheLog() throws Exception {
+        long compactBytes = 4 * 1024;
+        AttemptLog log = AttemptLog.open(mDirectory, mWriter, compactBytes);
+        for (int i = 0; i < 1000; i++) {
+            log.record(i % 10, i % 20, i, i);
+            if (i % 50 == 0)
+                log.flush().get();
+        }
+        log.close().get();
+        File logFile = new File(mDirectory, AttemptLog.LOG_FILE);
+        assertTrue(logFile.length() < compactBytes + 50 * AttemptLog.RECORD_BYTES + 8);
+        assertTrue(new File(mDirectory, AttemptLog.AGGREGATE_FILE).exists());
+        assertFalse(log.toString(), log.toString().contains(" 0 compactions"));
+
+        log = AttemptLog.open(mDirectory, mWriter, compactBytes);
+        assertEquals(1000, log.getTotalAttempts());
+        assertEquals(500, log.getTotalCorrect());
+        assertEquals(100, log.getAttempts(4));
+        // 4, 14, ... 994 of which 4, 24, ... were correct
+        assertEquals(50, log.getCorrect(4));
+        assertEquals((9 + 999) / 2.0, log.getMeanLatencyMillis(9), 0.001);
+        log.close().get();
+    }
+
+    @Test
+    public void interruptedCompactionDoesNotCountTwice() throws Exception {
+        long compactBytes = 1024;
+        AttemptLog log = AttemptLog.open(mDirectory, mWriter, compactBytes);
+        File logFile = new File(mDirectory, AttemptLog.LOG_FILE);
+        File saved = new File(mFolder.getRoot(), "saved.log");
+        int recorded = 0;
+        // fill the log up to just below the compaction size and keep a copy of it
+        while (logFile.length() + 8 + AttemptLog.RECORD_BYTES < compactBytes) {
+            log.record(1, 1, 10, recorded++);
+            log.flush().get();
+        }
+        Files.copy(logFile.toPath(), saved.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        log.record(1, 1, 10, recorded++);
+        log.flush().get(); // compacts
+        log.close().get();
+
+        // the process died after attempts.agg was written, before the log was replaced: the old
+        // log is folded already and must be ignored
+        Files.copy(saved.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        log = AttemptLog.open(mDirectory, mWriter, compactBytes);
+        assertEquals(recorded, log.getTotalAttempts());
+        log.close().get();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void idsMustFitTheLog() throws IOException {
+        AttemptLog.open(mDirectory, mWriter).record(70000, 0, 0, 0);
+    }
+
+    private static void truncate(File file, long size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(size);
+        raf.close();
+    }
+}
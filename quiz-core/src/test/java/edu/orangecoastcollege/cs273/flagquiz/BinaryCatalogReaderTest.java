@@ -0,0 +1,60 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for BinaryCatalogReader.
+ */
+public class BinaryCatalogReaderTest {
+
+    static List<Country> readJsonCatalog() throws IOException {
+        InputStream in = new FileInputStream(CountryCatalogParserTest.CATALOG_PATH);
+        try {
+            return CountryCatalogParser.parse(in).asList();
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void readsSameCountriesAsJson() throws Exception {
+        List<Country> json = readJsonCatalog();
+        List<Country> binary = BinaryCatalogReader.read(
+                ByteBuffer.wrap(BinaryCatalogTestWriter.write(json))).asList();
+
+        assertEquals(json, binary);
+        assertEquals("Africa/Africa-Burkina_Faso.png", binary.get(4).getFileName());
+    }
+
+    @Test
+    public void readsAsManyRegionsAsACatalogCanHave() throws Exception {
+        List<Country> countries = new ArrayList<>();
+        for (int i = 0; i < CountryCatalog.MAX_REGIONS; i++)
+            countries.add(new Country("Country " + i, "Region " + i));
+        CountryCatalog catalog = BinaryCatalogReader.read(ByteBuffer.wrap(BinaryCatalogTestWriter.write(countries)));
+
+        assertEquals(countries, catalog.asList());
+        assertEquals(CountryCatalog.MAX_REGIONS, catalog.getRegionCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws Exception {
+        BinaryCatalogReader.read(ByteBuffer.wrap("{\"Countries\": []}".getBytes("UTF-8")));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedCatalog() throws Exception {
+        byte[] catalog = BinaryCatalogTestWriter.write(readJsonCatalog());
+        BinaryCatalogReader.read(ByteBuffer.wrap(Arrays.copyOf(catalog, catalog.length - 3)));
+    }
+}
@@ -0,0 +1,68 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes countries in the Countries.bin layout read by BinaryCatalogReader, the same way the
+ * compileCountryCatalog task in app/catalog.gradle does, so tests do not depend on the Gradle
+ * task having run.
+ */
+class BinaryCatalogTestWriter {
+
+    static byte[] write(List<Country> countries) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        Map<String, Integer> regions = new LinkedHashMap<>();
+        List<int[]> entries = new ArrayList<>();
+        for (Country country : countries) {
+            if (!regions.containsKey(country.getRegion()))
+                regions.put(country.getRegion(), regions.size());
+            entries.add(new int[] {intern(strings, country.getName()), regions.get(country.getRegion()),
+                    intern(strings, country.getFileName())});
+        }
+        List<Integer> regionNames = new ArrayList<>();
+        for (String region : regions.keySet())
+            regionNames.add(intern(strings, region));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(BinaryCatalogReader.MAGIC);
+        out.writeShort(BinaryCatalogReader.VERSION);
+
+        ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        out.writeInt(strings.size());
+        for (String s : strings.keySet()) {
+            out.writeInt(blob.size());
+            blob.write(s.getBytes("UTF-8"));
+        }
+        out.writeInt(blob.size());
+        blob.writeTo(out);
+
+        out.writeShort(regionNames.size());
+        for (int region : regionNames)
+            out.writeInt(region);
+
+        out.writeInt(entries.size());
+        for (int[] entry : entries) {
+            out.writeInt(entry[0]);
+            out.writeByte(entry[1]);
+            out.writeInt(entry[2]);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int intern(Map<String, Integer> strings, String s) {
+        Integer index = strings.get(s);
+        if (index == null) {
+            index = strings.size();
+            strings.put(s, index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,116 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for CountryCatalogParser.
+ */
+public class CountryCatalogParserTest {
+
+    // the catalog is an asset of the app, the tests run in quiz-core
+    static final String CATALOG_PATH = "../app/src/main/assets/Countries.json";
+
+    @Test
+    public void parsesRealCatalog() throws Exception {
+        InputStream in = new FileInputStream(CATALOG_PATH);
+        List<Country> countries;
+        try {
+            countries = CountryCatalogParser.parse(in).asList();
+        } finally {
+            in.close();
+        }
+
+        assertEquals(223, countries.size());
+        assertEquals(new Country("Algeria", "Africa"), countries.get(0));
+        // every region String is shared between the countries of that region
+        assertSame(countries.get(0).getRegion(), countries.get(1).getRegion());
+    }
+
+    @Test
+    public void handlesOneCharPerRead() throws Exception {
+        String json = "{\"Countries\":[{\"Name\":\"Ivory Coast\",\"Region\":\"Africa\"},"
+                + "{\"Name\":\"Peru\",\"Region\":\"South America\"}]}";
+        List<String> names = parseNames(new OneCharReader(json), 4);
+
+        assertEquals(2, names.size());
+        assertEquals("Ivory Coast", names.get(0));
+        assertEquals("Peru", names.get(1));
+    }
+
+    @Test
+    public void skipsUnknownKeysAndDecodesEscapes() throws Exception {
+        String json = "{ \"Version\": 2, \"Meta\": {\"a\": [1, 2.5e3, true, null, {}]},\n"
+                + "  \"Countries\": [\n"
+                + "    { \"Capital\": \"Paris\", \"Name\": \"Cura\\u00e7ao\", \"Region\": \"North America\" },\n"
+                + "    { \"Name\": \"No Region\" },\n"
+                + "    { \"Name\": \"Quote \\\"Land\\\"\", \"Region\": \"Europe\", \"Pop\": -12 }\n"
+                + "  ]\n"
+                + "}";
+        List<String> names = parseNames(new StringReader(json), CountryCatalogParser.BUFFER_SIZE);
+
+        assertEquals(2, names.size());
+        assertEquals("Cura\u00e7ao", names.get(0));
+        assertEquals("Quote \"Land\"", names.get(1));
+    }
+
+    @Test
+    public void emptyCatalog() throws Exception {
+        assertEquals(0, CountryCatalogParser.parse(new ByteArrayInputStream("{}".getBytes("UTF-8"))).size());
+        assertEquals(0, CountryCatalogParser.parse(
+                new ByteArrayInputStream("{\"Countries\": []}".getBytes("UTF-8"))).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedDocumentFails() throws Exception {
+        parseNames(new StringReader("{\"Countries\":[{\"Name\":\"Peru\",\"Reg"), 16);
+    }
+
+    @Test(expected = IOException.class)
+    public void missingSeparatorFails() throws Exception {
+        parseNames(new StringReader("{\"Countries\":[{\"Name\":\"Peru\" \"Region\":\"x\"}]}"), 16);
+    }
+
+    private static List<String> parseNames(Reader reader, int bufferSize) throws IOException {
+        final List<String> names = new ArrayList<>();
+        new CountryCatalogParser(reader, bufferSize).parse(new CountryCatalogParser.CountryHandler() {
+            @Override
+            public void onCountry(String name, String region) {
+                names.add(name);
+            }
+        });
+        return names;
+    }
+
+    // a Reader which never returns more than one char, to exercise partial reads
+    private static class OneCharReader extends Reader {
+        private final String mText;
+        private int mPos;
+
+        OneCharReader(String text) {
+            mText = text;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (mPos == mText.length())
+                return -1;
+            cbuf[off] = mText.charAt(mPos++);
+            return 1;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
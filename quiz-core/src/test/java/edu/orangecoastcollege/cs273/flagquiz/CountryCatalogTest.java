@@ -0,0 +1,86 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for CountryCatalog and the Country views of it.
+ */
+public class CountryCatalogTest {
+
+    private static CountryCatalog smallCatalog() {
+        return new CountryCatalog.Builder()
+                .add("Chad", "Africa")
+                .add("Peru", "South America")
+                .add("Burkina Faso", "Africa", "Africa/Africa-Burkina_Faso.png")
+                .build();
+    }
+
+    @Test
+    public void storesColumns() {
+        CountryCatalog catalog = smallCatalog();
+
+        assertEquals(3, catalog.size());
+        assertEquals(2, catalog.getRegionCount());
+        assertEquals("Peru", catalog.getName(1));
+        assertEquals(1, catalog.getRegionId(1));
+        assertEquals(0, catalog.getRegionId(2));
+        // region names are stored once
+        assertSame(catalog.getRegion(0), catalog.getRegion(2));
+    }
+
+    @Test
+    public void buildsFileNamesLazily() {
+        CountryCatalog catalog = smallCatalog();
+
+        assertEquals("South_America/South_America-Peru.png", catalog.getFileName(1));
+        assertSame(catalog.getFileName(1), catalog.getFileName(1));
+        assertEquals("Africa/Africa-Burkina_Faso.png", catalog.getFileName(2));
+    }
+
+    @Test
+    public void viewsCompareById() {
+        CountryCatalog catalog = smallCatalog();
+        List<Country> countries = catalog.asList();
+
+        assertEquals(catalog.getCountry(1), countries.get(1));
+        assertEquals(catalog.getCountry(1).hashCode(), countries.get(1).hashCode());
+        assertNotEquals(countries.get(0), countries.get(2));
+        assertEquals(2, countries.get(2).getId());
+        assertTrue(countries.contains(catalog.getCountry(2)));
+    }
+
+    @Test
+    public void viewsEqualStandaloneCountries() {
+        Country chad = smallCatalog().getCountry(0);
+
+        assertEquals(new Country("Chad", "Africa"), chad);
+        assertEquals(chad, new Country("Chad", "Africa"));
+        assertEquals(new Country("Chad", "Africa").hashCode(), chad.hashCode());
+        assertNotEquals(new Country("Chad", "Asia"), chad);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsUnknownIds() {
+        smallCatalog().getCountry(3);
+    }
+
+    @Test
+    public void atMost256Regions() {
+        CountryCatalog.Builder builder = new CountryCatalog.Builder();
+        for (int i = 0; i < CountryCatalog.MAX_REGIONS; i++)
+            builder.add("Country " + i, "Region " + i);
+        CountryCatalog catalog = builder.build();
+        assertEquals(255, catalog.getRegionId(255));
+        assertEquals("Region 255", catalog.getRegion(255));
+
+        try {
+            builder.add("One too many", "Region " + CountryCatalog.MAX_REGIONS);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CountryNameTrie, on the app's catalog and against a brute force search.
+ */
+public class CountryNameTrieTest {
+
+    private CountryCatalog mCatalog;
+    private CountryNameTrie mTrie;
+    private CountryNameTrie.Matcher mMatcher;
+
+    @Before
+    public void setUp() throws Exception {
+        InputStream in = new FileInputStream(CountryCatalogParserTest.CATALOG_PATH);
+        try {
+            mCatalog = CountryCatalogParser.parse(in);
+        } finally {
+            in.close();
+        }
+        mTrie = CountryNameTrie.of(mCatalog);
+        mMatcher = mTrie.newMatcher(8);
+    }
+
+    @Test
+    public void foldsNames() {
+        assertEquals("dem rep of the congo", fold("Dem. Rep. of the Congo"));
+        assertEquals("cote divoire", fold("C\u00f4te d'Ivoire"));
+        assertEquals("timor leste", fold("Timor-Leste"));
+        assertEquals("sao tome ", fold("  S\u00c3O   Tom\u00e9 "));
+        assertEquals("", fold("..."));
+    }
+
+    @Test
+    public void prefixesInAlphabeticalOrder() {
+        assertEquals("[Chad, Chile, China, Christmas Island]", suggestions("Ch", 0));
+        assertEquals("[United Kingdom, United States of America]", suggestions("united ", 0));
+        assertEquals("[Guinea, Guinea Bissau]", suggestions("guinea", 0));
+        assertEquals("[]", suggestions("Atlantis", 0));
+    }
+
+    @Test
+    public void typosAreForgiven() {
+        assertEquals("China", first("Chian", 1)); // swapped
+        assertEquals("Switzerland", first("Swtizerland", 1));
+        assertEquals("Germany", first("Germny", 1)); // missing
+        assertEquals("Germany", first("Gerrmany", 1)); // extra
+        assertEquals("Chad", first("Xhad", 1)); // wrong
+        assertEquals("[]", suggestions("Xhad", 0));
+        assertEquals(1, mMatcher.getEdits(0));
+    }
+
+    @Test
+    public void fewestEditsFirst() {
+        int count = mMatcher.match("Chin", 1);
+        assertEquals("China", mCatalog.getName(mMatcher.getCountryId(0)));
+        assertEquals(0, mMatcher.getEdits(0));
+        for (int i = 1; i < count; i++)
+            assertTrue(mMatcher.getEdits(i - 1) <= mMatcher.getEdits(i));
+    }
+
+    @Test
+    public void moreNamesThanSuggestions() {
+        CountryNameTrie.Matcher two = mTrie.newMatcher(2);
+        assertEquals(2, two.match("", 0));
+        assertEquals("Afghanistan", mCatalog.getName(two.getCountryId(0)));
+        assertEquals(2, two.match("S", 1));
+        assertEquals(0, two.getEdits(1));
+    }
+
+    @Test
+    public void otherNamesOfACountry() {
+        int germany = mMatcher.find("Germany");
+        CountryNameTrie trie = new CountryNameTrie.Builder()
+                .add("Germany", germany)
+                .add("Deutschland", germany)
+                .add("Allemagne", germany)
+                .add("Algeria", 1)
+                .build();
+        CountryNameTrie.Matcher matcher = trie.newMatcher(4);
+        assertEquals(2, matcher.match("", 0)); // every name, every country once
+        assertEquals(1, matcher.getCountryId(0)); // Algeria before Allemagne
+        assertEquals(germany, matcher.getCountryId(1));
+        assertEquals(1, matcher.match("Deutsh", 1));
+        assertEquals(germany, matcher.find("allemagne"));
+    }
+
+    @Test
+    public void sameNameOfSeveralCountries() {
+        // e.g. a localized name which is also another country's name, the countries by id
+        CountryNameTrie trie = new CountryNameTrie.Builder()
+                .add("Georgia", 7)
+                .add("Georgia", 3)
+                .add("Guinea", 5)
+                .add("Georgia", 5)
+                .build();
+        CountryNameTrie.Matcher matcher = trie.newMatcher(4);
+        assertEquals(3, matcher.match("Georgia", 0));
+        assertEquals(3, matcher.getCountryId(0));
+        assertEquals(5, matcher.getCountryId(1));
+        assertEquals(7, matcher.getCountryId(2));
+    }
+
+    @Test
+    public void findsExactNames() {
+        assertEquals("Eq. Guinea", mCatalog.getName(mMatcher.find("eq guinea")));
+        assertEquals(-1, mMatcher.find("Guine"));
+        assertEquals(-1, mMatcher.find("Atlantis"));
+        assertEquals(-1, mMatcher.find(""));
+    }
+
+    @Test
+    public void tooLongToMatch() {
+        StringBuilder typed = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            typed.append('a');
+        assertEquals(0, mMatcher.match(typed, CountryNameTrie.MAX_EDITS));
+        assertEquals(-1, mMatcher.find(typed));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyEdits() {
+        mMatcher.match("China", CountryNameTrie.MAX_EDITS + 1);
+    }
+
+    @Test
+    public void sameSuggestionsAsBruteForce() {
+        List<String> folded = new ArrayList<>();
+        for (int id = 0; id < mCatalog.size(); id++)
+            folded.add(fold(mCatalog.getName(id)));
+        CountryNameTrie.Matcher matcher = mTrie.newMatcher(5);
+
+        // prefixes of the names with random typos
+        Random random = new Random(22);
+        for (int i = 0; i < 2000; i++) {
+            String name = folded.get(random.nextInt(folded.size()));
+            StringBuilder typed = new StringBuilder(name.substring(0, 1 + random.nextInt(name.length())));
+            for (int typos = random.nextInt(3); typos > 0; typos--) {
+                int at = random.nextInt(typed.length());
+                if (random.nextBoolean())
+                    typed.setCharAt(at, (char) ('a' + random.nextInt(26)));
+                else
+                    typed.deleteCharAt(at).append('e');
+            }
+            int maxEdits = random.nextInt(CountryNameTrie.MAX_EDITS + 1);
+
+            List<Integer> expected = bruteForce(folded, typed.toString(), maxEdits);
+            int count = matcher.match(typed, maxEdits);
+            assertEquals(typed + " " + maxEdits, Math.min(5, expected.size()), count);
+            for (int rank = 0; rank < count; rank++)
+                assertEquals(typed + " " + maxEdits + " #" + rank, (int) expected.get(rank), matcher.getCountryId(rank));
+        }
+    }
+
+    private String suggestions(String typed, int maxEdits) {
+        int count = mMatcher.match(typed, maxEdits);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            names.add(mCatalog.getName(mMatcher.getCountryId(i)));
+        return names.toString();
+    }
+
+    private String first(String typed, int maxEdits) {
+        assertTrue(typed, mMatcher.match(typed, maxEdits) > 0);
+        return mCatalog.getName(mMatcher.getCountryId(0));
+    }
+
+    private static String fold(String name) {
+        char[] folded = new char[name.length()];
+        return new String(folded, 0, CountryNameTrie.fold(name, folded));
+    }
+
+    // every country within maxEdits, fewest edits then by folded name then by id
+    private static List<Integer> bruteForce(final List<String> folded, String typed, int maxEdits) {
+        final int[] edits = new int[folded.size()];
+        List<Integer> matches = new ArrayList<>();
+        for (int id = 0; id < folded.size(); id++) {
+            edits[id] = prefixDistance(typed, folded.get(id));
+            if (edits[id] <= maxEdits)
+                matches.add(id);
+        }
+        Collections.sort(matches, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (edits[a] != edits[b])
+                    return Integer.compare(edits[a], edits[b]);
+                int byName = folded.get(a).compareTo(folded.get(b));
+                return byName != 0 ? byName : Integer.compare(a, b);
+            }
+        });
+        return matches;
+    }
+
+    // the fewest edits (optimal string alignment) from typed to any prefix of name
+    private static int prefixDistance(String typed, String name) {
+        int[][] d = new int[name.length() + 1][typed.length() + 1];
+        for (int j = 0; j <= typed.length(); j++)
+            d[0][j] = j;
+        int best = d[0][typed.length()];
+        for (int i = 1; i <= name.length(); i++) {
+            d[i][0] = i;
+            for (int j = 1; j <= typed.length(); j++) {
+                int cost = name.charAt(i - 1) == typed.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j], d[i][j - 1]) + 1, d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && name.charAt(i - 1) == typed.charAt(j - 2)
+                        && name.charAt(i - 2) == typed.charAt(j - 1))
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+            }
+            best = Math.min(best, d[i][typed.length()]);
+        }
+        return best;
+    }
+}
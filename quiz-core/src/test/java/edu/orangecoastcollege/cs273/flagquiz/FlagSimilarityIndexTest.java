@@ -0,0 +1,73 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for FlagSimilarityIndex, with an index written the way the
+ * indexFlagSimilarity task in app/flags.gradle writes it.
+ */
+public class FlagSimilarityIndexTest {
+
+    private static CountryCatalog catalog() {
+        return new CountryCatalog.Builder()
+                .add("Chad", "Africa")
+                .add("Romania", "Europe")
+                .add("Moldova", "Europe")
+                .add("Andorra", "Europe")
+                .add("Japan", "Asia")
+                .add("Peru", "South America")
+                .build();
+    }
+
+    // every flag of the catalog but Peru's, and a flag of a country which is not in it
+    private static byte[] index() throws IOException {
+        return FlagSimilarityTestWriter.write(new String[] {
+                "Africa/Africa-Chad.png",
+                "Asia/Asia-Japan.png",
+                "Europe/Europe-Andorra.png",
+                "Europe/Europe-Atlantis.png",
+                "Europe/Europe-Moldova.png",
+                "Europe/Europe-Romania.png"
+        }, new int[] {10, 200, 16, 12, 13, 11}, 3);
+    }
+
+    @Test
+    public void neighborsAreCatalogIds() throws Exception {
+        CountryCatalog catalog = catalog();
+        FlagSimilarityIndex index = FlagSimilarityIndex.read(new ByteArrayInputStream(index()), catalog);
+
+        // Chad's nearest are Romania, Atlantis and Moldova, Atlantis is not in the catalog
+        assertArrayEquals(new int[] {1, 2}, index.getNeighbors(0));
+        assertArrayEquals(new int[] {3, 2}, index.getNeighbors(4));
+        assertEquals(1.0, index.distance(0, 1), 1e-9);
+        assertEquals(190.0, index.distance(4, 0), 1e-9);
+        assertEquals(0.0, index.distance(3, 3), 0);
+    }
+
+    @Test
+    public void flagsWhichAreNotIndexed() throws Exception {
+        FlagSimilarityIndex index = FlagSimilarityIndex.read(new ByteArrayInputStream(index()), catalog());
+
+        assertFalse(index.contains(5));
+        assertTrue(index.contains(0));
+        assertEquals(0, index.getNeighbors(5).length);
+        assertEquals(Double.MAX_VALUE, index.distance(0, 5), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedIndex() throws Exception {
+        byte[] bytes = index();
+        FlagSimilarityIndex.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)), catalog());
+    }
+
+    @Test(expected = IOException.class)
+    public void notAnIndex() throws Exception {
+        FlagSimilarityIndex.read(new ByteArrayInputStream(new byte[] {'F', 'Q', 'A', 'T', 0, 1}), catalog());
+    }
+}
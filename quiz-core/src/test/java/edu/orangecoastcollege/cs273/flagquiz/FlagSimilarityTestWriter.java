@@ -0,0 +1,61 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Writes flags in the FlagSimilarity.bin layout read by FlagSimilarityIndex, the way
+ * FlagSimilarityIndexer in buildSrc does, so tests do not depend on the Gradle task having run.
+ * Every flag is a point on a line: its features are its position and a 0, with weights of 1,
+ * so the distance of two flags is the difference of their positions.
+ */
+class FlagSimilarityTestWriter {
+
+    static byte[] write(String[] fileNames, final int[] positions, int neighbors) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FlagSimilarityIndex.MAGIC);
+        out.writeShort(FlagSimilarityIndex.VERSION);
+        out.writeShort(fileNames.length);
+        out.writeShort(2);
+        out.writeShort(neighbors);
+        out.writeFloat(1);
+        out.writeFloat(1);
+        for (int i = 0; i < fileNames.length; i++) {
+            out.writeUTF(fileNames[i]);
+            out.writeByte(positions[i]);
+            out.writeByte(0);
+        }
+        for (int i = 0; i < fileNames.length; i++) {
+            final int flag = i;
+            Integer[] others = new Integer[fileNames.length];
+            for (int j = 0; j < others.length; j++)
+                others[j] = j;
+            // nearest first, ties by index, the flag itself last
+            Arrays.sort(others, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    int da = a == flag ? Integer.MAX_VALUE : Math.abs(positions[a] - positions[flag]);
+                    int db = b == flag ? Integer.MAX_VALUE : Math.abs(positions[b] - positions[flag]);
+                    return da != db ? Integer.compare(da, db) : Integer.compare(a, b);
+                }
+            });
+            for (int k = 0; k < neighbors; k++)
+                out.writeShort(others[k]);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    // the index of every country of a catalog, at the given positions
+    static FlagSimilarityIndex index(CountryCatalog catalog, int[] positions, int neighbors) throws IOException {
+        String[] fileNames = new String[catalog.size()];
+        for (int id = 0; id < fileNames.length; id++)
+            fileNames[id] = catalog.getFileName(id);
+        return FlagSimilarityIndex.read(new ByteArrayInputStream(write(fileNames, positions, neighbors)), catalog);
+    }
+}
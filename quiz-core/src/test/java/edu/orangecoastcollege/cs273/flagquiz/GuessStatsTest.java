@@ -0,0 +1,122 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for GuessStats.
+ */
+public class GuessStatsTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private static CountryCatalog catalog(String... names) {
+        CountryCatalog.Builder builder = new CountryCatalog.Builder();
+        for (String name : names)
+            builder.add(name, "Africa");
+        return builder.build();
+    }
+
+    @Test
+    public void wrongGuessesRaiseTheWeight() {
+        GuessStats stats = new GuessStats(catalog("Chad", "Mali", "Niger"));
+        int unseen = stats.weight(0);
+        stats.recordGuess(1, false);
+        stats.recordGuess(1, false);
+        stats.recordGuess(2, true);
+        stats.recordGuess(2, true);
+        assertTrue(stats.weight(1) > unseen);
+        assertTrue(stats.weight(2) < unseen);
+        for (int i = 0; i < 1000; i++) {
+            stats.recordGuess(1, false);
+            stats.recordGuess(2, true);
+        }
+        assertTrue(stats.weight(1) <= GuessStats.MAX_WEIGHT);
+        assertTrue(stats.weight(2) >= GuessStats.MIN_WEIGHT);
+        assertTrue(stats.weight(1) > 10 * stats.weight(2));
+    }
+
+    @Test
+    public void saturatedCountsDecay() {
+        GuessStats stats = new GuessStats(catalog("Chad"));
+        for (int i = 0; i < 255; i++)
+            stats.recordGuess(0, false);
+        for (int i = 0; i < 10; i++)
+            stats.recordGuess(0, true);
+        stats.recordGuess(0, false); // the 256th wrong guess halves both counts
+        assertEquals(128, stats.getWrongCount(0));
+        assertEquals(5, stats.getRightCount(0));
+
+        // a learned flag drops down, however often it was wrong before
+        for (int i = 0; i < 2000; i++)
+            stats.recordGuess(0, true);
+        assertTrue(stats.getWrongCount(0) < 10);
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        CountryCatalog catalog = catalog("Chad", "Mali", "Niger");
+        GuessStats stats = new GuessStats(catalog);
+        stats.recordGuess(0, false);
+        stats.recordGuess(2, true);
+        byte[] bytes = stats.toBytes();
+        assertEquals(14 + 2 * 3, bytes.length);
+
+        GuessStats read = GuessStats.read(ByteBuffer.wrap(bytes), catalog);
+        for (int id = 0; id < 3; id++) {
+            assertEquals(stats.getWrongCount(id), read.getWrongCount(id));
+            assertEquals(stats.getRightCount(id), read.getRightCount(id));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherCatalogIsRejected() throws IOException {
+        byte[] bytes = new GuessStats(catalog("Chad", "Mali", "Niger")).toBytes();
+        GuessStats.read(ByteBuffer.wrap(bytes), catalog("Chad", "Niger", "Mali"));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedStatsAreRejected() throws IOException {
+        CountryCatalog catalog = catalog("Chad", "Mali");
+        byte[] bytes = new GuessStats(catalog).toBytes();
+        GuessStats.read(ByteBuffer.wrap(bytes, 0, bytes.length - 1), catalog);
+    }
+
+    @Test
+    public void saveAndLoad() throws IOException {
+        CountryCatalog catalog = catalog("Chad", "Mali");
+        File file = new File(mFolder.getRoot(), "GuessStats.bin");
+        assertEquals(0, GuessStats.load(file, catalog).getWrongCount(1));
+
+        GuessStats stats = new GuessStats(catalog);
+        stats.recordGuess(1, false);
+        GuessStats.save(file, stats.toBytes());
+        assertEquals(1, GuessStats.load(file, catalog).getWrongCount(1));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+
+        // a corrupt file starts from scratch instead of failing the startup
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[] {1, 2, 3});
+        out.close();
+        assertEquals(0, GuessStats.load(file, catalog).getWrongCount(1));
+    }
+
+    @Test
+    public void samplerUsesTheWeightsOfTheSelectedCountries() {
+        GuessStats stats = new GuessStats(catalog("Chad", "Mali", "Niger"));
+        stats.recordGuess(2, false);
+        WeightedSampler sampler = stats.sampler(new int[] {0, 2});
+        assertEquals(2, sampler.size());
+        assertEquals(stats.weight(0), sampler.get(0));
+        assertEquals(stats.weight(2), sampler.get(1));
+    }
+}
@@ -0,0 +1,50 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests for LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallLatenciesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int nanos = 1; nanos <= 10; nanos++)
+            histogram.record(nanos);
+        assertEquals(10, histogram.getCount());
+        assertEquals(5, histogram.percentile(0.5));
+        assertEquals(10, histogram.percentile(1.0));
+        assertEquals(5.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void percentilesAreWithinABucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 1000000; nanos++)
+            histogram.record(nanos);
+        for (double fraction : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            long exact = (long) (fraction * 1000000);
+            long percentile = histogram.percentile(fraction);
+            assertTrue(fraction + ": " + percentile, percentile >= exact && percentile <= exact * 1.07);
+        }
+        assertEquals(1000000, histogram.getMax());
+    }
+
+    @Test
+    public void addMergesCounts() {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 0; i < 99; i++)
+            fast.record(100);
+        slow.record(1L << 40);
+        fast.add(slow);
+        assertEquals(100, fast.getCount());
+        assertTrue(fast.percentile(0.99) < 107);
+        assertEquals(1L << 40, fast.percentile(1.0));
+        assertEquals(0, new LatencyHistogram().percentile(0.5));
+    }
+}
@@ -0,0 +1,73 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for Question.
+ */
+public class QuestionTest {
+
+    @Test
+    public void onlyTheCorrectSlotIsCorrect() {
+        Question question = Question.of(42, new int[] {7, 42, 3, 19});
+        assertEquals(42, question.getCorrectId());
+        assertEquals(4, question.getChoiceCount());
+        assertEquals(1, question.getCorrectSlot());
+        assertTrue(question.isCorrect(1));
+        assertFalse(question.isCorrect(0));
+        assertFalse(question.isCorrect(3));
+        assertEquals(19, question.getChoiceId(3));
+    }
+
+    @Test
+    public void choicesAreCopied() {
+        int[] choices = {1, 2};
+        Question question = Question.of(2, choices);
+        choices[1] = 5;
+        assertEquals(2, question.getChoiceId(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void correctCountryMustBeAChoice() {
+        Question.of(42, new int[] {7, 3});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aCountryCanNotBeOnTwoButtons() {
+        Question.of(42, new int[] {42, 7, 42});
+    }
+
+    @Test
+    public void pickedQuestionsUseCatalogIds() {
+        // the filtered countries of a region selection, as catalog ids
+        int[] countryIds = {4, 9, 15, 16, 23, 42, 108, 150};
+        QuizEngine engine = new QuizEngine(QuizRandom.create(273));
+        engine.setSize(countryIds.length);
+        for (int run = 0; run < 1000; run++) {
+            int correctIndex = run % countryIds.length;
+            Question question = Question.pick(engine, countryIds, correctIndex, 4);
+            assertEquals(countryIds[correctIndex], question.getCorrectId());
+            assertEquals(countryIds[correctIndex], question.getChoiceId(question.getCorrectSlot()));
+
+            // the same as building it from its ids, which checks they are distinct
+            int[] ids = new int[question.getChoiceCount()];
+            for (int slot = 0; slot < ids.length; slot++)
+                ids[slot] = question.getChoiceId(slot);
+            assertEquals(question.getCorrectSlot(), Question.of(question.getCorrectId(), ids).getCorrectSlot());
+        }
+    }
+
+    @Test
+    public void everySlotIsCorrectSometimes() {
+        QuizEngine engine = new QuizEngine(QuizRandom.create(1));
+        engine.setSize(10);
+        int[] ids = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        int[] slots = new int[8];
+        for (int run = 0; run < 8000; run++)
+            ++slots[Question.pick(engine, ids, 3, 8).getCorrectSlot()];
+        for (int count : slots)
+            assertEquals(1000, count, 150);
+    }
+}
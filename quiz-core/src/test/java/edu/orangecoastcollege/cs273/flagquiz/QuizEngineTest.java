@@ -0,0 +1,151 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for QuizEngine.
+ */
+public class QuizEngineTest {
+
+    private QuizEngine mEngine;
+
+    @Before
+    public void setUp() {
+        mEngine = new QuizEngine(QuizRandom.create(273));
+    }
+
+    @Test
+    public void quizCountriesAreDistinct() {
+        mEngine.setSize(53);
+        for (int run = 0; run < 1000; run++)
+            assertDistinctInRange(mEngine.pickQuiz(10), 53);
+    }
+
+    @Test
+    public void quizCanUseEveryCountry() {
+        mEngine.setSize(16);
+        int[] quiz = mEngine.pickQuiz(16);
+        assertDistinctInRange(quiz, 16);
+    }
+
+    @Test
+    public void choicesContainCorrectCountryOnce() {
+        mEngine.setSize(21);
+        for (int run = 0; run < 1000; run++) {
+            int correct = run % 21;
+            int[] choices = mEngine.pickChoices(correct, 8);
+            assertEquals(8, choices.length);
+            assertDistinctInRange(choices, 21);
+            int found = 0;
+            for (int choice : choices)
+                if (choice == correct)
+                    ++found;
+            assertEquals(1, found);
+        }
+    }
+
+    @Test
+    public void correctCountryIsInEverySlot() {
+        mEngine.setSize(50);
+        int[] slots = new int[4];
+        for (int run = 0; run < 40000; run++) {
+            int[] choices = mEngine.pickChoices(7, 4);
+            for (int slot = 0; slot < choices.length; slot++)
+                if (choices[slot] == 7)
+                    ++slots[slot];
+        }
+        for (int count : slots)
+            assertEquals(10000, count, 500);
+    }
+
+    @Test
+    public void distractorsAreUniform() {
+        mEngine.setSize(10);
+        int[] counts = new int[10];
+        for (int run = 0; run < 90000; run++)
+            for (int choice : mEngine.pickChoices(0, 2))
+                ++counts[choice];
+        assertEquals(90000, counts[0]);
+        for (int i = 1; i < 10; i++)
+            assertEquals(10000, counts[i], 500);
+    }
+
+    @Test
+    public void allChoices() {
+        mEngine.setSize(2);
+        int[] choices = mEngine.pickChoices(1, 2);
+        assertDistinctInRange(choices, 2);
+    }
+
+    @Test
+    public void weightedQuizCountriesAreDistinct() {
+        mEngine.setSize(53);
+        int[] weights = new int[53];
+        for (int i = 0; i < weights.length; i++)
+            weights[i] = 1 + i % 7;
+        WeightedSampler sampler = new WeightedSampler(weights);
+        for (int run = 0; run < 1000; run++)
+            assertDistinctInRange(mEngine.pickQuiz(10, sampler), 53);
+        assertEquals(1 + 52 % 7, sampler.get(52)); // the picks put the weights back
+    }
+
+    @Test
+    public void weakCountriesComeUpMoreOften() {
+        mEngine.setSize(20);
+        int[] weights = new int[20];
+        Arrays.fill(weights, GuessStats.MIN_WEIGHT);
+        weights[3] = GuessStats.MAX_WEIGHT;
+        WeightedSampler sampler = new WeightedSampler(weights);
+        int weak = 0;
+        int strong = 0;
+        for (int run = 0; run < 10000; run++)
+            for (int index : mEngine.pickQuiz(5, sampler)) {
+                if (index == 3)
+                    ++weak;
+                else if (index == 4)
+                    ++strong;
+            }
+        assertTrue(weak + " vs " + strong, weak > 3 * strong);
+    }
+
+    @Test
+    public void resizingKeepsAPermutation() {
+        mEngine.setSize(30);
+        mEngine.pickQuiz(30); // shuffle it
+        int[] sizes = {12, 40, 40, 3, 0, 25};
+        for (int size : sizes) {
+            mEngine.setSize(size);
+            assertEquals(size, mEngine.getSize());
+            int[] all = mEngine.pickQuiz(size);
+            assertDistinctInRange(all, size);
+            for (int run = 0; run < 100 && size > 1; run++)
+                assertDistinctInRange(mEngine.pickChoices(run % size, 2), size);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyQuizCountries() {
+        mEngine.setSize(5);
+        mEngine.pickQuiz(6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyChoices() {
+        mEngine.setSize(5);
+        mEngine.pickChoices(0, 6);
+    }
+
+    static void assertDistinctInRange(int[] indices, int size) {
+        boolean[] seen = new boolean[size];
+        for (int index : indices) {
+            assertTrue(index >= 0 && index < size);
+            assertFalse("duplicate " + index, seen[index]);
+            seen[index] = true;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for QuizMetrics, on a clock the tests move forward themselves.
+ */
+public class QuizMetricsTest {
+
+    private long mNowNanos;
+    private final List<String> mSections = new ArrayList<>(); // "begin name" and "end"
+    private QuizMetrics mMetrics;
+
+    @Before
+    public void setUp() {
+        mMetrics = new QuizMetrics(new Clock() {
+            @Override
+            public long nanoTime() {
+                return mNowNanos;
+            }
+        }, new QuizMetrics.Tracer() {
+            @Override
+            public void beginSection(String name) {
+                mSections.add("begin " + name);
+            }
+
+            @Override
+            public void endSection() {
+                mSections.add("end");
+            }
+        });
+    }
+
+    @Test
+    public void stagesAreTimed() {
+        for (int micros = 1; micros <= 100; micros++)
+            time(QuizMetrics.Stage.RESET_QUIZ, micros * 1000L);
+        time(QuizMetrics.Stage.DECODE_FLAG, 5000000);
+
+        LatencyHistogram reset = mMetrics.getHistogram(QuizMetrics.Stage.RESET_QUIZ);
+        assertEquals(100, reset.getCount());
+        assertEquals(100000, reset.getMax());
+        assertTrue(reset.percentile(0.5) >= 50000 && reset.percentile(0.5) <= 50000 * 1.07);
+        assertEquals(1, mMetrics.getHistogram(QuizMetrics.Stage.DECODE_FLAG).getCount());
+        assertEquals(0, mMetrics.getHistogram(QuizMetrics.Stage.GUESS).getCount());
+    }
+
+    @Test
+    public void stagesAreTraceSections() {
+        long outer = mMetrics.start(QuizMetrics.Stage.RESET_QUIZ);
+        time(QuizMetrics.Stage.PREPARE_QUESTION, 10);
+        mMetrics.stop(QuizMetrics.Stage.RESET_QUIZ, outer);
+        assertEquals("[begin resetQuiz, begin prepareQuestion, end, end]", mSections.toString());
+    }
+
+    @Test
+    public void countersAdd() {
+        mMetrics.count(QuizMetrics.Counter.DECODED_BYTES, 4096);
+        mMetrics.count(QuizMetrics.Counter.DECODED_BYTES, 1024);
+        mMetrics.count(QuizMetrics.Counter.FLAG_CACHE_HITS, 1);
+        assertEquals(5120, mMetrics.getCount(QuizMetrics.Counter.DECODED_BYTES));
+        assertEquals(1, mMetrics.getCount(QuizMetrics.Counter.FLAG_CACHE_HITS));
+        assertEquals(0, mMetrics.getCount(QuizMetrics.Counter.FLAG_CACHE_MISSES));
+    }
+
+    @Test
+    public void disabledMetricsRecordNothing() {
+        mMetrics.setEnabled(false);
+        assertEquals(QuizMetrics.NOT_TIMED, mMetrics.start(QuizMetrics.Stage.GUESS));
+        time(QuizMetrics.Stage.GUESS, 1000);
+        mMetrics.count(QuizMetrics.Counter.FLAG_CACHE_HITS, 1);
+        assertEquals(0, mMetrics.getHistogram(QuizMetrics.Stage.GUESS).getCount());
+        assertEquals(0, mMetrics.getCount(QuizMetrics.Counter.FLAG_CACHE_HITS));
+        assertTrue(mSections.isEmpty());
+
+        // a stage started before the metrics were disabled still ends its section
+        mMetrics.setEnabled(true);
+        long started = mMetrics.start(QuizMetrics.Stage.GUESS);
+        mMetrics.setEnabled(false);
+        mMetrics.stop(QuizMetrics.Stage.GUESS, started);
+        assertEquals("[begin makeGuess, end]", mSections.toString());
+    }
+
+    @Test
+    public void dumpHasPercentilesOfEveryTimedStage() {
+        time(QuizMetrics.Stage.LOAD_CATALOG, 12345678);
+        time(QuizMetrics.Stage.GUESS, 1500);
+        mMetrics.count(QuizMetrics.Counter.FLAG_CACHE_MISSES, 3);
+        String[] lines = mMetrics.dump().split("\n");
+        assertEquals(3 + QuizMetrics.Counter.values().length, lines.length);
+        assertTrue(lines[0], lines[0].matches("stage \\(us\\) +count +p50 +p95 +p99 +max"));
+        assertTrue(lines[1], lines[1].matches("loadCatalog +1( +1[23]\\d{3}\\.\\d){3} +12345\\.7"));
+        assertTrue(lines[2], lines[2].matches("makeGuess +1( +1\\.5){4}"));
+        assertEquals("flag_cache_misses        3", lines[5]);
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() {
+        QuizMetrics metrics = new QuizMetrics(Clock.SYSTEM, QuizMetrics.Tracer.NONE);
+        for (int warmUp = 0; warmUp < 100000; warmUp++)
+            record(metrics);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean))
+            return; // the JVM can not tell
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 100000; i++)
+            record(metrics);
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+        assertTrue(allocated + " bytes allocated", allocated < 1000);
+    }
+
+    private void time(QuizMetrics.Stage stage, long nanos) {
+        long started = mMetrics.start(stage);
+        mNowNanos += nanos;
+        mMetrics.stop(stage, started);
+    }
+
+    private static void record(QuizMetrics metrics) {
+        long started = metrics.start(QuizMetrics.Stage.PREPARE_QUESTION);
+        metrics.count(QuizMetrics.Counter.FLAG_CACHE_HITS, 1);
+        metrics.stop(QuizMetrics.Stage.PREPARE_QUESTION, started);
+    }
+}
@@ -0,0 +1,101 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for QuizRandom.  SplitMix64 is checked against numbers of
+ * java.util.SplittableRandom, which is the same algorithm but not in Java 7.
+ */
+public class QuizRandomTest {
+
+    @Test
+    public void sameSeedSameQuiz() {
+        QuizEngine a = new QuizEngine(QuizRandom.create(273));
+        QuizEngine b = new QuizEngine(QuizRandom.create(273));
+        a.setSize(223);
+        b.setSize(223);
+        for (int run = 0; run < 100; run++)
+            assertArrayEquals(a.pickQuiz(10), b.pickQuiz(10));
+    }
+
+    @Test
+    public void differentSeedsDiffer() {
+        assertNotEquals(QuizRandom.create(1).nextLong(), QuizRandom.create(2).nextLong());
+        assertNotEquals(QuizRandom.create().nextLong(), QuizRandom.create().nextLong());
+    }
+
+    @Test
+    public void splitMixMatchesSplittableRandom() {
+        // new SplittableRandom(273): 4 numbers, split(), 4 numbers of the child, 2 of the parent
+        QuizRandom random = QuizRandom.splitMix(273);
+        assertEquals(0x95641FFE56985D44L, random.nextLong());
+        assertEquals(0x7851A80236EF9644L, random.nextLong());
+        assertEquals(0x2D84CBF53B89162DL, random.nextLong());
+        assertEquals(0x06667A542A8D0623L, random.nextLong());
+
+        QuizRandom child = random.split();
+        assertEquals(0xA54FFEAEF5703A77L, child.nextLong());
+        assertEquals(0x1E20409340B0F431L, child.nextLong());
+        assertEquals(0x1AA9D6C147D7680AL, child.nextLong());
+        assertEquals(0xD09C5FCC5FCD0D22L, child.nextLong());
+        assertEquals(0xA54FD7805C33EE5CL, random.nextLong());
+        assertEquals(0xE89679B20260F783L, random.nextLong());
+    }
+
+    @Test
+    public void xoshiroSplitDoesNotOverlap() {
+        QuizRandom parent = QuizRandom.create(273);
+        QuizRandom copy = QuizRandom.create(273);
+        QuizRandom child = parent.split();
+
+        // the child continues the sequence, the parent jumped far ahead
+        Set<Long> childNumbers = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            long number = child.nextLong();
+            assertEquals(copy.nextLong(), number);
+            childNumbers.add(number);
+        }
+        for (int i = 0; i < 10000; i++)
+            assertFalse(childNumbers.contains(parent.nextLong()));
+    }
+
+    @Test
+    public void nextIntIsUniform() {
+        for (QuizRandom random : new QuizRandom[] {QuizRandom.create(1), QuizRandom.splitMix(1),
+                QuizRandom.wrap(new Random(1))}) {
+            int bound = 7;
+            int draws = 70000;
+            int[] counts = new int[bound];
+            for (int i = 0; i < draws; i++)
+                ++counts[random.nextInt(bound)];
+            double chiSquare = 0;
+            for (int count : counts) {
+                double expected = draws / (double) bound;
+                chiSquare += (count - expected) * (count - expected) / expected;
+            }
+            // 6 degrees of freedom, p = 0.001
+            assertTrue("chi square " + chiSquare, chiSquare < 22.46);
+        }
+    }
+
+    @Test
+    public void nextIntStaysInBounds() {
+        QuizRandom random = QuizRandom.create(273);
+        for (int bound : new int[] {1, 2, 3, 223, Integer.MAX_VALUE})
+            for (int i = 0; i < 1000; i++) {
+                int value = random.nextInt(bound);
+                assertTrue(value >= 0 && value < bound);
+            }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nextIntRejectsZeroBound() {
+        QuizRandom.create(1).nextInt(0);
+    }
+}
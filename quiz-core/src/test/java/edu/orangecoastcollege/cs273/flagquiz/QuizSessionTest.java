@@ -0,0 +1,468 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for QuizSession, the quiz without its Views.
+ */
+public class QuizSessionTest {
+
+    private static final int QUESTIONS = 10;
+
+    private QuizSession mSession;
+    private int[] mCountryIds;
+
+    @Before
+    public void setUp() {
+        mSession = new QuizSession(new QuizEngine(QuizRandom.create(273)), QUESTIONS, null);
+        mCountryIds = new int[30];
+        for (int i = 0; i < mCountryIds.length; i++)
+            mCountryIds[i] = 100 + 2 * i; // catalog ids of a region selection
+        mSession.setCountries(mCountryIds);
+    }
+
+    @Test
+    public void aWholeQuiz() {
+        mSession.reset();
+        Set<Integer> countries = new HashSet<>();
+        for (int number = 1; number <= QUESTIONS; number++) {
+            int upcoming = mSession.getUpcomingCountryId(0);
+            Question prepared = mSession.prepareNextQuestion();
+            assertEquals(upcoming, prepared.getCorrectId());
+            assertTrue(countries.add(prepared.getCorrectId()));
+            assertSame(prepared, mSession.showPreparedQuestion());
+            assertNull(mSession.getPreparedQuestion());
+
+            // a wrong guess, then the right one
+            int wrong = (prepared.getCorrectSlot() + 1) % prepared.getChoiceCount();
+            assertEquals(QuizSession.Outcome.WRONG, mSession.guess(wrong));
+            QuizSession.Outcome outcome = mSession.guess(prepared.getCorrectSlot());
+            assertEquals(number == QUESTIONS ? QuizSession.Outcome.FINISHED : QuizSession.Outcome.CORRECT, outcome);
+            assertEquals(number, mSession.getCorrectGuesses());
+        }
+        assertTrue(mSession.isFinished());
+        assertFalse(mSession.hasNextQuestion());
+        assertEquals(-1, mSession.getUpcomingCountryId(0));
+        assertEquals(2 * QUESTIONS, mSession.getTotalGuesses());
+
+        mSession.reset();
+        assertEquals(0, mSession.getTotalGuesses());
+        assertFalse(mSession.isFinished());
+    }
+
+    @Test
+    public void choicesAreCatalogIdsOfTheSelection() {
+        mSession.setChoices(8);
+        mSession.reset();
+        Question question = mSession.prepareNextQuestion();
+        assertEquals(8, question.getChoiceCount());
+        for (int slot = 0; slot < 8; slot++) {
+            int id = question.getChoiceId(slot);
+            assertTrue(id >= 100 && id < 160 && id % 2 == 0);
+        }
+    }
+
+    @Test
+    public void fewerChoicesThanCountries() {
+        int[] ids = new int[QUESTIONS + 1];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = i;
+        mSession.setCountries(ids);
+        mSession.setChoices(16);
+        assertEquals(ids.length, mSession.getChoices());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void answeredQuestionCanNotBeGuessed() {
+        mSession.reset();
+        Question question = mSession.prepareNextQuestion();
+        mSession.showPreparedQuestion();
+        mSession.guess(question.getCorrectSlot());
+        mSession.guess(question.getCorrectSlot());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nothingPreparedAfterReset() {
+        mSession.reset();
+        mSession.prepareNextQuestion();
+        mSession.reset();
+        mSession.showPreparedQuestion();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooFewCountries() {
+        mSession.setCountries(new int[QUESTIONS - 1]);
+    }
+
+    @Test
+    public void resampledChoicesKeepTheQuestion() {
+        mSession.reset();
+        Question question = mSession.prepareNextQuestion();
+        mSession.showPreparedQuestion();
+        int wrong = (question.getCorrectSlot() + 1) % question.getChoiceCount();
+        mSession.guess(wrong);
+        Question prepared = mSession.prepareNextQuestion();
+
+        mSession.setChoices(8);
+        Question resampled = mSession.resampleChoices();
+        assertEquals(8, resampled.getChoiceCount());
+        assertEquals(question.getCorrectId(), resampled.getCorrectId());
+        assertSame(resampled, mSession.getQuestion());
+        for (int slot = 0; slot < 8; slot++)
+            assertFalse(mSession.isGuessed(slot));
+        assertEquals(8, mSession.getPreparedQuestion().getChoiceCount());
+        assertEquals(prepared.getCorrectId(), mSession.getPreparedQuestion().getCorrectId());
+
+        // the wrong guess still counts, the quiz goes on
+        assertEquals(QuizSession.Outcome.CORRECT, mSession.guess(resampled.getCorrectSlot()));
+        assertEquals(2, mSession.getTotalGuesses());
+        assertNull(mSession.resampleChoices()); // answered already
+        assertEquals(prepared.getCorrectId(), mSession.showPreparedQuestion().getCorrectId());
+    }
+
+    @Test
+    public void countriesAddedAndRemovedInPlace() {
+        int[] region = {7, 9, 400, 102}; // 102 is there already
+        mSession.addCountries(region);
+        assertEquals(33, mSession.getCountryCount());
+        mSession.removeCountries(new int[]{100, 158, 9, 5}); // 5 is not there
+        assertEquals(30, mSession.getCountryCount());
+
+        Set<Integer> expected = new HashSet<>();
+        for (int id : mCountryIds)
+            expected.add(id);
+        expected.add(7);
+        expected.add(400);
+        expected.remove(100);
+        expected.remove(158);
+        Set<Integer> actual = new HashSet<>();
+        for (int id : mSession.getCountryIds())
+            actual.add(id);
+        assertEquals(expected, actual);
+
+        // every quiz and every choice is one of them
+        mSession.setChoices(8);
+        for (int run = 0; run < 50; run++) {
+            mSession.reset();
+            while (mSession.hasNextQuestion()) {
+                Question question = mSession.prepareNextQuestion();
+                for (int slot = 0; slot < question.getChoiceCount(); slot++)
+                    assertTrue(expected.contains(question.getChoiceId(slot)));
+            }
+        }
+    }
+
+    @Test
+    public void removedCountriesWeighNothing() {
+        CountryCatalog.Builder builder = new CountryCatalog.Builder();
+        for (int i = 0; i < 40; i++)
+            builder.add("Country " + i, i < 20 ? "Africa" : "Europe");
+        int[] africa = new int[20];
+        int[] europe = new int[20];
+        for (int i = 0; i < 20; i++) {
+            africa[i] = i;
+            europe[i] = 20 + i;
+        }
+        QuizSession session = new QuizSession(new QuizEngine(QuizRandom.create(5)),
+                QUESTIONS, new GuessStats(builder.build()));
+        session.setCountries(africa);
+        session.addCountries(europe);
+        session.removeCountries(africa);
+        for (int run = 0; run < 50; run++) {
+            session.reset();
+            while (session.hasNextQuestion())
+                assertTrue(session.prepareNextQuestion().getCorrectId() >= 20);
+        }
+    }
+
+    @Test
+    public void tooFewCountriesLeft() {
+        try {
+            mSession.removeCountries(Arrays.copyOf(mCountryIds, mCountryIds.length - QUESTIONS + 1));
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals(mCountryIds.length, mSession.getCountryCount()); // nothing was removed
+        }
+    }
+
+    @Test
+    public void onlyTheFirstGuessIsRecorded() {
+        CountryCatalog.Builder builder = new CountryCatalog.Builder();
+        for (int i = 0; i < 20; i++)
+            builder.add("Country " + i, "Africa");
+        GuessStats stats = new GuessStats(builder.build());
+        int[] ids = new int[20];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = i;
+        QuizSession session = new QuizSession(new QuizEngine(QuizRandom.create(1)), QUESTIONS, stats);
+        session.setCountries(ids);
+        session.reset();
+        Question question = session.prepareNextQuestion();
+        session.showPreparedQuestion();
+        int id = question.getCorrectId();
+        session.guess((question.getCorrectSlot() + 1) % question.getChoiceCount());
+        session.guess(question.getCorrectSlot());
+        assertEquals(1, stats.getWrongCount(id));
+        assertEquals(0, stats.getRightCount(id));
+    }
+
+    @Test
+    public void typedGuesses() {
+        mSession.reset();
+        Question question = mSession.prepareNextQuestion();
+        mSession.showPreparedQuestion();
+        int wrongChoice = (question.getCorrectSlot() + 1) % question.getChoiceCount();
+        int notAChoice = -1;
+        for (int id : mSession.getCountryIds())
+            if (!containsChoice(question, id))
+                notAChoice = id;
+
+        assertEquals(QuizSession.Outcome.WRONG, mSession.guessCountry(notAChoice));
+        assertEquals(QuizSession.Outcome.WRONG, mSession.guessCountry(question.getChoiceId(wrongChoice)));
+        assertTrue(mSession.isGuessed(wrongChoice)); // a choice counts as its slot
+        assertEquals(QuizSession.Outcome.CORRECT, mSession.guessCountry(question.getCorrectId()));
+        assertTrue(mSession.isAnswered());
+        assertEquals(3, mSession.getTotalGuesses());
+        assertEquals(1, mSession.getCorrectGuesses());
+    }
+
+    @Test
+    public void snapshotMidQuestion() {
+        mSession.setChoices(6);
+        mSession.reset();
+        playQuestions(mSession, 3);
+        Question question = mSession.prepareNextQuestion();
+        mSession.showPreparedQuestion();
+        int wrong = (question.getCorrectSlot() + 2) % question.getChoiceCount();
+        mSession.guess(wrong);
+        int upcoming = mSession.getUpcomingCountryId(0);
+
+        QuizSession restored = newSession(mCountryIds, 6);
+        assertTrue(restored.restoreSnapshot(mSession.toSnapshot()));
+        assertQuestionEquals(question, restored.getQuestion());
+        assertTrue(restored.isGuessed(wrong));
+        assertFalse(restored.isGuessed(question.getCorrectSlot()));
+        assertFalse(restored.isAnswered());
+        assertEquals(upcoming, restored.getUpcomingCountryId(0));
+        assertEquals(mSession.getTotalGuesses(), restored.getTotalGuesses());
+        assertEquals(3, restored.getCorrectGuesses());
+
+        // both play on the same way
+        assertEquals(QuizSession.Outcome.CORRECT, restored.guess(question.getCorrectSlot()));
+        assertEquals(QuizSession.Outcome.CORRECT, mSession.guess(question.getCorrectSlot()));
+        assertEquals(restored.prepareNextQuestion().getCorrectId(), mSession.prepareNextQuestion().getCorrectId());
+    }
+
+    @Test
+    public void snapshotWithAPreparedQuestion() {
+        mSession.reset();
+        playQuestions(mSession, 2);
+        Question shown = mSession.getQuestion();
+        int prepared = mSession.prepareNextQuestion().getCorrectId();
+
+        // the prepared question is dropped, the restored session prepares that country again
+        QuizSession restored = newSession(mCountryIds, 4);
+        assertTrue(restored.restoreSnapshot(mSession.toSnapshot()));
+        assertNull(restored.getPreparedQuestion());
+        assertTrue(restored.isAnswered());
+        assertQuestionEquals(shown, restored.getQuestion());
+        assertEquals(prepared, restored.prepareNextQuestion().getCorrectId());
+    }
+
+    @Test
+    public void snapshotWithAnotherChoiceCount() {
+        mSession.setChoices(8);
+        mSession.reset();
+        playQuestions(mSession, 3);
+        Question question = mSession.prepareNextQuestion();
+        mSession.showPreparedQuestion();
+        mSession.guess((question.getCorrectSlot() + 1) % question.getChoiceCount());
+
+        // the choices are picked again for the 4 buttons, the wrong guess still counts
+        QuizSession restored = newSession(mCountryIds, 4);
+        assertTrue(restored.restoreSnapshot(mSession.toSnapshot()));
+        Question resampled = restored.getQuestion();
+        assertEquals(4, resampled.getChoiceCount());
+        assertEquals(question.getCorrectId(), resampled.getCorrectId());
+        for (int slot = 0; slot < resampled.getChoiceCount(); slot++)
+            assertFalse(restored.isGuessed(slot));
+        assertFalse(restored.isAnswered());
+        assertEquals(mSession.getTotalGuesses(), restored.getTotalGuesses());
+
+        // an answered question stays answered
+        mSession.guess(question.getCorrectSlot());
+        assertTrue(restored.restoreSnapshot(mSession.toSnapshot()));
+        resampled = restored.getQuestion();
+        assertEquals(4, resampled.getChoiceCount());
+        assertTrue(restored.isAnswered());
+        assertTrue(restored.isGuessed(resampled.getCorrectSlot()));
+        assertEquals(mSession.getCorrectGuesses(), restored.getCorrectGuesses());
+    }
+
+    @Test
+    public void snapshotOfFinishedAndNewQuizzes() {
+        mSession.reset();
+        QuizSession restored = newSession(mCountryIds, 4);
+        assertTrue(restored.restoreSnapshot(mSession.toSnapshot()));
+        assertNull(restored.getQuestion());
+        assertEquals(mSession.getUpcomingCountryId(QUESTIONS - 1), restored.getUpcomingCountryId(QUESTIONS - 1));
+
+        playQuestions(mSession, QUESTIONS);
+        assertTrue(restored.restoreSnapshot(mSession.toSnapshot()));
+        assertTrue(restored.isFinished());
+        assertTrue(restored.isAnswered());
+        assertFalse(restored.hasNextQuestion());
+    }
+
+    @Test
+    public void snapshotSize() {
+        // the catalog ids of Countries.json, 8 choices, the worst case of the app's settings
+        int[] ids = new int[223];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = i;
+        QuizSession session = newSession(ids, 8);
+        session.reset();
+        playQuestions(session, QUESTIONS - 1);
+        Question question = session.prepareNextQuestion();
+        session.showPreparedQuestion();
+        for (int slot = 0; slot < question.getChoiceCount(); slot++)
+            if (slot != question.getCorrectSlot())
+                session.guess(slot);
+
+        byte[] snapshot = session.toSnapshot();
+        assertTrue(snapshot.length + " bytes", snapshot.length <= 48);
+        QuizSession restored = newSession(ids, 8);
+        assertTrue(restored.restoreSnapshot(snapshot));
+        assertArrayEquals(snapshot, restored.toSnapshot());
+    }
+
+    @Test
+    public void snapshotOfOtherCountriesIsRejected() {
+        mSession.reset();
+        playQuestions(mSession, 4);
+        Question question = mSession.getQuestion();
+        byte[] snapshot = mSession.toSnapshot();
+
+        // other regions are selected now
+        QuizSession other = newSession(new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}, 4);
+        other.reset();
+        int upcoming = other.getUpcomingCountryId(0);
+        assertFalse(other.restoreSnapshot(snapshot));
+        assertNull(other.getQuestion());
+        assertEquals(upcoming, other.getUpcomingCountryId(0));
+
+        // a quiz of another length
+        assertFalse(new QuizSession(new QuizEngine(QuizRandom.create(1)), QUESTIONS + 1, null).restoreSnapshot(snapshot));
+
+        QuizSession restored = newSession(mCountryIds, 4);
+        assertFalse(restored.restoreSnapshot(new byte[0]));
+        assertFalse(restored.restoreSnapshot(Arrays.copyOf(snapshot, snapshot.length - 1)));
+        assertFalse(restored.restoreSnapshot(Arrays.copyOf(snapshot, snapshot.length + 1)));
+        byte[] garbage = snapshot.clone();
+        garbage[0] = 99;
+        assertFalse(restored.restoreSnapshot(garbage));
+        assertTrue(restored.restoreSnapshot(snapshot));
+        assertQuestionEquals(question, restored.getQuestion());
+    }
+
+    @Test
+    public void hardQuestionsHaveTheNearestLookAlikes() throws Exception {
+        CountryCatalog.Builder builder = new CountryCatalog.Builder();
+        int[] positions = new int[16];
+        for (int i = 0; i < positions.length; i++) {
+            builder.add("Country " + i, "Africa");
+            positions[i] = i * i; // flags further apart the higher the id
+        }
+        CountryCatalog catalog = builder.build();
+        // 3 look-alikes per flag, fewer than a question with 6 choices needs
+        FlagSimilarityIndex index = FlagSimilarityTestWriter.index(catalog, positions, 3);
+
+        // every country, then without the look-alikes of the first few flags
+        int[][] selections = {
+                {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15},
+                {0, 3, 4, 5, 6, 9, 10, 11, 12, 13, 14, 15}
+        };
+        for (int[] selection : selections) {
+            QuizSession session = newSession(selection, 6);
+            session.setSimilarity(index);
+            assertTrue(session.isHard());
+            for (int quiz = 0; quiz < 20; quiz++) {
+                session.reset();
+                while (session.hasNextQuestion()) {
+                    Question question = session.prepareNextQuestion();
+                    int correct = question.getCorrectId();
+                    int[] expected = nearest(selection, positions, correct, 5);
+                    int[] distractors = new int[5];
+                    for (int slot = 0, n = 0; slot < 6; slot++)
+                        if (slot != question.getCorrectSlot())
+                            distractors[n++] = question.getChoiceId(slot);
+                    Arrays.sort(distractors);
+                    assertArrayEquals("Country " + correct, expected, distractors);
+                }
+            }
+        }
+    }
+
+    // the count countries of the selection nearest to correct, sorted by id
+    private static int[] nearest(int[] selection, int[] positions, int correct, int count) {
+        Integer[] others = new Integer[selection.length - 1];
+        for (int i = 0, n = 0; i < selection.length; i++)
+            if (selection[i] != correct)
+                others[n++] = selection[i];
+        final int[] p = positions;
+        final int c = correct;
+        Arrays.sort(others, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int da = Math.abs(p[a] - p[c]);
+                int db = Math.abs(p[b] - p[c]);
+                return da != db ? Integer.compare(da, db) : Integer.compare(a, b);
+            }
+        });
+        int[] nearest = new int[count];
+        for (int i = 0; i < count; i++)
+            nearest[i] = others[i];
+        Arrays.sort(nearest);
+        return nearest;
+    }
+
+    private static QuizSession newSession(int[] countryIds, int choices) {
+        QuizSession session = new QuizSession(new QuizEngine(QuizRandom.create(42)), QUESTIONS, null);
+        session.setCountries(countryIds);
+        session.setChoices(choices);
+        return session;
+    }
+
+    private static boolean containsChoice(Question question, int countryId) {
+        for (int slot = 0; slot < question.getChoiceCount(); slot++)
+            if (question.getChoiceId(slot) == countryId)
+                return true;
+        return false;
+    }
+
+    // answers the next questions right at the first guess
+    private static void playQuestions(QuizSession session, int count) {
+        for (int i = 0; i < count; i++) {
+            Question question = session.prepareNextQuestion();
+            session.showPreparedQuestion();
+            session.guess(question.getCorrectSlot());
+        }
+    }
+
+    private static void assertQuestionEquals(Question expected, Question actual) {
+        assertEquals(expected.getCorrectId(), actual.getCorrectId());
+        assertEquals(expected.getCorrectSlot(), actual.getCorrectSlot());
+        assertEquals(expected.getChoiceCount(), actual.getChoiceCount());
+        for (int slot = 0; slot < expected.getChoiceCount(); slot++)
+            assertEquals(expected.getChoiceId(slot), actual.getChoiceId(slot));
+    }
+}
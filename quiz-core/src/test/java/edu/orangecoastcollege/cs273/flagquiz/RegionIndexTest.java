@@ -0,0 +1,86 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for RegionIndex.
+ */
+public class RegionIndexTest {
+
+    private List<Country> mCountries;
+    private RegionIndex mIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        mCountries = BinaryCatalogReaderTest.readJsonCatalog();
+        mIndex = new RegionIndex(mCountries);
+    }
+
+    @Test
+    public void regionsInCatalogOrder() {
+        assertEquals(6, mIndex.getRegionCount());
+        assertEquals("Africa", mIndex.getRegionName(0));
+        assertEquals(3, mIndex.getRegionId("North America"));
+        assertEquals(-1, mIndex.getRegionId("Antarctica"));
+    }
+
+    @Test
+    public void catalogRegionIdsMatchListIndex() {
+        CountryCatalog.Builder builder = new CountryCatalog.Builder(mCountries.size());
+        for (Country country : mCountries)
+            builder.add(country.getName(), country.getRegion());
+        RegionIndex fromCatalog = new RegionIndex(builder.build());
+
+        assertEquals(mIndex.getRegionCount(), fromCatalog.getRegionCount());
+        for (int id = 0; id < mIndex.getRegionCount(); id++) {
+            assertEquals(mIndex.getRegionName(id), fromCatalog.getRegionName(id));
+            assertArrayEquals(mIndex.getCountries(id), fromCatalog.getCountries(id));
+        }
+    }
+
+    @Test
+    public void singleRegionMatchesLinearFilter() {
+        for (int id = 0; id < mIndex.getRegionCount(); id++) {
+            String region = mIndex.getRegionName(id);
+            assertArrayEquals(linearFilter(Collections.singletonList(region)),
+                    mIndex.select(Collections.singletonList(region)));
+            assertEquals(mIndex.getCountries(id).length, mIndex.getCountrySet(id).cardinality());
+        }
+    }
+
+    @Test
+    public void unionMatchesLinearFilter() {
+        List<String> regions = Arrays.asList("Europe", "Oceania", "Atlantis");
+        int[] selected = mIndex.select(regions);
+        assertArrayEquals(linearFilter(regions), selected);
+        assertEquals(48 + 21, selected.length);
+    }
+
+    @Test
+    public void allAndNone() {
+        BitSet all = new BitSet();
+        all.set(0, mIndex.getRegionCount());
+        assertEquals(mCountries.size(), mIndex.select(all).length);
+        assertEquals(0, mIndex.select(new BitSet()).length);
+    }
+
+    private int[] linearFilter(List<String> regions) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < mCountries.size(); i++)
+            if (regions.contains(mCountries.get(i).getRegion()))
+                indices.add(i);
+        int[] result = new int[indices.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = indices.get(i);
+        return result;
+    }
+}
@@ -0,0 +1,140 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for WeightedSampler, the picks are checked against their expected
+ * distribution with a chi square test.
+ */
+public class WeightedSamplerTest {
+
+    @Test
+    public void samplesFollowTheWeights() {
+        int[] weights = {1, 0, 3, 10, 2, 7, 0, 5, 64, 4, 4};
+        assertDistribution(new WeightedSampler(weights), weights, QuizRandom.create(273));
+    }
+
+    @Test
+    public void samplesFollowChangedWeights() {
+        int[] weights = new int[223];
+        for (int i = 0; i < weights.length; i++)
+            weights[i] = 34;
+        WeightedSampler sampler = new WeightedSampler(weights);
+        QuizRandom random = QuizRandom.create(273);
+        for (int i = 0; i < 5000; i++) {
+            int index = random.nextInt(weights.length);
+            weights[index] = 4 + random.nextInt(61);
+            sampler.set(index, weights[index]);
+        }
+        long total = 0;
+        for (int weight : weights)
+            total += weight;
+        assertEquals(total, sampler.getTotal());
+
+        // bucket the indices so every bucket is expected to get plenty of samples
+        int buckets = 10;
+        int[] bucketWeights = new int[buckets];
+        for (int i = 0; i < weights.length; i++)
+            bucketWeights[i % buckets] += weights[i];
+        int draws = 100000;
+        int[] counts = new int[buckets];
+        for (int i = 0; i < draws; i++)
+            ++counts[sampler.sample(random) % buckets];
+        assertChiSquare(counts, bucketWeights, draws);
+    }
+
+    @Test
+    public void zeroWeightsAreNeverPicked() {
+        WeightedSampler sampler = new WeightedSampler(new int[] {0, 5, 0, 0, 5, 0, 0});
+        QuizRandom random = QuizRandom.create(1);
+        for (int i = 0; i < 10000; i++) {
+            int index = sampler.sample(random);
+            assertTrue(index == 1 || index == 4);
+        }
+        sampler.set(4, 0);
+        for (int i = 0; i < 100; i++)
+            assertEquals(1, sampler.sample(random));
+    }
+
+    @Test
+    public void everySizeFindsTheLastIndex() {
+        // the tree walk starts at the highest power of two, check sizes around them
+        QuizRandom random = QuizRandom.create(1);
+        for (int size = 1; size <= 33; size++) {
+            int[] weights = new int[size];
+            weights[size - 1] = 1;
+            WeightedSampler sampler = new WeightedSampler(weights);
+            assertEquals(size - 1, sampler.sample(random));
+            sampler.set(size - 1, 0);
+            sampler.set(0, 1);
+            assertEquals(0, sampler.sample(random));
+        }
+    }
+
+    @Test
+    public void distinctPicksRestoreTheWeights() {
+        int[] weights = {5, 1, 1, 9, 3, 0, 2};
+        WeightedSampler sampler = new WeightedSampler(weights);
+        QuizRandom random = QuizRandom.create(273);
+        for (int run = 0; run < 1000; run++) {
+            int[] picked = sampler.sampleDistinct(6, random);
+            QuizEngineTest.assertDistinctInRange(picked, weights.length);
+            for (int index : picked)
+                assertNotEquals(5, index);
+        }
+        for (int i = 0; i < weights.length; i++)
+            assertEquals(weights[i], sampler.get(i));
+        assertEquals(21, sampler.getTotal());
+    }
+
+    @Test
+    public void tooFewWeightedIndices() {
+        WeightedSampler sampler = new WeightedSampler(new int[] {1, 0, 1});
+        try {
+            sampler.sampleDistinct(3, QuizRandom.create(1));
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+        assertEquals(2, sampler.getTotal());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void allZero() {
+        new WeightedSampler(new int[3]).sample(QuizRandom.create(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeWeight() {
+        new WeightedSampler(new int[] {1, -1});
+    }
+
+    private static void assertDistribution(WeightedSampler sampler, int[] weights, QuizRandom random) {
+        int draws = 200000;
+        int[] counts = new int[weights.length];
+        for (int i = 0; i < draws; i++)
+            ++counts[sampler.sample(random)];
+        assertChiSquare(counts, weights, draws);
+    }
+
+    private static void assertChiSquare(int[] counts, int[] weights, int draws) {
+        long total = 0;
+        for (int weight : weights)
+            total += weight;
+        double chiSquare = 0;
+        int degrees = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (weights[i] == 0) {
+                assertEquals(0, counts[i]);
+                continue;
+            }
+            double expected = draws * weights[i] / (double) total;
+            chiSquare += (counts[i] - expected) * (counts[i] - expected) / expected;
+            ++degrees;
+        }
+        // p = 0.001 for up to 10 degrees of freedom (8 and 9 here)
+        assertTrue("chi square " + chiSquare + " with " + degrees + " degrees", chiSquare < 29.59);
+    }
+}
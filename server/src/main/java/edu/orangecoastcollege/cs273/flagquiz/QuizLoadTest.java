@@ -0,0 +1,457 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test of the QuizServer on localhost: opens thousands of quiz sessions at once and plays
+ * them all to the end, interleaved, like a classroom taking the quiz together.
+ *
+ *   ./gradlew :server:loadTest -PloadTestArgs="--sessions 10000 --connections 100"
+ *
+ * Every connection is a thread with a keep-alive socket and its share of the sessions.  All
+ * sessions are created first, so they are all open on the server at the same time, then every
+ * connection guesses one question of each of its sessions in turn until they are finished, and
+ * deletes them.  A simulated student recognizes the flag (from its file name) with the given
+ * accuracy, otherwise guesses a choice it has not tried yet.
+ *
+ * It reports sessions per second (sessions played to the end over the whole run) and the
+ * latency percentiles of every request as the client sees it, and checks that every session
+ * was open at the same time and finished with a correct answer for every question.
+ *
+ * Options, all optional:
+ *   --sessions n     how many sessions (default 10000)
+ *   --connections n  how many connections to send requests on (default 100)
+ *   --accuracy p     how likely a student recognizes a flag, 0 to 1 (default 0.7)
+ *   --port n         test a running server, otherwise one is started in this JVM
+ *   --threads n      the request threads of that server (default: the number of cores)
+ *   --seed n         the seed of the students' random numbers
+ *
+ * The process exits with status 1 if a check fails.
+ */
+public class QuizLoadTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String[] REQUESTS = {"create", "guess", "delete"};
+    private static final int CREATE = 0;
+    private static final int GUESS = 1;
+    private static final int DELETE = 2;
+
+    private int mSessions = 10000;
+    private int mConnections = 100;
+    private double mAccuracy = 0.7;
+    private int mPort = -1;
+    private int mThreads = Runtime.getRuntime().availableProcessors();
+    private long mSeed = System.nanoTime();
+
+    public static void main(String[] args) throws Exception {
+        QuizLoadTest test = new QuizLoadTest();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--sessions"))
+                test.mSessions = Integer.parseInt(args[++i]);
+            else if (arg.equals("--connections"))
+                test.mConnections = Integer.parseInt(args[++i]);
+            else if (arg.equals("--accuracy"))
+                test.mAccuracy = Double.parseDouble(args[++i]);
+            else if (arg.equals("--port"))
+                test.mPort = Integer.parseInt(args[++i]);
+            else if (arg.equals("--threads"))
+                test.mThreads = Integer.parseInt(args[++i]);
+            else if (arg.equals("--seed"))
+                test.mSeed = Long.parseLong(args[++i]);
+            else if (!arg.isEmpty()) {
+                System.err.println("Unknown option " + arg + ", see the QuizLoadTest class comment");
+                System.exit(2);
+            }
+        }
+        System.exit(test.run() ? 0 : 1);
+    }
+
+    // one student's session, as the client knows it
+    private static class Student {
+        String mId;
+        String mFlag;
+        List<String> mChoices;
+        boolean[] mTried;
+        int mCorrect;
+        boolean mFinished;
+    }
+
+    // what one connection saw, merged when every connection is done
+    private static class Tally {
+        final LatencyHistogram[] mLatencies = new LatencyHistogram[REQUESTS.length];
+        int mFinished;
+        int mErrors;
+        String mFirstError;
+
+        Tally() {
+            for (int i = 0; i < mLatencies.length; i++)
+                mLatencies[i] = new LatencyHistogram();
+        }
+
+        void add(Tally other) {
+            for (int i = 0; i < mLatencies.length; i++)
+                mLatencies[i].add(other.mLatencies[i]);
+            mFinished += other.mFinished;
+            mErrors += other.mErrors;
+            if (mFirstError == null)
+                mFirstError = other.mFirstError;
+        }
+
+        void error(String error) {
+            ++mErrors;
+            if (mFirstError == null)
+                mFirstError = error;
+        }
+    }
+
+    private boolean run() throws Exception {
+        QuizServer server = null;
+        int port = mPort;
+        if (port < 0) {
+            CountryCatalog catalog = QuizServer.loadCatalog(
+                    System.getProperty("flagquiz.catalog", "../app/src/main/assets/Countries.json"));
+            server = new QuizServer(new SessionStore(catalog, QuizServer.QUESTIONS_IN_QUIZ, mSessions,
+                    QuizRandom.create()), 0, mThreads, 30);
+            server.start();
+            port = server.getPort();
+        }
+        System.out.println(String.format("%,d sessions on %d connections to port %d%s, accuracy %.2f, seed %d",
+                mSessions, mConnections, port, server != null ? " (" + mThreads + " server threads)" : "",
+                mAccuracy, mSeed));
+
+        try {
+            return run(port);
+        }
+        finally {
+            if (server != null)
+                server.stop();
+        }
+    }
+
+    private boolean run(final int port) throws Exception {
+        final int[] openSessions = new int[1];
+        // when every session is created, one connection asks the server how many are open
+        final CyclicBarrier created = new CyclicBarrier(mConnections, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Connection connection = new Connection(port);
+                    try {
+                        String stats = connection.request("GET", "/stats");
+                        openSessions[0] = Integer.parseInt(field(stats, "sessions"));
+                    }
+                    finally {
+                        connection.close();
+                    }
+                }
+                catch (IOException e) {
+                    openSessions[0] = -1;
+                }
+            }
+        });
+
+        QuizRandom seeds = QuizRandom.create(mSeed);
+        ExecutorService executor = Executors.newFixedThreadPool(mConnections);
+        List<Future<Tally>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < mConnections; c++) {
+            final QuizRandom random = seeds.split();
+            final int sessions = mSessions / mConnections + (c < mSessions % mConnections ? 1 : 0);
+            results.add(executor.submit(new Callable<Tally>() {
+                @Override
+                public Tally call() throws Exception {
+                    return play(port, sessions, random, created);
+                }
+            }));
+        }
+        Tally total = new Tally();
+        try {
+            for (Future<Tally> result : results)
+                total.add(result.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long requests = 0;
+        for (LatencyHistogram latencies : total.mLatencies)
+            requests += latencies.getCount();
+        System.out.println(String.format("%,d sessions finished in %.2f s: %,.0f sessions/s, %,.0f requests/s",
+                total.mFinished, elapsed / 1e9, total.mFinished / (elapsed / 1e9), requests / (elapsed / 1e9)));
+        System.out.println(String.format("%-8s %10s %10s %10s %10s %10s %10s", "request", "count",
+                "p50 us", "p90 us", "p99 us", "p99.9 us", "max us"));
+        for (int i = 0; i < REQUESTS.length; i++) {
+            LatencyHistogram h = total.mLatencies[i];
+            System.out.println(String.format("%-8s %10d %10d %10d %10d %10d %10d", REQUESTS[i], h.getCount(),
+                    h.percentile(0.5) / 1000, h.percentile(0.9) / 1000, h.percentile(0.99) / 1000,
+                    h.percentile(0.999) / 1000, h.getMax() / 1000));
+        }
+
+        boolean passed = true;
+        passed &= check("every session open at once", openSessions[0] >= mSessions,
+                openSessions[0] + " open on the server");
+        passed &= check("every session finished", total.mFinished == mSessions, total.mFinished + " finished");
+        passed &= check("no errors", total.mErrors == 0,
+                total.mErrors + (total.mFirstError != null ? ", first: " + total.mFirstError : ""));
+        return passed;
+    }
+
+    // one connection: creates its sessions, waits for the others, then plays them all
+    private Tally play(int port, int sessions, QuizRandom random, CyclicBarrier created) throws Exception {
+        Tally tally = new Tally();
+        List<Student> students = new ArrayList<>(sessions);
+        Connection connection = new Connection(port);
+        try {
+            for (int i = 0; i < sessions; i++) {
+                long time = System.nanoTime();
+                String body = connection.request("POST", "/sessions");
+                tally.mLatencies[CREATE].record(System.nanoTime() - time);
+                Student student = new Student();
+                if (connection.mStatus == 201 && update(student, body))
+                    students.add(student);
+                else
+                    tally.error("create: " + connection.mStatus + " " + body);
+            }
+            created.await();
+
+            int playing = students.size();
+            while (playing > 0) {
+                playing = 0;
+                for (Student student : students) {
+                    if (student.mFinished)
+                        continue;
+                    int slot = choose(student, random);
+                    long time = System.nanoTime();
+                    String body = connection.request("POST", "/sessions/" + student.mId + "/guess?slot=" + slot);
+                    tally.mLatencies[GUESS].record(System.nanoTime() - time);
+                    if (connection.mStatus != 200 || !update(student, body)) {
+                        tally.error("guess: " + connection.mStatus + " " + body);
+                        student.mFinished = true;
+                    }
+                    else if (student.mFinished) {
+                        if (student.mCorrect == QuizServer.QUESTIONS_IN_QUIZ)
+                            ++tally.mFinished;
+                        else
+                            tally.error("finished with " + student.mCorrect + " correct: " + body);
+                    }
+                    else
+                        ++playing;
+                }
+            }
+
+            for (Student student : students) {
+                long time = System.nanoTime();
+                connection.request("DELETE", "/sessions/" + student.mId);
+                tally.mLatencies[DELETE].record(System.nanoTime() - time);
+                if (connection.mStatus != 200)
+                    tally.error("delete: " + connection.mStatus);
+            }
+        }
+        finally {
+            connection.close();
+        }
+        return tally;
+    }
+
+    // the slot the student guesses: the flag's country if it is recognized, else an untried one
+    private int choose(Student student, QuizRandom random) {
+        int choices = student.mChoices.size();
+        if (random.nextLong(1L << 53) < mAccuracy * (1L << 53)) {
+            int slot = student.mChoices.indexOf(countryOfFlag(student.mFlag));
+            if (slot >= 0)
+                return slot;
+        }
+        int untried = 0;
+        for (boolean tried : student.mTried)
+            if (!tried)
+                ++untried;
+        int n = random.nextInt(untried);
+        int slot = -1;
+        while (n >= 0)
+            if (!student.mTried[++slot])
+                --n;
+        student.mTried[slot] = true;
+        return slot;
+    }
+
+    // Region/Region-Name.png, see CountryCatalog.fileName()
+    private static String countryOfFlag(String flag) {
+        int slash = flag.indexOf('/');
+        return flag.substring(2 * slash + 2, flag.length() - ".png".length()).replace('_', ' ');
+    }
+
+    // reads a session answer of the server into the student, false if it is not one
+    private static boolean update(Student student, String body) {
+        student.mId = field(body, "id");
+        String correct = field(body, "correct");
+        if (student.mId == null || correct == null)
+            return false;
+        student.mCorrect = Integer.parseInt(correct);
+        String flag = field(body, "flag");
+        if (flag == null) {
+            student.mFinished = true;
+            return true;
+        }
+        if (!flag.equals(student.mFlag)) {
+            student.mFlag = flag;
+            student.mChoices = stringArray(body, "choices");
+            student.mTried = new boolean[student.mChoices.size()];
+        }
+        return true;
+    }
+
+    // the value of a string or number field in the server's flat JSON, null if it is missing
+    private static String field(String json, String name) {
+        int at = json.indexOf("\"" + name + "\":");
+        if (at < 0)
+            return null;
+        at += name.length() + 3;
+        if (json.charAt(at) == '"')
+            return readString(json, at, null);
+        int end = at;
+        while (end < json.length() && "-0123456789".indexOf(json.charAt(end)) >= 0)
+            ++end;
+        return end > at ? json.substring(at, end) : null;
+    }
+
+    private static List<String> stringArray(String json, String name) {
+        List<String> values = new ArrayList<>();
+        int at = json.indexOf("\"" + name + "\":[") + name.length() + 4;
+        int[] end = new int[1];
+        while (json.charAt(at) == '"') {
+            end[0] = at;
+            values.add(readString(json, at, end));
+            at = end[0];
+            if (json.charAt(at) == ',')
+                ++at;
+        }
+        return values;
+    }
+
+    // the string starting at the quote at start, end[0] is set past its closing quote
+    private static String readString(String json, int start, int[] end) {
+        StringBuilder value = new StringBuilder();
+        int i = start + 1;
+        for (char c = json.charAt(i); c != '"'; c = json.charAt(++i)) {
+            if (c == '\\') {
+                c = json.charAt(++i);
+                if (c == 'u') {
+                    c = (char) Integer.parseInt(json.substring(i + 1, i + 5), 16);
+                    i += 4;
+                }
+            }
+            value.append(c);
+        }
+        if (end != null)
+            end[0] = i + 1;
+        return value.toString();
+    }
+
+    private static boolean check(String name, boolean passed, String detail) {
+        System.out.println(String.format("  %s  %s: %s", passed ? "ok  " : "FAIL", name, detail));
+        return passed;
+    }
+
+    /**
+     * A minimal HTTP/1.1 client on a keep-alive socket, so the test measures the server rather
+     * than a client library, and needs no thread per open request.
+     */
+    static class Connection {
+        private final int mPort;
+        private Socket mSocket;
+        private InputStream mIn;
+        private OutputStream mOut;
+        private final ByteArrayOutputStream mLine = new ByteArrayOutputStream(128);
+        int mStatus;
+
+        Connection(int port) throws IOException {
+            mPort = port;
+            connect();
+        }
+
+        private void connect() throws IOException {
+            mSocket = new Socket("localhost", mPort);
+            mSocket.setTcpNoDelay(true);
+            mIn = new BufferedInputStream(mSocket.getInputStream());
+            mOut = new BufferedOutputStream(mSocket.getOutputStream());
+        }
+
+        /**
+         * @return the body of the answer, mStatus is its status.
+         */
+        String request(String method, String target) throws IOException {
+            byte[] request = (method + " " + target + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\n\r\n")
+                    .getBytes(UTF_8);
+            mOut.write(request);
+            mOut.flush();
+            int first;
+            try {
+                first = mIn.read();
+            }
+            catch (SocketException e) {
+                first = -1;
+            }
+            if (first < 0) {
+                // the server closed the kept-alive connection before reading the request, e.g.
+                // because it was idle too long, send it again on a new one
+                close();
+                connect();
+                mOut.write(request);
+                mOut.flush();
+                first = mIn.read();
+            }
+
+            String statusLine = readLine(first);
+            mStatus = Integer.parseInt(statusLine.substring(9, 12));
+            int length = 0;
+            for (String header = readLine(mIn.read()); !header.isEmpty(); header = readLine(mIn.read())) {
+                int colon = header.indexOf(':');
+                if (header.substring(0, colon).trim().equalsIgnoreCase("Content-Length"))
+                    length = Integer.parseInt(header.substring(colon + 1).trim());
+            }
+            byte[] body = new byte[length];
+            for (int read = 0; read < length; ) {
+                int n = mIn.read(body, read, length - read);
+                if (n < 0)
+                    throw new EOFException("The server closed the connection");
+                read += n;
+            }
+            return new String(body, UTF_8);
+        }
+
+        // the line starting with the byte first
+        private String readLine(int first) throws IOException {
+            mLine.reset();
+            for (int b = first; b != '\n'; b = mIn.read()) {
+                if (b < 0)
+                    throw new EOFException("The server closed the connection");
+                if (b != '\r')
+                    mLine.write(b);
+            }
+            return new String(mLine.toByteArray(), UTF_8);
+        }
+
+        void close() throws IOException {
+            mSocket.close();
+        }
+    }
+}
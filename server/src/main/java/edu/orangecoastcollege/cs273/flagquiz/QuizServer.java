@@ -0,0 +1,415 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QuizServer serves the flag quiz over HTTP, so a whole classroom can take it at the same
+ * time from a browser or a script.  It plays the same QuizSession as the app, the sessions
+ * are kept in memory by a SessionStore.
+ *
+ *   ./gradlew :server:run -PserverArgs="--port 8080"
+ *
+ * The JDK's HttpServer accepts and reads the connections on a single NIO selector thread, and
+ * hands the parsed requests to a pool of one thread per core.  A request only touches memory,
+ * it never blocks, so a few threads serve thousands of open sessions; idle keep-alive
+ * connections cost a socket, not a thread.
+ *
+ * Requests, all answers are JSON:
+ *   POST   /sessions?regions=Africa,Europe&choices=4  starts a quiz (regions are optional,
+ *                                                     choices default to 4), 201 with its id
+ *                                                     and first question
+ *   GET    /sessions/{id}                              the current question
+ *   POST   /sessions/{id}/guess?slot=2                 guesses the choice in slot 2, with the
+ *                                                     outcome and, unless the quiz is
+ *                                                     finished, the question now shown
+ *   DELETE /sessions/{id}                              ends the session, with its score
+ *   GET    /stats                                      how many sessions there are
+ * A question is {"number":3,"of":10,"flag":"Europe/Europe-France.png","choices":[...]}, the
+ * flag is the path of the image in the app's assets.  Unknown sessions are 404, bad
+ * parameters 400, a full store 503.
+ *
+ * Options: --port n (8080), --catalog file (the app's Countries.json), --threads n (cores),
+ * --max-sessions n (100000), --idle-minutes n (30).
+ */
+public class QuizServer {
+
+    static final int QUESTIONS_IN_QUIZ = 10;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static {
+        // the HttpServer writes the headers and the body of an answer separately, with Nagle's
+        // algorithm on every answer would wait ~40 ms for the client's delayed ACK.  It is read
+        // once, when the first HttpServer is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final SessionStore mStore;
+    private final HttpServer mServer;
+    private final ExecutorService mHandlers;
+    private final ScheduledExecutorService mEvictor;
+    private final long mIdleNanos;
+
+    /**
+     * Binds the server, start() starts serving.
+     * @param store the sessions.
+     * @param port the port, 0 for any free one.
+     * @param threads how many threads handle requests.
+     * @param idleMinutes after how long unused sessions are dropped.
+     */
+    public QuizServer(SessionStore store, int port, int threads, int idleMinutes) throws IOException {
+        mStore = store;
+        mIdleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+        mServer = HttpServer.create(new InetSocketAddress(port), 1024);
+        mHandlers = Executors.newFixedThreadPool(threads, daemonThreads("quiz-handler"));
+        mEvictor = Executors.newSingleThreadScheduledExecutor(daemonThreads("quiz-evictor"));
+        mServer.setExecutor(mHandlers);
+        mServer.createContext("/sessions", new SessionHandler());
+        mServer.createContext("/stats", new StatsHandler());
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        String catalogPath = "../app/src/main/assets/Countries.json";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxSessions = 100000;
+        int idleMinutes = 30;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--port"))
+                port = Integer.parseInt(args[++i]);
+            else if (arg.equals("--catalog"))
+                catalogPath = args[++i];
+            else if (arg.equals("--threads"))
+                threads = Integer.parseInt(args[++i]);
+            else if (arg.equals("--max-sessions"))
+                maxSessions = Integer.parseInt(args[++i]);
+            else if (arg.equals("--idle-minutes"))
+                idleMinutes = Integer.parseInt(args[++i]);
+            else if (!arg.isEmpty()) {
+                System.err.println("Unknown option " + arg + ", see the QuizServer class comment");
+                System.exit(2);
+            }
+        }
+        QuizServer server = new QuizServer(new SessionStore(loadCatalog(catalogPath), QUESTIONS_IN_QUIZ,
+                maxSessions, QuizRandom.create()), port, threads, idleMinutes);
+        server.start();
+        System.out.println("Serving the flag quiz on port " + server.getPort() + " with " + threads + " threads");
+    }
+
+    /**
+     * @param path a Countries.json file.
+     * @return its catalog.
+     */
+    public static CountryCatalog loadCatalog(String path) throws IOException {
+        InputStream in = new FileInputStream(path);
+        try {
+            return CountryCatalogParser.parse(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    public void start() {
+        mServer.start();
+        mEvictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                mStore.evictIdle(System.nanoTime(), mIdleNanos);
+            }
+        }, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops accepting connections and waits up to a second for the requests being handled.
+     */
+    public void stop() {
+        mServer.stop(1);
+        mEvictor.shutdownNow();
+        mHandlers.shutdown();
+    }
+
+    public int getPort() {
+        return mServer.getAddress().getPort();
+    }
+
+    public SessionStore getStore() {
+        return mStore;
+    }
+
+    // an error answer, thrown by the handlers
+    private static class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int mStatus;
+
+        HttpError(int status, String message) {
+            super(message);
+            mStatus = status;
+        }
+    }
+
+    private abstract class JsonHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                int status;
+                StringBuilder json = new StringBuilder(256);
+                try {
+                    status = handle(exchange, json);
+                }
+                catch (HttpError e) {
+                    status = e.mStatus;
+                    appendError(json, e.getMessage());
+                }
+                catch (RuntimeException e) {
+                    // a bug, the student gets an answer and the server keeps serving the others
+                    status = 500;
+                    appendError(json, e.toString());
+                }
+                if (json.length() == 0) {
+                    exchange.sendResponseHeaders(status, -1);
+                    return;
+                }
+                byte[] body = json.toString().getBytes(UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(status, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+            }
+            finally {
+                exchange.close();
+            }
+        }
+
+        /**
+         * @param exchange the request.
+         * @param json where to write the answer, nothing for none.
+         * @return the status.
+         */
+        abstract int handle(HttpExchange exchange, StringBuilder json) throws HttpError;
+    }
+
+    private class SessionHandler extends JsonHandler {
+        @Override
+        int handle(HttpExchange exchange, StringBuilder json) throws HttpError {
+            String method = exchange.getRequestMethod();
+            // "", "/{id}" or "/{id}/guess"
+            String path = exchange.getRequestURI().getPath().substring("/sessions".length());
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            long now = System.nanoTime();
+
+            if (path.isEmpty() || path.equals("/")) {
+                requireMethod(method, "POST");
+                return create(query, json, now);
+            }
+            int slash = path.indexOf('/', 1);
+            String id = path.substring(1, slash < 0 ? path.length() : slash);
+            String action = slash < 0 ? "" : path.substring(slash + 1);
+
+            if (action.isEmpty() && method.equals("DELETE")) {
+                SessionStore.ServerSession removed = mStore.remove(id);
+                if (removed == null)
+                    throw new HttpError(404, "No session " + id);
+                // 200 with the final score rather than 204, the JDK's HttpServer closes the
+                // connection after a 204
+                synchronized (removed) {
+                    appendScore(json, removed);
+                }
+                json.append('}');
+                return 200;
+            }
+            SessionStore.ServerSession session = mStore.get(id, now);
+            if (session == null)
+                throw new HttpError(404, "No session " + id);
+            if (action.isEmpty()) {
+                requireMethod(method, "GET");
+                synchronized (session) {
+                    appendSession(json, session, null);
+                }
+                return 200;
+            }
+            if (action.equals("guess")) {
+                requireMethod(method, "POST");
+                return guess(session, intParameter(query, "slot", -1), json);
+            }
+            throw new HttpError(404, "No such action " + action);
+        }
+
+        private int create(Map<String, String> query, StringBuilder json, long now) throws HttpError {
+            String regions = query.get("regions");
+            List<String> regionNames = regions == null || regions.isEmpty()
+                    ? Collections.<String>emptyList() : Arrays.asList(regions.split(","));
+            SessionStore.ServerSession session;
+            try {
+                session = mStore.create(regionNames, intParameter(query, "choices", 4), now);
+            }
+            catch (IllegalArgumentException e) {
+                throw new HttpError(400, e.getMessage());
+            }
+            if (session == null)
+                throw new HttpError(503, "The server has " + mStore.getMaxSessions() + " sessions already");
+            synchronized (session) {
+                appendSession(json, session, null);
+            }
+            return 201;
+        }
+
+        private int guess(SessionStore.ServerSession serverSession, int slot, StringBuilder json) throws HttpError {
+            synchronized (serverSession) {
+                QuizSession session = serverSession.getSession();
+                if (session.isFinished())
+                    throw new HttpError(409, "The quiz is finished");
+                if (slot < 0 || slot >= session.getQuestion().getChoiceCount())
+                    throw new HttpError(400, "No choice in slot " + slot);
+                QuizSession.Outcome outcome = session.guess(slot);
+                if (outcome == QuizSession.Outcome.CORRECT) {
+                    session.prepareNextQuestion();
+                    session.showPreparedQuestion();
+                }
+                else if (outcome == QuizSession.Outcome.FINISHED)
+                    mStore.onFinished();
+                appendSession(json, serverSession, outcome);
+            }
+            return 200;
+        }
+    }
+
+    private class StatsHandler extends JsonHandler {
+        @Override
+        int handle(HttpExchange exchange, StringBuilder json) throws HttpError {
+            requireMethod(exchange.getRequestMethod(), "GET");
+            json.append("{\"sessions\":").append(mStore.size())
+                    .append(",\"created\":").append(mStore.getCreated())
+                    .append(",\"finished\":").append(mStore.getFinished())
+                    .append(",\"evicted\":").append(mStore.getEvicted()).append('}');
+            return 200;
+        }
+    }
+
+    // the session's state, with the outcome of the guess if there was one; the session is locked
+    private void appendSession(StringBuilder json, SessionStore.ServerSession serverSession,
+                               QuizSession.Outcome outcome) {
+        QuizSession session = serverSession.getSession();
+        appendScore(json, serverSession);
+        if (outcome != null)
+            json.append(",\"outcome\":\"").append(outcome.name()).append('"');
+        json.append(",\"question\":");
+        if (session.isFinished()) {
+            json.append("null}");
+            return;
+        }
+        CountryCatalog catalog = mStore.getCatalog();
+        Question question = session.getQuestion();
+        json.append("{\"number\":").append(session.getCorrectGuesses() + 1)
+                .append(",\"of\":").append(session.getQuestionCount())
+                .append(",\"flag\":");
+        appendString(json, catalog.getFileName(question.getCorrectId()));
+        json.append(",\"choices\":[");
+        for (int slot = 0; slot < question.getChoiceCount(); slot++) {
+            if (slot > 0)
+                json.append(',');
+            appendString(json, catalog.getName(question.getChoiceId(slot)));
+        }
+        json.append("]}}");
+    }
+
+    private static void appendError(StringBuilder json, String message) {
+        json.setLength(0);
+        json.append("{\"error\":");
+        appendString(json, String.valueOf(message));
+        json.append('}');
+    }
+
+    // the start of a session's object: its id and guesses, without the closing brace
+    private static void appendScore(StringBuilder json, SessionStore.ServerSession serverSession) {
+        QuizSession session = serverSession.getSession();
+        json.append("{\"id\":\"").append(serverSession.getId())
+                .append("\",\"guesses\":").append(session.getTotalGuesses())
+                .append(",\"correct\":").append(session.getCorrectGuesses());
+    }
+
+    static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                json.append('\\').append(c);
+            else if (c < 0x20)
+                json.append(String.format("\\u%04x", (int) c));
+            else
+                json.append(c);
+        }
+        json.append('"');
+    }
+
+    private static void requireMethod(String method, String expected) throws HttpError {
+        if (!method.equals(expected))
+            throw new HttpError(405, method + " is not allowed here, use " + expected);
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int defaultValue) throws HttpError {
+        String value = query.get(name);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e) {
+            throw new HttpError(400, name + " is not a number: " + value);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws HttpError {
+        if (rawQuery == null || rawQuery.isEmpty())
+            return Collections.emptyMap();
+        Map<String, String> query = new HashMap<>();
+        try {
+            for (String pair : rawQuery.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0)
+                    query.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                            URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+        }
+        catch (IllegalArgumentException | UnsupportedEncodingException e) {
+            throw new HttpError(400, "Bad query " + rawQuery);
+        }
+        return query;
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        return new ThreadFactory() {
+            private int mCount;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + ++mCount);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
@@ -0,0 +1,220 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import java.security.SecureRandom;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SessionStore keeps the quiz sessions of the QuizServer in memory, by id.
+ *
+ * Every session has a QuizSession of its own, with its own QuizEngine, so sessions never
+ * share mutable state.  A session is only used while its lock (the ServerSession) is held, so
+ * two requests of the same student are run one after the other, while requests of different
+ * students run in parallel.  The catalog and the country lists of the region selections are
+ * immutable and shared by every session.
+ *
+ * Sessions nobody used for a while are dropped by evictIdle(), which the server calls every
+ * minute, and the store refuses new sessions once it holds getMaxSessions().  The check and the
+ * insert of a new session are made under one lock, so sessions created at the same time can not
+ * go over the limit; sessions are only removed without it, which never does.
+ */
+public class SessionStore {
+
+    /**
+     * A session and what the server needs to know about it.  Synchronize on it to use the
+     * QuizSession.
+     */
+    public static class ServerSession {
+        private final String mId;
+        private final QuizSession mSession;
+        private volatile long mLastUsedNanos;
+
+        ServerSession(String id, QuizSession session, long now) {
+            mId = id;
+            mSession = session;
+            mLastUsedNanos = now;
+        }
+
+        public String getId() {
+            return mId;
+        }
+
+        /**
+         * @return the session, only to be used while holding this ServerSession's lock.
+         */
+        public QuizSession getSession() {
+            return mSession;
+        }
+    }
+
+    private final CountryCatalog mCatalog;
+    private final RegionIndex mRegionIndex;
+    private final int mQuestionCount;
+    private final int mMaxSessions;
+    private final ConcurrentMap<String, ServerSession> mSessions = new ConcurrentHashMap<>();
+    private final Object mCreateLock = new Object(); // held while a session is checked in against mMaxSessions
+    // the countries of every region selection asked for so far, shared by the sessions
+    private final ConcurrentMap<BitSet, int[]> mSelections = new ConcurrentHashMap<>();
+    private final SecureRandom mIds = new SecureRandom();
+    private final QuizRandom mRandom; // split for every new session, guarded by itself
+    private final AtomicLong mCreated = new AtomicLong();
+    private final AtomicLong mFinished = new AtomicLong();
+    private final AtomicLong mEvicted = new AtomicLong();
+
+    /**
+     * @param catalog the countries of every quiz.
+     * @param questionCount how many questions a quiz has.
+     * @param maxSessions how many sessions the store holds at most.
+     * @param random split into the random numbers of every session.
+     */
+    public SessionStore(CountryCatalog catalog, int questionCount, int maxSessions, QuizRandom random) {
+        mCatalog = catalog;
+        mRegionIndex = new RegionIndex(catalog);
+        mQuestionCount = questionCount;
+        mMaxSessions = maxSessions;
+        mRandom = random;
+    }
+
+    public CountryCatalog getCatalog() {
+        return mCatalog;
+    }
+
+    public int getMaxSessions() {
+        return mMaxSessions;
+    }
+
+    /**
+     * Creates a session and starts its quiz, with its first question shown.
+     * @param regionNames the regions to pick countries from, null or empty for all of them.
+     * @param choices how many answer choices a question has.
+     * @param now System.nanoTime().
+     * @return the session, null if the store is full.
+     * @throws IllegalArgumentException if the regions have fewer countries than a quiz has
+     * questions, or choices is below 2.
+     */
+    public ServerSession create(Collection<String> regionNames, int choices, long now) {
+        if (mSessions.size() >= mMaxSessions)
+            return null;
+        QuizRandom random;
+        synchronized (mRandom) {
+            random = mRandom.split();
+        }
+        QuizSession session = new QuizSession(new QuizEngine(random), mQuestionCount, null);
+        session.setCountries(select(regionNames));
+        session.setChoices(choices);
+        session.reset();
+        session.prepareNextQuestion();
+        session.showPreparedQuestion();
+
+        ServerSession serverSession;
+        synchronized (mCreateLock) {
+            // checked again, the store may have filled up while the quiz was set up
+            if (mSessions.size() >= mMaxSessions)
+                return null;
+            do
+                serverSession = new ServerSession(newId(), session, now);
+            while (mSessions.putIfAbsent(serverSession.mId, serverSession) != null);
+        }
+        mCreated.incrementAndGet();
+        return serverSession;
+    }
+
+    /**
+     * @param id a session id.
+     * @param now System.nanoTime(), the session counts as used then.
+     * @return the session, null if there is none with that id.
+     */
+    public ServerSession get(String id, long now) {
+        ServerSession session = mSessions.get(id);
+        if (session != null)
+            session.mLastUsedNanos = now;
+        return session;
+    }
+
+    /**
+     * @param id a session id.
+     * @return the removed session, null if there was none with that id.
+     */
+    public ServerSession remove(String id) {
+        return mSessions.remove(id);
+    }
+
+    /**
+     * Counts a finished quiz, for getFinished().
+     */
+    public void onFinished() {
+        mFinished.incrementAndGet();
+    }
+
+    /**
+     * Drops the sessions which were not used for a while.
+     * @param now System.nanoTime().
+     * @param idleNanos how long a session may be unused.
+     * @return how many sessions were dropped.
+     */
+    public int evictIdle(long now, long idleNanos) {
+        int evicted = 0;
+        for (Iterator<ServerSession> it = mSessions.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().mLastUsedNanos > idleNanos) {
+                it.remove();
+                ++evicted;
+            }
+        }
+        mEvicted.addAndGet(evicted);
+        return evicted;
+    }
+
+    /**
+     * @return how many sessions there are now.
+     */
+    public int size() {
+        return mSessions.size();
+    }
+
+    public long getCreated() {
+        return mCreated.get();
+    }
+
+    public long getFinished() {
+        return mFinished.get();
+    }
+
+    public long getEvicted() {
+        return mEvicted.get();
+    }
+
+    private int[] select(Collection<String> regionNames) {
+        BitSet regionIds = new BitSet();
+        if (regionNames == null || regionNames.isEmpty())
+            regionIds.set(0, mRegionIndex.getRegionCount());
+        else
+            regionIds = mRegionIndex.toRegionIds(regionNames);
+        int[] countryIds = mSelections.get(regionIds);
+        if (countryIds == null) {
+            countryIds = mRegionIndex.select(regionIds);
+            if (countryIds.length < mQuestionCount)
+                throw new IllegalArgumentException(countryIds.length + " countries in the regions "
+                        + regionNames + ", a quiz has " + mQuestionCount + " questions");
+            int[] raced = mSelections.putIfAbsent(regionIds, countryIds);
+            if (raced != null)
+                countryIds = raced;
+        }
+        return countryIds;
+    }
+
+    // 128 random bits, as hex, so ids of other students can not be guessed
+    private String newId() {
+        byte[] bytes = new byte[16];
+        mIds.nextBytes(bytes);
+        char[] hex = new char[32];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            hex[2 * i + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+}
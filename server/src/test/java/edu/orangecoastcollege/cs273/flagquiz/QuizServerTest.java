@@ -0,0 +1,161 @@
+package edu.orangecoastcollege.cs273.flagquiz;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests for QuizServer and SessionStore, on a server on a free port.
+ */
+public class QuizServerTest {
+
+    private static final String CATALOG_PATH = "../app/src/main/assets/Countries.json";
+
+    private QuizServer mServer;
+    private int mStatus;
+
+    @Before
+    public void startServer() throws IOException {
+        SessionStore store = new SessionStore(QuizServer.loadCatalog(CATALOG_PATH),
+                QuizServer.QUESTIONS_IN_QUIZ, 3, QuizRandom.create(42));
+        mServer = new QuizServer(store, 0, 2, 30);
+        mServer.start();
+    }
+
+    @After
+    public void stopServer() {
+        mServer.stop();
+    }
+
+    @Test
+    public void playsAQuizToTheEnd() throws IOException {
+        String body = request("POST", "/sessions?regions=Europe,Asia&choices=6");
+        assertEquals(201, mStatus);
+        String id = body.substring(7, 39);
+        assertTrue(body, body.contains("\"number\":1,\"of\":10"));
+        assertEquals(body, request("GET", "/sessions/" + id));
+
+        SessionStore.ServerSession session = mServer.getStore().get(id, System.nanoTime());
+        for (int question = 1; question <= QuizServer.QUESTIONS_IN_QUIZ; question++) {
+            Question shown = session.getSession().getQuestion();
+            assertEquals(6, shown.getChoiceCount());
+            String region = mServer.getStore().getCatalog().getRegion(shown.getCorrectId());
+            assertTrue(region, region.equals("Europe") || region.equals("Asia"));
+
+            int wrong = (shown.getCorrectSlot() + 1) % 6;
+            body = request("POST", "/sessions/" + id + "/guess?slot=" + wrong);
+            assertTrue(body, body.contains("\"outcome\":\"WRONG\""));
+            body = request("POST", "/sessions/" + id + "/guess?slot=" + shown.getCorrectSlot());
+            assertEquals(200, mStatus);
+            String outcome = question < QuizServer.QUESTIONS_IN_QUIZ ? "CORRECT" : "FINISHED";
+            assertTrue(body, body.contains("\"outcome\":\"" + outcome + "\""));
+        }
+        assertTrue(body, body.contains("\"guesses\":20,\"correct\":10,\"outcome\":\"FINISHED\",\"question\":null"));
+
+        request("POST", "/sessions/" + id + "/guess?slot=0");
+        assertEquals(409, mStatus);
+        assertTrue(request("GET", "/stats").contains("\"sessions\":1,\"created\":1,\"finished\":1"));
+        assertEquals("{\"id\":\"" + id + "\",\"guesses\":20,\"correct\":10}", request("DELETE", "/sessions/" + id));
+        request("GET", "/sessions/" + id);
+        assertEquals(404, mStatus);
+    }
+
+    @Test
+    public void rejectsBadRequests() throws IOException {
+        request("POST", "/sessions?regions=Atlantis");
+        assertEquals(400, mStatus);
+        request("POST", "/sessions?choices=1");
+        assertEquals(400, mStatus);
+        request("GET", "/sessions");
+        assertEquals(405, mStatus);
+        String id = request("POST", "/sessions").substring(7, 39);
+        request("POST", "/sessions/" + id + "/guess?slot=4");
+        assertEquals(400, mStatus);
+        request("POST", "/sessions/" + id + "/guess?slot=x");
+        assertEquals(400, mStatus);
+        request("POST", "/sessions/" + id + "/skip");
+        assertEquals(404, mStatus);
+    }
+
+    @Test
+    public void refusesSessionsWhenFull() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            request("POST", "/sessions");
+            assertEquals(201, mStatus);
+        }
+        request("POST", "/sessions");
+        assertEquals(503, mStatus);
+    }
+
+    @Test
+    public void concurrentCreatesStayUnderTheLimit() throws Exception {
+        final SessionStore store = new SessionStore(mServer.getStore().getCatalog(),
+                QuizServer.QUESTIONS_IN_QUIZ, 50, QuizRandom.create(7));
+        final AtomicInteger created = new AtomicInteger();
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int t = 0; t < futures.length; t++)
+                futures[t] = threads.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < 100; i++)
+                            if (store.create(null, 4, 0) != null)
+                                created.incrementAndGet();
+                        return null;
+                    }
+                });
+            for (Future<?> future : futures)
+                future.get();
+        }
+        finally {
+            threads.shutdown();
+        }
+        assertEquals(50, created.get());
+        assertEquals(50, store.size());
+        assertEquals(50, store.getCreated());
+    }
+
+    @Test
+    public void evictsIdleSessions() {
+        SessionStore store = mServer.getStore();
+        SessionStore.ServerSession old = store.create(null, 4, 0);
+        SessionStore.ServerSession used = store.create(null, 4, 0);
+        assertNotNull(store.get(used.getId(), 100));
+        assertEquals(1, store.evictIdle(150, 60));
+        assertEquals(null, store.get(old.getId(), 150));
+        assertEquals(used, store.get(used.getId(), 150));
+        assertEquals(1, store.getEvicted());
+    }
+
+    private String request(String method, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+                new URL("http://localhost:" + mServer.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        mStatus = connection.getResponseCode();
+        InputStream in = mStatus < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in != null) {
+            byte[] buffer = new byte[4096];
+            for (int n; (n = in.read(buffer)) > 0; )
+                body.write(buffer, 0, n);
+            in.close();
+        }
+        return body.toString("UTF-8");
+    }
+}